@@ -18,7 +18,7 @@ import grid.ArrayType;
 import grid.SpatialGrid;
 import referenceLibrary.AspectRef;
 import shape.Shape;
-import shape.subvoxel.CoordinateMap;
+import shape.subvoxel.DistributionMap;
 
 /**
  * \brief detect local solute concentrations and return as a Hashmap
@@ -63,9 +63,10 @@ public class LocalConcentrations extends Calculated
 		}
 		
 		@SuppressWarnings("unchecked")
-		Map<Shape, CoordinateMap> mapOfMaps = 
-				(Map<Shape, CoordinateMap>) anAgent.getValue(VD_TAG);
-		CoordinateMap distribMap = mapOfMaps.get(comp.getShape());
+		Map<Shape, DistributionMap> mapOfMaps = 
+				(Map<Shape, DistributionMap>) anAgent.getValue(VD_TAG);
+		DistributionMap distribMap = mapOfMaps.get(comp.getShape());
+		int[] coord = new int[3];
 		
 		/*
 		 * Loop over the coordinates, storing the solute concentrations.
@@ -73,14 +74,15 @@ public class LocalConcentrations extends Calculated
 		for ( SpatialGrid solute: solutes )
 		{
 			double concn = 0;
-			for ( int[] coord : distribMap.keySet() )
+			for ( int n = 0; n < distribMap.size(); n++ )
 			{
-				 concn += solute.getValueAt(ArrayType.CONCN, coord);
+				 concn += solute.getValueAt(ArrayType.CONCN, 
+						 distribMap.getCoordTo(coord, n));
 			}
 			/* store averaged local concentration, assuming equal distribution
 			 * for a more correct implementation consider Shape getVoxelVolume 
 			 */
-			out.put(solute.getName(), concn / distribMap.keySet().size() );
+			out.put(solute.getName(), concn / distribMap.size() );
 		}
 		return out;
 	}
@@ -1,10 +1,13 @@
 package aspect.calculated;
 
-import java.util.HashMap;
+import java.util.Map;
 
+import agent.Agent;
 import aspect.AspectInterface;
 import aspect.Calculated;
 import referenceLibrary.AspectRef;
+import shape.Shape;
+import shape.subvoxel.DistributionMap;
 
 /**
  * \brief TODO
@@ -30,27 +33,20 @@ public class VoxelDistributionMap extends Calculated
 	public Object get(AspectInterface aspectOwner)
 	{
 		/*
-		 * Obtain volume distribution map.
+		 * Obtain volume distribution map of the agent's compartment.
 		 */
 		@SuppressWarnings("unchecked")
-		HashMap<int[],Double> distrib =
-				(HashMap<int[],Double>) aspectOwner.getValue(DISTRIBUTIONMAP);
+		Map<Shape, DistributionMap> mapOfMaps = (Map<Shape, DistributionMap>)
+				aspectOwner.getValue(DISTRIBUTIONMAP);
+		DistributionMap distrib = mapOfMaps.get(
+				((Agent) aspectOwner).getCompartment().getShape());
 		/*
-		 * Calculate total volume.
+		 * Assign appropriate mass portions to grid voxels: scaling the copy
+		 * to the agent's mass is the same as multiplying the volumes by a
+		 * hypothetical density.
 		 */
-		double totalVol = 0.0;
-		for( int[] key : distrib.keySet() )
-			totalVol += distrib.get(key);
-		/*
-		 * Calculate hypothetical density.
-		 */
-		double mv =  aspectOwner.getDouble(MASS) / totalVol;
-		/*
-		 * Assign appropriate mass portions to grid voxels.
-		 */
-		HashMap<int[],Double> massDistribution = new HashMap<int[],Double>();
-		for(int[] key : distrib.keySet())
-			massDistribution.put( key, distrib.get(key) * mv );
+		DistributionMap massDistribution = (DistributionMap) distrib.copy();
+		massDistribution.scale(aspectOwner.getDouble(MASS));
 		return massDistribution;
 	}
 }
@@ -16,7 +16,7 @@ import grid.SpatialGrid;
 import linearAlgebra.Vector;
 import referenceLibrary.AspectRef;
 import shape.Shape;
-import shape.subvoxel.CoordinateMap;
+import shape.subvoxel.DistributionMap;
 
 /**
  * \brief Testing/template event that detects the local solute concentrations
@@ -75,17 +75,18 @@ public class DetectLocalSolute extends Event
 		}
 		
 		@SuppressWarnings("unchecked")
-		Map<Shape, CoordinateMap> mapOfMaps = 
-				(Map<Shape, CoordinateMap>) anAgent.getValue(VD_TAG);
-		CoordinateMap distribMap = 
+		Map<Shape, DistributionMap> mapOfMaps = 
+				(Map<Shape, DistributionMap>) anAgent.getValue(VD_TAG);
+		DistributionMap distribMap = 
 				mapOfMaps.get(anAgent.getCompartment().getShape());
 		/*
 		 * Loop over the coordinates, printing out the solute concentrations.
 		 * This is the part that would be changed in any event using this as a
 		 * template.
 		 */
-		for ( int[] coord : distribMap.keySet() )
+		for ( int n = 0; n < distribMap.size(); n++ )
 		{
+			int[] coord = distribMap.getCoord(n);
 			if ( Log.shouldWrite(level) )
 			{
 				Log.out(level, "  concn at "+Vector.toString(coord)+" is "+
@@ -169,6 +169,33 @@ public abstract class SpatialBoundary extends Boundary
 		return this.calcDiffusiveFlow(grid);
 	}
 	
+	/**
+	 * \brief Stateless version of {@link #getDiffusiveFlow(SpatialGrid)}, for
+	 * use with a {@link shape.Stencil}: the voxel and geometry are passed
+	 * explicitly rather than read from the shape's iterator.
+	 * 
+	 * @param grid Spatial grid representing a variable with a {@code CONCN}
+	 * array, typically a solute.
+	 * @param index Linear index of the voxel next to this boundary.
+	 * @param sArea Surface area shared by the voxel and this boundary.
+	 * @param dist Centre-centre distance between the voxel and this boundary.
+	 * @return The rate of diffusive flow across this boundary, in units of
+	 * mass or mole per time.
+	 */
+	public double getDiffusiveFlow(SpatialGrid grid, int index, double sArea,
+			double dist)
+	{
+		Double bndrConcn = this.getFixedConcentration(grid);
+		if ( bndrConcn == null )
+			return 0.0;
+		double valueDiff = bndrConcn - grid.getValueAt(ArrayType.CONCN, index);
+		/* The diffusivity comes only from the current voxel. */
+		double diffusivity = grid.getValueAt(ArrayType.DIFFUSIVITY, index);
+		/* Calculate flux and flow in the same way as in SpatialGrid. */
+		double flux = valueDiff * diffusivity / dist ;
+		return flux * sArea;
+	}
+	
 	/**
 	 * \brief TODO
 	 * 
@@ -177,6 +204,23 @@ public abstract class SpatialBoundary extends Boundary
 	 */
 	protected abstract double calcDiffusiveFlow(SpatialGrid grid);
 	
+	/**
+	 * \brief Fixed concentration this boundary imposes on the given grid.
+	 * 
+	 * <p>Boundaries that calculate their flow with
+	 * {@link #calcDiffusiveFlowFixed(SpatialGrid, double)} should override
+	 * this, all others have no diffusive flow in the stateless
+	 * {@link #getDiffusiveFlow(SpatialGrid, int, double, double)}.</p>
+	 * 
+	 * @param grid
+	 * @return Concentration of the grid's variable on this boundary, null if
+	 * there is no fixed concentration.
+	 */
+	public Double getFixedConcentration(SpatialGrid grid)
+	{
+		return null;
+	}
+	
 	/**
 	 * \brief TODO
 	 * 
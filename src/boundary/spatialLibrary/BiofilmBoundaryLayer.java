@@ -162,9 +162,15 @@ public class BiofilmBoundaryLayer extends WellMixedBoundary
 	@Override
 	protected double calcDiffusiveFlow(SpatialGrid grid)
 	{
-		double concn = this._concns.get(grid.getName());
+		double concn = this.getFixedConcentration(grid);
 		return this.calcDiffusiveFlowFixed(grid, concn);
 	}
+	
+	@Override
+	public Double getFixedConcentration(SpatialGrid grid)
+	{
+		return this._concns.get(grid.getName());
+	}
 
 	public void updateWellMixedArrayOld()
 	{
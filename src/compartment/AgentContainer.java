@@ -31,8 +31,10 @@ import settable.Module.Requirements;
 import settable.Settable;
 import shape.Dimension.DimName;
 import shape.Shape;
+import spatialRegistry.CellGrid;
 import spatialRegistry.DummyTree;
 import spatialRegistry.EpithelialGrid;
+import spatialRegistry.PairBuffer;
 import spatialRegistry.RTree;
 import spatialRegistry.SpatialRegistry;
 import spatialRegistry.TreeType;
@@ -118,6 +120,12 @@ public class AgentContainer implements Settable
 	 */
 	private TreeType _spatialTreeType = TreeType.SPLITTREE;
 	
+	/**
+	 * Margin by which agent bounding boxes are inflated in the spatial
+	 * registry, allowing for incremental registry updates.
+	 */
+	private double _registryMargin = 0.0;
+	
 	
 	private String AGENTVOLUME = AspectRef.agentVolume;
 	
@@ -147,7 +155,11 @@ public class AgentContainer implements Settable
 	 */
 	public void setSpatialTreeType(TreeType type) 
 	{
+		if ( this._spatialTreeType == type )
+			return;
 		this._spatialTreeType = type;
+		this.makeAgentTree();
+		this.refreshSpatialRegistry();
 	}
 	
 	/**
@@ -191,8 +203,17 @@ public class AgentContainer implements Settable
 						this.getShape().getDimensionLengths() ),
 						this._shape.getIsCyclicNaturalOrder() );
 				break;
+			case CELLGRID:
+				double[] low = Vector.zerosDbl(
+						this.getShape().getNumberOfDimensions() );
+				this._agentTree = new CellGrid<Agent>( low, Vector.add( low, 
+						this.getShape().getDimensionLengths() ),
+						this._shape.getIsCyclicNaturalOrder(), 
+						Global.cell_grid_length );
+				break;
 			}
 		}
+		this._agentTree.setMargin(this._registryMargin);
 	}
 
 	/**
@@ -455,6 +476,29 @@ public class AgentContainer implements Settable
 		return out;
 	}
 
+	/**
+	 * \brief Find all pairs of located agents that are potentially within the
+	 * given distance of each other, with a single pass over the spatial
+	 * registry. Every pair is reported once (in arbitrary orientation).
+	 * 
+	 * @param searchDist Distance around every agent to search.
+	 * @param out Buffer receiving the agents and pairs of agent indices, note
+	 * that there may be some false positives (but no false negatives).
+	 * @return false if the pairs could not be obtained (the registry does not
+	 * support self-joins or epithelial agents are present), the buffer is
+	 * then left empty and the caller should fall back to 
+	 * {@link #agentSearch(Agent, double)} per agent.
+	 */
+	public boolean agentPairs(double searchDist, PairBuffer<Agent> out)
+	{
+		if ( this._epithelialGrid != null )
+		{
+			out.clear();
+			return false;
+		}
+		return this._agentTree.pairs(searchDist, out);
+	}
+
 	/**
 	 * \brief Find all agents that are potentially within the
 	 * given distance of a surface.
@@ -754,13 +798,24 @@ public class AgentContainer implements Settable
 	 * @param anAgent Agent to insert.
 	 */
 	private void treeInsert(Agent anAgent)
+	{
+		for ( BoundingBox b: this.registryBoxes(anAgent) )
+			this._agentTree.insert(b, anAgent);
+	}
+	
+	/**
+	 * \brief The bounding boxes with which the given agent is registered in
+	 * the spatial registry (including pull distance).
+	 * 
+	 * @param anAgent
+	 * @return
+	 */
+	private List<BoundingBox> registryBoxes(Agent anAgent)
 	{
 		Body body = ((Body) anAgent.get(AspectRef.agentBody));
 		Double dist = anAgent.getDouble(AspectRef.agentPullDistance);
 		dist = Helper.setIfNone(dist, 0.0);
-		List<BoundingBox> boxes = body.getBoxes(dist, this.getShape());
-		for ( BoundingBox b: boxes )
-			this._agentTree.insert(b, anAgent);
+		return body.getBoxes(dist, this.getShape());
 	}
 
 	/**
@@ -773,6 +828,39 @@ public class AgentContainer implements Settable
 		for ( Agent a : this.getAllLocatedAgents() )
 			this.treeInsert(a);
 	}
+	
+	/**
+	 * \brief Incrementally update the spatial registry for all located agents,
+	 * only agents that moved beyond their registry margin are re-inserted.
+	 * 
+	 * <p>Falls back to {@link #refreshSpatialRegistry()} if the registry does
+	 * not support incremental updates. Note that agents removed from this
+	 * container are not removed from the registry until the next full 
+	 * refresh.</p>
+	 */
+	public void updateSpatialRegistry()
+	{
+		for ( Agent a : this._locatedAgentList )
+			if ( ! this._agentTree.update( this.registryBoxes(a), a ) )
+			{
+				this.refreshSpatialRegistry();
+				return;
+			}
+	}
+	
+	/**
+	 * \brief Set the margin by which agent bounding boxes are inflated in the
+	 * spatial registry, a larger margin results in fewer re-insertions on
+	 * {@link #updateSpatialRegistry()} at the cost of more false positives
+	 * in searches.
+	 * 
+	 * @param margin
+	 */
+	public void setSpatialRegistryMargin(double margin)
+	{
+		this._registryMargin = margin;
+		this._agentTree.setMargin(margin);
+	}
 
 	/**
 	 * \brief Choose a single agent by its place in the combined lists
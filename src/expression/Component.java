@@ -63,6 +63,24 @@ public abstract class Component extends Elemental
 	 */
 	protected abstract double calculateValue(Map<String, Double> variables);
 	
+	@Override
+	public double getValue(String[] names, double[] values)
+	{
+		double out = this.calculateValue(names, values);
+		return ( this._isNegative ) ? -out : out;
+	}
+	
+	/**
+	 * \brief Internal helper method for {@link #getValue(String[], double[])},
+	 * see {@link #calculateValue(Map)}.
+	 * 
+	 * @param names Variable names, in the order of <b>values</b>.
+	 * @param values Variable values.
+	 * @return Real number value of the evaluation of this mathematical
+	 * expression, when assumed positive.
+	 */
+	protected abstract double calculateValue(String[] names, double[] values);
+	
 	/**
 	 * \brief Differentiate this mathematical expression with respect to the
 	 * given component, be it a variable or a constant.
@@ -36,6 +36,12 @@ public abstract class ComponentBoolean extends Elemental {
 	public double getValue(Map<String, Double> variables) 
 	{
 		return (this.calculateBoolean(variables) ? 1.0 : 0.0);
+	}
+	
+	@Override
+	public double getValue(String[] names, double[] values)
+	{
+		return (this.calculateBoolean(names, values) ? 1.0 : 0.0);
 	}	
 	
 	public abstract boolean booleanEvaluate(AspectInterface subject);
@@ -53,5 +59,7 @@ public abstract class ComponentBoolean extends Elemental {
 	}
 	
 	public abstract Boolean calculateBoolean(Map<String, Double> variables);
+	
+	public abstract boolean calculateBoolean(String[] names, double[] values);
 
 }
@@ -31,6 +31,17 @@ public abstract class Elemental {
 	
 	public abstract double getValue(Map<String, Double> variables);
 	
+	/**
+	 * \brief Evaluate this component with the variable values given as a
+	 * primitive array, avoiding a dictionary of boxed values.
+	 * 
+	 * @param names Variable names, in the order of <b>values</b>. Pass the
+	 * same array on every call, variables cache their index in it.
+	 * @param values Variable values.
+	 * @return Real number value of the evaluation.
+	 */
+	public abstract double getValue(String[] names, double[] values);
+	
 	public Elemental(Type type)
 	{
 		this._type = type;
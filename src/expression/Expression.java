@@ -745,6 +745,12 @@ public class Expression extends Component implements Settable
 	{
 		return this._a.getValue(variables);
 	}
+	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return this._a.getValue(names, values);
+	}
 
 	@Override
 	public Object evaluate(AspectInterface subject) {
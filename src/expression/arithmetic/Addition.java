@@ -36,6 +36,12 @@ public class Addition extends ComponentDouble
 		return _a.getValue(variables) + _b.getValue(variables);
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return _a.getValue(names, values) + _b.getValue(names, values);
+	}
+	
 	@Override
 	public Component differentiate(String withRespectTo)
 	{
@@ -47,6 +47,12 @@ public class Constant extends ComponentSimple
 		return this._value;
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return this._value;
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -38,6 +38,12 @@ public class Cosine extends ComponentSingle
 		return Math.cos(this._a.getValue(variables));
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return Math.cos(this._a.getValue(names, values));
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -38,6 +38,15 @@ public class Division extends ComponentDouble
 		return this._a.getValue(variables) / b;
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		double b = this._b.getValue(names, values);
+		if ( b == 0.0 )
+			this.infiniteValueWarning();
+		return this._a.getValue(names, values) / b;
+	}
+	
 
 	@Override
 	public Object evaluate(AspectInterface subject) 
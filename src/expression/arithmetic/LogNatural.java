@@ -35,6 +35,12 @@ public class LogNatural extends ComponentSingle
 		return Math.log(this._a.getValue(variables));
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return Math.log(this._a.getValue(names, values));
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
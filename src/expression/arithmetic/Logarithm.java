@@ -61,6 +61,16 @@ public class Logarithm extends ComponentDouble
 		return Math.log(a)/Math.log(b);
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		double a = this._a.getValue(names, values);
+		double b = this._b.getValue(names, values);
+		if ( b == 1.0 || b <= 0.0 )
+			this.infiniteValueWarning();
+		return Math.log(a)/Math.log(b);
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
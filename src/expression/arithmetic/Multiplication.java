@@ -37,6 +37,12 @@ public class Multiplication extends ComponentDouble
 
 	}
 	
+	@Override
+	public double calculateValue(String[] names, double[] values)
+	{
+		return this._a.getValue(names, values) * this._b.getValue(names, values);
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -53,6 +53,17 @@ public class Power extends ComponentDouble
 		return Math.pow(a, b);
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		double a = this._a.getValue(names, values);
+		double b = this._b.getValue(names, values);
+		/* Can't divide by zero! */
+		if ( a == 0.0 && b < 0.0 )
+			this.infiniteValueWarning();
+		return Math.pow(a, b);
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -35,6 +35,12 @@ public class Sign extends ComponentSingle
 		return Math.signum(this._a.getValue(variables));
 	}
 	
+	@Override
+	public double calculateValue(String[] names, double[] values)
+	{
+		return Math.signum(this._a.getValue(names, values));
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
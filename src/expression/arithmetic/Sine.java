@@ -41,6 +41,12 @@ public class Sine extends ComponentSingle
 		return Math.sin(this._a.getValue(variables));
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return Math.sin(this._a.getValue(names, values));
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -35,6 +35,12 @@ public class Subtraction extends ComponentDouble
 		return this._a.getValue(variables) - this._b.getValue(variables);
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		return this._a.getValue(names, values) - this._b.getValue(names, values);
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
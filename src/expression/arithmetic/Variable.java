@@ -18,6 +18,26 @@ import expression.ComponentSimple;
  */
 public class Variable extends ComponentSimple
 {
+	/**
+	 * Index of this variable in the last names array it was evaluated with,
+	 * replaced as a whole so that concurrent evaluations see a consistent
+	 * pair.
+	 */
+	private Index _index = new Index(null, -1);
+	
+	private static class Index
+	{
+		final String[] names;
+		
+		final int index;
+		
+		Index(String[] names, int index)
+		{
+			this.names = names;
+			this.index = index;
+		}
+	}
+	
 	/**
 	 * \brief Construct a variable from its name.
 	 * 
@@ -53,6 +73,21 @@ public class Variable extends ComponentSimple
 		return variables.get(this._name);
 	}
 	
+	@Override
+	protected double calculateValue(String[] names, double[] values)
+	{
+		Index index = this._index;
+		if ( index.names != names )
+		{
+			int i = names.length - 1;
+			while ( i >= 0 && ! names[i].equals(this._name) )
+				i--;
+			index = new Index(names, i);
+			this._index = index;
+		}
+		return values[index.index];
+	}
+	
 	@Override
 	public Object evaluate(AspectInterface subject) 
 	{
@@ -26,6 +26,13 @@ public class LogicAnd extends ComponentBoolean {
 		return (this._c.calculateBoolean(variables) && 
 				this._d.calculateBoolean(variables));
 	}
+	
+	@Override
+	public boolean calculateBoolean(String[] names, double[] values)
+	{
+		return (this._c.calculateBoolean(names, values) && 
+				this._d.calculateBoolean(names, values));
+	}
 
 	@Override
 	public boolean booleanEvaluate(AspectInterface subject) {
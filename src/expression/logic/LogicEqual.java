@@ -19,6 +19,12 @@ public class LogicEqual extends ComponentBoolean {
 	public Boolean calculateBoolean(Map<String, Double> variables) 
 	{
 		return ( this._a.getValue(variables) == this._b.getValue(variables)  );
+	}
+	
+	@Override
+	public boolean calculateBoolean(String[] names, double[] values)
+	{
+		return ( this._a.getValue(names, values) == this._b.getValue(names, values)  );
 	}		
 	
 	@Override
@@ -23,6 +23,12 @@ public class LogicNot extends ComponentBoolean {
 	public Boolean calculateBoolean(Map<String, Double> variables) 
 	{
 		return ( !this._c.calculateBoolean(variables) );
+	}
+	
+	@Override
+	public boolean calculateBoolean(String[] names, double[] values)
+	{
+		return ( !this._c.calculateBoolean(names, values) );
 	}	
 
 	@Override
@@ -25,6 +25,13 @@ public class LogicXnor extends ComponentBoolean {
 	{
 		return (this._c.calculateBoolean(variables) == 
 				this._d.calculateBoolean(variables));
+	}
+	
+	@Override
+	public boolean calculateBoolean(String[] names, double[] values)
+	{
+		return (this._c.calculateBoolean(names, values) == 
+				this._d.calculateBoolean(names, values));
 	}	
 	
 	@Override
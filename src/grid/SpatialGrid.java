@@ -2,6 +2,7 @@ package grid;
 
 import static grid.ArrayType.DIFFUSIVITY;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,6 +31,7 @@ import settable.Module;
 import settable.Module.Requirements;
 import settable.Settable;
 import shape.Shape;
+import shape.Stencil;
 import surface.Voxel;
 import surface.collision.CollisionUtilities;
 import utility.ExtraMath;
@@ -51,6 +53,13 @@ import utility.Helper;
  * iterate over all neighbouring voxels of the voxel the main iterator is
  * currently focused on.</p>
  * 
+ * <p>Arrays are stored as one contiguous {@code double[]} per array type, in
+ * the (i, j, k) order of the arrays created by the shape. Polar shapes have
+ * a varying number of voxels per row, every row therefore has its own start
+ * index. Solver kernels can use the linear index accessors and
+ * {@link #getFlatArray(ArrayType)} to avoid the coordinate look-ups, the
+ * coordinate based methods remain available.</p>
+ * 
  * <p>On the boundaries of the grid, </p>
  * 
  * @author Robert Clegg (r.j.clegg@bham.ac.uk) University of Birmingham, U.K.
@@ -73,8 +82,23 @@ public class SpatialGrid implements Settable, Instantiable
 	 * Dictionary of arrays according to their type. Note that not all types
 	 * may be occupied.
 	 */
-	protected Map<ArrayType, double[][][]> _array = 
-			new HashMap<ArrayType, double[][][]>();
+	protected Map<ArrayType, double[]> _array = 
+			new EnumMap<ArrayType, double[]>(ArrayType.class);
+	/**
+	 * Linear index of the first voxel of every (i, j) row and the number of
+	 * voxels in that row, identical for all array types.
+	 */
+	protected int[][] _rowStart;
+	protected int[][] _rowLength;
+	/**
+	 * Total number of voxels.
+	 */
+	protected int _size;
+	/**
+	 * Linear index strides per dimension for grids with an equal number of
+	 * voxels in every row (Cartesian shapes), null otherwise.
+	 */
+	protected int[] _stride;
 	/**
 	 * TODO
 	 */
@@ -343,9 +367,48 @@ public class SpatialGrid implements Settable, Instantiable
 		 * make it.
 		 */
 		if ( this.hasArray(type) )
-			Array.setAll(this._array.get(type), initialValues);
+			Vector.setAll(this._array.get(type), initialValues);
 		else
-			this._array.put(type, this._shape.getNewArray(initialValues));
+		{
+			if ( this._array.isEmpty() )
+				this.setLayout(this._shape.getNewArray(0.0));
+			this._array.put(type, 
+					Vector.vector(this._size, initialValues));
+		}
+	}
+	
+	/**
+	 * \brief Set the linear layout of the arrays from an array of the shape.
+	 * 
+	 * @param template Array with the dimensions of the shape.
+	 */
+	private void setLayout(double[][][] template)
+	{
+		this._rowStart = new int[template.length][];
+		this._rowLength = new int[template.length][];
+		int index = 0;
+		boolean regular = true;
+		for ( int i = 0; i < template.length; i++ )
+		{
+			this._rowStart[i] = new int[template[i].length];
+			this._rowLength[i] = new int[template[i].length];
+			for ( int j = 0; j < template[i].length; j++ )
+			{
+				this._rowStart[i][j] = index;
+				this._rowLength[i][j] = template[i][j].length;
+				index += template[i][j].length;
+				regular &= ( template[i].length == template[0].length && 
+						template[i][j].length == template[0][0].length );
+			}
+		}
+		this._size = index;
+		if ( regular )
+		{
+			int nK = template[0][0].length;
+			this._stride = new int[] { template[0].length * nK, nK, 1 };
+		}
+		else
+			this._stride = null;
 	}
 	
 	/**
@@ -381,7 +444,31 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public double[][][] getArray(ArrayType type)
 	{
-		return Array.copy(this._array.get(type));
+		double[] array = this._array.get(type);
+		double[][][] out = new double[this._rowStart.length][][];
+		for ( int i = 0; i < out.length; i++ )
+		{
+			out[i] = new double[this._rowStart[i].length][];
+			for ( int j = 0; j < out[i].length; j++ )
+			{
+				out[i][j] = new double[this._rowLength[i][j]];
+				System.arraycopy(array, this._rowStart[i][j], out[i][j], 0,
+						out[i][j].length);
+			}
+		}
+		return out;
+	}
+	
+	/**
+	 * \brief Get the contiguous storage of an array held in this grid, this
+	 * is not a copy: changes are applied to the grid.
+	 * 
+	 * @param type The type of array required.
+	 * @return Array values in linear index order, see {@link #index(int[])}.
+	 */
+	public double[] getFlatArray(ArrayType type)
+	{
+		return this._array.get(type);
 	}
 
 	/* ***********************************************************************
@@ -396,7 +483,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void setAllTo(ArrayType type, double value)
 	{
-		Array.setAll(this._array.get(type), value);
+		Vector.setAll(this._array.get(type), value);
 	}
 	
 	/**
@@ -418,7 +505,11 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void setTo(ArrayType type, double[][][] array)
 	{
-		Array.copyTo(this._array.get(type), array);
+		double[] destination = this._array.get(type);
+		for ( int i = 0; i < array.length; i++ )
+			for ( int j = 0; j < array[i].length; j++ )
+				System.arraycopy(array[i][j], 0, destination, 
+						this._rowStart[i][j], array[i][j].length);
 	}
 	
 	/**
@@ -447,7 +538,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void makeNonnegative(ArrayType type)
 	{
-		Array.makeNonnegative(this._array.get(type));
+		Vector.makeNonnegative(this._array.get(type));
 	}
 	
 	/**
@@ -462,7 +553,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void addToAll(ArrayType type, double value)
 	{
-		Array.addEquals(this._array.get(type), value);
+		Vector.addEquals(this._array.get(type), value);
 	}
 	
 	/**
@@ -477,7 +568,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void timesAll(ArrayType type, double value)
 	{
-		Array.timesEquals(this._array.get(type), value);
+		Vector.timesEquals(this._array.get(type), value);
 	}
 	
 	/* ***********************************************************************
@@ -492,7 +583,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public double getMax(ArrayType type)
 	{
-		return Array.max(this._array.get(type));
+		return Vector.max(this._array.get(type));
 	}
 	
 	/**
@@ -503,7 +594,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public double getMin(ArrayType type)
 	{
-		return Array.min(this._array.get(type));
+		return Vector.min(this._array.get(type));
 	}
 	
 	/**
@@ -515,7 +606,15 @@ public class SpatialGrid implements Settable, Instantiable
 	// FIXME this currently ignores voxel volumes.
 	public double getAverage(ArrayType type)
 	{
-		return Array.meanArith(this._array.get(type));
+		double total = 0.0;
+		double n = 0.0;
+		for ( double elem : this._array.get(type) )
+			if ( Double.isFinite(elem) )
+			{
+				total += elem;
+				n++;
+			}
+		return (n == 0.0) ? Vector.UNDEFINED_AVERAGE : total/n;
 	}
 	
 	/**
@@ -527,7 +626,23 @@ public class SpatialGrid implements Settable, Instantiable
 	// FIXME this currently ignores voxel volumes.
 	public double getTotal(ArrayType type)
 	{
-		return Array.sum(this._array.get(type));
+		/* Summed per row and per slice, as for a three-dimensional array. */
+		double[] array = this._array.get(type);
+		double out = 0.0, slice, row;
+		for ( int i = 0; i < this._rowStart.length; i++ )
+		{
+			slice = 0.0;
+			for ( int j = 0; j < this._rowStart[i].length; j++ )
+			{
+				row = 0.0;
+				for ( int k = this._rowStart[i][j], 
+						end = k + this._rowLength[i][j]; k < end; k++ )
+					row += array[k];
+				slice += row;
+			}
+			out += slice;
+		}
+		return out;
 	}
 	
 	/**
@@ -538,7 +653,10 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public double getNorm(ArrayType type)
 	{
-		return Array.norm(this._array.get(type));
+		double out = 0.0;
+		for ( double elem : this._array.get(type) )
+			out = Math.hypot(out, elem);
+		return out;
 	}
 	
 	/**
@@ -568,7 +686,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void addArrayToArray(ArrayType destination, ArrayType source)
 	{
-		Array.addEquals(this._array.get(destination), this._array.get(source));
+		Vector.addEquals(this._array.get(destination), this._array.get(source));
 	}
 	
 	/**
@@ -582,7 +700,24 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void subtractArrayFromArray(ArrayType destination, ArrayType source)
 	{
-		Array.minusEquals(this._array.get(destination),this._array.get(source));
+		Vector.minusEquals(this._array.get(destination),this._array.get(source));
+	}
+	
+	/**
+	 * \brief Exchange the contents of two arrays without copying, e.g. to
+	 * double-buffer an array that is updated from its own previous values.
+	 * 
+	 * <p>Note that arrays obtained through {@link #getFlatArray(ArrayType)}
+	 * before the swap now belong to the other type.</p>
+	 * 
+	 * @param type Type of the first array.
+	 * @param other Type of the second array.
+	 */
+	public void swapArrays(ArrayType type, ArrayType other)
+	{
+		double[] temp = this._array.get(type);
+		this._array.put(type, this._array.get(other));
+		this._array.put(other, temp);
 	}
 
 	/* ***********************************************************************
@@ -598,8 +733,9 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public double getValueAt(ArrayType type, int[] coord)
 	{
-		if ( this._array.containsKey(type) )
-			return this._array.get(type)[coord[0]][coord[1]][coord[2]];
+		double[] array = this._array.get(type);
+		if ( array != null )
+			return array[this.index(coord)];
 		else
 		{
 			if ( Log.shouldWrite(Tier.CRITICAL) )
@@ -618,7 +754,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void setValueAt(ArrayType type, int[] coord, double value)
 	{
-		this._array.get(type)[coord[0]][coord[1]][coord[2]] = value;
+		this._array.get(type)[this.index(coord)] = value;
 	}
 	
 	/**
@@ -630,7 +766,7 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void addValueAt(ArrayType type, int[] coord, double value)
 	{
-		this._array.get(type)[coord[0]][coord[1]][coord[2]] += value;
+		this._array.get(type)[this.index(coord)] += value;
 	}
 	
 	/**
@@ -642,7 +778,67 @@ public class SpatialGrid implements Settable, Instantiable
 	 */
 	public void timesValueAt(ArrayType type, int[] coord, double value)
 	{
-		this._array.get(type)[coord[0]][coord[1]][coord[2]] *= value;
+		this._array.get(type)[this.index(coord)] *= value;
+	}
+	
+	/**
+	 * \brief Linear index of the voxel with the given coordinates.
+	 * 
+	 * @param coord Coordinate of the voxel.
+	 * @return Index of this voxel in the arrays of this grid.
+	 */
+	public int index(int[] coord)
+	{
+		return this._rowStart[coord[0]][coord[1]] + coord[2];
+	}
+	
+	/**
+	 * \brief Linear index strides per dimension, such that the index of the
+	 * neighbour in dimension <i>d</i> differs by <i>stride[d]</i> from the
+	 * current index.
+	 * 
+	 * @return Strides, null if the number of voxels varies per row (polar
+	 * shapes).
+	 */
+	public int[] getStrides()
+	{
+		return this._stride;
+	}
+	
+	/**
+	 * \brief Gets the value at the given linear index.
+	 * 
+	 * @param type Type of array to get from.
+	 * @param index Linear index of the voxel, see {@link #index(int[])}.
+	 * @return double value at this voxel.
+	 */
+	public double getValueAt(ArrayType type, int index)
+	{
+		return this._array.get(type)[index];
+	}
+	
+	/**
+	 * \brief Sets the value at the given linear index.
+	 * 
+	 * @param type Type of array to set in.
+	 * @param index Linear index of the voxel, see {@link #index(int[])}.
+	 * @param value New value for the voxel.
+	 */
+	public void setValueAt(ArrayType type, int index, double value)
+	{
+		this._array.get(type)[index] = value;
+	}
+	
+	/**
+	 * \brief Increases the value at the given linear index.
+	 * 
+	 * @param type Type of array to set in.
+	 * @param index Linear index of the voxel, see {@link #index(int[])}.
+	 * @param value Value to increase the voxel's current value by.
+	 */
+	public void addValueAt(ArrayType type, int index, double value)
+	{
+		this._array.get(type)[index] += value;
 	}
 	
 	/* ***********************************************************************
@@ -833,6 +1029,67 @@ public class SpatialGrid implements Settable, Instantiable
 		}
 	}
 	
+	/**
+	 * \brief Stateless version of {@link #getDiffusionFromNeighbor()}: the
+	 * voxel and neighbour are taken from a precomputed stencil of this grid's
+	 * shape rather than from the shape's iterators, such that this may be
+	 * called concurrently.
+	 * 
+	 * @param stencil Stencil of this grid's shape.
+	 * @param voxel Position of the voxel in the stencil.
+	 * @param nhb Neighbour entry of this voxel in the stencil.
+	 * @return Diffusive flow from the neighbor voxel into the voxel, in units
+	 * of mass (or mole) per time.
+	 */
+	public double getDiffusionFromNeighbor(Stencil stencil, int voxel, int nhb)
+	{
+		int index = stencil.index(voxel);
+		double sArea = stencil.nhbSharedArea(nhb);
+		double dist = stencil.nhbDistance(nhb);
+		if ( stencil.isNhbInside(nhb) )
+		{
+			int nhbIndex = stencil.nhbIndex(nhb);
+			double[] concn = this._array.get(ArrayType.CONCN);
+			double[] diff = this._array.get(ArrayType.DIFFUSIVITY);
+			/* Difference in concentration. */
+			double concnDiff = concn[nhbIndex] - concn[index];
+			/* Average diffusivity. */
+			double diffusivity = 
+					ExtraMath.harmonicMean(diff[index], diff[nhbIndex]);
+			/* Calculate the the flux from these values. */
+			double flux = concnDiff * diffusivity / dist ;
+			return flux * sArea;
+		}
+		else
+		{
+			return stencil.nhbBoundary(nhb).getDiffusiveFlow(
+					this, index, sArea, dist);
+		}
+	}
+	
+	/**
+	 * \brief Stateless version of 
+	 * {@link #getDiffusiveTimeScaleWithNeighbor()}, see
+	 * {@link #getDiffusionFromNeighbor(Stencil, int, int)}.
+	 * 
+	 * @param stencil Stencil of this grid's shape.
+	 * @param voxel Position of the voxel in the stencil.
+	 * @param nhb Neighbour entry of this voxel in the stencil.
+	 * @return Time-scale of the diffusive flow from the neighbor voxel into
+	 * the voxel, in units of time.
+	 */
+	public double getDiffusiveTimeScaleWithNeighbor(Stencil stencil, 
+			int voxel, int nhb)
+	{
+		double[] diff = this._array.get(ArrayType.DIFFUSIVITY);
+		int index = stencil.index(voxel);
+		double diffusivity = stencil.isNhbInside(nhb) ? 
+				ExtraMath.harmonicMean(diff[index], 
+				diff[stencil.nhbIndex(nhb)]) : diff[index];
+		return stencil.nhbDistance(nhb) * stencil.volume(voxel) * 
+				diffusivity / stencil.nhbSharedArea(nhb);
+	}
+	
 	/**
 	 * \brief Increase the grid's tally of mass flow into a well-mixed region.
 	 * 
@@ -976,7 +1233,7 @@ public class SpatialGrid implements Settable, Instantiable
 	public StringBuffer arrayAsBuffer(ArrayType type)
 	{
 		StringBuffer out = new StringBuffer();
-		double[][][] array = this._array.get(type);
+		double[][][] array = this.getArray(type);
 		for ( int i = 0; i < array.length - 1; i++ )
 		{
 			matrixToBuffer(array[i], out);
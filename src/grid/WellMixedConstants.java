@@ -35,4 +35,22 @@ public final class WellMixedConstants
 				Idynomics.global.relativeThresholdWellMixedness * 
 				COMPLETELY_MIXED;
 	}
+	
+	/**
+	 * \brief Same as {@link #isWellMixed(SpatialGrid, int[])}, with the voxel
+	 * given by its linear index.
+	 * 
+	 * @param commonGrid
+	 * @param index
+	 * @return
+	 */
+	public final static boolean isWellMixed(SpatialGrid commonGrid, int index)
+	{
+		if (commonGrid == null)
+			return false;
+		
+		return commonGrid.getValueAt(ArrayType.WELLMIXED, index) >= 
+				Idynomics.global.relativeThresholdWellMixedness * 
+				COMPLETELY_MIXED;
+	}
 }
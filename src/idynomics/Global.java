@@ -357,11 +357,49 @@ public class Global extends ParameterSet
 	 */
 	public static double mechanical_low_stress_skip = 0.0;
 	
+	/**
+	 * Default spatial registry margin used in agent relaxation, agents that
+	 * move less than this margin are not re-inserted into the registry. Set
+	 * to zero to rebuild the registry every mechanical step. The registry is
+	 * rebuilt without margin after relaxation.
+	 */
+	public static double spatial_registry_margin = 0.1;
+	
+	/**
+	 * Default number of threads used by process managers that support
+	 * multi-threaded evaluation.
+	 */
+	public static int process_threads = 1;
+	
+	/**
+	 * Default factor by which the implicit mechanical time step exceeds the
+	 * explicit (overlap limited) time step.
+	 */
+	public static double mechanical_implicit_step_factor = 100.0;
+	
+	/**
+	 * Default maximum number of conjugate gradient iterations per implicit 
+	 * mechanical step.
+	 */
+	public static int mechanical_implicit_iterations = 10;
+	
+	/**
+	 * Relative residual at which the conjugate gradient solver of the 
+	 * implicit mechanical step stops.
+	 */
+	public static double mechanical_implicit_tolerance = 1.0e-2;
+	
 	/**
 	 * {@Link SplitTree} atomic length, the smallest length scale for leafnodes
 	 */
 	public static double atomic_length = 0.05;
 	
+	/**
+	 * {@Link CellGrid} cell length, should be close to the interaction range
+	 * of the agents.
+	 */
+	public static double cell_grid_length = 2.0;
+	
 	/**
 	 * {@Link Decompress} fraction of local stress traversing outwards in
 	 * decompression algorithm
@@ -14,7 +14,9 @@ package idynomics;
 import static dataIO.Log.Tier.CRITICAL;
 import static dataIO.Log.Tier.NORMAL;
 
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import org.w3c.dom.Element;
 
@@ -74,6 +76,15 @@ public strictfp class Idynomics
 	 */
 	public static Thread postProcessingThread;
 	
+	/**
+	 * Thread pools shared by all multi-threaded process managers and solvers,
+	 * one per number of threads. Process managers may be initialised many
+	 * times (e.g. when a protocol is reloaded), sharing pools prevents every
+	 * initialisation from leaving idle worker threads behind.
+	 */
+	private static Map<Integer, ForkJoinPool> threadPools = 
+			new HashMap<Integer, ForkJoinPool>();
+	
 	/**
 	 * Contains all predefined className package association for easy class
 	 * initiation from xml file.
@@ -294,6 +305,24 @@ public strictfp class Idynomics
 		postProcessingThread.start();
 	}
 	
+	/**
+	 * \brief Obtain the shared thread pool with the given number of threads,
+	 * the pool is created on first request.
+	 * 
+	 * @param threads
+	 * @return shared {@code ForkJoinPool} with the given parallelism.
+	 */
+	public static synchronized ForkJoinPool threadPool(int threads)
+	{
+		ForkJoinPool pool = threadPools.get(threads);
+		if ( pool == null )
+		{
+			pool = new ForkJoinPool(threads);
+			threadPools.put(threads, pool);
+		}
+		return pool;
+	}
+	
 	/**
 	 * \brief TODO
 	 * 
@@ -0,0 +1,403 @@
+package linearAlgebra;
+
+/**
+ * \brief Square matrix with an arrowhead structure: a dense border of rows
+ * and columns, and independent square blocks along the rest of the diagonal.
+ *
+ * <p>For a border of size b, the first b rows and first b columns may hold
+ * any value. The remaining rows and columns are split into blocks, entries
+ * that connect two different blocks are always zero. This is the structure
+ * of, for example, the Jacobian of a system in which many agents only
+ * interact through a few shared solutes.</p>
+ *
+ * <p>Writing the matrix as<br>
+ * A, B;<br>
+ * C, D;<br>
+ * where A is the border and D is block-diagonal, the system M x = r is
+ * solved by eliminating the blocks, and then solving the Schur complement
+ * S = A - B D<sup>-1</sup> C on the border. After
+ * {@link #decompose()}, every solve costs time linear in the number of
+ * blocks, rather than cubic in the size of the matrix.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ArrowheadMatrix
+{
+	/**
+	 * First row/column of every block, followed by the size of the matrix.
+	 * The first block starts directly after the border.
+	 */
+	private int[] _offsets;
+
+	/**
+	 * Block of every row after the border.
+	 */
+	private int[] _blockOf;
+
+	/**
+	 * Border rows (all columns), border columns of the other rows, and the
+	 * diagonal blocks.
+	 */
+	private double[][] _top, _left;
+
+	private double[][][] _blocks;
+
+	/**
+	 * Decomposition: the diagonal blocks, D<sup>-1</sup> C for every block
+	 * and the Schur complement. Null until {@link #decompose()} is called.
+	 */
+	private LUDecomposition[] _blockLU;
+
+	private double[][] _blockTimesLeft;
+
+	private LUDecomposition _schurLU;
+
+	/*************************************************************************
+	 * CONSTRUCTORS
+	 ************************************************************************/
+
+	/**
+	 * \brief Construct an arrowhead matrix of zeros.
+	 *
+	 * @param offsets First row/column of every block, followed by the size
+	 * of the matrix. The border size is the first offset.
+	 */
+	public ArrowheadMatrix(int[] offsets)
+	{
+		this._offsets = Vector.copy(offsets);
+		int border = this.border();
+		int size = this.size();
+		int nBlocks = this.numberOfBlocks();
+		this._blockOf = new int[size - border];
+		this._blocks = new double[nBlocks][][];
+		for ( int k = 0; k < nBlocks; k++ )
+		{
+			if ( offsets[k+1] < offsets[k] )
+				throw new IllegalArgumentException(
+						"Arrowhead block offsets must be non-decreasing");
+			for ( int i = offsets[k]; i < offsets[k+1]; i++ )
+				this._blockOf[i - border] = k;
+			this._blocks[k] = Matrix.zerosDbl(offsets[k+1] - offsets[k]);
+		}
+		this._top = Matrix.zerosDbl(border, size);
+		this._left = Matrix.zerosDbl(size - border, border);
+	}
+
+	/*************************************************************************
+	 * SIMPLE GETTERS
+	 ************************************************************************/
+
+	/**
+	 * @return Copy of the block offsets this matrix was constructed with.
+	 */
+	public int[] getOffsets()
+	{
+		return Vector.copy(this._offsets);
+	}
+
+	/**
+	 * @return Number of rows (and columns) of this matrix.
+	 */
+	public int size()
+	{
+		return this._offsets[this._offsets.length - 1];
+	}
+
+	/**
+	 * @return Number of rows (and columns) in the dense border.
+	 */
+	public int border()
+	{
+		return this._offsets[0];
+	}
+
+	/**
+	 * @return Number of diagonal blocks after the border.
+	 */
+	public int numberOfBlocks()
+	{
+		return this._offsets.length - 1;
+	}
+
+	/**
+	 * @param block Index of a diagonal block.
+	 * @return First row/column of this block.
+	 */
+	public int blockStart(int block)
+	{
+		return this._offsets[block];
+	}
+
+	/**
+	 * @param block Index of a diagonal block.
+	 * @return Number of rows (and columns) of this block.
+	 */
+	public int blockSize(int block)
+	{
+		return this._offsets[block+1] - this._offsets[block];
+	}
+
+	/**
+	 * @return Value of the matrix at this row and column, zero outside the
+	 * arrowhead structure.
+	 */
+	public double get(int row, int column)
+	{
+		int border = this.border();
+		if ( row < border )
+			return this._top[row][column];
+		if ( column < border )
+			return this._left[row - border][column];
+		int k = this._blockOf[row - border];
+		int start = this._offsets[k];
+		if ( column < start || column >= this._offsets[k+1] )
+			return 0.0;
+		return this._blocks[k][row - start][column - start];
+	}
+
+	/**
+	 * @return New dense copy of this matrix.
+	 */
+	public double[][] toDense()
+	{
+		double[][] out = Matrix.zerosDbl(this.size());
+		for ( int i = 0; i < out.length; i++ )
+			for ( int j = 0; j < out.length; j++ )
+				out[i][j] = this.get(i, j);
+		return out;
+	}
+
+	/*************************************************************************
+	 * SETTERS
+	 ************************************************************************/
+
+	/**
+	 * \brief Set the value at this row and column.
+	 *
+	 * @throws IllegalArgumentException if a non-zero value is set outside the
+	 * arrowhead structure.
+	 */
+	public void set(int row, int column, double value)
+	{
+		this._blockLU = null;
+		int border = this.border();
+		if ( row < border )
+			this._top[row][column] = value;
+		else if ( column < border )
+			this._left[row - border][column] = value;
+		else
+		{
+			int k = this._blockOf[row - border];
+			int start = this._offsets[k];
+			if ( column >= start && column < this._offsets[k+1] )
+				this._blocks[k][row - start][column - start] = value;
+			else if ( value != 0.0 )
+				throw new IllegalArgumentException("Entry ("+row+", "+column+
+						") is outside the arrowhead structure");
+		}
+	}
+
+	/**
+	 * \brief Overwrite this matrix with <i>I - factor * matrix</i>.
+	 *
+	 * @param matrix Arrowhead matrix with the same structure (preserved).
+	 * @param factor Multiplier of <b>matrix</b>.
+	 */
+	public void identityMinusTo(ArrowheadMatrix matrix, double factor)
+	{
+		this._blockLU = null;
+		Matrix.timesTo(this._top, matrix._top, - factor);
+		for ( int i = 0; i < this.border(); i++ )
+			this._top[i][i]++;
+		if ( this._left.length > 0 )
+			Matrix.timesTo(this._left, matrix._left, - factor);
+		for ( int k = 0; k < this._blocks.length; k++ )
+		{
+			if ( this._blocks[k].length == 0 )
+				continue;
+			Matrix.timesTo(this._blocks[k], matrix._blocks[k], - factor);
+			for ( int i = 0; i < this._blocks[k].length; i++ )
+				this._blocks[k][i][i]++;
+		}
+	}
+
+	/*************************************************************************
+	 * SOLVING
+	 ************************************************************************/
+
+	/**
+	 * \brief Decompose this matrix for use in
+	 * {@link #solveEquals(double[])}.
+	 *
+	 * <p>This needs to be called again after the matrix is changed.</p>
+	 */
+	public void decompose()
+	{
+		int border = this.border();
+		int nBlocks = this.numberOfBlocks();
+		double[][] schur = new double[border][border];
+		for ( int r = 0; r < border; r++ )
+			System.arraycopy(this._top[r], 0, schur[r], 0, border);
+		this._blockLU = new LUDecomposition[nBlocks];
+		this._blockTimesLeft = new double[this._left.length][border];
+		double[] column = new double[0];
+		for ( int k = 0; k < nBlocks; k++ )
+		{
+			int start = this._offsets[k];
+			int m = this.blockSize(k);
+			if ( m == 0 )
+				continue;
+			if ( column.length != m )
+				column = new double[m];
+			this._blockLU[k] = new LUDecomposition(this._blocks[k]);
+			/* D_k^-1 C_k, one column at a time. */
+			for ( int j = 0; j < border; j++ )
+			{
+				for ( int i = 0; i < m; i++ )
+					column[i] = this._left[start - border + i][j];
+				this._blockLU[k].solveEquals(column);
+				for ( int i = 0; i < m; i++ )
+					this._blockTimesLeft[start - border + i][j] = column[i];
+			}
+			/* S = A - sum_k B_k D_k^-1 C_k */
+			for ( int r = 0; r < border; r++ )
+				for ( int i = 0; i < m; i++ )
+				{
+					double b = this._top[r][start + i];
+					if ( b == 0.0 )
+						continue;
+					double[] x = this._blockTimesLeft[start - border + i];
+					for ( int j = 0; j < border; j++ )
+						schur[r][j] -= b * x[j];
+				}
+		}
+		/* A matrix without border only needs the blocks. */
+		this._schurLU = ( border == 0 ) ? null : new LUDecomposition(schur);
+	}
+
+	/**
+	 * \brief Solve this matrix * x = <b>vector</b> and write the result, x,
+	 * into the given <b>vector</b>.
+	 *
+	 * <p>Decomposes the matrix first if this has not been done since it was
+	 * last changed.</p>
+	 *
+	 * @param vector One-dimensional array of {@code double}s (overwritten).
+	 */
+	public void solveEquals(double[] vector)
+	{
+		if ( this._blockLU == null )
+			this.decompose();
+		int border = this.border();
+		int nBlocks = this.numberOfBlocks();
+		/* z_k = D_k^-1 r_k, and reduce the border: r_b - sum_k B_k z_k */
+		double[] blockVector = new double[0];
+		for ( int k = 0; k < nBlocks; k++ )
+		{
+			int start = this._offsets[k];
+			int m = this.blockSize(k);
+			if ( m == 0 )
+				continue;
+			if ( blockVector.length != m )
+				blockVector = new double[m];
+			System.arraycopy(vector, start, blockVector, 0, m);
+			this._blockLU[k].solveEquals(blockVector);
+			System.arraycopy(blockVector, 0, vector, start, m);
+			for ( int r = 0; r < border; r++ )
+				for ( int i = 0; i < m; i++ )
+					vector[r] -= this._top[r][start + i] * blockVector[i];
+		}
+		if ( border == 0 )
+			return;
+		/* x_b = S^-1 (r_b - sum_k B_k z_k) */
+		double[] borderVector = new double[border];
+		System.arraycopy(vector, 0, borderVector, 0, border);
+		this._schurLU.solveEquals(borderVector);
+		System.arraycopy(borderVector, 0, vector, 0, border);
+		/* x_k = z_k - D_k^-1 C_k x_b */
+		for ( int i = border; i < vector.length; i++ )
+			vector[i] -= Vector.dotProduct(
+					this._blockTimesLeft[i - border], borderVector);
+	}
+
+	/**
+	 * \brief Solve this matrix<sup>T</sup> * x = <b>vector</b> and write the
+	 * result, x, into the given <b>vector</b>.
+	 *
+	 * <p>This reuses the decomposition of {@link #solveEquals(double[])}.</p>
+	 *
+	 * @param vector One-dimensional array of {@code double}s (overwritten).
+	 */
+	public void solveTransposeEquals(double[] vector)
+	{
+		if ( this._blockLU == null )
+			this.decompose();
+		int border = this.border();
+		int nBlocks = this.numberOfBlocks();
+		/* x_b = S^-T (r_b - sum_k (D_k^-1 C_k)^T r_k) */
+		double[] borderVector = new double[border];
+		System.arraycopy(vector, 0, borderVector, 0, border);
+		for ( int i = border; i < vector.length; i++ )
+			for ( int j = 0; j < border; j++ )
+				borderVector[j] -=
+						this._blockTimesLeft[i - border][j] * vector[i];
+		if ( border > 0 )
+			this._schurLU.solveTransposeEquals(borderVector);
+		System.arraycopy(borderVector, 0, vector, 0, border);
+		/* x_k = D_k^-T (r_k - B_k^T x_b) */
+		double[] blockVector = new double[0];
+		for ( int k = 0; k < nBlocks; k++ )
+		{
+			int start = this._offsets[k];
+			int m = this.blockSize(k);
+			if ( m == 0 )
+				continue;
+			if ( blockVector.length != m )
+				blockVector = new double[m];
+			for ( int i = 0; i < m; i++ )
+			{
+				blockVector[i] = vector[start + i];
+				for ( int r = 0; r < border; r++ )
+					blockVector[i] -= this._top[r][start + i] * borderVector[r];
+			}
+			this._blockLU[k].solveTransposeEquals(blockVector);
+			System.arraycopy(blockVector, 0, vector, start, m);
+		}
+	}
+
+	/**
+	 * \brief Cheap estimate of the condition number of this matrix, in the
+	 * 1-norm.
+	 *
+	 * <p>Like {@link LUDecomposition#conditionEstimate()}, this reuses the
+	 * decomposition and so costs time linear in the number of blocks.</p>
+	 *
+	 * @return Estimated condition number, infinite if the matrix is
+	 * singular.
+	 */
+	public double conditionEstimate()
+	{
+		if ( this._blockLU == null )
+			this.decompose();
+		if ( this._schurLU != null && this._schurLU.isSingular() )
+			return Double.POSITIVE_INFINITY;
+		for ( LUDecomposition lu : this._blockLU )
+			if ( lu != null && lu.isSingular() )
+				return Double.POSITIVE_INFINITY;
+		/* 1-norm: the greatest sum of absolute values of all columns. */
+		int border = this.border();
+		double[] sums = new double[this.size()];
+		for ( double[] row : this._top )
+			for ( int j = 0; j < row.length; j++ )
+				sums[j] += Math.abs(row[j]);
+		for ( double[] row : this._left )
+			for ( int j = 0; j < border; j++ )
+				sums[j] += Math.abs(row[j]);
+		for ( int k = 0; k < this._blocks.length; k++ )
+			for ( double[] row : this._blocks[k] )
+				for ( int j = 0; j < row.length; j++ )
+					sums[this._offsets[k] + j] += Math.abs(row[j]);
+		return Vector.max(sums) * LUDecomposition.inverseNorm1Estimate(
+				this.size(), this::solveEquals, this::solveTransposeEquals);
+	}
+}
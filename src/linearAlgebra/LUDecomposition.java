@@ -1,5 +1,7 @@
 package linearAlgebra;
 
+import java.util.function.Consumer;
+
 /**
  * \brief LU Decomposition is a method for breaking a matrix into two.
  * This is useful for solving systems of linear equations.
@@ -33,12 +35,19 @@ public class LUDecomposition
 
 	private int[] _pivot;
 
+	/**
+	 * 1-norm (greatest absolute column sum) of the matrix given originally,
+	 * used for estimating its condition.
+	 */
+	private double _norm1;
+
 	public LUDecomposition(double[][] matrix)
 	{
 		Matrix.checkDimensions(matrix);
 		this.lu = Matrix.copy(matrix);
 		this.m = Matrix.rowDim(this.lu);
 		this.n = Matrix.colDim(this.lu);
+		this._norm1 = norm1(matrix);
 		double[] tempRow;
 		double[] tempCol = new double[this.m];
 		this._pivot = Vector.range(this.m);
@@ -226,6 +235,9 @@ public class LUDecomposition
 		}
 		if ( this.isSingular() )
 			throw new RuntimeException("Matrix is singular.");
+		/* Pivoting in place would overwrite entries that are still needed. */
+		if ( destination == b )
+			b = Vector.copy(b);
 		/*
 		 * Copy right-hand side with pivoting. Vector.subsetTo() should check
 		 * that destination and pivot have the same length.
@@ -278,4 +290,147 @@ public class LUDecomposition
 	{
 		this.solveTo(b, b);
 	}
+
+	/**
+	 * \brief Solve a<sup>T</sup> * x = <b>b</b>, where a is the matrix given
+	 * originally, and write the result, x, into <b>destination</b>.
+	 * 
+	 * @param destination One-dimensional array of {@code double}s
+	 * (overwritten).
+	 * @param b One-dimensional array of {@code double}s (preserved, unless
+	 * it is also the destination).
+	 * @see #solveTo(double[], double[])
+	 */
+	public void solveTransposeTo(double[] destination, double[] b)
+	{
+		if ( b.length != this.n )
+		{
+			throw new IllegalArgumentException(
+					"Matrix column dimensions must agree.");
+		}
+		if ( this.isSingular() )
+			throw new RuntimeException("Matrix is singular.");
+		double[] w = Vector.copy(b);
+		/*
+		 * Solve u' * z = b
+		 */
+		for ( int k = 0; k < this.n; k++ )
+		{
+			for ( int i = 0; i < k; i++ )
+				w[k] -= this.lu[i][k] * w[i];
+			w[k] /= this.lu[k][k];
+		}
+		/*
+		 * Solve l' * w = z
+		 */
+		for ( int k = this.n - 2; k >= 0; k-- )
+			for ( int i = k + 1; i < this.n; i++ )
+				w[k] -= this.lu[i][k] * w[i];
+		/*
+		 * Undo the pivoting: x(pivot) = w
+		 */
+		for ( int i = 0; i < this.n; i++ )
+			destination[this._pivot[i]] = w[i];
+	}
+
+	/**
+	 * \brief Solve a<sup>T</sup> * x = <b>b</b>, where a is the matrix given
+	 * originally, and write the result, x, into <b>b</b>.
+	 * 
+	 * @param b One-dimensional array of {@code double}s (overwritten).
+	 * @see #solveTransposeTo(double[], double[])
+	 */
+	public void solveTransposeEquals(double[] b)
+	{
+		this.solveTransposeTo(b, b);
+	}
+
+	/**
+	 * \brief Cheap estimate of the condition number of the matrix given
+	 * originally, in the 1-norm.
+	 * 
+	 * <p>This reuses the decomposition, so it costs a few solves rather
+	 * than the singular value decomposition of
+	 * {@link Matrix#condition(double[][])}. The estimate is a lower bound,
+	 * and is seldom far off in practice.</p>
+	 * 
+	 * @return Estimated condition number, infinite if the matrix is
+	 * singular.
+	 */
+	public double conditionEstimate()
+	{
+		if ( this.isSingular() )
+			return Double.POSITIVE_INFINITY;
+		return this._norm1 * inverseNorm1Estimate(this.n,
+				this::solveEquals, this::solveTransposeEquals);
+	}
+
+	/**
+	 * @param matrix Two-dimensional array of {@code double}s (preserved).
+	 * @return Greatest sum of absolute values of all columns.
+	 */
+	static double norm1(double[][] matrix)
+	{
+		double[] sums = new double[Matrix.colDim(matrix)];
+		for ( double[] row : matrix )
+			for ( int j = 0; j < row.length; j++ )
+				sums[j] += Math.abs(row[j]);
+		return Vector.max(sums);
+	}
+
+	/**
+	 * \brief Estimate the 1-norm of the inverse of a matrix, given only
+	 * methods to solve systems with the matrix and with its transpose.
+	 * 
+	 * <p>This is Hager's method, as refined by Higham: it looks for the
+	 * column of the inverse with the greatest sum, and typically needs two
+	 * or three solves of each kind.</p>
+	 * 
+	 * <p>Reference: Higham NJ. 1988. FORTRAN codes for estimating the
+	 * one-norm of a real or complex matrix, with applications to condition
+	 * estimation. ACM Transactions on Mathematical Software 14: 381-396.</p>
+	 * 
+	 * @param n Size of the matrix.
+	 * @param solve Overwrites a vector b with x, where matrix * x = b.
+	 * @param solveTranspose Overwrites a vector b with x, where
+	 * matrix<sup>T</sup> * x = b.
+	 * @return Estimate (lower bound) of the 1-norm of the inverse.
+	 */
+	static double inverseNorm1Estimate(int n, 
+			Consumer<double[]> solve, Consumer<double[]> solveTranspose)
+	{
+		double[] x = Vector.vector(n, 1.0 / n);
+		double[] y = new double[n];
+		double[] z = new double[n];
+		double estimate = 0.0;
+		for ( int iter = 0; iter < 5; iter++ )
+		{
+			/* y = inverse * x, and z = sign(y) */
+			Vector.copyTo(y, x);
+			solve.accept(y);
+			double norm = Vector.sumAbs(y);
+			if ( norm <= estimate )
+				break;
+			estimate = norm;
+			for ( int i = 0; i < n; i++ )
+				z[i] = ( y[i] >= 0.0 ) ? 1.0 : -1.0;
+			/* z = inverse' * sign(y): its greatest element gives the next x */
+			solveTranspose.accept(z);
+			int j = 0;
+			for ( int i = 1; i < n; i++ )
+				if ( Math.abs(z[i]) > Math.abs(z[j]) )
+					j = i;
+			if ( Math.abs(z[j]) <= Vector.dotProduct(z, x) )
+				break;
+			Vector.setAll(x, 0.0);
+			x[j] = 1.0;
+		}
+		/* Higham's extra test vector guards against unlucky cases. */
+		for ( int i = 0; i < n; i++ )
+			y[i] = ( ( i % 2 == 0 ) ? 1.0 : -1.0 ) * ( 1.0 + i / ( n - 1.0 ) );
+		if ( n == 1 )
+			y[0] = 1.0;
+		solve.accept(y);
+		return Math.max(estimate, 2.0 * Vector.sumAbs(y) / ( 3.0 * n ));
+	}
 }
\ No newline at end of file
@@ -9,6 +9,11 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 import java.util.function.Predicate;
 import org.w3c.dom.Element;
 import agent.Agent;
@@ -37,10 +42,11 @@ import shape.Dimension;
 import shape.Dimension.DimName;
 import shape.Shape;
 import shape.ShapeLibrary.Dimensionless;
-import shape.subvoxel.IntegerArray;
+import shape.subvoxel.DistributionMap;
 import shape.subvoxel.SubvoxelPoint;
 import solver.PDEsolver;
 import solver.mgFas.RecordKeeper;
+import surface.BoundingBox;
 import surface.Point;
 import surface.Surface;
 import surface.Voxel;
@@ -122,6 +128,18 @@ public abstract class ProcessDiffusion extends ProcessManager
 	
 	private DistributionMethod _distributionMethod = 
 			DistributionMethod.valueOf(	Global.agentDistribution );
+
+	/**
+	 * Margin added to agent bounding boxes, guards against rounding errors
+	 * when testing whether a location lies inside a box.
+	 */
+	private static final double BOX_MARGIN = 1.0e-9;
+
+	/**
+	 * Pool used to set up the distribution maps of agents concurrently, null
+	 * if the maps are set up single-threaded.
+	 */
+	private ForkJoinPool _distributionPool;
 	/* ***********************************************************************
 	 * CONSTRUCTORS
 	 * **********************************************************************/
@@ -137,6 +155,10 @@ public abstract class ProcessDiffusion extends ProcessManager
 			this._recordKeepers.add(
 					(RecordKeeper) Instance.getNew(e, this, (String[])null));
 		}
+		int threads = (int) this.getOr(AspectRef.threads, 
+				Global.process_threads);
+		if ( threads > 1 )
+			this._distributionPool = Idynomics.threadPool(threads);
 	}
 	
 	/* ***********************************************************************
@@ -341,38 +363,45 @@ public abstract class ProcessDiffusion extends ProcessManager
 		/*
 		 * Reset the agent biomass distribution maps.
 		 */
-		Map<Shape, HashMap<IntegerArray,Double>> mapOfMaps;
+		Map<Shape, DistributionMap> mapOfMaps;
 		for ( Agent a : this._agents.getAllLocatedAgents() )
 		{
 			if ( a.isAspect(VD_TAG) )
-				mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>)a.get(VD_TAG);
+				mapOfMaps = (Map<Shape, DistributionMap>)a.get(VD_TAG);
 			else
-				mapOfMaps = new HashMap<Shape, HashMap<IntegerArray,Double>>();
-			mapOfMaps.put(shape, new HashMap<IntegerArray,Double>());
+				mapOfMaps = new HashMap<Shape, DistributionMap>();
+			mapOfMaps.put(shape, new DistributionMap());
 			a.set(VD_TAG, mapOfMaps);
 		}
 		double[] location;
 		double[] dimension = new double[3];
 		double[] sides;
 		double[] upper;
-		HashMap<IntegerArray,Double> distributionMap;
+		DistributionMap distributionMap;
 		
 		switch( _distributionMethod )
 		{
 			case MIDPOINT:
 				for ( Agent a : this._agents.getAllLocatedAgents() )
 				{
-					IntegerArray coordArray = new IntegerArray( 
-							shape.getCoords(shape.getVerifiedLocation(((Body) a.get(AspectRef.agentBody)).getCenter(shape))));
-					mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>) a.getValue(VD_TAG);
+					int[] coordArray = 
+							shape.getCoords(shape.getVerifiedLocation(((Body) a.get(AspectRef.agentBody)).getCenter(shape)));
+					mapOfMaps = (Map<Shape, DistributionMap>) a.getValue(VD_TAG);
 					distributionMap = mapOfMaps.get(shape);
 					distributionMap.put(coordArray, 1.0);
 				}
 				break;
 			case COLLISION:
+				if ( shape instanceof CartesianShape )
+				{
+					this.forAgents( this._agents.getAllLocatedAgents(), shape,
+							(a, collision) -> this.collisionDistributionMap(
+							a, (CartesianShape) shape, collision) );
+					break;
+				}
 				for ( Agent a : this._agents.getAllLocatedAgents() )
 				{
-					mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>) a.getValue(VD_TAG);
+					mapOfMaps = (Map<Shape, DistributionMap>) a.getValue(VD_TAG);
 					distributionMap = mapOfMaps.get(shape);
 					
 					for ( int[] coord = shape.resetIterator(); 
@@ -390,11 +419,11 @@ public abstract class ProcessDiffusion extends ProcessManager
 						{
 							if ( vox.collisionWith(s))
 							{
-								distributionMap.put(new IntegerArray(shape.getCoords(location)), 1.0);
+								distributionMap.put(shape.getCoords(location), 1.0);
 							}
 						}
 					}
-					ProcessDiffusion.scale(distributionMap, 1.0);
+					distributionMap.scale(1.0);
 				}
 				break;
 			case SUBGRID:
@@ -402,17 +431,39 @@ public abstract class ProcessDiffusion extends ProcessManager
 				List<Agent> nhbs;
 				List<Surface> surfaces;
 				double[] pLoc;
+				double[][] box;
 				Collision collision = new Collision(null, null, shape);
-	
+				/*
+				 * Bounding boxes of the agents with reactions and a body, 
+				 * voxels that none of these overlap hold no agents and sub-
+				 * voxel points outside an agent's box cannot be inside it.
+				 */
+				Map<Agent,double[][]> boxes = new HashMap<Agent,double[][]>();
+				double[][][] overlap = null;
+				if( shape instanceof CartesianShape)
+				{
+					overlap = shape.getNewArray(0.0);
+					for ( Agent a : this._agents.getAllLocatedAgents() )
+					{
+						if ( NO_REAC_FILTER.test(a) || NO_BODY_FILTER.test(a) )
+							continue;
+						box = boundingBox( (Body) a.get(AspectRef.agentBody),
+								shape, nDim );
+						boxes.put(a, box);
+						for ( int[] c : ((CartesianShape) shape).getVoxelsInBox(
+								box[0], box[1]) )
+							overlap[c[0]][c[1]][c[2]] = 1.0;
+					}
+				}
 				
 				for ( int[] coord = shape.resetIterator(); 
 						shape.isIteratorValid(); coord = shape.iteratorNext())
 				{
 					double minRad;
-					IntegerArray coordArray = new IntegerArray(new int[]{coord[0],coord[1],coord[2]});
-					
 					if( shape instanceof CartesianShape)
 					{
+						if ( overlap[coord[0]][coord[1]][coord[2]] == 0.0 )
+							continue;
 						/* Find all agents that overlap with this voxel. */
 						// TODO a method for getting a voxel's bounding box directly?
 						location = Vector.subset(shape.getVoxelOrigin(coord), nDim);
@@ -477,25 +528,24 @@ public abstract class ProcessDiffusion extends ProcessManager
 						if ( ! a.isAspect(AspectRef.surfaceList) )
 							continue;
 						surfaces = (List<Surface>) a.get(AspectRef.surfaceList);
-					mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>) a.getValue(VD_TAG);
+					mapOfMaps = (Map<Shape, DistributionMap>) a.getValue(VD_TAG);
 					distributionMap = mapOfMaps.get(shape);
 						/*
-						 * FIXME this should really only evaluate collisions with local
-						 * subgridpoints rather than all subgrid points in the domain.
-						 * With a rib length of 0.25 * radius_smallest_agent this can
-						 * result in 10^8 - 10^10 or more evaluations per agent!!
+						 * Only sub-voxel points of this voxel are evaluated, and
+						 * on Cartesian shapes only those inside the agent's
+						 * bounding box.
 						 */
+						box = boxes.get(a);
 						sgLoop: for ( SubvoxelPoint p : svPoints )
 						{
 							/* Only give location in significant dimensions. */
 							pLoc = p.getRealLocation(nDim);
+							if ( box != null && ! insideBox(pLoc, box, shape) )
+								continue;
 							for ( Surface s : surfaces )
 								if ( collision.distance(s, pLoc) < 0.0 )
 								{
-									if( distributionMap.containsKey(coordArray))
-										distributionMap.put(coordArray, distributionMap.get(coordArray)+p.volume);
-									else
-										distributionMap.put(coordArray, p.volume);
+									distributionMap.increase(coord, p.volume);
 									/*
 									 * We only want to count this point once, even
 									 * if other surfaces of the same agent hit it.
@@ -510,10 +560,10 @@ public abstract class ProcessDiffusion extends ProcessManager
 				{
 					if ( a.isAspect(VD_TAG) )
 					{
-						mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>) a.getValue(VD_TAG);
+						mapOfMaps = (Map<Shape, DistributionMap>) a.getValue(VD_TAG);
 						// FIXME (overwritng distribution map?????)
 						distributionMap = mapOfMaps.get(shape);
-						ProcessDiffusion.scale(distributionMap, 1.0);
+						distributionMap.scale(1.0);
 					}
 				}
 		}
@@ -539,11 +589,11 @@ public abstract class ProcessDiffusion extends ProcessManager
 		{
 			if ( a.isAspect(SD_TAG) )
 				mapOfMaps = 
-				(Map<Shape, HashMap<IntegerArray,Double>>)a.get(SD_TAG);
+				(Map<Shape, DistributionMap>)a.get(SD_TAG);
 			
 			else
 				mapOfMaps = new HashMap<
-					Shape, HashMap<IntegerArray,Double>>();
+					Shape, DistributionMap>();
 			
 			if (!Helper.isNullOrEmpty(mapOfMaps.get(shape)))
 			{
@@ -663,12 +713,11 @@ public abstract class ProcessDiffusion extends ProcessManager
 				}
 			}
 			
-			mapOfMaps.put(shape, new HashMap<IntegerArray,Double>());
+			mapOfMaps.put(shape, new DistributionMap(voxels.size()));
 			distributionMap = mapOfMaps.get(shape);
 			
 			for (int i = 0; i < voxels.size(); i++)
 			{
-				IntegerArray iArray = new IntegerArray(voxels.get(i));
 				if (proportionList.get(i) != 0)
 				{
 					/*
@@ -676,8 +725,8 @@ public abstract class ProcessDiffusion extends ProcessManager
 					 * agent's own surface area in contact with the
 					 * voxel
 					 */
-					distributionMap.put
-					(iArray, (proportionList.get(i)/totalOfProportions));
+					distributionMap.append
+					(voxels.get(i), (proportionList.get(i)/totalOfProportions));
 				}
 			}
 			
@@ -685,6 +734,129 @@ public abstract class ProcessDiffusion extends ProcessManager
 		}
 	}
 	
+	/**
+	 * \brief Set up the distribution map of a single agent with the 
+	 * COLLISION method, only the voxels that overlap with the bounding box of
+	 * the agent's body are tested.
+	 * 
+	 * @param a Located agent, its (empty) map for this shape must be set.
+	 * @param shape Shape of the distribution map.
+	 * @param collision Collision domain, not shared with other threads.
+	 */
+	@SuppressWarnings("unchecked")
+	private void collisionDistributionMap(Agent a, CartesianShape shape, 
+			Collision collision)
+	{
+		int nDim = this._agents.getNumDims();
+		DistributionMap distributionMap = 
+				((Map<Shape, DistributionMap>) 
+				a.getValue(VD_TAG)).get(shape);
+		Body body = (Body) a.get(AspectRef.agentBody);
+		double[][] box = boundingBox(body, shape, nDim);
+		double[] dimension = new double[3];
+		double[] location;
+		for ( int[] coord : shape.getVoxelsInBox(box[0], box[1]) )
+		{
+			location = Vector.subset(shape.getVoxelOrigin(coord), nDim);
+			shape.getVoxelSideLengthsTo(dimension, coord); 
+			Voxel vox = new Voxel(location, 
+					Vector.add(location, Vector.subset(dimension, nDim)));
+			vox.init(collision);
+			for ( Surface s : body.getSurfaces() )
+				if ( vox.collisionWith(s) )
+				{
+					distributionMap.append(coord, 1.0);
+					break;
+				}
+		}
+		distributionMap.scale(1.0);
+	}
+	
+	/**
+	 * \brief Apply the task to all agents, split in one chunk of agents per
+	 * thread if a pool is set. Every thread uses its own collision domain.
+	 */
+	private void forAgents(List<Agent> agents, Shape shape, 
+			BiConsumer<Agent,Collision> task)
+	{
+		int threads = ( this._distributionPool == null ? 1 : 
+				this._distributionPool.getParallelism() );
+		int n = agents.size();
+		if ( threads == 1 || n < 2 * threads )
+		{
+			for ( Agent a : agents )
+				task.accept(a, shape.getCollision());
+			return;
+		}
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for ( int c = 0; c < threads; c++ )
+		{
+			int from = c * n / threads;
+			int to = ( c + 1 ) * n / threads;
+			tasks.add( () -> 
+			{
+				Collision collision = new Collision(null, null, shape);
+				for ( int i = from; i < to; i++ )
+					task.accept(agents.get(i), collision);
+				return null;
+			} );
+		}
+		try
+		{
+			for ( Future<Object> f : this._distributionPool.invokeAll(tasks) )
+				f.get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			if ( Log.shouldWrite(Tier.CRITICAL) )
+				Log.out(Tier.CRITICAL, this.getName() + " failed concurrent "
+						+ "set up of distribution maps: " + e.getMessage());
+			Idynomics.simulator.interupt( "concurrent set up of distribution "
+					+ "maps failed in " + this.getName() );
+		}
+	}
+	
+	/**
+	 * @return Lower and upper corner of the box enclosing all surfaces of
+	 * the body, with a small margin.
+	 */
+	private static double[][] boundingBox(Body body, Shape shape, int nDim)
+	{
+		double[] lower = Vector.vector(nDim, Double.MAX_VALUE);
+		double[] upper = Vector.vector(nDim, -Double.MAX_VALUE);
+		for ( BoundingBox b : body.getBoxes(BOX_MARGIN, shape) )
+			for ( int d = 0; d < nDim; d++ )
+			{
+				lower[d] = Math.min(lower[d], b.getLow()[d]);
+				upper[d] = Math.max(upper[d], b.getHigh()[d]);
+			}
+		return new double[][] { lower, upper };
+	}
+	
+	/**
+	 * @return True if the location lies inside the box, on cyclic dimensions
+	 * periodic images of the location are also considered.
+	 */
+	private static boolean insideBox(double[] loc, double[][] box, 
+			Shape shape)
+	{
+		Dimension dim;
+		for ( int d = 0; d < loc.length; d++ )
+		{
+			if ( loc[d] >= box[0][d] && loc[d] <= box[1][d] )
+				continue;
+			dim = shape.getDimension( shape.getDimensionName(d) );
+			if ( ! dim.isCyclic() )
+				return false;
+			if ( ( loc[d] + dim.getLength() < box[0][d] || 
+					loc[d] + dim.getLength() > box[1][d] ) &&
+					( loc[d] - dim.getLength() < box[0][d] || 
+					loc[d] - dim.getLength() > box[1][d] ) )
+				return false;
+		}
+		return true;
+	}
+	
 	@SuppressWarnings("unchecked")
 	private void copyAgentDistributionMaps(Collection<Shape> shapes, Shape finest)
 	{
@@ -696,8 +868,9 @@ public abstract class ProcessDiffusion extends ProcessManager
 			// Already solved for finest so skip
 			if (shape.equals(finest))
 				continue;
-			Map<Shape, HashMap<IntegerArray,Double>> mapOfMaps;
-			HashMap<IntegerArray,Double> distributionMap, finestDistributionMap;
+			Map<Shape, DistributionMap> mapOfMaps;
+			DistributionMap distributionMap, finestDistributionMap;
+			int[] coord = new int[3];
 			for ( Agent a : this._agents.getAllLocatedAgents() )
 			{
 				// For agents with no reactions or body, skip
@@ -707,49 +880,32 @@ public abstract class ProcessDiffusion extends ProcessManager
 					continue;
 				// Should have this set, but doesn't hurt to check
 				if ( a.isAspect(VD_TAG) )
-					mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>)a.get(VD_TAG);
+					mapOfMaps = (Map<Shape, DistributionMap>)a.get(VD_TAG);
 				else
 					continue;
-				mapOfMaps.put(shape, new HashMap<IntegerArray,Double>());
+				mapOfMaps.put(shape, new DistributionMap());
 				a.set(VD_TAG, mapOfMaps);
 				// distribution map for the current shape with nVoxels > finest
 				distributionMap = mapOfMaps.get(shape);
 				// distribution map of the finest grid. 
 				// Should have values, which we will use to update the coarser grids.
 				finestDistributionMap = mapOfMaps.get(finest);
-				Collection<IntegerArray> coordsWithValues = finestDistributionMap.keySet();
-				for ( IntegerArray coord : coordsWithValues )
+				for ( int n = 0; n < finestDistributionMap.size(); n++ )
 				{
+					finestDistributionMap.getCoordTo(coord, n);
 					// Calculate the global location of the coordinates in the distribution map of finest grid
-					double[] globalLocVoxel = finest.getGlobalLocation(finest.getVoxelOrigin(coord.get()));
+					double[] globalLocVoxel = finest.getGlobalLocation(finest.getVoxelOrigin(coord));
 					// Get the coordinates for the current grid
-					IntegerArray coordInCurrentShape = new IntegerArray(shape.getCoords(shape.getLocalPosition(globalLocVoxel)));
+					int[] coordInCurrentShape = shape.getCoords(shape.getLocalPosition(globalLocVoxel));
 					// Increase the volume of the current coordinates using the volume from the finest grid.
 					// This should ensure that each point on the finest grid inside the current voxel, gets added to the voxel origin.
-					if( distributionMap.containsKey(coordInCurrentShape))
-						distributionMap.put(coordInCurrentShape, distributionMap.get(coordInCurrentShape)+finestDistributionMap.get(coord));
-					else
-						distributionMap.put(coordInCurrentShape, finestDistributionMap.get(coord));
+					distributionMap.increase(coordInCurrentShape, finestDistributionMap.getValue(n));
 				}
 			}
 		}
 	}
 	
 	
-	public static void scale(HashMap<IntegerArray,Double> coordMap, double newTotal)
-	{
-		/* Find the multiplier, taking care not to divide by zero. */
-		double multiplier = 0.0;
-		for ( Double value : coordMap.values() )
-			multiplier += value;
-		if ( multiplier == 0.0 )
-			return;
-		multiplier = newTotal / multiplier;
-		/* Now apply the multiplier. */
-		for ( IntegerArray key : coordMap.keySet() )
-			coordMap.put(key, coordMap.get(key) * multiplier);
-	}
-	
 	/**
 	 * \brief Loop through all located {@code Agents}, removing their mass
 	 * distribution maps.
@@ -1,14 +1,20 @@
 package processManager.library;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.w3c.dom.Element;
 
 import agent.Agent;
 import agent.Body;
+import aspect.AspectInterface;
 import compartment.AgentContainer;
 import compartment.EnvironmentContainer;
 import dataIO.Log;
@@ -23,8 +29,13 @@ import referenceLibrary.AspectRef;
 import shape.Shape;
 import surface.Point;
 import surface.Surface;
+import surface.collision.AgentActivity;
 import surface.collision.Collision;
 import surface.collision.Decompress;
+import surface.collision.ForceBuffer;
+import surface.collision.ImplicitEuler;
+import surface.collision.MechanicsBuffer;
+import surface.collision.VerletList;
 import surface.link.LinearSpring;
 import surface.link.Link;
 import surface.link.Spring;
@@ -82,6 +93,13 @@ public class AgentRelaxation extends ProcessManager
 	public String DECOMPRESSION_CELL_LENGTH = AspectRef.decompressionCellLength;
 	private String DECOMPRESSION_THRESHOLD = AspectRef.decompressionThreshold;
 	
+	public String REGISTRY_MARGIN = AspectRef.spatialRegistryMargin;
+	public String VERLET_SKIN = AspectRef.verletSkin;
+	public String THREADS = AspectRef.threads;
+	public String SLEEP_STEPS = AspectRef.sleepSteps;
+	public String IMPLICIT_STEP_FACTOR = AspectRef.implicitStepFactor;
+	public String IMPLICIT_ITERATIONS = AspectRef.implicitIterations;
+	
 	
 	/**
 	 * Available relaxation methods.
@@ -100,6 +118,11 @@ public class AgentRelaxation extends ProcessManager
 		 * Heun's method.
 		 */
 		HEUN, 
+		/**
+		 * Backward Euler, solved matrix-free with conjugate gradient (see
+		 * {@link ImplicitEuler}).
+		 */
+		IMPLICIT
 	}
 	
 	/* *
@@ -192,12 +215,74 @@ public class AgentRelaxation extends ProcessManager
 	private Boolean _decompression;
 	
 	private Decompress decompressionMatrix;
+	
+	/**
+	 * Margin by which agent bounding boxes are inflated in the spatial
+	 * registry, with a positive margin the registry is updated incrementally
+	 * rather than rebuild every mechanical step.
+	 */
+	private double _registryMargin;
+	
+	/**
+	 * Verlet neighbour list, rebuilt every mechanical step if no (positive)
+	 * skin distance is set.
+	 */
+	private VerletList _verlet;
+	
+	/**
+	 * Number of threads used to evaluate agent interactions.
+	 */
+	private int _threads;
+	
+	/**
+	 * Thread pool, collision iterators and force buffers of the concurrent
+	 * force evaluation, one iterator and buffer per chunk of agents (null if
+	 * single-threaded).
+	 */
+	private ForkJoinPool _pool;
+	
+	private Collision[] _chunkIterators;
+	
+	private ForceBuffer[] _buffers;
+	
+	/**
+	 * Set when the current force evaluation may be performed concurrently.
+	 */
+	private boolean _concurrent = false;
+	
+	/**
+	 * Packed mass points, radii and mobilities of all agents, gathered once
+	 * per process step and used by all mechanical sub-steps.
+	 */
+	private MechanicsBuffer _mechanics = new MechanicsBuffer();
+	
+	/**
+	 * Agents with stochastic movement, gathered once per process step.
+	 */
+	private List<Agent> _stochastic = new ArrayList<Agent>();
+	
+	/**
+	 * Tracks sleeping (inactive) agents, null if disabled.
+	 */
+	private AgentActivity _activity;
+	
+	/**
+	 * Implicit integrator and the factor by which its time step exceeds the
+	 * explicit step size (IMPLICIT method only).
+	 */
+	private ImplicitEuler _implicit;
+	
+	private double _implicitStepFactor;
+	
+	/**
+	 * True when the current implicit step is not longer than the explicit
+	 * step, such that a (cheaper) explicit Euler step is taken instead.
+	 */
+	private boolean _explicitStep;
 
 	double moveScalar = this._maxMove;
 	/* start with initial base time step than adjust */
 	double dtMech = this._dtBase;
-	/* agent radius */
-	double radius;
 	/* highest velocity in the system squared */
 	double vs;
 	/* highest force in the system */
@@ -298,6 +383,65 @@ public class AgentRelaxation extends ProcessManager
 					this._agents.getShape().getIsCyclicNaturalOrderIncludingVirtual(),
 					(double) this.getOr(AspectRef.traversingFraction, Global.traversing_fraction),
 					(double) this.getOr(AspectRef.dampingFactor, Global.damping_factor));
+		
+		/* Spatial registry margin, enables incremental registry updates. It
+		 * is only applied during relaxation, see internalStep(). */
+		this._registryMargin = Helper.setIfNone( 
+				this.getDouble(REGISTRY_MARGIN), Global.spatial_registry_margin );
+		
+		/* Sleeping agents, disabled by default. Agents that remain below the
+		 * stress threshold for the given number of sub-steps are frozen. */
+		int sleepSteps = Helper.setIfNone( this.getInt(SLEEP_STEPS), 
+				0 );
+		if ( sleepSteps > 0 )
+		{
+			if ( this._stressThreshold <= 0.0 )
+				Log.out(Tier.NORMAL, this.getName() + " agents can only sleep "
+						+ "with a positive " + LOW_STRESS_SKIP);
+			this._activity = new AgentActivity( sleepSteps, 
+					this._stressThreshold );
+		}
+		
+		/* Implicit integration, the step size is a multiple of the explicit
+		 * (overlap limited) step size. */
+		if ( this._method == Method.IMPLICIT )
+		{
+			this._implicitStepFactor = Helper.setIfNone( 
+					this.getDouble(IMPLICIT_STEP_FACTOR), 
+					Global.mechanical_implicit_step_factor );
+			this._implicit = new ImplicitEuler( Helper.setIfNone( 
+					this.getInt(IMPLICIT_ITERATIONS), 
+					Global.mechanical_implicit_iterations ),
+					Global.mechanical_implicit_tolerance );
+		}
+		
+		/* Verlet neighbour list, without a (positive) skin it expires on 
+		 * every mechanical step but it still obtains all neighbours with a 
+		 * single pair query of the spatial registry rather than a search per
+		 * agent. Awake agents have to evaluate all sleeping neighbours, thus
+		 * store all neighbours if agents may sleep. */
+		double skin = Helper.setIfNone( this.getDouble(VERLET_SKIN), 0.0 );
+		this._verlet = new VerletList( Math.max( skin, 0.0 ), 
+				this._activity != null );
+		
+		/* Multi-threaded force evaluation, single-threaded by default */
+		this._threads = Helper.setIfNone( this.getInt(THREADS), 
+				Global.process_threads );
+		if ( this._threads > 1 )
+		{
+			this._pool = Idynomics.threadPool( this._threads );
+			this._chunkIterators = new Collision[this._threads];
+			this._buffers = new ForceBuffer[this._threads];
+			for ( int i = 0; i < this._threads; i++ )
+			{
+				this._chunkIterators[i] = new Collision( 
+						this.getString(COLLISION_FUNCTION),
+						this.getString(ATTRACTION_FUNCTION), this._shape);
+				this._chunkIterators[i].setSynchronised( true );
+				this._buffers[i] = new ForceBuffer();
+				this._chunkIterators[i].setForceBuffer( this._buffers[i] );
+			}
+		}
 	}
 
 	/* ************************************************************************
@@ -310,43 +454,76 @@ public class AgentRelaxation extends ProcessManager
 		int nstep = 0;
 		tMech = 0.0;
 		Collection<Agent> allAgents = this._agents.getAllLocatedAgents();
+		
+		/* Agents do not change during relaxation, gather their mechanical
+		 * state once rather than every sub-step. */
+		this._mechanics.set( allAgents );
+		this._stochastic.clear();
+		for ( Agent agent : allAgents )
+			if ( agent.isAspect(STOCHASTIC_STEP) )
+				this._stochastic.add( agent );
+		
+		/* Agents may have changed since the last step, clear the cached pull
+		 * forces. */
+		this._iterator.resetPullForces();
+		if ( this._chunkIterators != null )
+			for ( Collision c : this._chunkIterators )
+				c.resetPullForces();
 
 		/* With higher order ODE solvers, we need additional space to write. */
 		switch ( _method )
 		{
 		case HEUN :
-			for( Agent agent : allAgents )
-				for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-					point.initialiseC(2);
+			this._mechanics.initialiseC(2);
 		default:
 			//by default, we do nothing.
 		}
 
+		/* Agents may have been added, removed or grown since last step */
+		this._verlet.invalidate();
+		
+		/* Inflated registry boxes are only used during relaxation */
+		this._agents.setSpatialRegistryMargin( this._registryMargin );
+
 		/* Mechanical relaxation */
 		while( tMech < this.getTimeStepSize() && nstep < this._maxIter) 
 		{	
-			this._agents.refreshSpatialRegistry();
-			this._iterator.resetOverlap();
+			/* The spatial registry is only required when the Verlet list has
+			 * to be rebuild. */
+			if ( this._verlet.expired() )
+			{
+				/* Full rebuild on the first step, afterwards only agents 
+				 * that moved beyond the registry margin are re-inserted. */
+				if ( nstep == 0 || this._registryMargin <= 0.0 )
+					this._agents.refreshSpatialRegistry();
+				else
+					this._agents.updateSpatialRegistry();
+				this._verlet.build( allAgents, this._agents );
+			}
+			/* Wake agents that changed since the last step */
+			if ( nstep == 0 && this._activity != null )
+				this._activity.start( this._mechanics, this._agents );
+			this.resetOverlap();
 
+			/* The first step is always evaluated single-threaded, this way
+			 * any aspects written by interaction events are initiated before
+			 * they may be accessed concurrently. */
+			this._concurrent = ( this._threads > 1 && nstep > 0 );
 			this.updateForces( this._agents.getAllLocatedAgents(), this._agents );
+			if ( this._activity != null )
+				this._activity.evaluate( this._mechanics );
 			dtMech = sizeStep( allAgents );
 
 			if ( this._decompression )
 				decompressionMatrix.buildDirectionMatrix();
 
-			for(Agent agent : allAgents )
-				if ( agent.isAspect(STOCHASTIC_STEP) )
-					agent.event(STOCHASTIC_MOVE, dtMech);
+			for(Agent agent : this._stochastic )
+				agent.event(STOCHASTIC_MOVE, dtMech);
 
 			move( allAgents, dtMech );
 
-			if( Log.shouldWrite(Tier.DEBUG) )
-			{
-				for (Agent agent : allAgents)
-					for (Point point : ((Body) agent.get(BODY)).getPoints())
-						if (Double.isNaN(point.getPosition()[0]))
-							Log.out(Tier.DEBUG, "encountered NaN in agent Relaxation.");
-			}
+			if( Log.shouldWrite(Tier.DEBUG) && this._mechanics.hasNaN() )
+				Log.out(Tier.DEBUG, "encountered NaN in agent Relaxation.");
 
 			/* NOTE that with proper boundary surfaces for any compartment
 			 * shape this should never yield any difference, it is here as a
@@ -354,15 +531,15 @@ public class AgentRelaxation extends ProcessManager
 			 *
 			 * FIXME this seems to result in crashes
 			 * */
-			for(Agent agent : allAgents)
-				for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-					point.setPosition( this._shape.applyBoundaries( point.getPosition() ) );
+			this._mechanics.applyBoundaries( this._shape );
 
 			nstep++;
 			if( dtMech == 0.0 )
 				break;
 		}
-		/* Leave with a clean spatial tree. */
+		/* Leave with a clean spatial tree, other processes and boundaries
+		 * search it with exact agent bounding boxes. */
+		this._agents.setSpatialRegistryMargin( 0.0 );
 		this._agents.refreshSpatialRegistry();
 
 		if( Log.shouldWrite( Tier.EXPRESSIVE ) )
@@ -373,6 +550,14 @@ public class AgentRelaxation extends ProcessManager
 			else
 				Log.out( Tier.EXPRESSIVE, this.getName() +
 						" reached relaxation criteria, iterations: " + nstep );
+			Log.out( Tier.EXPRESSIVE, this.getName() + " total Verlet list "
+					+ "builds: " + this._verlet.builds() );
+			if ( this._activity != null )
+				Log.out( Tier.EXPRESSIVE, this.getName() + " sleeping agents: "
+						+ this._activity.asleep() );
+			if ( this._implicit != null )
+				Log.out( Tier.EXPRESSIVE, this.getName() + " total conjugate "
+						+ "gradient iterations: " + this._implicit.iterations() );
 		}
 	}
 
@@ -383,31 +568,31 @@ public class AgentRelaxation extends ProcessManager
 		{
 			case SHOVE :
 			{
-				for ( Agent agent : agents )
-					for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-						point.shove( this.maxAgentOverlap, this.shoveFactor, agent.getDouble(RADIUS) );
+				this._mechanics.shove( this.maxAgentOverlap, this.shoveFactor );
 				/* NOTE: is stopped when {@link _stressThreshold} is reached
 				 * TODO add max iter for shove? */
 				break;
 			}
 			case EULER :
 			{
-				for ( Agent agent : agents )
-					for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-						point.euStep( dtMech, agent.getDouble(RADIUS) );
+				this._mechanics.euler( dtMech );
 				tMech += dtMech;
 				break;
 			}
 			/* NOTE : higher order ODE solvers don't like time Leaping..
 			 * be careful.  */
 			case HEUN :
-				for(Agent agent : agents )
-					for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-						point.heun1( dtMech, agent.getDouble(RADIUS) );
+				this._mechanics.heun1( dtMech );
 				this.updateForces( agents, this._agents ); // subset
-				for(Agent agent : agents )
-					for ( Point point: ( (Body) agent.get(BODY) ).getPoints() )
-						point.heun2( dtMech, agent.getDouble(RADIUS) );
+				this._mechanics.heun2( dtMech );
+				tMech += dtMech;
+				break;
+			case IMPLICIT :
+				if ( this._explicitStep )
+					this._mechanics.euler( dtMech );
+				else
+					this._implicit.step( this._mechanics, dtMech, 
+							() -> this.updateForces( agents, this._agents ) );
 				tMech += dtMech;
 				break;
 		}
@@ -419,17 +604,9 @@ public class AgentRelaxation extends ProcessManager
 		if( !this._dtStatic || this._method == Method.SHOVE )
 		{
 			/* obtain current highest particle velocity. */
-			double ts;
-			vs = 0.0;
-			for(Agent agent : agents ) {
-				radius = agent.getDouble(RADIUS);
-				for ( Point point : ( (Body) agent.get(BODY) ).getPoints() ) {
-					if ( ( ts = Vector.normSquare( point.dxdt(radius) ) ) > vs )
-						vs = ts;
-				}
-			}
+			vs = this._mechanics.maxSpeedSquare();
 
-			if ( this._iterator.maxOverlap() > -maxAgentOverlap)
+			if ( this.maxOverlap() > -maxAgentOverlap)
 			{
 				// system relaxed can stop loop
 				return 0.0;
@@ -440,7 +617,7 @@ public class AgentRelaxation extends ProcessManager
 			 * When stochastic movement is enabled update vs to represent
 			 * the highest velocity object in the system accounting for
 			 * stochastic movement to. */
-			for( Agent agent : agents )
+			for( Agent agent : this._stochastic )
 				if ( agent.isAspect( STOCHASTIC_DIRECTION ) )
 				{
 					double[] move =
@@ -451,8 +628,13 @@ public class AgentRelaxation extends ProcessManager
 			/* Scale dt such that the fastest moving object is moving a fraction of the
 			* largest overlap. */
 			moveScalar = Math.min( -this.moveGranularity *
-					_iterator.maxOverlap(), this._maxMove );
+					this.maxOverlap(), this._maxMove );
 			dtMech = moveScalar / (Math.sqrt(vs) + 1e-9 );
+			/* Only step implicitly when the explicit step does not already
+			 * reach the end of the global time step. */
+			this._explicitStep = ( dtMech >= this._timeStepSize - tMech );
+			if ( this._method == Method.IMPLICIT )
+				dtMech *= this._implicitStepFactor;
 		}
 
 		/* prevent to relaxing longer than the global _timeStepSize */
@@ -471,9 +653,21 @@ public class AgentRelaxation extends ProcessManager
 										   AgentContainer aContainer, boolean hs)
 	{
 		Collection<Agent> out = new LinkedList<Agent>();
+		if ( this._concurrent && agents.size() >= this._threads )
+		{
+			if( hs )
+				for ( Agent agent: agents )
+					for( Point p : ((Body) agent.get(BODY)).getPoints())
+						p.resetForce();
+			this.concurrentForces(agents, aContainer);
+			return out;
+		}
 		/* Calculate forces. */
 		for ( Agent agent: agents )
 		{
+			/* sleeping agents are only evaluated by their awake neighbours */
+			if ( this.asleep(agent) )
+				continue;
 			Body body = (Body) agent.get(AspectRef.agentBody);
 			List<Surface> agentSurfs = body.getSurfaces();
 
@@ -489,24 +683,13 @@ public class AgentRelaxation extends ProcessManager
 			springEvaluation(agent, body);
 			
 			/* Look for neighbors and resolve collisions */
-			neighboorhoodEvaluation(agent, agentSurfs, aContainer);
+			neighboorhoodEvaluation(agent, agentSurfs, aContainer, 
+					this._iterator);
 			/*
 			 * Collisions with other physical objects and
 			 * Boundary collisions
 			 */
-			for( PhysicalObject p : this._agents.getAllPhysicalObjects() )
-			{
-				agent.event(PULL_EVALUATION, p);
-				Double pull = agent.getDouble(CURRENT_PULL_DISTANCE);
-				if ( pull == null || pull.isNaN() )
-					pull = 0.0;
-				
-				ArrayList <Surface> physicalObjectSurfaces = 
-						new ArrayList <Surface>();
-				physicalObjectSurfaces.add(p.getSurface());
-				
-				this._iterator.collision(p.getSurface(), p, agentSurfs, agent, 0.0);
-			}
+			physicalObjectEvaluation(agent, agentSurfs, this._iterator);
 			
 			/* NOTE: testing purposes only */
 			if (this._gravity)
@@ -535,6 +718,120 @@ public class AgentRelaxation extends ProcessManager
 		return updateForces(agents, aContainer, false);
 	}
 
+	/**
+	 * \brief Update all forces on all agent mass points using multiple
+	 * threads.
+	 * 
+	 * Springs are evaluated first, after which the agents are divided in
+	 * fixed contiguous chunks, one per thread. Every chunk evaluates the
+	 * agent, physical object and boundary collisions of its agents with its
+	 * own collision iterator and writes the resulting forces to its own
+	 * buffer. Buffers are applied in chunk order, such that the outcome does
+	 * not depend on thread scheduling. Gravity and decompression are
+	 * evaluated afterwards since they depend on the net force.
+	 * 
+	 * @param agents
+	 * @param aContainer
+	 */
+	private void concurrentForces(Collection<Agent> agents,
+			AgentContainer aContainer)
+	{
+		Agent[] all = agents.toArray( new Agent[agents.size()] );
+		for ( Agent agent : all )
+			if ( ! this.asleep(agent) )
+				springEvaluation(agent, (Body) agent.get(BODY));
+		Point[] pointArray = this._mechanics.points();
+		for ( int i = 0; i < pointArray.length; i++ )
+			pointArray[i].setIndex(i);
+		
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for ( int c = 0; c < this._threads; c++ )
+		{
+			int from = c * all.length / this._threads;
+			int to = ( c + 1 ) * all.length / this._threads;
+			Collision iterator = this._chunkIterators[c];
+			this._buffers[c].set( pointArray, 
+					this._shape.getNumberOfDimensions() );
+			tasks.add( () -> 
+			{
+				for ( int i = from; i < to; i++ )
+				{
+					if ( this.asleep(all[i]) )
+						continue;
+					List<Surface> agentSurfs = 
+							((Body) all[i].get(BODY)).getSurfaces();
+					neighboorhoodEvaluation(all[i], agentSurfs, aContainer,
+							iterator);
+					physicalObjectEvaluation(all[i], agentSurfs, iterator);
+					iterator.collision(this._shapeSurfs, null, agentSurfs, 
+							all[i], 0.0);
+				}
+				return null;
+			} );
+		}
+		try
+		{
+			for ( Future<Object> f : this._pool.invokeAll(tasks) )
+				f.get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			if ( Log.shouldWrite(Tier.CRITICAL) )
+				Log.out(Tier.CRITICAL, this.getName() + " failed concurrent "
+						+ "force evaluation: " + e.getMessage());
+			Idynomics.simulator.interupt( "concurrent force evaluation "
+					+ "failed in " + this.getName() );
+		}
+		for ( ForceBuffer buffer : this._buffers )
+			buffer.apply();
+		
+		for ( Agent agent : all )
+		{
+			if ( this.asleep(agent) )
+				continue;
+			/* NOTE: testing purposes only */
+			if (this._gravity)
+				gravityEvaluation(agent, (Body) agent.get(BODY));
+
+			if ( this._decompression )
+				for( Point p : ((Body) agent.get(BODY)).getPoints())
+				{
+					decompressionMatrix.addPressure(
+							p.getPosition(), Vector.normEuclid(p.getForce()));
+					p.addToForce(decompressionMatrix.getDirection(p.getPosition()));
+				}
+		}
+	}
+	
+	/**
+	 * @return true if the agent is currently asleep.
+	 */
+	private boolean asleep(Agent agent)
+	{
+		return ( this._activity != null && this._activity.isAsleep(agent) );
+	}
+	
+	/**
+	 * @return the largest overlap (most negative) found by any of the 
+	 * collision iterators since the last reset.
+	 */
+	private double maxOverlap()
+	{
+		double out = this._iterator.maxOverlap();
+		if ( this._chunkIterators != null )
+			for ( Collision c : this._chunkIterators )
+				out = Math.min( out, c.maxOverlap() );
+		return out;
+	}
+	
+	private void resetOverlap()
+	{
+		this._iterator.resetOverlap();
+		if ( this._chunkIterators != null )
+			for ( Collision c : this._chunkIterators )
+				c.resetOverlap();
+	}
+
 	private void updateShapeForceOnly(Collection<Agent> agents, AgentContainer aContainer)
 	{
 		for ( Agent agent: agents ) {
@@ -554,44 +851,82 @@ public class AgentRelaxation extends ProcessManager
 	 * @param agent the vocal agent (only once per time step per agent).
 	 * @param surfaces (the surfaces of the agent).
 	 * @param agentContainer (all agents in the compartment).
+	 * @param iterator the collision iterator used to evaluate interactions.
 	 */
 	private Collection<Agent> neighboorhoodEvaluation(Agent agent, List<Surface> surfaces,
-										 AgentContainer agentContainer, boolean hs)
+										 AgentContainer agentContainer, Collision iterator)
 	{
 		double searchDist = (agent.isAspect(SEARCH_DIST) ?
 				agent.getDouble(SEARCH_DIST) : 0.0);
 		
-		/* Perform neighborhood search and perform collision detection and
-		 * response. */
-		Collection<Agent> nhbs = agentContainer.agentSearch(agent, searchDist);
+		/* Obtain candidates from the Verlet list and perform collision 
+		 * detection and response. */
+		Collection<Agent> nhbs = 
+				Arrays.asList( this._verlet.getNeighbours(agent) );
 
 		for ( Agent neighbour: nhbs )
-			if ( agent.identity() > neighbour.identity() )
+			if ( agent.identity() > neighbour.identity() || 
+					this.asleep(neighbour) )
 			{
 				/* obtain maximum distance for which pulls should be considered
 				 */
-				Double pull = null;
+				Double pull = 0.0;
 				if( searchDist != 0.0 )
-				{
-					agent.event(PULL_EVALUATION, neighbour);
-					pull = agent.getDouble(CURRENT_PULL_DISTANCE);
-				}
-				if ( pull == null || pull.isNaN() )
-					pull = 0.0;
+					pull = this.pullDistance(agent, neighbour);
 
 				/* pass this agents and neighbor surfaces as well as the pull
 				 * region to the collision iterator to update the net forces. */
-				this._iterator.collision(surfaces, agent, 
+				iterator.collision(surfaces, agent, 
 						((Body) neighbour.get(BODY)).getSurfaces(), neighbour, 
 						pull);
 			}
 		return nhbs;
 	}
 
-	private Collection<Agent> neighboorhoodEvaluation(Agent agent, List<Surface> surfaces,
-													  AgentContainer agentContainer)
+	/**
+	 * \brief Resolve collisions of the agent with all other physical objects.
+	 * 
+	 * @param agent the vocal agent.
+	 * @param surfaces (the surfaces of the agent).
+	 * @param iterator the collision iterator used to evaluate interactions.
+	 */
+	private void physicalObjectEvaluation(Agent agent, List<Surface> surfaces,
+			Collision iterator)
+	{
+		for( PhysicalObject p : this._agents.getAllPhysicalObjects() )
+		{
+			/* NOTE the pull distance is evaluated but not (yet) used */
+			this.pullDistance(agent, p);
+			iterator.collision(p.getSurface(), p, surfaces, agent, 0.0);
+		}
+	}
+	
+	/**
+	 * \brief Evaluate the pull distance of the agent towards the partner,
+	 * synchronised on the agent when forces are evaluated concurrently since
+	 * other threads may evaluate events of the same agent.
+	 * 
+	 * @param agent
+	 * @param partner
+	 * @return maximum distance for which pulls should be considered.
+	 */
+	private double pullDistance(Agent agent, AspectInterface partner)
 	{
-		return neighboorhoodEvaluation(agent, surfaces,	agentContainer, false);
+		Double pull;
+		if ( this._concurrent )
+		{
+			synchronized (agent)
+			{
+				agent.event(PULL_EVALUATION, partner);
+				pull = agent.getDouble(CURRENT_PULL_DISTANCE);
+			}
+		}
+		else
+		{
+			agent.event(PULL_EVALUATION, partner);
+			pull = agent.getDouble(CURRENT_PULL_DISTANCE);
+		}
+		return ( pull == null || pull.isNaN() ? 0.0 : pull );
 	}
 
 	/**
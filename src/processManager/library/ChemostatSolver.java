@@ -45,6 +45,7 @@ public class ChemostatSolver extends ProcessManager
 	public static String SOLVER = AspectRef.solver;
 	public static String HMAX = AspectRef.solverhMax;
 	public static String TOLERANCE = AspectRef.solverTolerance;
+	public static String FULL_CONDITION_CHECK = AspectRef.fullConditionCheck;
 	public static String REACTIONS = AspectRef.agentReactions;
 	public static String SOLUTES = AspectRef.soluteNames;
 	public static String AGENT_VOLUME = AspectRef.agentVolume;
@@ -210,7 +211,11 @@ public class ChemostatSolver extends ProcessManager
 		if ( solverName.equals("rosenbrock") )
 		{
 			double tol = (double) this.getOr(TOLERANCE, 1.0e-6);
-			this._solver = new ODErosenbrock( new String[l], false, tol, hMax);
+			ODErosenbrock rosenbrock = 
+					new ODErosenbrock( new String[l], false, tol, hMax);
+			rosenbrock.setFullConditionCheck( 
+					(boolean) this.getOr(FULL_CONDITION_CHECK, false) );
+			this._solver = rosenbrock;
 		}
 		else
 			this._solver = new ODEheunsmethod( new String[l], false, hMax);
@@ -242,10 +247,7 @@ public class ChemostatSolver extends ProcessManager
 				 * Setup and re-used objects
 				 */
 				Vector.setAll(dydt, 0.0);
-				HashMap<String, Double> soluteMap = 
-						new HashMap<String, Double>();
-				for( int i = 0; i < _n; i++ )
-					soluteMap.put( _solutes[i], y[i]/y[_n] );
+				Map<String, Double> soluteMap = soluteMap(y);
 				
 				/*
 				 * In and out flows
@@ -306,73 +308,135 @@ public class ChemostatSolver extends ProcessManager
 				 */
 				int yAgent = 0;
 				for ( Agent a : agents.getAllAgents() )
-				{
-					@SuppressWarnings("unchecked")
-					List<RegularReaction> reactions = 
-							(List<RegularReaction>) a.get(REACTIONS);
-					if ( reactions == null )
-						return;
-
-					/* obtain massMap */
-					Map<String,Double> agentMap = 
-							ProcessMethods.getAgentMassMap( a );
-					
-					/* use up to date values for solvers */
-					int j = 0;
-					for( String s : agentMap.keySet())
-					{
-						j++;
-						agentMap.put(s, y[ _n + yAgent + j ]);
-					}
-					
-					/* create reactionMap and add current concentrations */
-					Map<String,Double> reactionMap = 
-							new HashMap<String, Double>();
-					reactionMap.putAll( soluteMap );
+					yAgent += agentDeriv( dydt, y, a, soluteMap, _n + yAgent );
+			}
+			
+			/**
+			 * Agents and their block offsets, as last given to the solver.
+			 */
+			private List<Agent> _blockAgents;
+			
+			private int[] _offsets;
+			
+			/**
+			 * Solutes and volume form the border, every agent is a block: 
+			 * agents only interact through the solutes.
+			 */
+			@Override
+			public int[] getBlockOffsets()
+			{
+				this._blockAgents = agents.getAllAgents();
+				this._offsets = new int[this._blockAgents.size() + 1];
+				this._offsets[0] = _n + 1;
+				for ( int k = 0; k < this._blockAgents.size(); k++ )
+					this._offsets[k+1] = this._offsets[k] + ProcessMethods
+							.getAgentMassMap( this._blockAgents.get(k) ).size();
+				return this._offsets;
+			}
+			
+			@Override
+			public void blockDeriv(double[] dydt, double[] y, int block)
+			{
+				if ( this._offsets == null )
+					this.getBlockOffsets();
+				/* Only the solutes, volume and this block are read. */
+				for ( int i = 0; i < this._offsets[0]; i++ )
+					dydt[i] = 0.0;
+				for ( int i = this._offsets[block]; 
+						i < this._offsets[block+1]; i++ )
+					dydt[i] = 0.0;
+				agentDeriv( dydt, y, this._blockAgents.get(block), 
+						soluteMap(y), this._offsets[block] - 1 );
+			}
+		};
+	}
+	
+	/**
+	 * \brief Concentrations of all solutes, given the solute masses and
+	 * volume in <b>y</b>.
+	 */
+	private Map<String, Double> soluteMap( double[] y )
+	{
+		Map<String, Double> soluteMap = new HashMap<String, Double>();
+		for( int i = 0; i < _n; i++ )
+			soluteMap.put( _solutes[i], y[i]/y[_n] );
+		return soluteMap;
+	}
+	
+	/**
+	 * \brief Add the effect of the reactions of one agent to the time
+	 * derivative.
+	 * 
+	 * @param dydt Time derivative, solute rates are added to the first 
+	 * elements and the agent's rates after <b>row</b>.
+	 * @param y Current values, the agent's moieties follow <b>row</b>.
+	 * @param a The agent.
+	 * @param soluteMap Current solute concentrations.
+	 * @param row Last position in <b>y</b> before this agent's moieties.
+	 * @return Number of moieties of this agent in <b>y</b>.
+	 */
+	private int agentDeriv( double[] dydt, double[] y, Agent a, 
+			Map<String, Double> soluteMap, int row )
+	{
+		/* obtain massMap */
+		Map<String,Double> agentMap = ProcessMethods.getAgentMassMap( a );
+		@SuppressWarnings("unchecked")
+		List<RegularReaction> reactions = 
+				(List<RegularReaction>) a.get(REACTIONS);
+		if ( reactions == null )
+			return agentMap.size();
+		
+		/* use up to date values for solvers */
+		int j = 0;
+		for( String s : agentMap.keySet())
+		{
+			j++;
+			agentMap.put(s, y[ row + j ]);
+		}
+		
+		/* create reactionMap and add current concentrations */
+		Map<String,Double> reactionMap = new HashMap<String, Double>();
+		reactionMap.putAll( soluteMap );
 
-					for (Reaction aReac : reactions)
-					{
-						/* Add any constants from the aspects */
-						j = 0;
-						for ( String var : aReac.getConstituentNames() )
-							if ( !agentMap.containsKey( var ) )
-							{
-								if ( a.isAspect( var ) )
-									reactionMap.put( var, a.getDouble( var) );
-								else if ( ! soluteMap.containsKey( var ) )
-									reactionMap.put(var , 0.0);
-							}
-						
-						reactionMap.putAll( agentMap );						
-						/*
-						 * Apply the effect of this reaction on the relevant 
-						 * solutes and agent constituents.
-						 */
-						for ( int i = 0; i < _n; i++ )
-						{
-							dydt[i] += aReac.getProductionRate( reactionMap, 
-									_solutes[i] );
-						}
-						/*
-						 * Apply the effect of this reaction to the agent and
-						 * its internal moieties.
-						 */
-						int i = 0;
-						for ( String s : agentMap.keySet() )
-						{
-							if ( !soluteMap.containsKey(s) )
-							{
-								i++;
-								/* mass and internal products */
-								dydt[ _n + yAgent + i ] += 
-										aReac.getProductionRate(reactionMap, s);
-							}
-						}
-					}
-					yAgent += agentMap.size();
+		for (Reaction aReac : reactions)
+		{
+			/* Add any constants from the aspects */
+			for ( String var : aReac.getConstituentNames() )
+				if ( !agentMap.containsKey( var ) )
+				{
+					if ( a.isAspect( var ) )
+						reactionMap.put( var, a.getDouble( var) );
+					else if ( ! soluteMap.containsKey( var ) )
+						reactionMap.put(var , 0.0);
 				}
+			
+			reactionMap.putAll( agentMap );						
+			/*
+			 * Apply the effect of this reaction on the relevant 
+			 * solutes and agent constituents.
+			 */
+			for ( int i = 0; i < _n; i++ )
+			{
+				dydt[i] += aReac.getProductionRate( reactionMap, 
+						_solutes[i] );
 			}
-		};
+			/*
+			 * Apply the effect of this reaction to the agent and
+			 * its internal moieties.
+			 */
+			int i = 0;
+			for ( String s : agentMap.keySet() )
+			{
+				if ( !soluteMap.containsKey(s) )
+				{
+					i++;
+					/* mass and internal products */
+					dydt[ row + i ] += 
+							aReac.getProductionRate(reactionMap, s);
+				}
+			}
+		}
+		return agentMap.size();
 	}
 	
 	protected void postStep()
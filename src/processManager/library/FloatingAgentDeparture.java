@@ -14,6 +14,7 @@ import compartment.AgentContainer;
 import compartment.EnvironmentContainer;
 import processManager.ProcessDeparture;
 import referenceLibrary.AspectRef;
+import spatialRegistry.PairBuffer;
 import surface.Surface;
 import surface.collision.Collision;
 
@@ -33,6 +34,11 @@ public class FloatingAgentDeparture extends ProcessDeparture {
 	
 	private double _searchDistance;
 	
+	/**
+	 * Reusable buffer for the candidate neighbour pairs.
+	 */
+	private PairBuffer<Agent> _pairs = new PairBuffer<Agent>();
+	
 	public void init(Element xmlElem, EnvironmentContainer environment, 
 			AgentContainer agents, String compartmentName)
 	{
@@ -104,6 +110,12 @@ public class FloatingAgentDeparture extends ProcessDeparture {
 		 */
 		Boolean attached;
 		
+		/*
+		 * True neighbours of all agents, obtained in a single pass if the
+		 * spatial registry supports it (null otherwise).
+		 */
+		HashMap<Agent, LinkedList<Agent>> neighbourMap = 
+				this.trueNeighbours(collision);
 		
 		for ( Agent focalAgent : this._agents.getAllAgents() )
 		{
@@ -129,42 +141,17 @@ public class FloatingAgentDeparture extends ProcessDeparture {
 			}
 			
 			
-			List<Agent> neighbours = 
-					this._agents.agentSearch(focalAgent, this._searchDistance);
-			
 			/*
 			 * True neighbours - a subset of neighbours that are within the
 			 * search distance of the focal agent.
 			 */
-			LinkedList<Agent> trueNeighbours = new LinkedList<Agent>();
-			
-			
-			/*
-			 * Check distances between the focal agent and all neighbours
-			 * in order to populate trueNeighbours.
-			 */
-			
-			Body agentBody = (Body) focalAgent.get(AspectRef.agentBody);
-			
-			List<Surface> agentSurfaces = agentBody.getSurfaces();
-			
-			for (Agent n : neighbours)
-			{
-				Body neighbourBody = (Body) n.get(AspectRef.agentBody);
-				List<Surface> neighbourSurfaces = neighbourBody.getSurfaces();
-				
-				for (Surface agentSurf : agentSurfaces)
-				{
-					for (Surface neighbourSurf : neighbourSurfaces)
-					{
-						if (collision.distance(agentSurf, neighbourSurf)
-								< this._searchDistance)
-						{
-							trueNeighbours.add(n);
-						}
-					}
-				}
-			}
+			LinkedList<Agent> trueNeighbours;
+			if (neighbourMap == null)
+				trueNeighbours = this.trueNeighbours(focalAgent, collision);
+			else if (neighbourMap.containsKey(focalAgent))
+				trueNeighbours = neighbourMap.get(focalAgent);
+			else
+				trueNeighbours = new LinkedList<Agent>();
 			
 			
 			int agentID = focalAgent.identity();
@@ -311,5 +298,90 @@ public class FloatingAgentDeparture extends ProcessDeparture {
 		
 		return agentsToRemove;
 	}
+	
+	/**
+	 * Find the true neighbours of the focal agent: all agents with a surface
+	 * within the search distance of one of the focal agent's surfaces.
+	 */
+	private LinkedList<Agent> trueNeighbours(Agent focalAgent, 
+			Collision collision)
+	{
+		List<Agent> neighbours = 
+				this._agents.agentSearch(focalAgent, this._searchDistance);
+		
+		LinkedList<Agent> trueNeighbours = new LinkedList<Agent>();
+		
+		/*
+		 * Check distances between the focal agent and all neighbours
+		 * in order to populate trueNeighbours.
+		 */
+		
+		Body agentBody = (Body) focalAgent.get(AspectRef.agentBody);
+		
+		List<Surface> agentSurfaces = agentBody.getSurfaces();
+		
+		for (Agent n : neighbours)
+		{
+			Body neighbourBody = (Body) n.get(AspectRef.agentBody);
+			List<Surface> neighbourSurfaces = neighbourBody.getSurfaces();
+			
+			for (Surface agentSurf : agentSurfaces)
+			{
+				for (Surface neighbourSurf : neighbourSurfaces)
+				{
+					if (collision.distance(agentSurf, neighbourSurf)
+							< this._searchDistance)
+					{
+						trueNeighbours.add(n);
+					}
+				}
+			}
+		}
+		return trueNeighbours;
+	}
+	
+	/**
+	 * Find the true neighbours of all located agents from a single pair 
+	 * search, the distance of every pair is only evaluated once. Returns null
+	 * if the agent container cannot provide neighbour pairs.
+	 */
+	private HashMap<Agent, LinkedList<Agent>> trueNeighbours(
+			Collision collision)
+	{
+		if (!this._agents.agentPairs(this._searchDistance, this._pairs))
+			return null;
+		
+		HashMap<Agent, LinkedList<Agent>> out = 
+				new HashMap<Agent, LinkedList<Agent>>();
+		
+		for (int i = 0; i < this._pairs.size(); i++)
+		{
+			Agent a = this._pairs.object(this._pairs.first(i));
+			Agent b = this._pairs.object(this._pairs.second(i));
+			List<Surface> aSurfaces = 
+					((Body) a.get(AspectRef.agentBody)).getSurfaces();
+			List<Surface> bSurfaces = 
+					((Body) b.get(AspectRef.agentBody)).getSurfaces();
+			
+			for (Surface aSurf : aSurfaces)
+			{
+				for (Surface bSurf : bSurfaces)
+				{
+					if (collision.distance(aSurf, bSurf) 
+							< this._searchDistance)
+					{
+						if (!out.containsKey(a))
+							out.put(a, new LinkedList<Agent>());
+						out.get(a).add(b);
+						if (!out.containsKey(b))
+							out.put(b, new LinkedList<Agent>());
+						out.get(b).add(a);
+					}
+				}
+			}
+		}
+		this._pairs.clear();
+		return out;
+	}
 
 }
@@ -33,6 +33,7 @@ import reaction.SoluteAtSite;
 import referenceLibrary.AspectRef;
 import referenceLibrary.XmlRef;
 import shape.Shape;
+import shape.subvoxel.DistributionMap;
 import shape.subvoxel.IntegerArray;
 import solver.mgFas.*;
 import utility.Helper;
@@ -60,6 +61,23 @@ public class PDEWrapper extends ProcessDiffusion
 
     public double solverResidualRatioThreshold;
 
+    /**
+     * Number of threads used to relax the multigrid.
+     */
+    public int threads;
+
+    /**
+     * Evaluate the reactions of agents sharing a voxel and reaction once.
+     */
+    public boolean aggregateReactions;
+
+    /**
+     * Agent reactions compiled per multigrid order, valid for the current
+     * step only.
+     */
+    private Map<Integer,ReactionKernel> _reactionKernels =
+            new HashMap<Integer,ReactionKernel>();
+
     /**
      *
      * Initiation from protocol file:
@@ -85,6 +103,11 @@ public class PDEWrapper extends ProcessDiffusion
 
         boolean autoVcycleAdjust = (boolean) this.getOr(AspectRef.autoVcycleAdjust, false);
 
+        this.threads = (int) this.getOr(AspectRef.threads, Global.process_threads);
+
+        this.aggregateReactions = (boolean) this.getOr(
+                AspectRef.aggregateReactions, false);
+
         /* gets specific solutes from process manager aspect registry if they
          * are defined, if not, solve for all solutes.
          */
@@ -149,6 +172,7 @@ public class PDEWrapper extends ProcessDiffusion
         {
             var.reset(PRODUCTIONRATE);
         }
+        this._reactionKernels.clear();
         multigrid.initAndSolve();
         /*
          * Estimate agent growth based on the steady-state solute
@@ -197,157 +221,29 @@ public class PDEWrapper extends ProcessDiffusion
         setupAgentDistributionMaps(this._agents.getShape());
     }
 
-    public void applyReactions(MultigridSolute[] sols, int resorder, SolverGrid[] reacGrid, double[] resolution,
-                               double voxelVolume)
-    {
-        for( Agent agent : this._agents.getAllAgents() )
-            applyAgentReactions(agent, sols, resorder, reacGrid, resolution, voxelVolume);
-        
-        for (Agent agent : this._agents.getAllAgents())
-        	solveTransferReactions (agent, sols, resorder, reacGrid, resolution, voxelVolume);
-    }
-
     /**
-     * \brief Apply the reactions for a single agent.
+     * \brief Apply the reactions of all agents to the reaction grids of the
+     * given multigrid order.
      *
-     * <p><b>Note</b>: this method assumes that the volume distribution map
-     * of this agent has already been calculated. This is typically done just
-     * once per process manager step, rather than at every PDE solver
-     * relaxation.</p>
-     *
-     * @param agent Agent assumed to have reactions (biomass will not be
-     * altered by this method).
+     * <p>The reactions are compiled into a {@link ReactionKernel} on the
+     * first call for every order in a step, later relaxation sweeps only
+     * evaluate the kinetics.</p>
      */
-    private void applyAgentReactions(
-            Agent agent, MultigridSolute[] concGrid, int resorder, SolverGrid[] reacGrid, double[] resolution,
-            double voxelVolume)
+    public void applyReactions(MultigridSolute[] sols, int resorder, SolverGrid[] reacGrid, double[] resolution,
+                               double voxelVolume)
     {
-        /*
-         * Get the agent's reactions: if it has none, then there is nothing
-         * more to do.
-         */
-        @SuppressWarnings("unchecked")
-        List<Reaction> reactions =
-                (List<Reaction>) agent.getValue(XmlRef.reactions);
-        
-        ArrayList<Reaction> volumeReactions =
-        		new ArrayList<Reaction>();
-        
-        for (Reaction r : reactions)
-        {
-        	if (r instanceof RegularReaction)
-        	{
-        		if ( ((RegularReaction) r).getType()
-        				== ReactionType.VOLUME)
-        			volumeReactions.add((RegularReaction) r);
-        	}
-        	else
-        		volumeReactions.add(r);
-        }
-        
-        if ( Helper.listIsNullOrEmpty(volumeReactions) )
-            return;
-        /*
-         * Get the distribution map and scale it so that its contents sum up to
-         * one.
-         */
-        Shape shape = this._agents.getShape();
-
-        /*
-         * Get the agent biomass kinds as a map. Copy it now so that we can
-         * use this copy to store the changes.
-         */
-        Map<String,Double> biomass = ProcessMethods.getAgentMassMap(agent);
-        /*
-         * Now look at all the voxels this agent covers.
-         */
-        Map<String,Double> concns = new HashMap<String,Double>();
-        SolverGrid solute;
-        MultigridSolute mGrid;
-        double concn, productRate, volume, perVolume;
-
-        double[] center = ((Body) agent.get(AspectRef.agentBody)).getCenter(shape);
-        
-        IntegerArray coord;
-        
-        if (agent.getBoolean(EPITHELIAL) != null
-        		&& agent.getBoolean(EPITHELIAL))
-        {
-        	coord = new IntegerArray();
-        }
-        else
-        {
-        	coord = new IntegerArray(shape.getCoords(center, null, resolution));
-        }
-
-
-        if ( agent.getBoolean(EPITHELIAL) != null
-        		&& agent.getBoolean(EPITHELIAL))
+        ReactionKernel kernel = this._reactionKernels.get(resorder);
+        if ( kernel == null )
         {
-        	volume = agent.getDouble(AspectRef.agentVolume);
+            kernel = new ReactionKernel(this._agents.getAllAgents(),
+                    this._agents.getShape(), sols, resolution, voxelVolume,
+                    this.aggregateReactions);
+            this._reactionKernels.put(resorder, kernel);
         }
-        else
-        	volume = voxelVolume;
+        kernel.apply(sols, resorder);
         
-        perVolume = 1.0/volume;
-        
-        for ( Reaction r : volumeReactions )
-        {
-            /*
-             * Build the dictionary of variable values. Note that these
-             * will likely overlap with the names in the reaction
-             * stoichiometry (handled after the reaction rate), but will
-             * not always be the same. Here we are interested in those that
-             * affect the reaction, and not those that are affected by it.
-             */
-            concns.clear();
-            for ( String varName : r.getConstituentNames() )
-            {
-                mGrid = FindGrid(concGrid, varName);
-                if ( !Helper.isNullOrEmpty(coord.get()) &&
-                		mGrid != null ) {
-                    solute = mGrid._conc[resorder];
-                    concn = solute.getValueAt(coord.get(), true);
-                }
-                else if ( biomass.containsKey(varName) )
-                {
-                    concn = biomass.get(varName) * perVolume;
-                }
-                else if ( agent.isAspect(varName) )
-                {
-                    /*
-                     * Check if the agent has other mass-like aspects
-                     * (e.g. EPS).
-                     */
-                    concn = agent.getDouble(varName) * perVolume;
-                }
-                else
-                {
-                    // TODO safety?
-                    concn = 0.0;
-                }
-                concns.put(varName, concn);
-
-            }
-            /*
-             * Now that we have the reaction rate, we can distribute the
-             * effects of the reaction. Note again that the names in the
-             * stoichiometry may not be the same as those in the reaction
-             * variables (although there is likely to be a large overlap).
-             */
-
-            for ( String productName : r.getReactantNames() )
-            {
-                mGrid = FindGrid(concGrid, productName);
-                if ( !Helper.isNullOrEmpty(coord.get())
-                		&& mGrid != null )
-                {
-                    solute = mGrid._reac[resorder];
-                    productRate = r.getProductionRate(concns, productName);
-                    solute.addValueAt( productRate, coord.get() , true );
-                }
-            }
-        }
+        for (Agent agent : kernel.transferAgents())
+        	solveTransferReactions (agent, sols, resorder, reacGrid, resolution, voxelVolume);
     }
     
     private void solveTransferReactions(Agent agent, MultigridSolute[] concGrid,
@@ -385,9 +281,9 @@ public class PDEWrapper extends ProcessDiffusion
         
         if (!agent.isAspect(SD_TAG))
         	this.setupAgentDistributionMaps(shape);
-        Map<Shape, HashMap<IntegerArray,Double>> map =
-        		(Map<Shape, HashMap<IntegerArray,Double>>) agent.get(SD_TAG);
-        HashMap<IntegerArray,Double> coverageMap = map.get(
+        Map<Shape, DistributionMap> map =
+        		(Map<Shape, DistributionMap>) agent.get(SD_TAG);
+        DistributionMap coverageMap = map.get(
         		agent.getEpithelium().getCompartment().getShape());
         		
         double surfaceArea = agent.getEpithelium().
@@ -439,10 +335,11 @@ public class PDEWrapper extends ProcessDiffusion
 	            {
 	            	if (constituent.siteName.equals(this._compartmentName))
 		           	{
-	            		for (IntegerArray coord : coverageMap.keySet())
+	            		for (int n = 0; n < coverageMap.size(); n++)
 	                    {
+	                    	int[] coord = coverageMap.getCoord(n);
 	            			double[] inside;
-	            			if (coord.get().length == 2)
+	            			if (coord.length == 2)
 	            			{
 	            				inside = new double[] {0.5, 0.5};
 	            			}
@@ -457,7 +354,7 @@ public class PDEWrapper extends ProcessDiffusion
 	            			 * coordinate in which the cell sits
 	            			 */
 	            			double[] coordLocation = shape.
-	            					getLocation(coord.get(), inside);
+	            					getLocation(coord, inside);
 	            			
 	            			int[] resolvedCoord = shape.
 	            					getCoords(coordLocation, null, resolution);
@@ -467,7 +364,7 @@ public class PDEWrapper extends ProcessDiffusion
 		    	            {
 		    	                solute = mGrid._conc[resorder];
 		    	                concn += solute.getValueAt(resolvedCoord, true)
-		    	               		*coverageMap.get(coord);
+		    	               		*coverageMap.getValue(n);
 		    	            }
 	                    }
 		           	}
@@ -524,11 +421,12 @@ public class PDEWrapper extends ProcessDiffusion
 	        concns.put(varName, concn);
 		    }
 	        
-	        for (IntegerArray coord : coverageMap.keySet())
+	        for (int n = 0; n < coverageMap.size(); n++)
 	        {
+	        	int[] coord = coverageMap.getCoord(n);
 	        	
 	        	double[] inside;
-    			if (coord.get().length == 2)
+    			if (coord.length == 2)
     			{
     				inside = new double[] {0.5, 0.5};
     			}
@@ -543,7 +441,7 @@ public class PDEWrapper extends ProcessDiffusion
     			 * coordinate in which the cell sits
     			 */
     			double[] coordLocation = shape.
-    					getLocation(coord.get(), inside);
+    					getLocation(coord, inside);
     			
     			int[] resolvedCoord = shape.
     					getCoords(coordLocation, null, resolution);
@@ -590,7 +488,7 @@ public class PDEWrapper extends ProcessDiffusion
 	    	                	 * with the focal voxel.
 	    	                	 */
 	    	                    transferRate = r.getProductionRate(concns, productName);
-	    	                    double productionRate = (transferRate * coverageMap.get(coord))
+	    	                    double productionRate = (transferRate * coverageMap.getValue(n))
 	    	                    		/ resolution[0];
 	    	                    solute.addValueAt( productionRate, resolvedCoord , true );
 	    	                }
@@ -809,9 +707,9 @@ public class PDEWrapper extends ProcessDiffusion
         if (!agent.isAspect(SD_TAG))
         	this.setupAgentDistributionMaps(
         			agent.getEpithelium().getCompartment().getShape());
-        Map<Shape, HashMap<IntegerArray,Double>> map =
-        		(Map<Shape, HashMap<IntegerArray,Double>>) agent.get(SD_TAG);
-        HashMap<IntegerArray,Double> coverageMap = map.get(
+        Map<Shape, DistributionMap> map =
+        		(Map<Shape, DistributionMap>) agent.get(SD_TAG);
+        DistributionMap coverageMap = map.get(
         		agent.getEpithelium().getCompartment().getShape());
         		
         /*
@@ -859,12 +757,13 @@ public class PDEWrapper extends ProcessDiffusion
 	            {
 	            	if (constituent.siteName.equals(this._compartmentName))
 		           	{
-	            		for (IntegerArray coord : coverageMap.keySet())
+	            		for (int n = 0; n < coverageMap.size(); n++)
 	                    {
+	                    	int[] coord = coverageMap.getCoord(n);
 		           			solute = this._environment.getSoluteGrid( 
 	            					constituent.soluteName );
-		    	            concn += solute.getValueAt( CONCN, coord.get() )
-	    	                    		*coverageMap.get(coord);
+		    	            concn += solute.getValueAt( CONCN, coord )
+	    	                    		*coverageMap.getValue(n);
 	                    }
 		           	}
 	            		
@@ -952,14 +851,15 @@ public class PDEWrapper extends ProcessDiffusion
 	            {
 	            	if (product.siteName.equals(this._compartmentName))
 		           	{
-	            		for (IntegerArray coord : coverageMap.keySet())
+	            		for (int n = 0; n < coverageMap.size(); n++)
 	                    {
+	                    	int[] coord = coverageMap.getCoord(n);
 		           			solute = this._environment.getSoluteGrid( 
 	            					product.soluteName );
 		    	            productMass =
 	                                productRate * surfaceArea * this.getTimeStepSize()
-	                                *coverageMap.get(coord);
-	                        solute.addValueAt(PRODUCTIONRATE, coord.get(), productMass);
+	                                *coverageMap.getValue(n);
+	                        solute.addValueAt(PRODUCTIONRATE, coord, productMass);
 	                    }
 		           	}
 	            		
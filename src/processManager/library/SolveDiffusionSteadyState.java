@@ -28,7 +28,8 @@ import referenceLibrary.AspectRef;
 import referenceLibrary.XmlRef;
 import shape.Shape;
 import shape.ShapeLibrary.Dimensionless;
-import shape.subvoxel.IntegerArray;
+import shape.subvoxel.DistributionMap;
+import solver.PDEkrylov;
 import solver.PDEmultigrid;
 import utility.Helper;
 
@@ -64,12 +65,29 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 		
 		double relTol = (double) this.getOr(REL_TOLERANCE, 1.0e-3);
 
-		// TODO Let the user choose which ODEsolver to use.
-		this._solver = new PDEmultigrid(
-				(int) this.getOr(AspectRef.vCycles, 0), 
-				(int) this.getOr(AspectRef.preSteps, 0), 
-				(int) this.getOr(AspectRef.coarseSteps, 0), 
-				(int) this.getOr(AspectRef.postSteps, 0));
+		/*
+		 * The multigrid solver relaxes the nonlinear problem directly, the
+		 * Krylov solver uses Newton iterations with a linear multigrid
+		 * preconditioner.
+		 */
+		String solverName = (String) this.getOr(AspectRef.solver, "multigrid");
+		if ( solverName.equals("krylov") )
+		{
+			this._solver = new PDEkrylov(
+					(int) this.getOr(AspectRef.newtonSteps, 0), 
+					(int) this.getOr(AspectRef.krylovSteps, 0));
+		}
+		else
+		{
+			if ( ! solverName.equals("multigrid") )
+				Log.out(Tier.CRITICAL, this.getName() + " unknown solver " + 
+						solverName + ", using multigrid solver.");
+			this._solver = new PDEmultigrid(
+					(int) this.getOr(AspectRef.vCycles, 0), 
+					(int) this.getOr(AspectRef.preSteps, 0), 
+					(int) this.getOr(AspectRef.coarseSteps, 0), 
+					(int) this.getOr(AspectRef.postSteps, 0));
+		}
 
 		this._solver.setUpdater(this);
 		
@@ -175,11 +193,11 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 		 */
 		Shape shape = variables.iterator().next().getShape();
 		@SuppressWarnings("unchecked")
-		Map<Shape, HashMap<IntegerArray,Double>> mapOfMaps = 
-				(Map<Shape, HashMap<IntegerArray,Double>>)
+		Map<Shape, DistributionMap> mapOfMaps = 
+				(Map<Shape, DistributionMap>)
 				agent.getValue(VOLUME_DISTRIBUTION_MAP);
 		
-		HashMap<IntegerArray,Double> distributionMap = mapOfMaps.get(shape);
+		DistributionMap distributionMap = mapOfMaps.get(shape);
 		/*
 		 * Get the agent biomass kinds as a map. Copy it now so that we can
 		 * use this copy to store the changes.
@@ -191,9 +209,11 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 		Map<String,Double> concns = new HashMap<String,Double>();
 		SpatialGrid solute;
 		double concn, productRate, volume, perVolume;
-		for ( IntegerArray coord : distributionMap.keySet() )
+		int[] coord = new int[3];
+		for ( int n = 0; n < distributionMap.size(); n++ )
 		{
-			volume = shape.getVoxelVolume(coord.get());
+			distributionMap.getCoordTo(coord, n);
+			volume = shape.getVoxelVolume(coord);
 			perVolume = 1.0/volume;
 			for ( Reaction r : reactions )
 			{
@@ -211,11 +231,11 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 				{
 					solute = FindGrid(variables, varName);
 					if ( solute != null )
-						concn = solute.getValueAt(CONCN, coord.get());
+						concn = solute.getValueAt(CONCN, coord);
 					else if ( biomass.containsKey(varName) )
 					{
 						concn = biomass.get(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 					}
 					else if ( agent.isAspect(varName) )
 					{
@@ -224,7 +244,7 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 						 * (e.g. EPS).
 						 */
 						concn = agent.getDouble(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 					}
 					else
 					{
@@ -245,7 +265,7 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 					if ( solute != null )
 					{
 						productRate = r.getProductionRate(concns, product);
-						solute.addValueAt(PRODUCTIONRATE, coord.get(), volume * productRate);
+						solute.addValueAt(PRODUCTIONRATE, coord, volume * productRate);
 					}
 				}
 			}
@@ -279,10 +299,10 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 		 * one.
 		 */
 		@SuppressWarnings("unchecked")
-		Map<Shape, HashMap<IntegerArray,Double>> mapOfMaps = 
-				( Map<Shape, HashMap<IntegerArray,Double>> )
+		Map<Shape, DistributionMap> mapOfMaps = 
+				( Map<Shape, DistributionMap> )
 				agent.getValue(VOLUME_DISTRIBUTION_MAP);
-		HashMap<IntegerArray,Double> distributionMap = 
+		DistributionMap distributionMap = 
 				mapOfMaps.get(agent.getCompartment().getShape());
 		/*
 		 * Get the agent biomass kinds as a map. Copy it now so that we can
@@ -298,9 +318,11 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 		Map<String,Double> concns = new HashMap<String,Double>();
 		SpatialGrid solute;
 		double concn, productRate, volume, perVolume;
-		for ( IntegerArray coord : distributionMap.keySet() )
+		int[] coord = new int[3];
+		for ( int n = 0; n < distributionMap.size(); n++ )
 		{
-			volume = this._agents.getShape().getVoxelVolume( coord.get() );
+			distributionMap.getCoordTo(coord, n);
+			volume = this._agents.getShape().getVoxelVolume( coord );
 			perVolume = 1.0 / volume;
 			for ( Reaction r : reactions )
 			{
@@ -318,12 +340,12 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 					if ( this._environment.isSoluteName(varName) )
 					{
 						solute = this._environment.getSoluteGrid(varName);
-						concn = solute.getValueAt(CONCN, coord.get());
+						concn = solute.getValueAt(CONCN, coord);
 					}
 					else if ( biomass.containsKey(varName) )
 					{
 						concn = biomass.get(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 
 					}
 					else if ( agent.isAspect(varName) )
@@ -333,7 +355,7 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 						 * (e.g. EPS).
 						 */
 						concn = agent.getDouble(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 					}
 					else
 					{
@@ -360,7 +382,7 @@ public class SolveDiffusionSteadyState extends ProcessDiffusion
 						solute = this._environment.getSoluteGrid(product);
 						quantity = 
 								productRate * volume * this.getTimeStepSize();
-						solute.addValueAt(PRODUCTIONRATE, coord.get(), quantity
+						solute.addValueAt(PRODUCTIONRATE, coord, quantity
 								);
 					}
 					else if ( newBiomass.containsKey(product) )
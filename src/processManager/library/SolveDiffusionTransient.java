@@ -29,10 +29,13 @@ import idynomics.Idynomics;
 import processManager.ProcessDiffusion;
 import processManager.ProcessMethods;
 import reaction.Reaction;
+import referenceLibrary.AspectRef;
 import referenceLibrary.XmlRef;
+import shape.CartesianShape;
 import shape.Shape;
 import shape.ShapeLibrary.Dimensionless;
-import shape.subvoxel.IntegerArray;
+import shape.subvoxel.DistributionMap;
+import solver.PDEadi;
 import solver.PDEexplicit;
 import utility.Helper;
 
@@ -54,8 +57,42 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 	{
 		super.init(xmlElem, environment, agents, compartmentName);
 
-		// TODO Let the user choose which ODEsolver to use.
-		this._solver = new PDEexplicit();
+		/*
+		 * The explicit solver is limited to small time steps by stability,
+		 * ADI (Crank-Nicolson) and implicit are stable for any time step and
+		 * adapt their mini-timestep to the accuracy of the reactions.
+		 */
+		String solverName = (String) this.getOr(AspectRef.solver, "explicit");
+		if ( ! solverName.equals("explicit") && 
+				! ( this._environment.getShape() instanceof CartesianShape ) )
+		{
+			Log.out(Tier.CRITICAL, this.getName() + " solver " + solverName +
+					" requires a Cartesian shape, using explicit solver.");
+			solverName = "explicit";
+		}
+		if ( solverName.equals("adi") || solverName.equals("implicit") )
+		{
+			double hMax = (double) this.getOr(AspectRef.solverhMax, 
+					Double.MAX_VALUE);
+			this._solver = new PDEadi( 
+					solverName.equals("adi") ? 0.5 : 1.0, hMax );
+			this._solver.setRelativeTolerance( (double) this.getOr(
+					AspectRef.solverRelTolerance, 0.05) );
+			this._solver.setAbsoluteTolerance( (double) this.getOr(
+					AspectRef.solverAbsTolerance, 0.0) );
+		}
+		else
+		{
+			if ( ! solverName.equals("explicit") )
+				Log.out(Tier.CRITICAL, this.getName() + " unknown solver " + 
+						solverName + ", using explicit solver.");
+			PDEexplicit solver = new PDEexplicit();
+			int threads = (int) this.getOr(AspectRef.threads, 
+					Global.process_threads);
+			if ( threads > 1 )
+				solver.setPool( Idynomics.threadPool(threads) );
+			this._solver = solver;
+		}
 
 		this._solver.setUpdater(this);
 	}
@@ -137,11 +174,11 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 		 * one.
 		 */
 		@SuppressWarnings("unchecked")
-		Map<Shape, HashMap<IntegerArray,Double>> mapOfMaps = (Map<Shape, HashMap<IntegerArray,Double>>)
+		Map<Shape, DistributionMap> mapOfMaps = (Map<Shape, DistributionMap>)
 						agent.getValue(VOLUME_DISTRIBUTION_MAP);
-		HashMap<IntegerArray,Double> distributionMap = 
+		DistributionMap distributionMap = 
 				mapOfMaps.get(agent.getCompartment().getShape());
-		ProcessDiffusion.scale(distributionMap, 1.0);
+		distributionMap.scale(1.0);
 		/*
 		 * Get the agent biomass kinds as a map. Copy it now so that we can
 		 * use this copy to store the changes.
@@ -159,10 +196,11 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 		Shape shape = this._agents.getShape();
 		double concn, productRate, volume, perVolume;
 		
-		for ( IntegerArray coord : distributionMap.keySet() )
+		int[] coord = new int[3];
+		for ( int n = 0; n < distributionMap.size(); n++ )
 		{
-
-			volume = shape.getVoxelVolume(coord.get());
+			distributionMap.getCoordTo(coord, n);
+			volume = shape.getVoxelVolume(coord);
 			perVolume = 1.0/volume;
 			for ( Reaction r : reactions )
 			{
@@ -179,12 +217,12 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 					if ( this._environment.isSoluteName(varName) )
 					{
 						solute = this._environment.getSoluteGrid(varName);
-						concn = solute.getValueAt(CONCN, coord.get());
+						concn = solute.getValueAt(CONCN, coord);
 					}
 					else if ( biomass.containsKey(varName) )
 					{
 						concn = biomass.get(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 
 					}
 					else if ( agent.isAspect(varName) )
@@ -194,7 +232,7 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 						 * (e.g. EPS).
 						 */
 						concn = agent.getDouble(varName) * 
-								distributionMap.get(coord) * perVolume;
+								distributionMap.getValue(n) * perVolume;
 					}
 					else
 					{
@@ -221,7 +259,7 @@ public class SolveDiffusionTransient extends ProcessDiffusion
 						solute = this._environment.getSoluteGrid(product);
 						quantity = 
 								productRate * volume * this.getTimeStepSize();
-						solute.addValueAt(PRODUCTIONRATE, coord.get(), quantity
+						solute.addValueAt(PRODUCTIONRATE, coord, quantity
 								);
 					}
 					else if ( newBiomass.containsKey(product) )
@@ -1,6 +1,7 @@
 package reaction;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -43,4 +44,37 @@ public interface Reaction {
 	double getProductionRate(Map<String, Double> concentrations, 
 			String reactantName);
 
+	/**
+	 * \brief Production rates of several chemical species at once, written
+	 * to <b>destination</b> in the order of <b>reactantNames</b>.
+	 * 
+	 * <p>Implementations may override this to evaluate the rate of the
+	 * reaction only once for all species.</p>
+	 */
+	default void getProductionRates(Map<String, Double> concentrations, 
+			String[] reactantNames, double[] destination)
+	{
+		for ( int i = 0; i < reactantNames.length; i++ )
+			destination[i] = 
+					this.getProductionRate(concentrations, reactantNames[i]);
+	}
+	
+	/**
+	 * \brief As {@link #getProductionRates(Map, String[], double[])}, with
+	 * the concentrations given as a primitive array in the order of
+	 * <b>names</b>.
+	 * 
+	 * <p>Callers that evaluate a reaction many times should pass the same
+	 * <b>names</b> array every time. Implementations that cannot evaluate
+	 * from arrays fall back to a dictionary.</p>
+	 */
+	default void getProductionRates(String[] names, double[] concentrations,
+			String[] reactantNames, double[] destination)
+	{
+		Map<String,Double> concns = new HashMap<String,Double>();
+		for ( int i = 0; i < names.length; i++ )
+			concns.put(names[i], concentrations[i]);
+		this.getProductionRates(concns, reactantNames, destination);
+	}
+
 }
\ No newline at end of file
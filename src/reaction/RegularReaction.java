@@ -9,6 +9,8 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import compartment.EnvironmentContainer;
+import dataIO.Log;
+import dataIO.Log.Tier;
 import dataIO.ObjectFactory;
 import dataIO.XmlHandler;
 import expression.Component;
@@ -348,6 +350,34 @@ public class RegularReaction
 											this.getRate(concentrations);
 	}
 	
+	/* (non-Javadoc)
+	 * @see reaction.Reaction#getProductionRates(java.util.Map, java.lang.String[], double[])
+	 * Evaluates the kinetics only once for all reactants.
+	 */
+	@Override
+	public void getProductionRates(Map<String, Double> concentrations, 
+			String[] reactantNames, double[] destination)
+	{
+		checkNegatives(concentrations);
+		double rate = this.getRate(concentrations);
+		for ( int i = 0; i < reactantNames.length; i++ )
+			destination[i] = this.getStoichiometry(reactantNames[i]) * rate;
+	}
+	
+	/* (non-Javadoc)
+	 * @see reaction.Reaction#getProductionRates(java.lang.String[], double[], java.lang.String[], double[])
+	 * Evaluates the kinetics from the array, without a dictionary.
+	 */
+	@Override
+	public void getProductionRates(String[] names, double[] concentrations,
+			String[] reactantNames, double[] destination)
+	{
+		checkNegatives(names, concentrations);
+		double rate = this._kinetic.getValue(names, concentrations);
+		for ( int i = 0; i < reactantNames.length; i++ )
+			destination[i] = this.getStoichiometry(reactantNames[i]) * rate;
+	}
+	
 	protected void checkNegatives( Map<String, Double> concentrations )
 	{
 		for ( String s : concentrations.keySet() )
@@ -357,6 +387,23 @@ public class RegularReaction
 		}
 	}
 	
+	/**
+	 * \brief Report negative concentrations in the debug log, this is called
+	 * for every voxel so nothing is checked unless debug output is enabled.
+	 */
+	protected void checkNegatives( String[] names, double[] concentrations )
+	{
+		if ( ! Log.shouldWrite(Tier.DEBUG) )
+			return;
+		for ( int i = 0; i < names.length; i++ )
+		{
+			if( concentrations[i] < 0.0 )
+				Log.out( Tier.DEBUG, this.getClass().getSimpleName() + 
+						" detected negative concentration " + names[i] + " " + 
+						concentrations[i] );
+		}
+	}
+	
 	/**
 	 * \brief TODO
 	 * 
@@ -332,6 +332,45 @@ public class AspectRef
 	 */
 	public final static String shoveFactor = "shoveFactor";
 
+	/**
+	 * Margin by which agent bounding boxes are inflated in the spatial
+	 * registry during agentRelaxation, allowing incremental registry updates.
+	 */
+	public final static String spatialRegistryMargin = "registryMargin";
+
+	/**
+	 * Skin distance of the Verlet neighbour list used in agentRelaxation,
+	 * without a (positive) skin the list is rebuilt every mechanical step.
+	 */
+	public final static String verletSkin = "verletSkin";
+
+	/**
+	 * Number of threads used by process managers that support multi-threaded
+	 * evaluation (agentRelaxation, PDEWrapper, solveDiffusionTransient), 1 for
+	 * single-threaded evaluation. Diffusion processes also use these threads to
+	 * set up COLLISION agent distribution maps.
+	 */
+	public final static String threads = "threads";
+
+	/**
+	 * Number of consecutive mechanical sub-steps an agent has to remain below
+	 * the stress threshold before it is put to sleep in agentRelaxation, 
+	 * sleeping is disabled if not set.
+	 */
+	public final static String sleepSteps = "sleepSteps";
+
+	/**
+	 * Factor by which the mechanical time step of the IMPLICIT relaxation
+	 * method exceeds the step size of the explicit methods.
+	 */
+	public final static String implicitStepFactor = "implicitStepFactor";
+
+	/**
+	 * Maximum number of conjugate gradient iterations per mechanical step of
+	 * the IMPLICIT relaxation method.
+	 */
+	public final static String implicitIterations = "implicitIterations";
+
 	/**
 	 * TODO
 	 */
@@ -353,12 +392,15 @@ public class AspectRef
 	public final static String soluteNames = "soluteNames";
 
 	/**
-	 * TODO
+	 * Solver used by the process manager: heun or rosenbrock for
+	 * chemostatSolver, explicit, adi (Crank-Nicolson) or implicit for
+	 * solveDiffusionTransient, multigrid or krylov for
+	 * solveDiffusionSteadyState.
 	 */
 	public final static String solver = "solver";
 
 	/**
-	 * TODO
+	 * Maximum internal time step of the solver.
 	 */
 	public final static String solverhMax = "hMax";
 
@@ -382,6 +424,22 @@ public class AspectRef
 	 */
 	public final static String solverResidualRatioThreshold = "solverResidualRatioThreshold";
 
+	/**
+	 * Diagnostic: the rosenbrock solver checks the condition of its linear
+	 * systems with a full singular value decomposition on every step, rather
+	 * than with a cheap estimate. The full check warns above a 2-norm
+	 * condition of 10, the cheap 1-norm estimate above 10 times the number of
+	 * variables.
+	 */
+	public final static String fullConditionCheck = "fullConditionCheck";
+
+	/**
+	 * PDEWrapper evaluates the reactions of agents that share a voxel and a
+	 * reaction once for their summed mass, only exact for reaction rates
+	 * proportional to agent mass.
+	 */
+	public final static String aggregateReactions = "aggregateReactions";
+
 	/**
 	 * TODO
 	 */
@@ -682,6 +740,17 @@ public class AspectRef
 	public static final String coarseSteps = "coarseSteps";
 
 	public static final String postSteps = "postSteps";
+
+	/**
+	 * Maximum number of Newton iterations of the krylov solver.
+	 */
+	public static final String newtonSteps = "newtonSteps";
+
+	/**
+	 * Maximum number of Krylov iterations per Newton iteration of the krylov
+	 * solver.
+	 */
+	public static final String krylovSteps = "krylovSteps";
 	
 	public static final String record = "record";
 
@@ -723,6 +792,10 @@ public class AspectRef
 	
 	public static final String interval = "interval";
 
+	/**
+	 * Adapt the smoothing of multigrid V-cycles to the convergence of the
+	 * previous steps rather than using the fixed preSteps and postSteps.
+	 */
 	public static final String autoVcycleAdjust = "autoVcycleAdjust";
 
 	public static final String absoluteValue = "absoluteValue";
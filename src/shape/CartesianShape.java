@@ -4,6 +4,9 @@ import static shape.Dimension.DimName.X;
 import static shape.Dimension.DimName.Y;
 import static shape.Dimension.DimName.Z;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import dataIO.Log;
 import dataIO.Log.Tier;
 import linearAlgebra.Array;
@@ -122,6 +125,7 @@ public abstract class CartesianShape extends Shape
 	@Override
 	public void setDimensionResolution(DimName dName, ResolutionCalculator resC)
 	{
+		this.resetGeometry();
 		int index = this.getDimensionIndex(dName);
 		this._resCalc[index] = resC;
 	}
@@ -221,7 +225,65 @@ public abstract class CartesianShape extends Shape
 		}
 		return area;
 	}
-	
+
+	/**
+	 * \brief Find the voxels that may overlap with the given box.
+	 *
+	 * <p>The box may extend beyond the shape: on cyclic dimensions it wraps
+	 * around, on other dimensions it is cut off. Every voxel that overlaps
+	 * with the box is included, as well as at most one layer of voxels
+	 * around it, each voxel is included once.</p>
+	 *
+	 * @param lower Lower corner of the box (significant dimensions only).
+	 * @param upper Upper corner of the box (significant dimensions only).
+	 * @return Discrete coordinates of the voxels.
+	 */
+	public List<int[]> getVoxelsInBox(double[] lower, double[] upper)
+	{
+		int[][] index = new int[3][];
+		for ( int dim = 0; dim < 3; dim++ )
+		{
+			int n = this._resCalc[dim].getNVoxel();
+			if ( dim >= lower.length )
+			{
+				index[dim] = new int[] { 0 };
+				continue;
+			}
+			Dimension dimension = this.getDimension(this.getDimensionName(dim));
+			double res = this._resCalc[dim].getResolution();
+			/* one voxel margin also covers node based resolutions */
+			int from = (int) Math.floor(
+					( lower[dim] - dimension.getExtreme(0) ) / res ) - 1;
+			int to = (int) Math.floor(
+					( upper[dim] - dimension.getExtreme(0) ) / res ) + 1;
+			if ( dimension.isCyclic() )
+			{
+				if ( to - from + 1 >= n )
+				{
+					from = 0;
+					to = n - 1;
+				}
+			}
+			else
+			{
+				from = Math.max(from, 0);
+				to = Math.min(to, n - 1);
+			}
+			if ( to < from )
+				return new ArrayList<int[]>();
+			index[dim] = new int[to - from + 1];
+			for ( int i = 0; i < index[dim].length; i++ )
+				index[dim][i] = Math.floorMod(from + i, n);
+		}
+		List<int[]> out = new ArrayList<int[]>(
+				index[0].length * index[1].length * index[2].length );
+		for ( int i : index[0] )
+			for ( int j : index[1] )
+				for ( int k : index[2] )
+					out.add( new int[] { i, j, k } );
+		return out;
+	}
+
 	/* ***********************************************************************
 	 * MULTIGRID CONSTRUCTION
 	 * **********************************************************************/
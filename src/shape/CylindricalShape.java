@@ -149,6 +149,7 @@ public abstract class CylindricalShape extends Shape
 	@Override
 	public void setDimensionResolution(DimName dName, ResolutionCalculator resC)
 	{
+		this.resetGeometry();
 		int index = this.getDimensionIndex(dName);
 		switch ( dName )
 		{
@@ -398,6 +399,12 @@ public abstract class CylindricalShape extends Shape
 		return n * this._resCalc[this.getDimensionIndex(Z)][0].getNVoxel();
 	}
 	
+	@Override
+	public double getVoxelVolume(int[] coord)
+	{
+		return this.getTabulatedVoxelVolume(coord);
+	}
+	
 	@Override
 	public double getVoxelVolume(double[] origin, double[] upper){
 		/* 
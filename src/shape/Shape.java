@@ -8,7 +8,9 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
@@ -90,6 +92,22 @@ public abstract class Shape implements
 	 */
 	protected Double _maxFluxPotentl = null;
 	
+	/**
+	 * Stencils per iterator stride length, like the maximum flux potential
+	 * these are calculated on first request and do not change unless the
+	 * resolutions do. Stencils may be requested from multiple threads.
+	 */
+	protected Map<Integer,Stencil> _stencils = 
+			new ConcurrentHashMap<Integer,Stencil>();
+	
+	/**
+	 * Voxel volumes, indexed by voxel coordinates. Only used by shapes that
+	 * call {@link #getTabulatedVoxelVolume(int[])}, calculated on first
+	 * request and discarded when the resolutions change. Volatile, as it is
+	 * read without synchronization once it is filled.
+	 */
+	protected volatile double[][][] _voxelVolumes = null;
+	
 	/**
 	 * List of boundaries in a dimensionless compartment, or internal
 	 * boundaries in a dimensional compartment.
@@ -520,6 +538,7 @@ public abstract class Shape implements
 	public void makeCyclic(DimName dimension)
 	{
 		this.getDimension(dimension).setCyclic();
+		this._stencils.clear();
 	}
 	
 	/**
@@ -598,6 +617,8 @@ public abstract class Shape implements
 			dim.setLength(( i < lengths.length ) ? lengths[i] : 0.0);
 			i++;
 		}
+		/* Voxel geometry may have changed. */
+		this.resetGeometry();
 	}
 
 	public int getDimensionVoxelCount( int dimension )
@@ -1233,6 +1254,7 @@ public abstract class Shape implements
 	public void setBoundary(DimName dimension, int index, SpatialBoundary bndry)
 	{
 		this.getDimension(dimension).setBoundary(bndry, index);
+		this._stencils.clear();
 	}
 	
 	/**
@@ -1653,6 +1675,29 @@ public abstract class Shape implements
 		return this._maxFluxPotentl;
 	}
 	
+	/**
+	 * \brief Get the precomputed voxel order and neighbour geometry of this
+	 * shape, iterating over a stencil does not alter the state of this shape
+	 * and may therefore be done from multiple threads.
+	 * 
+	 * @param strideLength The stride length of the voxel order: 1 for normal,
+	 * 2 for red-black, etc.
+	 * @return Stencil of this shape.
+	 */
+	public Stencil getStencil(int strideLength)
+	{
+		Stencil out = this._stencils.get(strideLength);
+		if ( out == null )
+		{
+			/* If another thread was first, use its stencil. */
+			out = new Stencil(this, this.getNewIterator(strideLength));
+			Stencil other = this._stencils.putIfAbsent(strideLength, out);
+			if ( other != null )
+				out = other;
+		}
+		return out;
+	}
+	
 	/**
 	 * \brief Helper method to calculate the maximum flux potential.
 	 * 
@@ -1707,6 +1752,68 @@ public abstract class Shape implements
 		return getVoxelVolume(origin, upper);
 	}
 	
+	/**
+	 * \brief Look up the volume of the voxel specified by the given
+	 * coordinates in the volume table of this shape.
+	 * 
+	 * <p>Shapes with voxel volumes that depend on the position (polar
+	 * shapes) use this to avoid repeating the resolution calculator look-ups
+	 * and calculations on every visit.</p>
+	 * 
+	 * @param coord Discrete coordinates of a voxel on this grid.
+	 * @return Volume of this voxel.
+	 */
+	protected double getTabulatedVoxelVolume(int[] coord)
+	{
+		double[][][] volumes = this._voxelVolumes;
+		if ( volumes == null )
+			volumes = this.calcVoxelVolumes();
+		if ( coord[0] < 0 || coord[0] >= volumes.length ||
+				coord[1] < 0 || coord[1] >= volumes[coord[0]].length ||
+				coord[2] < 0 || coord[2] >= volumes[coord[0]][coord[1]].length )
+		{
+			/* Not a voxel of this shape, calculate as usual. */
+			double[] origin = this.getVoxelOrigin(coord);
+			double[] upper = this.getVoxelUpperCorner(coord);
+			return getVoxelVolume(origin, upper);
+		}
+		return volumes[coord[0]][coord[1]][coord[2]];
+	}
+	
+	/**
+	 * \brief Helper method to fill the voxel volume table.
+	 * 
+	 * @return The voxel volume table.
+	 */
+	private synchronized double[][][] calcVoxelVolumes()
+	{
+		if ( this._voxelVolumes != null )
+			return this._voxelVolumes;
+		double[][][] volumes = this.getNewArray(0.0);
+		int[] coord = new int[3];
+		for ( coord[0] = 0; coord[0] < volumes.length; coord[0]++ )
+			for ( coord[1] = 0; coord[1] < volumes[coord[0]].length; coord[1]++ )
+				for ( coord[2] = 0; 
+						coord[2] < volumes[coord[0]][coord[1]].length; coord[2]++ )
+				{
+					volumes[coord[0]][coord[1]][coord[2]] = getVoxelVolume(
+							this.getVoxelOrigin(coord), 
+							this.getVoxelUpperCorner(coord));
+				}
+		this._voxelVolumes = volumes;
+		return volumes;
+	}
+	
+	/**
+	 * \brief Discard all precomputed voxel geometry (volume table, stencils),
+	 * to be called whenever the resolutions or dimensions change.
+	 */
+	protected void resetGeometry()
+	{
+		this._voxelVolumes = null;
+		this._stencils.clear();
+	}
+	
 	public abstract double getVoxelVolume(double[] origin, double[] uppers);
 
 	/**
@@ -249,6 +249,7 @@ public abstract class SphericalShape extends Shape
 	@Override
 	public void setDimensionResolution(DimName dName, ResolutionCalculator resC)
 	{
+		this.resetGeometry();
 		int index = this.getDimensionIndex(dName);
 		ResolutionCalculator radiusC = this._resCalc[0][0][0];
 		int nShell;
@@ -603,6 +604,12 @@ public abstract class SphericalShape extends Shape
 		return n;
 	}
 	
+	@Override
+	public double getVoxelVolume(int[] coord)
+	{
+		return this.getTabulatedVoxelVolume(coord);
+	}
+	
 	@Override
 	public double getVoxelVolume(double[] origin, double[] upper)
 	{
@@ -0,0 +1,261 @@
+package shape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import boundary.SpatialBoundary;
+import shape.iterator.ShapeIterator;
+
+/**
+ * \brief Precomputed voxel iteration and neighbour geometry of a shape.
+ *
+ * <p>The voxels are stored in the order of the shape iterator with the given
+ * stride length, for every voxel its neighbours are stored in the order of
+ * the neighbour iterator. Neighbours inside the shape are referred to by
+ * their linear index, which is identical to the index used by the arrays of
+ * a {@link grid.SpatialGrid} on this shape. Neighbours on a defined
+ * boundary refer to that boundary instead.</p>
+ *
+ * <p>Unlike the shape iterator a stencil holds no iteration state, such that
+ * multiple loops over the same shape can run concurrently. Voxel volumes,
+ * centre-centre distances and shared surface areas are calculated once
+ * rather than on every visit.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class Stencil
+{
+	/**
+	 * Linear index, coordinates and volume of every voxel, in iterator
+	 * order.
+	 */
+	private final int[] _index;
+
+	private final int[][] _coord;
+
+	private final double[] _volume;
+
+	/**
+	 * Neighbours of voxel v are stored from _nhbStart[v] to _nhbStart[v+1].
+	 */
+	private final int[] _nhbStart;
+
+	/**
+	 * Linear index of the neighbour, -1 if it is on a boundary.
+	 */
+	private final int[] _nhbIndex;
+
+	private final double[] _nhbDistance;
+	
+	/**
+	 * Index of the dimension in which the neighbour lies.
+	 */
+	private final int[] _nhbDimension;
+
+	private final double[] _nhbArea;
+
+	private final SpatialBoundary[] _nhbBoundary;
+
+	/**
+	 * \brief Build the stencil of the given shape, the shape's own iterator
+	 * is left untouched.
+	 *
+	 * @param shape
+	 * @param iterator New iterator of this shape, determines the voxel order.
+	 */
+	protected Stencil(Shape shape, ShapeIterator iterator)
+	{
+		/* Linear layout, identical to that of the SpatialGrid arrays. */
+		double[][][] template = shape.getNewArray(0.0);
+		int[][] rowStart = new int[template.length][];
+		int start = 0;
+		for ( int i = 0; i < template.length; i++ )
+		{
+			rowStart[i] = new int[template[i].length];
+			for ( int j = 0; j < template[i].length; j++ )
+			{
+				rowStart[i][j] = start;
+				start += template[i][j].length;
+			}
+		}
+		List<int[]> coords = new ArrayList<int[]>();
+		List<Double> volumes = new ArrayList<Double>();
+		List<Integer> nhbStart = new ArrayList<Integer>();
+		List<Integer> nhbIndex = new ArrayList<Integer>();
+		List<Double> nhbDistance = new ArrayList<Double>();
+		List<Integer> nhbDimension = new ArrayList<Integer>();
+		List<Double> nhbArea = new ArrayList<Double>();
+		List<SpatialBoundary> nhbBoundary = new ArrayList<SpatialBoundary>();
+		/*
+		 * Geometry is calculated by the shape from its current iterator, use
+		 * the new iterator for this and restore the original afterwards.
+		 */
+		ShapeIterator storedIterator = shape._it;
+		shape._it = iterator;
+		int[] current, nhb;
+		for ( current = shape.resetIterator(); shape.isIteratorValid();
+				current = shape.iteratorNext() )
+		{
+			coords.add( current.clone() );
+			volumes.add( shape.getCurrVoxelVolume() );
+			nhbStart.add( nhbIndex.size() );
+			for ( nhb = shape.resetNbhIterator(); shape.isNbhIteratorValid();
+					nhb = shape.nbhIteratorNext() )
+			{
+				if ( shape.isNbhIteratorInside() )
+				{
+					nhbIndex.add( rowStart[nhb[0]][nhb[1]] + nhb[2] );
+					nhbBoundary.add( null );
+				}
+				else
+				{
+					nhbIndex.add( -1 );
+					nhbBoundary.add( shape.nbhIteratorOutside() );
+				}
+				nhbDistance.add( shape.nhbCurrDistance() );
+				nhbDimension.add( shape.getDimensionIndex( 
+						shape._it.currentNhbDimName() ) );
+				nhbArea.add( shape.nhbCurrSharedArea() );
+			}
+		}
+		nhbStart.add( nhbIndex.size() );
+		shape._it = storedIterator;
+
+		int n = coords.size();
+		this._coord = coords.toArray( new int[n][] );
+		this._index = new int[n];
+		this._volume = new double[n];
+		for ( int v = 0; v < n; v++ )
+		{
+			this._index[v] = rowStart[this._coord[v][0]][this._coord[v][1]] +
+					this._coord[v][2];
+			this._volume[v] = volumes.get(v);
+		}
+		this._nhbStart = new int[n + 1];
+		for ( int v = 0; v <= n; v++ )
+			this._nhbStart[v] = nhbStart.get(v);
+		int m = nhbIndex.size();
+		this._nhbIndex = new int[m];
+		this._nhbDistance = new double[m];
+		this._nhbDimension = new int[m];
+		this._nhbArea = new double[m];
+		this._nhbBoundary = nhbBoundary.toArray( new SpatialBoundary[m] );
+		for ( int k = 0; k < m; k++ )
+		{
+			this._nhbIndex[k] = nhbIndex.get(k);
+			this._nhbDistance[k] = nhbDistance.get(k);
+			this._nhbDimension[k] = nhbDimension.get(k);
+			this._nhbArea[k] = nhbArea.get(k);
+		}
+	}
+
+	/**
+	 * @return Number of voxels.
+	 */
+	public int size()
+	{
+		return this._index.length;
+	}
+
+	/**
+	 * @param voxel Position of the voxel in iterator order.
+	 * @return Linear index of the voxel.
+	 */
+	public int index(int voxel)
+	{
+		return this._index[voxel];
+	}
+
+	/**
+	 * @param voxel Position of the voxel in iterator order.
+	 * @return Coordinates of the voxel (not to be modified).
+	 */
+	public int[] coord(int voxel)
+	{
+		return this._coord[voxel];
+	}
+
+	/**
+	 * @param voxel Position of the voxel in iterator order.
+	 * @return Volume of the voxel.
+	 */
+	public double volume(int voxel)
+	{
+		return this._volume[voxel];
+	}
+
+	/**
+	 * @param voxel Position of the voxel in iterator order.
+	 * @return First neighbour entry of this voxel.
+	 */
+	public int nhbFrom(int voxel)
+	{
+		return this._nhbStart[voxel];
+	}
+
+	/**
+	 * @param voxel Position of the voxel in iterator order.
+	 * @return Neighbour entry following the last neighbour of this voxel.
+	 */
+	public int nhbTo(int voxel)
+	{
+		return this._nhbStart[voxel + 1];
+	}
+
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return Linear index of the neighbour, -1 if it is on a boundary.
+	 */
+	public int nhbIndex(int nhb)
+	{
+		return this._nhbIndex[nhb];
+	}
+
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return True if the neighbour is inside the shape.
+	 */
+	public boolean isNhbInside(int nhb)
+	{
+		return this._nhbIndex[nhb] >= 0;
+	}
+
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return Centre-centre distance between the voxel and this neighbour,
+	 * see {@link Shape#nhbCurrDistance()}.
+	 */
+	public double nhbDistance(int nhb)
+	{
+		return this._nhbDistance[nhb];
+	}
+
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return Index of the dimension in which the neighbour lies, see
+	 * {@link Shape#getDimensionIndex(shape.Dimension.DimName)}.
+	 */
+	public int nhbDimension(int nhb)
+	{
+		return this._nhbDimension[nhb];
+	}
+	
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return Surface area shared by the voxel and this neighbour, see
+	 * {@link Shape#nhbCurrSharedArea()}.
+	 */
+	public double nhbSharedArea(int nhb)
+	{
+		return this._nhbArea[nhb];
+	}
+
+	/**
+	 * @param nhb Neighbour entry.
+	 * @return Boundary of this neighbour, null if it is inside the shape.
+	 */
+	public SpatialBoundary nhbBoundary(int nhb)
+	{
+		return this._nhbBoundary[nhb];
+	}
+}
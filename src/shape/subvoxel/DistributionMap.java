@@ -0,0 +1,247 @@
+package shape.subvoxel;
+
+import java.util.Arrays;
+
+import generalInterfaces.Copyable;
+
+/**
+ * \brief Compact map of voxel coordinates to {@code double} values, used for
+ * the volume and surface distribution maps of agents.
+ *
+ * <p>Coordinates are stored as consecutive (i, j, k) triplets in a single
+ * {@code int[]}, with their values in a parallel {@code double[]}. Setting up
+ * a map therefore allocates no key objects or boxed values, and iterating
+ * over it by index needs no hashing. Entries are kept in the order in which
+ * they were first added. Looking up a single coordinate is a linear search,
+ * which is cheap for the few voxels an agent covers.</p>
+ *
+ * <p>Coordinates with fewer than three elements are padded with zeros.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class DistributionMap implements Copyable
+{
+	/**
+	 * Coordinates as consecutive (i, j, k) triplets.
+	 */
+	private int[] _coords;
+
+	/**
+	 * Value of every coordinate.
+	 */
+	private double[] _values;
+
+	/**
+	 * Number of coordinates in this map.
+	 */
+	private int _size = 0;
+
+	/*************************************************************************
+	 * CONSTRUCTORS
+	 ************************************************************************/
+
+	public DistributionMap()
+	{
+		this(4);
+	}
+
+	/**
+	 * @param capacity Expected number of coordinates, the map grows beyond
+	 * this when needed.
+	 */
+	public DistributionMap(int capacity)
+	{
+		capacity = Math.max(capacity, 1);
+		this._coords = new int[3 * capacity];
+		this._values = new double[capacity];
+	}
+
+	@Override
+	public Object copy()
+	{
+		DistributionMap out = new DistributionMap(this._size);
+		System.arraycopy(this._coords, 0, out._coords, 0, 3 * this._size);
+		System.arraycopy(this._values, 0, out._values, 0, this._size);
+		out._size = this._size;
+		return out;
+	}
+
+	/*************************************************************************
+	 * MAP METHODS
+	 ************************************************************************/
+
+	/**
+	 * @return Number of coordinates in this map.
+	 */
+	public int size()
+	{
+		return this._size;
+	}
+
+	/**
+	 * @return True if this map holds no coordinates.
+	 */
+	public boolean isEmpty()
+	{
+		return this._size == 0;
+	}
+
+	/**
+	 * \brief Remove all coordinates, keeping the allocated storage.
+	 */
+	public void clear()
+	{
+		this._size = 0;
+	}
+
+	/**
+	 * @param coord Discrete coordinates.
+	 * @return Index of the coordinates in this map, or -1 if absent.
+	 */
+	public int indexOf(int[] coord)
+	{
+		int i = coord[0];
+		int j = ( coord.length > 1 ? coord[1] : 0 );
+		int k = ( coord.length > 2 ? coord[2] : 0 );
+		/* Search backwards: recently added coordinates are most likely. */
+		for ( int n = this._size - 1; n >= 0; n-- )
+			if ( this._coords[3*n] == i && this._coords[3*n+1] == j &&
+					this._coords[3*n+2] == k )
+				return n;
+		return -1;
+	}
+
+	/**
+	 * @param coord Discrete coordinates.
+	 * @return True if these coordinates are in this map.
+	 */
+	public boolean containsKey(int[] coord)
+	{
+		return this.indexOf(coord) >= 0;
+	}
+
+	/**
+	 * @param coord Discrete coordinates.
+	 * @return The value of these coordinates, zero if absent.
+	 */
+	public double get(int[] coord)
+	{
+		int n = this.indexOf(coord);
+		return ( n < 0 ) ? 0.0 : this._values[n];
+	}
+
+	/**
+	 * \brief Set the value of the given coordinates, adding them if absent.
+	 */
+	public void put(int[] coord, double value)
+	{
+		int n = this.indexOf(coord);
+		if ( n < 0 )
+			this.append(coord, value);
+		else
+			this._values[n] = value;
+	}
+
+	/**
+	 * \brief Increase the value of the given coordinates, adding them if
+	 * absent.
+	 */
+	public void increase(int[] coord, double value)
+	{
+		int n = this.indexOf(coord);
+		if ( n < 0 )
+			this.append(coord, value);
+		else
+			this._values[n] += value;
+	}
+
+	/**
+	 * \brief Add coordinates without checking whether they are already in
+	 * this map: only use this when the caller guarantees they are not.
+	 */
+	public void append(int[] coord, double value)
+	{
+		if ( this._size == this._values.length )
+		{
+			this._coords = Arrays.copyOf(this._coords, 6 * this._size);
+			this._values = Arrays.copyOf(this._values, 2 * this._size);
+		}
+		this._coords[3*this._size] = coord[0];
+		this._coords[3*this._size+1] = ( coord.length > 1 ? coord[1] : 0 );
+		this._coords[3*this._size+2] = ( coord.length > 2 ? coord[2] : 0 );
+		this._values[this._size] = value;
+		this._size++;
+	}
+
+	/*************************************************************************
+	 * INDEXED ACCESS
+	 ************************************************************************/
+
+	/**
+	 * \brief Write the coordinates of entry <b>n</b> into <b>destination</b>,
+	 * which must have length 3.
+	 *
+	 * @return The destination array.
+	 */
+	public int[] getCoordTo(int[] destination, int n)
+	{
+		destination[0] = this._coords[3*n];
+		destination[1] = this._coords[3*n+1];
+		destination[2] = this._coords[3*n+2];
+		return destination;
+	}
+
+	/**
+	 * @return New array with the coordinates of entry <b>n</b>.
+	 */
+	public int[] getCoord(int n)
+	{
+		return this.getCoordTo(new int[3], n);
+	}
+
+	/**
+	 * @return Value of entry <b>n</b>.
+	 */
+	public double getValue(int n)
+	{
+		return this._values[n];
+	}
+
+	/*************************************************************************
+	 * USEFUL METHODS
+	 ************************************************************************/
+
+	/**
+	 * @return Sum of all values in this map.
+	 */
+	public double getTotal()
+	{
+		double out = 0.0;
+		for ( int n = 0; n < this._size; n++ )
+			out += this._values[n];
+		return out;
+	}
+
+	/**
+	 * \brief Scale all values so that their sum is <b>newTotal</b>, a map
+	 * that sums to zero is left unchanged.
+	 */
+	public void scale(double newTotal)
+	{
+		/* Find the multiplier, taking care not to divide by zero. */
+		double multiplier = this.getTotal();
+		if ( multiplier == 0.0 )
+			return;
+		multiplier = newTotal / multiplier;
+		for ( int n = 0; n < this._size; n++ )
+			this._values[n] *= multiplier;
+	}
+
+	/**
+	 * \brief Scale all values so that their sum is one.
+	 */
+	public void scale()
+	{
+		this.scale(1.0);
+	}
+}
@@ -3,6 +3,7 @@
  */
 package solver;
 
+import linearAlgebra.ArrowheadMatrix;
 import linearAlgebra.Vector;
 
 /**
@@ -18,6 +19,12 @@ import linearAlgebra.Vector;
  * quantities. However, any mistakes introduced here are the fault of the
  * developer who overwrote the numerical estimates!</p> 
  * 
+ * <p>Systems in which groups of variables only interact through a few shared
+ * variables may overwrite {@link #getBlockOffsets()} and
+ * {@link #blockDeriv(double[], double[], int)}: solvers can then use an
+ * {@code ArrowheadMatrix} Jacobian, which is far cheaper to estimate and
+ * solve for large systems.</p>
+ * 
  * @author Robert Clegg (r.j.clegg@bham.ac.uk), University of Birmingham, UK.
  */
 public abstract class ODEderivatives
@@ -113,9 +120,105 @@ public abstract class ODEderivatives
 			this.firstDeriv(dFdY, ynext);
 			Vector.minusEquals(dFdY, dFdT);
 			Vector.timesEquals(dFdY, 1/this._delta);
-			Vector.copyTo(destination[i], dFdY);
+			/* Row j holds the derivative of variable j. */
+			for ( int j = 0; j < y.length; j++ )
+				destination[j][i] = dFdY[j];
+			ynext[i] = y[i];
+		}
+	}
+	
+	/**
+	 * \brief You may specify the structure of the Jacobian matrix, by
+	 * default it is dense.
+	 * 
+	 * <p>The first variables form the border, that may interact with all
+	 * other variables. All remaining variables are split in consecutive
+	 * blocks, variables in different blocks do not affect each other's
+	 * derivatives.</p>
+	 * 
+	 * @return First variable of every block, followed by the number of
+	 * variables (see {@link ArrowheadMatrix}), or null if the Jacobian has no
+	 * such structure.
+	 */
+	public int[] getBlockOffsets()
+	{
+		return null;
+	}
+	
+	/**
+	 * \brief First derivative with respect to time, as far as it depends on
+	 * the variables of the given block.
+	 * 
+	 * <p>Only the border variables and the variables of this block are read
+	 * from the result, and they need only include the terms that depend on
+	 * the variables of this block. By default this is the full
+	 * {@link #firstDeriv(double[], double[])}: overwrite this to make
+	 * estimating the Jacobian independent of the size of the other
+	 * blocks.</p>
+	 * 
+	 * @param destination One-dimensional array of {@code double}s that will
+	 * be overwritten with the result.
+	 * @param y One-dimensional array of {@code double}s with the current
+	 * values of the variables in the system.
+	 * @param block Index of the block, in the order of
+	 * {@link #getBlockOffsets()}.
+	 */
+	public void blockDeriv(double[] destination, double[] y, int block)
+	{
+		this.firstDeriv(destination, y);
+	}
+	
+	/**
+	 * \brief Jacobian matrix with the structure given by
+	 * {@link #getBlockOffsets()}, estimated numerically by default.
+	 * 
+	 * <p>Only border variables need a full evaluation of the first
+	 * derivative. Variables in a block are perturbed using
+	 * {@link #blockDeriv(double[], double[], int)}.</p>
+	 * 
+	 * @param destination Arrowhead matrix that will be overwritten with the
+	 * result.
+	 * @param y One-dimensional array of {@code double}s with the current
+	 * values of the variables in the system.
+	 */
+	public void jacobian(ArrowheadMatrix destination, double[] y)
+	{
+		int border = destination.border();
+		/* Temporary vector to be perturbed by one variable at a time. */
+		double[] ynext = Vector.copy(y);
+		double[] dFdT = new double[y.length];
+		double[] dFdY = new double[y.length];
+		/* Border variables may affect the derivatives of all variables. */
+		this.firstDeriv(dFdT, y);
+		for ( int i = 0; i < border; i++ )
+		{
+			ynext[i] += this._delta;
+			this.firstDeriv(dFdY, ynext);
+			Vector.minusEquals(dFdY, dFdT);
+			Vector.timesEquals(dFdY, 1/this._delta);
+			for ( int j = 0; j < y.length; j++ )
+				destination.set(j, i, dFdY[j]);
 			ynext[i] = y[i];
 		}
+		/* Block variables only affect the border and their own block. */
+		for ( int k = 0; k < destination.numberOfBlocks(); k++ )
+		{
+			int start = destination.blockStart(k);
+			int stop = start + destination.blockSize(k);
+			if ( start == stop )
+				continue;
+			this.blockDeriv(dFdT, y, k);
+			for ( int i = start; i < stop; i++ )
+			{
+				ynext[i] += this._delta;
+				this.blockDeriv(dFdY, ynext, k);
+				for ( int j = 0; j < border; j++ )
+					destination.set(j, i, (dFdY[j] - dFdT[j])/this._delta);
+				for ( int j = start; j < stop; j++ )
+					destination.set(j, i, (dFdY[j] - dFdT[j])/this._delta);
+				ynext[i] = y[i];
+			}
+		}
 	}
 	
 	/**
@@ -3,8 +3,12 @@
  */
 package solver;
 
+import java.util.Arrays;
+
 import dataIO.Log;
 import dataIO.Log.Tier;
+import linearAlgebra.ArrowheadMatrix;
+import linearAlgebra.LUDecomposition;
 import linearAlgebra.Matrix;
 import linearAlgebra.Vector;
 
@@ -55,6 +59,20 @@ public class ODErosenbrock extends ODEsolver
 	 * may be smaller with small time steps.
 	 */
 	private double _hMax;
+	
+	/**
+	 * Diagnostic: check the condition of W with a full singular value
+	 * decomposition, rather than a cheap estimate that reuses its
+	 * decomposition. The full check is cubic in the number of variables.
+	 */
+	private boolean _fullConditionCheck = false;
+	
+	/**
+	 * Condition of W (2-norm) above which a warning is logged. The 1-norm
+	 * estimate may be up to n times larger than the 2-norm condition of an
+	 * n by n matrix, it is therefore compared with n times this value.
+	 */
+	private static final double MAX_CONDITION = 10.0;
 	/**
 	 * Estimate of the new value of <b>y</b> after a small time step.
 	 */
@@ -68,9 +86,11 @@ public class ODErosenbrock extends ODEsolver
 	 */
 	private double[] dFdT;
 	/**
-	 * Jacobian matrix.
+	 * Jacobian matrix, either dense or structured (see
+	 * {@link ODEderivatives#getBlockOffsets()}).
 	 */
 	private double[][] dFdY;
+	private ArrowheadMatrix dFdYblocks;
 	/**
 	 * Estimate a of future rates of change, set and used by the solver.
 	 */
@@ -85,9 +105,11 @@ public class ODErosenbrock extends ODEsolver
 	 */
 	private double[] hddFdT;
 	/**
-	 * {@code I - ( h * d * dFdY)}
+	 * {@code I - ( h * d * dFdY)}, and the decomposition of the dense W.
 	 */
 	private double[][] W;
+	private ArrowheadMatrix Wblocks;
+	private LUDecomposition Wdecomposed;
 	/**
 	 * {@code double} set and used by the solver.
 	 */
@@ -148,9 +170,83 @@ public class ODErosenbrock extends ODEsolver
 		k3    = Vector.zerosDbl(this.nVar());
 		kaux  = Vector.zerosDbl(this.nVar());
 		hddFdT = Vector.zerosDbl(this.nVar());
-		/* Matrices */
-		dFdY  = Matrix.zerosDbl(this.nVar());
-		W     = Matrix.zerosDbl(this.nVar());
+		/* Matrices are set up on solving, when their structure is known. */
+		dFdY = null;
+		W = null;
+		dFdYblocks = null;
+		Wblocks = null;
+	}
+	
+	/**
+	 * \brief Set up the Jacobian and W matrices, using the structure given
+	 * by the derivatives if there is one.
+	 */
+	private void initMatrices()
+	{
+		int[] offsets = this._deriv.getBlockOffsets();
+		if ( offsets != null && offsets[offsets.length-1] == this.nVar() )
+		{
+			dFdY = null;
+			W = null;
+			if ( dFdYblocks == null || 
+					! Arrays.equals(offsets, dFdYblocks.getOffsets()) )
+			{
+				dFdYblocks = new ArrowheadMatrix(offsets);
+				Wblocks = new ArrowheadMatrix(offsets);
+			}
+		}
+		else
+		{
+			dFdYblocks = null;
+			Wblocks = null;
+			if ( dFdY == null )
+			{
+				dFdY = Matrix.zerosDbl(this.nVar());
+				W = Matrix.zerosDbl(this.nVar());
+			}
+		}
+	}
+	
+	/**
+	 * \brief Condition of W, either estimated from its latest decomposition
+	 * (1-norm) or, with the full check, from its singular values (2-norm).
+	 * 
+	 * @see #MAX_CONDITION
+	 */
+	private double conditionOfW()
+	{
+		if ( this._fullConditionCheck )
+			return Matrix.condition( ( Wblocks == null ) ? W : Wblocks.toDense() );
+		if ( Wblocks == null )
+			return Wdecomposed.conditionEstimate();
+		return Wblocks.conditionEstimate();
+	}
+	
+	/**
+	 * \brief Solve W * x = <b>vector</b>, using the latest decomposition of
+	 * W, and write the result, x, into the given <b>vector</b>.
+	 */
+	private void solveW(double[] vector)
+	{
+		if ( Wblocks == null )
+			Wdecomposed.solveEquals(vector);
+		else
+			Wblocks.solveEquals(vector);
+	}
+	
+	/**
+	 * \brief Check the condition of W with a full singular value
+	 * decomposition on every attempted step, rather than with a cheap
+	 * estimate.
+	 * 
+	 * <p>This is only meant for diagnosing problems: the full check costs far
+	 * more than the step itself for large systems.</p>
+	 * 
+	 * @param fullCheck {@code true} to use the full check.
+	 */
+	public void setFullConditionCheck(boolean fullCheck)
+	{
+		this._fullConditionCheck = fullCheck;
 	}
 	
 	// TODO init from xml node?
@@ -171,6 +267,7 @@ public class ODErosenbrock extends ODEsolver
 		
 		if ( this.nVar() == 0 )
 			return y;
+		this.initMatrices();
 		/*
 		 * Control statement in case the maximum timestep size, hMax, is too
 		 * large.
@@ -205,7 +302,10 @@ public class ODErosenbrock extends ODEsolver
 			 */
 			this._deriv.secondDeriv(dFdT, y);
 			Vector.timesTo(hddFdT, dFdT, h * d);
-			this._deriv.jacobian(dFdY, y);
+			if ( dFdYblocks == null )
+				this._deriv.jacobian(dFdY, y);
+			else
+				this._deriv.jacobian(dFdYblocks, y);
 			/*
 			 * Try out this value of h, keeping a note of whether it ever
 			 * fails.
@@ -221,13 +321,24 @@ public class ODErosenbrock extends ODEsolver
 				try
 				{
 					/*
-					 * W = I - h * d * dFdY
+					 * W = I - h * d * dFdY, decomposed once for all three
+					 * solves below.
 					 */
-					Matrix.timesTo(W, dFdY, - h * d);
-					for ( int i = 0; i < this.nVar(); i++ )
-						W[i][i]++;
-					test = Matrix.condition(W);
-					if ( test > 10.0)
+					if ( Wblocks == null )
+					{
+						Matrix.timesTo(W, dFdY, - h * d);
+						for ( int i = 0; i < this.nVar(); i++ )
+							W[i][i]++;
+						Wdecomposed = new LUDecomposition(W);
+					}
+					else
+					{
+						Wblocks.identityMinusTo(dFdYblocks, h * d);
+						Wblocks.decompose();
+					}
+					test = this.conditionOfW();
+					if ( test > ( this._fullConditionCheck ? MAX_CONDITION :
+							MAX_CONDITION * this.nVar() ) )
 					{ 
 						Log.out(Tier.CRITICAL,
 							"Warning (ODEsolver): Condition of W is "+test);
@@ -237,7 +348,7 @@ public class ODErosenbrock extends ODEsolver
 					 * W*k1 = dYdT + h*d*dFdT
 					 */
 					Vector.addTo(k1, hddFdT, dYdT);
-					Matrix.solveEquals(W, k1);
+					this.solveW(k1);
 					/*
 					 * f1 = dYdT(y + k1*h/2)
 					 * 
@@ -251,7 +362,7 @@ public class ODErosenbrock extends ODEsolver
 					 * W*(k2-k1) = f1 - k1  
 					 */
 					Vector.minusTo(k2, f1, k1);
-					Matrix.solveEquals(W, k2);
+					this.solveW(k2);
 					Vector.addEquals(k2, k1);
 					/*
 					 * These will be the new values of y and dYdT, assuming the
@@ -283,7 +394,8 @@ public class ODErosenbrock extends ODEsolver
 					Vector.timesEquals(k3, 2.0);
 					Vector.addEquals(kaux, k3);
 					/* k3 = W-1(...) */ 
-					Matrix.solveTo(k3, W, kaux);
+					Vector.copyTo(k3, kaux);
+					this.solveW(k3);
 					/*
 					 * Use kaux to estimate the greatest error:
 					 * kaux = (k1 -2*k2 + k3) * h/6
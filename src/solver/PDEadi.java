@@ -0,0 +1,455 @@
+package solver;
+
+import static grid.ArrayType.CHANGERATE;
+import static grid.ArrayType.CONCN;
+import static grid.ArrayType.DIFFUSIVITY;
+import static grid.ArrayType.PRODUCTIONRATE;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import boundary.SpatialBoundary;
+import grid.SpatialGrid;
+import grid.WellMixedConstants;
+import linearAlgebra.TriDiagonal;
+import shape.Stencil;
+import utility.ExtraMath;
+
+/**
+ * \brief Unconditionally stable transient diffusion-reaction solver using
+ * alternating direction implicit (ADI) line solves.
+ *
+ * <p>The diffusion operator <i>L</i> is split per dimension,
+ * <i>L = L<sub>1</sub> + L<sub>2</sub> + L<sub>3</sub></i>, and every
+ * mini-timestep is made with the Douglas scheme:<br>
+ * <i>(I - &theta; dt L<sub>1</sub>) v<sub>1</sub> = c + dt (L c + f) -
+ * &theta; dt L<sub>1</sub> c</i><br>
+ * <i>(I - &theta; dt L<sub>d</sub>) v<sub>d</sub> = v<sub>d-1</sub> -
+ * &theta; dt L<sub>d</sub> c</i><br>
+ * where <i>f</i> is the production rate due to reactions, which is treated
+ * explicitly. Every step along a dimension is a set of independent
+ * tridiagonal systems, one per grid line, solved with {@link TriDiagonal}.
+ * With &theta; = 0.5 this is Crank-Nicolson, with &theta; = 1 it reduces to
+ * implicit Euler in one dimension. For &theta; &ge; 0.5 the diffusion part is
+ * stable for any time step, the mini-timestep is therefore only limited by
+ * the accuracy of the explicit reaction term: after every mini-timestep the
+ * next one is chosen such that no voxel changes by more than the relative
+ * tolerance due to reactions, it may grow at most by a factor
+ * {@value #MAX_GROWTH} per mini-timestep and never exceeds the maximum
+ * mini-timestep (see {@link #PDEadi(double, double)}). The first and the
+ * smallest mini-timestep is the stability limit of the explicit solver.</p>
+ *
+ * <p>Diffusive flows are calculated in the same way as in
+ * {@link PDEexplicit}: harmonic mean diffusivities between voxels, boundaries
+ * with a fixed concentration (see
+ * {@link SpatialBoundary#getFixedConcentration(SpatialGrid)}) use the
+ * diffusivity of the voxel next to them, all other boundaries have no flow.
+ * Well-mixed voxels are only changed by their production rate.</p>
+ *
+ * <p>Grid lines require a regular voxel layout, this solver can only be used
+ * on Cartesian shapes.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class PDEadi extends PDEsolver
+{
+	/**
+	 * Implicitness of the scheme, 0.5 for Crank-Nicolson.
+	 */
+	private double _theta;
+
+	/**
+	 * Maximum mini-timestep.
+	 */
+	private double _maxTimeStep;
+
+	/**
+	 * Mini-timestep carried over to the next solve, 0.0 before the first.
+	 */
+	private double _timeStep = 0.0;
+
+	/**
+	 * Allowed change of a concentration per mini-timestep due to reactions,
+	 * relative to the concentration, plus the absolute tolerance for
+	 * concentrations close to zero. When the absolute tolerance is not set,
+	 * the relative tolerance of a fraction {@value #ABSOLUTE_FRACTION} of the
+	 * highest concentration of the variable is used instead.
+	 */
+	private double _relTol = 0.05;
+
+	private double _absTol = 0.0;
+
+	private static final double ABSOLUTE_FRACTION = 1.0E-3;
+
+	/**
+	 * Maximum factor by which the mini-timestep grows from one mini-timestep
+	 * to the next.
+	 */
+	private static final double MAX_GROWTH = 2.0;
+
+	/**
+	 * Flows into the well-mixed region, per variable.
+	 */
+	protected Map<String,Double> _wellMixedChanges =
+			new HashMap<String,Double>();
+
+	/**
+	 * \brief Construct an ADI solver.
+	 *
+	 * @param theta Implicitness of the scheme: 0.5 for Crank-Nicolson, 1.0
+	 * for a fully implicit scheme.
+	 * @param maxTimeStep Maximum mini-timestep, reactions are only evaluated
+	 * once per mini-timestep. Use Double.MAX_VALUE to let only the accuracy
+	 * of the reactions limit the mini-timestep.
+	 */
+	public PDEadi(double theta, double maxTimeStep)
+	{
+		this._theta = theta;
+		this._maxTimeStep = maxTimeStep;
+	}
+
+	@Override
+	public void solve(Collection<SpatialGrid> variables,
+			SpatialGrid commonGrid, double tFinal)
+	{
+		/* Diffusivities do not change during the solve. */
+		Map<SpatialGrid,Operator> operators = new HashMap<SpatialGrid,Operator>();
+		double maxRate = 0.0;
+		for ( SpatialGrid var : variables )
+		{
+			if ( ! var.hasArray(CHANGERATE) )
+				var.newArray(CHANGERATE);
+			Operator op = new Operator(var, commonGrid);
+			operators.put(var, op);
+			maxRate = Math.max(maxRate, op.maxRate());
+		}
+		/*
+		 * Start from the explicit stability limit, which is also the smallest
+		 * mini-timestep taken.
+		 */
+		double minStep = ( maxRate > 0.0 ? 1.0 / maxRate :
+				ABSOLUTE_FRACTION * tFinal );
+		if ( this._timeStep == 0.0 )
+			this._timeStep = minStep;
+		double t = 0.0, h, dt;
+		boolean last = false;
+		while ( ! last )
+		{
+			h = Math.min(this._timeStep, this._maxTimeStep);
+			last = ( h >= tFinal - t );
+			dt = ( last ? tFinal - t : h );
+			/* Update reaction rates, etc. */
+			this._updater.prestep(variables, dt);
+			h = Math.min(MAX_GROWTH * h, this._maxTimeStep);
+			for ( SpatialGrid var : variables )
+			{
+				h = Math.min(h, this.reactionLimit(var));
+				this.step(var, operators.get(var), dt);
+			}
+			this._timeStep = Math.max(h, minStep);
+			t += dt;
+		}
+		/*
+		 * Apply the time-averaged well-mixed flow rates to the grid, see
+		 * PDEexplicit.
+		 */
+		for ( SpatialGrid var : variables )
+		{
+			var.increaseWellMixedMassFlow(
+					this.getWellMixedFlow(var.getName()) / tFinal);
+			this._wellMixedChanges.put(var.getName(), 0.0);
+		}
+	}
+
+	/**
+	 * \brief Largest mini-timestep for which no voxel of the given variable
+	 * changes more than the tolerance due to its current production rate.
+	 * 
+	 * @param var Spatial grid representation of a solute field.
+	 * @return Mini-timestep limit.
+	 */
+	private double reactionLimit(SpatialGrid var)
+	{
+		double[] concn = var.getFlatArray(CONCN);
+		double[] prod = var.getFlatArray(PRODUCTIONRATE);
+		double absTol = this._absTol;
+		if ( absTol == 0.0 )
+		{
+			for ( int p = 0; p < concn.length; p++ )
+				absTol = Math.max(absTol, Math.abs(concn[p]));
+			absTol *= ABSOLUTE_FRACTION * this._relTol;
+		}
+		double limit = Double.MAX_VALUE;
+		for ( int p = 0; p < concn.length; p++ )
+			if ( prod[p] != 0.0 )
+				limit = Math.min(limit, ( absTol + this._relTol *
+						Math.abs(concn[p]) ) / Math.abs(prod[p]));
+		return limit;
+	}
+
+	/**
+	 * \brief Advance the given variable by one mini-timestep.
+	 *
+	 * @param var Spatial grid representation of a solute field.
+	 * @param op Diffusion operator of this variable.
+	 * @param dt Mini-timestep.
+	 */
+	private void step(SpatialGrid var, Operator op, double dt)
+	{
+		double[] concn = var.getFlatArray(CONCN);
+		double[] old = var.getFlatArray(CHANGERATE);
+		double[] prod = var.getFlatArray(PRODUCTIONRATE);
+		double thetaDt = this._theta * dt;
+		System.arraycopy(concn, 0, old, 0, concn.length);
+		/* Explicit predictor, c + dt (L c + f). */
+		for ( int p = 0; p < concn.length; p++ )
+		{
+			double lop = 0.0;
+			for ( int d = 0; d < 3; d++ )
+				if ( op.isSplit[d] )
+					lop += op.apply(d, old, p) + op.source[d][p];
+			concn[p] = old[p] + dt * ( lop + prod[p] );
+		}
+		/* Implicit correction, one dimension at a time. */
+		for ( int d = 0; d < 3; d++ )
+		{
+			if ( ! op.isSplit[d] )
+				continue;
+			int m = op.length[d];
+			int stride = op.stride[d];
+			double[][] tridiag = new double[m][3];
+			double[] rhs = new double[m];
+			for ( int base : op.lineStarts[d] )
+			{
+				for ( int t = 0, p = base; t < m; t++, p += stride )
+				{
+					tridiag[t][0] = - thetaDt * op.prev[d][p];
+					tridiag[t][1] = 1.0 - thetaDt * op.diag[d][p];
+					tridiag[t][2] = - thetaDt * op.next[d][p];
+					rhs[t] = concn[p] - thetaDt * op.apply(d, old, p);
+				}
+				TriDiagonal.solve(tridiag, rhs);
+				for ( int t = 0, p = base; t < m; t++, p += stride )
+					concn[p] = rhs[t];
+			}
+		}
+		if ( ! this._allowNegatives )
+			var.makeNonnegative(CONCN);
+		/* Flow into the well-mixed region, integrated over the step. */
+		double wellMixedFlow = this.getWellMixedFlow(var.getName());
+		for ( int i = 0; i < op.wellMixedVoxel.length; i++ )
+		{
+			int p = op.wellMixedVoxel[i];
+			int q = op.wellMixedNhb[i];
+			double newDiff = ( q < 0 ? op.wellMixedConcn[i] : concn[q] ) -
+					concn[p];
+			double oldDiff = ( q < 0 ? op.wellMixedConcn[i] : old[q] ) -
+					old[p];
+			wellMixedFlow -= dt * op.wellMixedCoef[i] * ( this._theta *
+					newDiff + ( 1.0 - this._theta ) * oldDiff );
+		}
+		this._wellMixedChanges.put(var.getName(), wellMixedFlow);
+	}
+
+	/**
+	 * \brief Diffusion operator of a variable, split per dimension.
+	 *
+	 * <p>In dimension <i>d</i> the change rate of voxel <i>p</i> due to
+	 * diffusion is <i>prev[d][p] c<sub>p-1</sub> + diag[d][p] c<sub>p</sub>
+	 * + next[d][p] c<sub>p+1</sub> + source[d][p]</i>, where the neighbours
+	 * wrap around on cyclic dimensions.</p>
+	 */
+	private static class Operator
+	{
+		double[][] prev = new double[3][], diag = new double[3][],
+				next = new double[3][], source = new double[3][];
+
+		/**
+		 * Whether the operator has any entries in this dimension, the number
+		 * of voxels and linear index stride along this dimension and the
+		 * first voxel of every grid line.
+		 */
+		boolean[] isSplit = new boolean[3];
+
+		int[] length = new int[3];
+
+		int[] stride;
+
+		int[][] lineStarts = new int[3][];
+
+		/**
+		 * Non-well-mixed voxels next to a well-mixed voxel or boundary, the
+		 * well-mixed neighbour (-1 for a boundary), its concentration (for
+		 * boundaries) and the diffusive conductance between them.
+		 */
+		int[] wellMixedVoxel, wellMixedNhb;
+
+		double[] wellMixedConcn, wellMixedCoef;
+
+		Operator(SpatialGrid var, SpatialGrid commonGrid)
+		{
+			Stencil stencil = var.getShape().getStencil(1);
+			double[] diff = var.getFlatArray(DIFFUSIVITY);
+			int size = diff.length;
+			this.stride = var.getStrides();
+			for ( int d = 0; d < 3; d++ )
+			{
+				this.prev[d] = new double[size];
+				this.diag[d] = new double[size];
+				this.next[d] = new double[size];
+				this.source[d] = new double[size];
+			}
+			for ( int v = 0; v < stencil.size(); v++ )
+				for ( int d = 0; d < 3; d++ )
+					this.length[d] = Math.max(this.length[d],
+							stencil.coord(v)[d] + 1);
+			List<Integer> wmVoxel = new ArrayList<Integer>();
+			List<Integer> wmNhb = new ArrayList<Integer>();
+			List<Double> wmConcn = new ArrayList<Double>();
+			List<Double> wmCoef = new ArrayList<Double>();
+			for ( int v = 0; v < stencil.size(); v++ )
+			{
+				int p = stencil.index(v);
+				if ( WellMixedConstants.isWellMixed(commonGrid, p) )
+					continue;
+				for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
+				{
+					int d = stencil.nhbDimension(n);
+					double coef, w;
+					this.isSplit[d] = true;
+					if ( stencil.isNhbInside(n) )
+					{
+						int q = stencil.nhbIndex(n);
+						/* Flow with itself on a cyclic dimension of 1 voxel. */
+						if ( q == p )
+							continue;
+						coef = ExtraMath.harmonicMean(diff[p], diff[q]) *
+								stencil.nhbSharedArea(n) / stencil.nhbDistance(n);
+						w = coef / stencil.volume(v);
+						int t = stencil.coord(v)[d];
+						if ( t + 1 < this.length[d] &&
+								q == p + this.stride[d] )
+							this.next[d][p] += w;
+						else if ( t > 0 && q == p - this.stride[d] )
+							this.prev[d][p] += w;
+						/* Cyclic neighbours wrap around. */
+						else if ( t + 1 == this.length[d] )
+							this.next[d][p] += w;
+						else
+							this.prev[d][p] += w;
+						this.diag[d][p] -= w;
+						if ( WellMixedConstants.isWellMixed(commonGrid, q) )
+						{
+							wmVoxel.add(p);
+							wmNhb.add(q);
+							wmConcn.add(0.0);
+							wmCoef.add(coef);
+						}
+					}
+					else
+					{
+						SpatialBoundary boundary = stencil.nhbBoundary(n);
+						Double bndrConcn = boundary.getFixedConcentration(var);
+						if ( bndrConcn == null )
+							continue;
+						coef = diff[p] * stencil.nhbSharedArea(n) /
+								stencil.nhbDistance(n);
+						w = coef / stencil.volume(v);
+						this.diag[d][p] -= w;
+						this.source[d][p] += w * bndrConcn;
+						if ( boundary.needsToUpdateWellMixed() )
+						{
+							wmVoxel.add(p);
+							wmNhb.add(-1);
+							wmConcn.add(bndrConcn);
+							wmCoef.add(coef);
+						}
+					}
+				}
+			}
+			for ( int d = 0; d < 3; d++ )
+			{
+				List<Integer> starts = new ArrayList<Integer>();
+				for ( int v = 0; v < stencil.size(); v++ )
+					if ( stencil.coord(v)[d] == 0 )
+						starts.add( stencil.index(v) );
+				this.lineStarts[d] = new int[starts.size()];
+				for ( int i = 0; i < starts.size(); i++ )
+					this.lineStarts[d][i] = starts.get(i);
+			}
+			int m = wmVoxel.size();
+			this.wellMixedVoxel = new int[m];
+			this.wellMixedNhb = new int[m];
+			this.wellMixedConcn = new double[m];
+			this.wellMixedCoef = new double[m];
+			for ( int i = 0; i < m; i++ )
+			{
+				this.wellMixedVoxel[i] = wmVoxel.get(i);
+				this.wellMixedNhb[i] = wmNhb.get(i);
+				this.wellMixedConcn[i] = wmConcn.get(i);
+				this.wellMixedCoef[i] = wmCoef.get(i);
+			}
+		}
+
+		/**
+		 * @return Largest total diffusion coefficient of any voxel, the
+		 * inverse of the stability limit of an explicit scheme.
+		 */
+		double maxRate()
+		{
+			double out = 0.0;
+			for ( int p = 0; p < this.diag[0].length; p++ )
+				out = Math.max(out, - this.diag[0][p] - this.diag[1][p] -
+						this.diag[2][p]);
+			return out;
+		}
+
+		/**
+		 * @return Change rate of voxel <b>p</b> due to diffusion in dimension
+		 * <b>d</b>, without the boundary source term.
+		 */
+		double apply(int d, double[] c, int p)
+		{
+			int t = ( p / this.stride[d] ) % this.length[d];
+			int pPrev = ( t > 0 ? p - this.stride[d] :
+					p + ( this.length[d] - 1 ) * this.stride[d] );
+			int pNext = ( t + 1 < this.length[d] ? p + this.stride[d] :
+					p - ( this.length[d] - 1 ) * this.stride[d] );
+			return this.prev[d][p] * c[pPrev] + this.diag[d][p] * c[p] +
+					this.next[d][p] * c[pNext];
+		}
+	}
+
+	/* ***********************************************************************
+	 * WELL-MIXED CHANGES
+	 * **********************************************************************/
+
+	@Override
+	protected double getWellMixedFlow(String name)
+	{
+		if ( this._wellMixedChanges.containsKey(name) )
+			return this._wellMixedChanges.get(name);
+		return 0.0;
+	}
+
+	@Override
+	protected void increaseWellMixedFlow(String name, double flow)
+	{
+		this._wellMixedChanges.put(name, flow + this.getWellMixedFlow(name));
+	}
+
+	@Override
+	public void setAbsoluteTolerance(double tol)
+	{
+		this._absTol = tol;
+	}
+
+	@Override
+	public void setRelativeTolerance(double tol)
+	{
+		this._relTol = tol;
+	}
+}
@@ -8,11 +8,24 @@ import static grid.ArrayType.CONCN;
 import static grid.ArrayType.DIFFUSIVITY;
 import static grid.ArrayType.PRODUCTIONRATE;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+import boundary.SpatialBoundary;
+import dataIO.Log;
+import dataIO.Log.Tier;
 import grid.SpatialGrid;
+import grid.WellMixedConstants;
+import idynomics.Idynomics;
+import shape.Stencil;
+import utility.ExtraMath;
 
 /**
  * \brief TODO
@@ -30,6 +43,11 @@ public class PDEexplicit extends PDEsolver
 	protected Map<String,Double> _wellMixedChanges = 
 			new HashMap<String,Double>();
 	
+	/**
+	 * Pool used to update the grids concurrently, null for single-threaded.
+	 */
+	private ForkJoinPool _pool;
+	
 	/**
 	 * \brief TODO
 	 * 
@@ -84,15 +102,7 @@ public class PDEexplicit extends PDEsolver
 			/* Update reaction rates, etc. */
 			this._updater.prestep(variables, dt);
 			for ( SpatialGrid var : variables )
-			{
-				var.newArray(CHANGERATE);
-				this.applyDiffusion(var, commonGrid);
-				var.addArrayToArray(CHANGERATE, PRODUCTIONRATE);
-				var.timesAll(CHANGERATE, dt);
-				var.addArrayToArray(CONCN, CHANGERATE);
-				if ( ! this._allowNegatives )
-					var.makeNonnegative(CONCN);
-			}
+				this.step(var, commonGrid, dt);
 		}
 		/*
 		 * Now scale the well-mixed flow rates and apply them to the grid.
@@ -109,6 +119,135 @@ public class PDEexplicit extends PDEsolver
 		}
 	}
 	
+	/**
+	 * \brief Set the pool used to update the grids concurrently, null to
+	 * update single-threaded.
+	 * 
+	 * @param pool
+	 */
+	public void setPool(ForkJoinPool pool)
+	{
+		this._pool = pool;
+	}
+	
+	/**
+	 * \brief Advance the given variable by one mini-timestep.
+	 * 
+	 * <p>Diffusion, production and the non-negativity constraint are applied
+	 * in a single pass over the voxels, without temporary arrays: the new
+	 * concentrations are written to the {@code CHANGERATE} array, which is
+	 * then swapped with the {@code CONCN} array. If a pool is set the voxels
+	 * are split in one chunk per thread.</p>
+	 * 
+	 * @param var Spatial grid representation of a solute field.
+	 * @param commonGrid Common store of the well-mixed array for all variables.
+	 * @param dt Mini-timestep.
+	 */
+	private void step(SpatialGrid var, SpatialGrid commonGrid, double dt)
+	{
+		if ( ! var.hasArray(CHANGERATE) )
+			var.newArray(CHANGERATE);
+		Stencil stencil = var.getShape().getStencil(1);
+		int n = stencil.size();
+		int threads = ( this._pool == null ? 1 : 
+				this._pool.getParallelism() );
+		double wellMixedFlow = this.getWellMixedFlow(var.getName());
+		if ( threads == 1 || n < 2 * threads )
+		{
+			wellMixedFlow = this.step(var, commonGrid, stencil, dt, 0, n, 
+					wellMixedFlow);
+		}
+		else
+		{
+			List<Callable<Double>> tasks = new ArrayList<Callable<Double>>();
+			for ( int c = 0; c < threads; c++ )
+			{
+				int from = c * n / threads;
+				int to = ( c + 1 ) * n / threads;
+				tasks.add( () -> 
+						this.step(var, commonGrid, stencil, dt, from, to, 0.0) );
+			}
+			try
+			{
+				for ( Future<Double> f : this._pool.invokeAll(tasks) )
+					wellMixedFlow += f.get();
+			}
+			catch (InterruptedException | ExecutionException e)
+			{
+				if ( Log.shouldWrite(Tier.CRITICAL) )
+					Log.out(Tier.CRITICAL, var.getName() + " failed "
+							+ "concurrent update: " + e.getMessage());
+				Idynomics.simulator.interupt( "concurrent update failed for "
+						+ var.getName() );
+			}
+		}
+		this._wellMixedChanges.put(var.getName(), wellMixedFlow);
+		var.swapArrays(CONCN, CHANGERATE);
+	}
+	
+	/**
+	 * \brief Write the new concentrations of the voxels <b>from</b> (inclusive)
+	 * to <b>to</b> (exclusive) of the stencil to the {@code CHANGERATE} array.
+	 * 
+	 * <p>The arithmetic is identical to that of 
+	 * {@link #applyDiffusion(SpatialGrid, SpatialGrid)} followed by adding the
+	 * production rate, such that results do not depend on the number of
+	 * threads.</p>
+	 * 
+	 * @return <b>wellMixedFlow</b> plus the flow into the well-mixed region
+	 * from these voxels.
+	 */
+	private double step(SpatialGrid var, SpatialGrid commonGrid, 
+			Stencil stencil, double dt, int from, int to, double wellMixedFlow)
+	{
+		double[] concn = var.getFlatArray(CONCN);
+		double[] next = var.getFlatArray(CHANGERATE);
+		double[] prod = var.getFlatArray(PRODUCTIONRATE);
+		double[] diff = var.getFlatArray(DIFFUSIVITY);
+		SpatialBoundary boundary;
+		int index, nhbIndex;
+		double totalFlow, nhbFlow, changeRate;
+		for ( int v = from; v < to; v++ )
+		{
+			index = stencil.index(v);
+			changeRate = 0.0;
+			if ( ! WellMixedConstants.isWellMixed(commonGrid, index) )
+			{
+				totalFlow = 0.0;
+				for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
+				{
+					if ( stencil.isNhbInside(n) )
+					{
+						nhbIndex = stencil.nhbIndex(n);
+						/* See SpatialGrid.getDiffusionFromNeighbor() */
+						nhbFlow = ( concn[nhbIndex] - concn[index] ) * 
+								ExtraMath.harmonicMean(diff[index], 
+								diff[nhbIndex]) / stencil.nhbDistance(n) *
+								stencil.nhbSharedArea(n);
+						if ( WellMixedConstants.isWellMixed(commonGrid,
+								nhbIndex) )
+							wellMixedFlow -= nhbFlow;
+					}
+					else
+					{
+						boundary = stencil.nhbBoundary(n);
+						nhbFlow = boundary.getDiffusiveFlow(var, index,
+								stencil.nhbSharedArea(n), stencil.nhbDistance(n));
+						if ( boundary.needsToUpdateWellMixed() )
+							wellMixedFlow -= nhbFlow;
+					}
+					totalFlow += nhbFlow;
+				}
+				/* Flow in mass per time to change in concentration. */
+				changeRate = totalFlow / stencil.volume(v);
+			}
+			next[index] = concn[index] + ( changeRate + prod[index] ) * dt;
+			if ( (! this._allowNegatives) && next[index] < 0.0 )
+				next[index] = 0.0;
+		}
+		return wellMixedFlow;
+	}
+	
 	/* ***********************************************************************
 	 * WELL-MIXED CHANGES
 	 * **********************************************************************/
@@ -11,7 +11,7 @@ import dataIO.Log.Tier;
 import grid.SpatialGrid;
 import grid.WellMixedConstants;
 import linearAlgebra.Vector;
-import shape.Shape;
+import shape.Stencil;
 
 /**
  * \brief Partial Differential Equation (PDE) solver that uses the Gauss-Seidel
@@ -35,15 +35,6 @@ public class PDEgaussseidel extends PDEsolver
 	public void solve(Collection<SpatialGrid> variables,
 			SpatialGrid commonGrid, double tFinal)
 	{
-		Shape shape = commonGrid.getShape();
-		
-		/*
-		 * TODO
-		 * The choice of strideLength should come from various dimensions of
-		 * the shape. Until then, 2 (red-black) should work in most cases.
-		 */
-		shape.setNewIterator(2);
-		
 		double residual, maxResidual = 0.0;
 		for ( int i = 0; i < this.maxIter; i++ )
 		{
@@ -88,9 +79,15 @@ public class PDEgaussseidel extends PDEsolver
 	{
 		/* Logging verbosity. */
 		Tier level = DEBUG;
-		Shape shape = variable.getShape();
+		/*
+		 * TODO
+		 * The choice of strideLength should come from various dimensions of
+		 * the shape. Until then, 2 (red-black) should work in most cases.
+		 */
+		Stencil stencil = variable.getShape().getStencil(2);
 		/* Coordinates of the current position. */
 		int[] current;
+		int index;
 		/* Temporary storage. */
 		double currConcn, currVolume;
 		double timeScale, diffusiveFlow, rateFromReactions, newConcn;
@@ -109,22 +106,24 @@ public class PDEgaussseidel extends PDEsolver
 		 * The weights must be
 		 * normalised before the concentration is replaced!
 		 */
-		for ( current = shape.resetIterator(); shape.isIteratorValid();
-				current = shape.iteratorNext() )
+		for ( int v = 0; v < stencil.size(); v++ )
 		{
-			if ( WellMixedConstants.isWellMixed(commonGrid, current) )
+			current = stencil.coord(v);
+			index = stencil.index(v);
+			if ( WellMixedConstants.isWellMixed(commonGrid, index) )
 				continue;
-			currConcn = variable.getValueAtCurrent(CONCN);
-			currVolume = shape.getCurrVoxelVolume();
+			currConcn = variable.getValueAt(CONCN, index);
+			currVolume = stencil.volume(v);
 			diffusiveFlow = 0.0;
 			timeScale = 0.0;
-			for ( shape.resetNbhIterator(); shape.isNbhIteratorValid();
-					shape.nbhIteratorNext() )
+			for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
 			{
-				timeScale += variable.getDiffusiveTimeScaleWithNeighbor();
-				diffusiveFlow += variable.getDiffusionFromNeighbor();
+				timeScale += 
+						variable.getDiffusiveTimeScaleWithNeighbor(stencil, v, n);
+				diffusiveFlow += 
+						variable.getDiffusionFromNeighbor(stencil, v, n);
 			}
-			rateFromReactions = variable.getValueAt(PRODUCTIONRATE, current);
+			rateFromReactions = variable.getValueAt(PRODUCTIONRATE, index);
 			// TODO norm += 1.0 / variable.getValueAt(DIFFPRODUCTIONRATE, current);
 			residual = (diffusiveFlow + rateFromReactions) * 
 					timeScale / currVolume;
@@ -157,7 +156,7 @@ public class PDEgaussseidel extends PDEsolver
 				}
 				newConcn = 0.0;
 			}
-			variable.setValueAt(CONCN, current, newConcn);
+			variable.setValueAt(CONCN, index, newConcn);
 			/* Calculate the residual. */
 			currConcn = Math.abs(currConcn);
 			newConcn = Math.abs(newConcn);
@@ -0,0 +1,795 @@
+package solver;
+
+import static grid.ArrayType.CHANGERATE;
+import static grid.ArrayType.CONCN;
+import static grid.ArrayType.DIFFUSIVITY;
+import static grid.ArrayType.LOCALERROR;
+import static grid.ArrayType.NONLINEARITY;
+import static grid.ArrayType.PRODUCTIONRATE;
+import static grid.ArrayType.RELATIVEERROR;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import boundary.SpatialBoundary;
+import dataIO.Log;
+import dataIO.Log.Tier;
+import grid.ArrayType;
+import grid.SpatialGrid;
+import grid.WellMixedConstants;
+import shape.Shape;
+import shape.Stencil;
+import solver.multigrid.MultigridLayer;
+import utility.ExtraMath;
+
+/**
+ * \brief Steady-state diffusion-reaction solver using Newton iterations, with
+ * a preconditioned Krylov method for the linear system of every iteration.
+ *
+ * <p>The steady state is the root of the residual <i>F(c) = L c + f(c)</i>,
+ * where <i>L</i> is diffusion and <i>f</i> is the production rate due to
+ * reactions. Every Newton iteration solves <i>J &delta;c = -F</i> with
+ * BiCGStab, up to a tolerance relative to the current residual (inexact
+ * Newton), followed by a backtracking line search. The Jacobian <i>J</i> is
+ * never formed: Jacobian-vector products are finite differences of the
+ * residual, so that any reaction kinetics can be used (Jacobian-free
+ * Newton-Krylov, see Knoll &amp; Keyes, J. Comput. Phys. 193, 2004).</p>
+ *
+ * <p>BiCGStab is preconditioned with one linear multigrid V-cycle for the
+ * diffusion operator of every variable, with Gauss-Seidel smoothing. The
+ * V-cycle uses the {@link MultigridLayer} hierarchy of {@link PDEmultigrid}:
+ * the same coarser shapes, restriction and interpolation, with the diffusion
+ * operator discretised on every layer. Shapes that cannot be coarsened are
+ * preconditioned by Gauss-Seidel sweeps only.</p>
+ *
+ * <p>Residuals are scaled by the diagonal of the diffusion operator, as in
+ * {@link PDEmultigrid}, so the absolute and relative tolerances have the same
+ * meaning for both solvers. Diffusive flows are calculated as in
+ * {@link PDEmultigrid}, well-mixed voxels are not changed.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class PDEkrylov extends PDEsolver
+{
+	/**
+	 * Maximum number of Newton iterations per solve.
+	 */
+	private int _maxNewton = 50;
+	/**
+	 * Maximum number of BiCGStab iterations per Newton iteration.
+	 */
+	private int _maxKrylov = 40;
+	/**
+	 * Tolerance of the linear solves, relative to the Newton residual.
+	 */
+	private static final double FORCING = 0.1;
+	/**
+	 * Maximum number of step halvings in the line search.
+	 */
+	private static final int LINE_SEARCH_STEPS = 6;
+	/**
+	 * Smoothing sweeps before and after every coarse grid correction, and on
+	 * the coarsest layer.
+	 */
+	private static final int PRE_SWEEPS = 2, POST_SWEEPS = 2,
+			COARSEST_SWEEPS = 40;
+	/**
+	 * Absolute threshold of the scaled residual at which the Newton
+	 * iterations are stopped.
+	 */
+	private double _absToleranceLevel;
+	/**
+	 * Relative threshold (relative to concentration) of the scaled residual
+	 * at which the Newton iterations are stopped.
+	 */
+	private double _relToleranceLevel;
+	/*
+	 * Internal use during a solve: the variables, the stencil, the linear
+	 * index and stencil voxel of every voxel that is not well-mixed, the
+	 * diagonal of the diffusion operator (for scaling) and the
+	 * preconditioner of every variable.
+	 */
+	private List<SpatialGrid> _variables;
+
+	private Stencil _stencil;
+
+	private int[] _index, _voxel;
+
+	private double[][] _diagonal;
+
+	private Layer[] _preconditioner;
+
+	private int _residualCount;
+
+	/**
+	 * Work array of the Jacobian-vector products.
+	 */
+	private double[][] _perturbed;
+
+	/*
+	 * Multigrid hierarchy of the common grid and the work grids of every
+	 * variable (by name), created on the first solve.
+	 */
+	private MultigridLayer _commonMultigrid;
+
+	private List<Shape> _multigridShapes;
+
+	private Map<String, MultigridLayer> _multigrids =
+			new HashMap<String, MultigridLayer>();
+
+	/* ***********************************************************************
+	 * Constructors
+	 * **********************************************************************/
+
+	/**
+	 * Constructor for the Krylov solver at default settings.
+	 */
+	public PDEkrylov()
+	{
+
+	}
+
+	/**
+	 * Constructor for the Krylov solver at user supplied settings, zero
+	 * keeps the default.
+	 *
+	 * @param newton Maximum number of Newton iterations per solve.
+	 * @param krylov Maximum number of BiCGStab iterations per Newton
+	 * iteration.
+	 */
+	public PDEkrylov(int newton, int krylov)
+	{
+		if ( newton != 0 )
+			this._maxNewton = newton;
+		if ( krylov != 0 )
+			this._maxKrylov = krylov;
+	}
+
+	/* ***********************************************************************
+	 * SOLVER METHODS
+	 * **********************************************************************/
+
+	@Override
+	public void solve(Collection<SpatialGrid> variables,
+			SpatialGrid commonGrid, double tFinal)
+	{
+		this.setUp(variables, commonGrid);
+		int nVar = this._variables.size();
+		int size = this._index.length;
+		double[][] concn = new double[nVar][size];
+		for ( int i = 0; i < nVar; i++ )
+		{
+			double[] concns = this._variables.get(i).getFlatArray(CONCN);
+			for ( int a = 0; a < size; a++ )
+				concn[i][a] = concns[this._index[a]];
+		}
+		double[][] residual = new double[nVar][size];
+		double[][] step = new double[nVar][size];
+		double[][] trial = new double[nVar][size];
+		double[][] trialResidual = new double[nVar][size];
+		boolean[][] pinned = new boolean[nVar][size];
+		this._perturbed = new double[nVar][size];
+		this._residualCount = 0;
+		int newton, krylov = 0;
+		this.residual(concn, residual);
+		boolean converged = this.project(concn, residual, pinned);
+		double norm = norm(residual);
+		for ( newton = 0; newton < this._maxNewton && ! converged; newton++ )
+		{
+			/* Inexact Newton step. */
+			for ( double[] s : step )
+				Arrays.fill(s, 0.0);
+			for ( int i = 0; i < nVar; i++ )
+				for ( int a = 0; a < size; a++ )
+					trial[i][a] = - residual[i][a];
+			krylov += this.biCGStab(concn, residual, pinned, trial, step,
+					FORCING * norm);
+			/* Backtracking line search on the norm of the residual. */
+			double lambda = 1.0, trialNorm = norm;
+			boolean decreased = false;
+			for ( int ls = 0; ls <= LINE_SEARCH_STEPS && ! decreased; ls++ )
+			{
+				for ( int i = 0; i < nVar; i++ )
+					for ( int a = 0; a < size; a++ )
+					{
+						trial[i][a] = concn[i][a] + lambda * step[i][a];
+						if ( ( ! this._allowNegatives ) && trial[i][a] < 0.0 )
+							trial[i][a] = 0.0;
+					}
+				this.residual(trial, trialResidual);
+				converged = this.project(trial, trialResidual, pinned);
+				trialNorm = norm(trialResidual);
+				decreased = ( trialNorm <= ( 1.0 - 1.0e-4 * lambda ) * norm );
+				lambda *= 0.5;
+			}
+			/*
+			 * Without a decrease the Newton direction is of no use: restore
+			 * the grids to the current concentrations and give up.
+			 */
+			if ( ! decreased )
+			{
+				this.residual(concn, residual);
+				converged = this.project(concn, residual, pinned);
+				if ( Log.shouldWrite(Tier.NORMAL) )
+					Log.out(Tier.NORMAL, this.getClass().getSimpleName() +
+							" line search failed to decrease the residual");
+				break;
+			}
+			/* The grids hold the concentrations and rates of the trial. */
+			double[][] temp = concn;
+			concn = trial;
+			trial = temp;
+			temp = residual;
+			residual = trialResidual;
+			trialResidual = temp;
+			norm = trialNorm;
+		}
+		if ( Log.shouldWrite(Tier.EXPRESSIVE) )
+			Log.out(Tier.EXPRESSIVE, this.getClass().getSimpleName() + ": " +
+					newton + " Newton iterations, " + krylov +
+					" Krylov iterations, " + this._residualCount +
+					" residual evaluations, residual norm " + norm);
+		if ( ! converged && Log.shouldWrite(Tier.NORMAL) )
+			Log.out(Tier.NORMAL, this.getClass().getSimpleName() +
+					" did not meet stop conditions in " + newton +
+					" Newton iterations");
+	}
+
+	/**
+	 * \brief Collect the voxels to solve for and build the preconditioner of
+	 * every variable.
+	 *
+	 * @param variables Spatial grid representations of the solute fields.
+	 * @param commonGrid Common store of the well-mixed array.
+	 */
+	private void setUp(Collection<SpatialGrid> variables,
+			SpatialGrid commonGrid)
+	{
+		this._variables = new ArrayList<SpatialGrid>(variables);
+		this._stencil = commonGrid.getShape().getStencil(1);
+		Stencil stencil = this._stencil;
+		/* Position of every linear index among the voxels solved for. */
+		int size = 0;
+		for ( int v = 0; v < stencil.size(); v++ )
+			size = Math.max(size, stencil.index(v) + 1);
+		int[] position = new int[size];
+		Arrays.fill(position, -1);
+		size = 0;
+		for ( int v = 0; v < stencil.size(); v++ )
+			if ( ! WellMixedConstants.isWellMixed(commonGrid,
+					stencil.index(v)) )
+				position[stencil.index(v)] = size++;
+		this._index = new int[size];
+		this._voxel = new int[size];
+		for ( int v = 0; v < stencil.size(); v++ )
+			if ( position[stencil.index(v)] >= 0 )
+			{
+				this._index[position[stencil.index(v)]] = stencil.index(v);
+				this._voxel[position[stencil.index(v)]] = v;
+			}
+		/* The multigrid hierarchy, as in PDEmultigrid. */
+		if ( this._commonMultigrid == null ||
+				this._commonMultigrid.getGrid() != commonGrid )
+		{
+			this._commonMultigrid =
+					MultigridLayer.generateCompleteMultigrid(commonGrid);
+			this._multigridShapes = new ArrayList<Shape>();
+			for ( MultigridLayer layer = this._commonMultigrid; layer != null;
+					layer = layer.getCoarser() )
+				this._multigridShapes.add(layer.getGrid().getShape());
+			this._multigrids.clear();
+		}
+		else
+			MultigridLayer.replaceAllLayersFromFinest(this._commonMultigrid);
+		int nVar = this._variables.size();
+		this._diagonal = new double[nVar][size];
+		this._preconditioner = new Layer[nVar];
+		for ( int i = 0; i < nVar; i++ )
+		{
+			this._preconditioner[i] =
+					this.diffusionOperator(this._variables.get(i));
+			for ( int a = 0; a < size; a++ )
+				this._diagonal[i][a] = this._preconditioner[i].diagonal[a] *
+						stencil.volume(this._voxel[a]);
+		}
+	}
+
+	/**
+	 * \brief Evaluate the scaled residual at the given concentrations.
+	 *
+	 * <p>The concentrations are written to the grids and the production
+	 * rates updated, afterwards the grids hold these concentrations.</p>
+	 *
+	 * @param concn Concentration of every variable and voxel.
+	 * @param destination Array to overwrite with the scaled residual.
+	 */
+	private void residual(double[][] concn, double[][] destination)
+	{
+		for ( int i = 0; i < concn.length; i++ )
+		{
+			double[] concns = this._variables.get(i).getFlatArray(CONCN);
+			for ( int a = 0; a < this._index.length; a++ )
+				concns[this._index[a]] = concn[i][a];
+		}
+		/* Update the PRODUCTIONRATE arrays using updated CONCN values. */
+		this._updater.prestep(this._variables, 0.0);
+		this._residualCount++;
+		Stencil stencil = this._stencil;
+		for ( int i = 0; i < concn.length; i++ )
+		{
+			SpatialGrid variable = this._variables.get(i);
+			double[] concns = variable.getFlatArray(CONCN);
+			double[] prods = variable.getFlatArray(PRODUCTIONRATE);
+			double[] diffusivities = variable.getFlatArray(DIFFUSIVITY);
+			for ( int a = 0; a < this._index.length; a++ )
+			{
+				int v = this._voxel[a];
+				int index = this._index[a];
+				double flow = prods[index];
+				for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
+				{
+					if ( stencil.isNhbInside(n) )
+					{
+						int nhb = stencil.nhbIndex(n);
+						flow += ExtraMath.harmonicMean(diffusivities[index],
+								diffusivities[nhb]) *
+								stencil.nhbSharedArea(n) / stencil.nhbDistance(n) *
+								( concns[nhb] - concns[index] );
+					}
+					else
+					{
+						flow += stencil.nhbBoundary(n).getDiffusiveFlow(
+								variable, index, stencil.nhbSharedArea(n),
+								stencil.nhbDistance(n));
+					}
+				}
+				destination[i][a] = flow / this._diagonal[i][a];
+			}
+		}
+	}
+
+	/**
+	 * \brief Check the stop conditions, and remove the residual of voxels
+	 * that cannot decrease any further because they are at zero.
+	 *
+	 * @param concn Concentration of every variable and voxel.
+	 * @param residual Scaled residual at these concentrations.
+	 * @param pinned Array to overwrite with the voxels at zero.
+	 * @return True if the stop conditions are met in all voxels.
+	 */
+	private boolean project(double[][] concn, double[][] residual,
+			boolean[][] pinned)
+	{
+		boolean out = true;
+		for ( int i = 0; i < concn.length; i++ )
+			for ( int a = 0; a < this._index.length; a++ )
+			{
+				pinned[i][a] = ( ! this._allowNegatives ) &&
+						concn[i][a] <= 0.0 && residual[i][a] < 0.0;
+				if ( pinned[i][a] )
+					residual[i][a] = 0.0;
+				double abs = Math.abs(residual[i][a]);
+				if ( abs > this._absToleranceLevel &&
+						abs > this._relToleranceLevel * concn[i][a] )
+					out = false;
+			}
+		return out;
+	}
+
+	/**
+	 * \brief Approximate the product of the Jacobian of the scaled residual
+	 * with the given vector, by a finite difference.
+	 *
+	 * @param concn Concentrations the Jacobian is evaluated at.
+	 * @param residual Scaled residual at these concentrations.
+	 * @param pinned Voxels at zero, excluded from the product.
+	 * @param vector Vector to multiply.
+	 * @param destination Array to overwrite with the product.
+	 */
+	private void jacobianTimes(double[][] concn, double[][] residual,
+			boolean[][] pinned, double[][] vector, double[][] destination)
+	{
+		double vectorNorm = norm(vector);
+		if ( vectorNorm == 0.0 )
+		{
+			for ( double[] d : destination )
+				Arrays.fill(d, 0.0);
+			return;
+		}
+		/* Perturb by a fraction of the typical concentration. */
+		double typical = 0.0;
+		int count = 0;
+		for ( double[] c : concn )
+			for ( double value : c )
+			{
+				typical += Math.abs(value);
+				count++;
+			}
+		typical = ( typical == 0.0 ? 1.0 : typical / count );
+		double epsilon = 1.0e-7 * typical * Math.sqrt(count) / vectorNorm;
+		double[][] perturbed = this._perturbed;
+		for ( int i = 0; i < concn.length; i++ )
+			for ( int a = 0; a < concn[i].length; a++ )
+				perturbed[i][a] = concn[i][a] + epsilon * vector[i][a];
+		this.residual(perturbed, destination);
+		for ( int i = 0; i < concn.length; i++ )
+			for ( int a = 0; a < concn[i].length; a++ )
+				destination[i][a] = pinned[i][a] ? 0.0 :
+						( destination[i][a] - residual[i][a] ) / epsilon;
+	}
+
+	/**
+	 * \brief Solve the Newton system with right preconditioned BiCGStab
+	 * (van der Vorst, SIAM J. Sci. Stat. Comput. 13, 1992).
+	 *
+	 * @param concn Concentrations the Jacobian is evaluated at.
+	 * @param residual Scaled residual at these concentrations.
+	 * @param pinned Voxels at zero, excluded from the system.
+	 * @param rhs Right-hand side of the system, overwritten.
+	 * @param solution Initial guess of zero, overwritten with the solution.
+	 * @param tolerance Norm of the linear residual to stop at.
+	 * @return Number of iterations.
+	 */
+	private int biCGStab(double[][] concn, double[][] residual,
+			boolean[][] pinned, double[][] rhs, double[][] solution,
+			double tolerance)
+	{
+		int nVar = rhs.length;
+		int size = this._index.length;
+		double[][] r = rhs;
+		double[][] rHat = new double[nVar][];
+		for ( int i = 0; i < nVar; i++ )
+			rHat[i] = r[i].clone();
+		double[][] p = new double[nVar][size];
+		double[][] v = new double[nVar][size];
+		double[][] y = new double[nVar][size];
+		double[][] z = new double[nVar][size];
+		double[][] t = new double[nVar][size];
+		double rho = 1.0, alpha = 1.0, omega = 1.0, rhoNew, beta, denominator;
+		int iter;
+		for ( iter = 0; iter < this._maxKrylov; iter++ )
+		{
+			if ( norm(r) <= tolerance )
+				break;
+			rhoNew = dot(rHat, r);
+			if ( rhoNew == 0.0 )
+				break;
+			beta = ( rhoNew / rho ) * ( alpha / omega );
+			rho = rhoNew;
+			for ( int i = 0; i < nVar; i++ )
+				for ( int a = 0; a < size; a++ )
+					p[i][a] = r[i][a] + beta * ( p[i][a] - omega * v[i][a] );
+			this.precondition(p, y);
+			this.jacobianTimes(concn, residual, pinned, y, v);
+			denominator = dot(rHat, v);
+			if ( denominator == 0.0 )
+				break;
+			alpha = rho / denominator;
+			/* r now holds s = r - alpha v */
+			for ( int i = 0; i < nVar; i++ )
+				for ( int a = 0; a < size; a++ )
+				{
+					solution[i][a] += alpha * y[i][a];
+					r[i][a] -= alpha * v[i][a];
+				}
+			if ( norm(r) <= tolerance )
+			{
+				iter++;
+				break;
+			}
+			this.precondition(r, z);
+			this.jacobianTimes(concn, residual, pinned, z, t);
+			denominator = dot(t, t);
+			if ( denominator == 0.0 )
+				break;
+			omega = dot(t, r) / denominator;
+			for ( int i = 0; i < nVar; i++ )
+				for ( int a = 0; a < size; a++ )
+				{
+					solution[i][a] += omega * z[i][a];
+					r[i][a] -= omega * t[i][a];
+				}
+			if ( omega == 0.0 )
+				break;
+		}
+		return iter;
+	}
+
+	/**
+	 * \brief Apply the preconditioner: approximately solve the scaled
+	 * diffusion equation for every variable with one V-cycle.
+	 *
+	 * <p>The scaled diffusion operator of a variable is <i>-D<sup>-1</sup>
+	 * K</i>, where <i>K</i> is the (positive) matrix of diffusive
+	 * conductances and <i>D</i> its diagonal. The V-cycle solves the
+	 * equivalent system per unit volume.</p>
+	 *
+	 * @param vector Vector to precondition.
+	 * @param destination Array to overwrite with the result.
+	 */
+	private void precondition(double[][] vector, double[][] destination)
+	{
+		for ( int i = 0; i < vector.length; i++ )
+		{
+			Layer layer = this._preconditioner[i];
+			SpatialGrid grid = layer.multigrid.getGrid();
+			double[] rhs = grid.getFlatArray(NONLINEARITY);
+			for ( int a = 0; a < layer.index.length; a++ )
+				rhs[layer.index[a]] = - layer.diagonal[a] * vector[i][a];
+			grid.reset(RELATIVEERROR);
+			this.vCycle(layer);
+			double[] solution = grid.getFlatArray(RELATIVEERROR);
+			for ( int a = 0; a < layer.index.length; a++ )
+				destination[i][a] = solution[layer.index[a]];
+		}
+	}
+
+	/**
+	 * \brief One linear V-cycle for the diffusion operator on the given
+	 * layer.
+	 *
+	 * <p>The right-hand side is held in the {@code NONLINEARITY} array of the
+	 * layer and the solution, starting from zero, in its
+	 * {@code RELATIVEERROR} array. The residual ({@code LOCALERROR}) is
+	 * restricted to the coarser layer and the coarser solution interpolated
+	 * ({@code CHANGERATE}) as in {@link PDEmultigrid}.</p>
+	 *
+	 * @param layer Current layer.
+	 */
+	private void vCycle(Layer layer)
+	{
+		SpatialGrid grid = layer.multigrid.getGrid();
+		double[] solution = grid.getFlatArray(RELATIVEERROR);
+		double[] rhs = grid.getFlatArray(NONLINEARITY);
+		if ( layer.coarser == null )
+		{
+			for ( int s = 0; s < COARSEST_SWEEPS; s++ )
+			{
+				layer.sweep(solution, rhs, true);
+				layer.sweep(solution, rhs, false);
+			}
+			return;
+		}
+		for ( int s = 0; s < PRE_SWEEPS; s++ )
+			layer.sweep(solution, rhs, true);
+		double[] residual = grid.getFlatArray(LOCALERROR);
+		for ( int a = 0; a < layer.index.length; a++ )
+			residual[layer.index[a]] = layer.residual(solution, rhs, a);
+		Layer coarser = layer.coarser;
+		coarser.multigrid.fillArrayFromFiner(
+				NONLINEARITY, LOCALERROR, 0.0, coarser.common);
+		coarser.multigrid.getGrid().reset(RELATIVEERROR);
+		this.vCycle(coarser);
+		layer.multigrid.fillArrayFromCoarser(
+				CHANGERATE, RELATIVEERROR, layer.common);
+		double[] correction = grid.getFlatArray(CHANGERATE);
+		for ( int a = 0; a < layer.index.length; a++ )
+			solution[layer.index[a]] += correction[layer.index[a]];
+		for ( int s = 0; s < POST_SWEEPS; s++ )
+			layer.sweep(solution, rhs, false);
+	}
+
+	/**
+	 * \brief Build the diffusion operator of the given variable on every
+	 * layer of the multigrid hierarchy.
+	 *
+	 * <p>The work grids of the variable are created on the first solve, the
+	 * diffusivity is copied to the finest layer and restricted to the
+	 * coarser layers.</p>
+	 *
+	 * @param variable Spatial grid representation of a solute field.
+	 * @return The finest layer.
+	 */
+	private Layer diffusionOperator(SpatialGrid variable)
+	{
+		MultigridLayer multigrid = this._multigrids.get(variable.getName());
+		if ( multigrid == null )
+		{
+			SpatialGrid grid = new SpatialGrid(variable.getShape(),
+					variable.getName(), variable.getParent());
+			for ( ArrayType type : new ArrayType[] { DIFFUSIVITY, NONLINEARITY,
+					RELATIVEERROR, LOCALERROR, CHANGERATE } )
+				grid.newArray(type);
+			multigrid = MultigridLayer.generateCompleteMultigrid(grid,
+					this._multigridShapes);
+			this._multigrids.put(variable.getName(), multigrid);
+		}
+		double[] diffusivity = variable.getFlatArray(DIFFUSIVITY);
+		System.arraycopy(diffusivity, 0, multigrid.getGrid().getFlatArray(
+				DIFFUSIVITY), 0, diffusivity.length);
+		Layer out = new Layer(multigrid, this._commonMultigrid.getGrid(),
+				this._stencil, this._index, this._voxel);
+		Layer layer = out;
+		MultigridLayer common = this._commonMultigrid;
+		while ( multigrid.hasCoarser() && common.hasCoarser() )
+		{
+			multigrid = multigrid.getCoarser();
+			common = common.getCoarser();
+			multigrid.fillArrayFromFiner(DIFFUSIVITY, 0.0, common.getGrid());
+			Stencil stencil = multigrid.getGrid().getShape().getStencil(1);
+			int size = 0;
+			int[] index = new int[stencil.size()];
+			int[] voxel = new int[stencil.size()];
+			for ( int v = 0; v < stencil.size(); v++ )
+				if ( ! WellMixedConstants.isWellMixed(common.getGrid(),
+						stencil.index(v)) )
+				{
+					index[size] = stencil.index(v);
+					voxel[size++] = v;
+				}
+			layer.coarser = new Layer(multigrid, common.getGrid(), stencil,
+					Arrays.copyOf(index, size), Arrays.copyOf(voxel, size));
+			layer = layer.coarser;
+		}
+		return out;
+	}
+
+	/**
+	 * \brief The diffusion operator of a variable on one layer of the
+	 * multigrid hierarchy: diffusive conductances between voxels per unit
+	 * volume, with their sum on the diagonal.
+	 *
+	 * <p>Neighbours that are well-mixed or on a boundary with a fixed
+	 * concentration (see
+	 * {@link SpatialBoundary#getFixedConcentration(SpatialGrid)}) only
+	 * contribute to the diagonal.</p>
+	 */
+	private static class Layer
+	{
+		/**
+		 * The layer holding the diffusivity and work arrays, and the common
+		 * grid of the same layer.
+		 */
+		MultigridLayer multigrid;
+
+		SpatialGrid common;
+
+		/**
+		 * Linear index, diagonal and links (compressed rows, by linear
+		 * index) of every voxel that is not well-mixed.
+		 */
+		int[] index;
+
+		double[] diagonal;
+
+		int[] rowStart, column;
+
+		double[] value;
+
+		Layer coarser;
+
+		Layer(MultigridLayer multigrid, SpatialGrid common, Stencil stencil,
+				int[] index, int[] voxel)
+		{
+			this.multigrid = multigrid;
+			this.common = common;
+			this.index = index;
+			SpatialGrid grid = multigrid.getGrid();
+			double[] diffusivities = grid.getFlatArray(DIFFUSIVITY);
+			int size = index.length;
+			this.diagonal = new double[size];
+			this.rowStart = new int[size + 1];
+			List<Integer> columns = new ArrayList<Integer>();
+			List<Double> values = new ArrayList<Double>();
+			for ( int a = 0; a < size; a++ )
+			{
+				int v = voxel[a];
+				double perVolume = 1.0 / stencil.volume(v);
+				this.rowStart[a] = columns.size();
+				for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
+				{
+					double conductance;
+					if ( stencil.isNhbInside(n) )
+					{
+						int nhb = stencil.nhbIndex(n);
+						/* Flow with itself on a cyclic dimension of 1 voxel. */
+						if ( nhb == index[a] )
+							continue;
+						conductance = ExtraMath.harmonicMean(
+								diffusivities[index[a]], diffusivities[nhb]) *
+								stencil.nhbSharedArea(n) / stencil.nhbDistance(n);
+						if ( ! WellMixedConstants.isWellMixed(common, nhb) )
+						{
+							columns.add(nhb);
+							values.add(conductance * perVolume);
+						}
+					}
+					else
+					{
+						if ( stencil.nhbBoundary(n).getFixedConcentration(
+								grid) == null )
+							continue;
+						conductance = diffusivities[index[a]] *
+								stencil.nhbSharedArea(n) / stencil.nhbDistance(n);
+					}
+					this.diagonal[a] += conductance * perVolume;
+				}
+				/* Voxels without any diffusion use the identity. */
+				if ( this.diagonal[a] == 0.0 )
+					this.diagonal[a] = perVolume;
+			}
+			this.rowStart[size] = columns.size();
+			this.column = new int[columns.size()];
+			this.value = new double[values.size()];
+			for ( int l = 0; l < this.column.length; l++ )
+			{
+				this.column[l] = columns.get(l);
+				this.value[l] = values.get(l);
+			}
+		}
+
+		/**
+		 * @return Residual of the rhs in voxel <b>a</b>.
+		 */
+		double residual(double[] x, double[] rhs, int a)
+		{
+			double out = rhs[this.index[a]] - this.diagonal[a] * x[this.index[a]];
+			for ( int l = this.rowStart[a]; l < this.rowStart[a+1]; l++ )
+				out += this.value[l] * x[this.column[l]];
+			return out;
+		}
+
+		/**
+		 * \brief Gauss-Seidel sweep, forwards or backwards.
+		 */
+		void sweep(double[] x, double[] rhs, boolean forward)
+		{
+			int size = this.index.length;
+			for ( int s = 0; s < size; s++ )
+			{
+				int a = forward ? s : size - 1 - s;
+				x[this.index[a]] += this.residual(x, rhs, a) / this.diagonal[a];
+			}
+		}
+	}
+
+	/* ***********************************************************************
+	 * VECTOR HELPERS
+	 * **********************************************************************/
+
+	private static double dot(double[][] a, double[][] b)
+	{
+		double out = 0.0;
+		for ( int i = 0; i < a.length; i++ )
+			for ( int j = 0; j < a[i].length; j++ )
+				out += a[i][j] * b[i][j];
+		return out;
+	}
+
+	private static double norm(double[][] a)
+	{
+		return Math.sqrt(dot(a, a));
+	}
+
+	@Override
+	public void setAbsoluteTolerance(double tol)
+	{
+		this._absToleranceLevel = tol;
+	}
+
+	@Override
+	public void setRelativeTolerance(double tol)
+	{
+		this._relToleranceLevel = tol;
+	}
+
+	/* ***********************************************************************
+	 * WELL-MIXED CHANGES
+	 * **********************************************************************/
+
+	@Override
+	protected double getWellMixedFlow(String name)
+	{
+		return 0.0;
+	}
+
+	@Override
+	protected void increaseWellMixedFlow(String name, double flow)
+	{
+
+	}
+}
@@ -20,6 +20,7 @@ import grid.SpatialGrid;
 import grid.WellMixedConstants;
 import linearAlgebra.Vector;
 import shape.Shape;
+import shape.Stencil;
 import solver.multigrid.MultigridLayer;
 import utility.ExtraMath;
 
@@ -624,13 +625,18 @@ public class PDEmultigrid extends PDEsolver
 		}
 		if ( ! this._allowNegatives )
 			variable.makeNonnegative(CONCN);
-		Shape shape = variable.getShape();
+		/* Voxels and neighbours in red-black order. */
+		Stencil stencil = variable.getShape().getStencil(2);
 		/* Temporary storage. */
 		double prod, concn, diffusivity, vol, rhs;
 		double nhbDist, nhbSArea, nhbDiffusivity, nhbWeight, nhbConcn, bndryFlow;
 		double lop, totalNhbWeight, residual;
-		@SuppressWarnings("unused")
-		int[] current, nhb;
+		int index;
+		/* Contiguous storage, indexed by the linear voxel index. */
+		double[] concns = variable.getFlatArray(CONCN);
+		double[] prods = variable.getFlatArray(PRODUCTIONRATE);
+		double[] diffusivities = variable.getFlatArray(DIFFUSIVITY);
+		double[] rhss = variable.getFlatArray(NONLINEARITY);
 		if ( this._enableEarlyStop  )
 			this._reachedStopCondition = true;
 		
@@ -638,28 +644,28 @@ public class PDEmultigrid extends PDEsolver
 		 * I don't think the method should be sensitive to the direction of
 		 * evaluation! Bas [09.12.2019]
 		 */
-		for ( current = shape.resetIterator(); shape.isIteratorValid();
-				current = shape.iteratorNext() )
+		for ( int v = 0; v < stencil.size(); v++ )
 		{
-
+			index = stencil.index(v);
 			/* Skip this voxel if it is considered well-mixed. */
-			if ( WellMixedConstants.isWellMixed(commonGrid, current))
+			if ( WellMixedConstants.isWellMixed(commonGrid, index))
 				continue;
-			concn = variable.getValueAtCurrent(CONCN);
-			prod = variable.getValueAtCurrent(PRODUCTIONRATE);
-			diffusivity = variable.getValueAtCurrent(DIFFUSIVITY);
-			vol = shape.getCurrVoxelVolume();
+			concn = concns[index];
+			prod = prods[index];
+			diffusivity = diffusivities[index];
+			vol = stencil.volume(v);
 			/* The right-hand side of Equation 19.6.23. */
-			rhs = variable.getValueAtCurrent(NONLINEARITY);
+			rhs = rhss[index];
 			/* Reset both lop and dlop. */
 			lop = 0.0;
 			totalNhbWeight = 0.0;
 			bndryFlow = 0.0;
 			/* Sum up over all neighbours. */
-			nhbLoop: for ( nhb = shape.resetNbhIterator();
-					shape.isNbhIteratorValid(); nhb = shape.nbhIteratorNext() )
+			nhbLoop: for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
 			{
-				boolean isInside = shape.isNbhIteratorInside();
+				boolean isInside = stencil.isNhbInside(n);
+				nhbDist = stencil.nhbDistance(n);
+				nhbSArea = stencil.nhbSharedArea(n);
 				/* First find the appropriate diffusivity. */
 				if ( isInside )
 				{
@@ -667,7 +673,7 @@ public class PDEmultigrid extends PDEsolver
 					 * If the neighbor voxel is inside the compartment, use the
 					 * harmonic mean average diffusivity of the two voxels. 
 					 */
-					nhbDiffusivity = variable.getValueAtNhb(DIFFUSIVITY);
+					nhbDiffusivity = diffusivities[stencil.nhbIndex(n)];
 					nhbDiffusivity = 
 							ExtraMath.harmonicMean(diffusivity, nhbDiffusivity);
 				}
@@ -680,8 +686,8 @@ public class PDEmultigrid extends PDEsolver
 					 * FIXME this might not be properly implemented for every
 					 * boundary type
 					 */
-					bndryFlow = shape.nbhIteratorOutside()
-							.getDiffusiveFlow(variable);
+					bndryFlow = stencil.nhbBoundary(n).getDiffusiveFlow(
+							variable, index, nhbSArea, nhbDist);
 					if ( bndryFlow == 0.0 )
 						continue nhbLoop;
 					/*
@@ -689,8 +695,6 @@ public class PDEmultigrid extends PDEsolver
 					 */
 					nhbDiffusivity = diffusivity;
 				}
-				nhbDist = shape.nhbCurrDistance();
-				nhbSArea = shape.nhbCurrSharedArea();
 				/*
 				 * The weighting of each voxel is in terms of per time.
 				 */
@@ -703,7 +707,7 @@ public class PDEmultigrid extends PDEsolver
 				 */
 				if ( isInside )
 				{
-					nhbConcn = variable.getValueAtNhb(CONCN);
+					nhbConcn = concns[stencil.nhbIndex(n)];
 					lop += nhbWeight * (nhbConcn - concn);
 				}
 				else
@@ -756,7 +760,7 @@ public class PDEmultigrid extends PDEsolver
 			if ( (!this._allowNegatives) && (concn < 0.0) )
 				concn = 0.0;
 			/* Update the value and continue to the next voxel. */
-			variable.setValueAtCurrent(CONCN, concn);
+			concns[index] = concn;
 //			variable.setValueAt(destinationType, current, residual);
 		}
 	}
@@ -777,41 +781,44 @@ public class PDEmultigrid extends PDEsolver
 	{
 	/* Commented out is the older method of calculating the residual, verify
 	   the new method and remove commented code when completely satisfied. */
-		Shape shape = variable.getShape();
+		Stencil stencil = variable.getShape().getStencil(2);
 		double diffusiveFlow, rateFromReactions, residual;
 		
 		@SuppressWarnings("unused")
 		double prod, concn, diffusivity, vol, rhs;
 		double nhbDist, nhbSArea, nhbDiffusivity, nhbWeight, nhbConcn, bndryFlow;
 		double lop;
-		@SuppressWarnings("unused")
-		int[] current, nhb;
+		int index;
+		/* Contiguous storage, indexed by the linear voxel index. */
+		double[] concns = variable.getFlatArray(CONCN);
+		double[] prods = variable.getFlatArray(PRODUCTIONRATE);
+		double[] diffusivities = variable.getFlatArray(DIFFUSIVITY);
+		double[] destination = variable.getFlatArray(destinationType);
 		
-		for ( current = shape.resetIterator(); shape.isIteratorValid();
-				current = shape.iteratorNext() )
+		for ( int v = 0; v < stencil.size(); v++ )
 		{
-			if ( WellMixedConstants.isWellMixed(commonGrid, current) )
+			index = stencil.index(v);
+			if ( WellMixedConstants.isWellMixed(commonGrid, index) )
 			{
 				/* Reset the value here in case it used to be inside the
 				 * boundary layer and move on to the next voxel. */
-				variable.setValueAt(destinationType, current, 0.0);
+				destination[index] = 0.0;
 				continue;
 			} 
 			
-			concn = variable.getValueAtCurrent(CONCN);
-			prod = variable.getValueAtCurrent(PRODUCTIONRATE);
-			diffusivity = variable.getValueAtCurrent(DIFFUSIVITY);
-			vol = shape.getCurrVoxelVolume();
-			/* The right-hand side of Equation 19.6.23. */
-			rhs = variable.getValueAtCurrent(NONLINEARITY);
+			concn = concns[index];
+			prod = prods[index];
+			diffusivity = diffusivities[index];
+			vol = stencil.volume(v);
 			/* Reset both lop and dlop. */
 			lop = 0.0;
 			bndryFlow = 0.0;
 			/* Sum up over all neighbours. */
-			nhbLoop: for ( nhb = shape.resetNbhIterator();
-					shape.isNbhIteratorValid(); nhb = shape.nbhIteratorNext() )
+			nhbLoop: for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
 			{
-				boolean isInside = shape.isNbhIteratorInside();
+				boolean isInside = stencil.isNhbInside(n);
+				nhbDist = stencil.nhbDistance(n);
+				nhbSArea = stencil.nhbSharedArea(n);
 				/* First find the appropriate diffusivity. */
 				if ( isInside )
 				{
@@ -819,7 +826,7 @@ public class PDEmultigrid extends PDEsolver
 					 * If the neighbor voxel is inside the compartment, use the
 					 * harmonic mean average diffusivity of the two voxels. 
 					 */
-					nhbDiffusivity = variable.getValueAtNhb(DIFFUSIVITY);
+					nhbDiffusivity = diffusivities[stencil.nhbIndex(n)];
 					nhbDiffusivity = 
 							ExtraMath.harmonicMean(diffusivity, nhbDiffusivity);
 				}
@@ -829,8 +836,8 @@ public class PDEmultigrid extends PDEsolver
 					 * If this is a boundary that does not contribute (e.g. a
 					 * solid boundary) then do not include it in the weighting.
 					 */
-					bndryFlow = shape.nbhIteratorOutside()
-							.getDiffusiveFlow(variable);
+					bndryFlow = stencil.nhbBoundary(n).getDiffusiveFlow(
+							variable, index, nhbSArea, nhbDist);
 					if ( bndryFlow == 0.0 )
 						continue nhbLoop;
 					/*
@@ -838,8 +845,6 @@ public class PDEmultigrid extends PDEsolver
 					 */
 					nhbDiffusivity = diffusivity;
 				}
-				nhbDist = shape.nhbCurrDistance();
-				nhbSArea = shape.nhbCurrSharedArea();
 				/*
 				 * The weighting of each voxel is in terms of per time.
 				 */
@@ -851,7 +856,7 @@ public class PDEmultigrid extends PDEsolver
 				 */
 				if ( isInside )
 				{
-					nhbConcn = variable.getValueAtNhb(CONCN);
+					nhbConcn = concns[stencil.nhbIndex(n)];
 					lop += nhbWeight * (nhbConcn - concn);
 				}
 				else
@@ -868,10 +873,9 @@ public class PDEmultigrid extends PDEsolver
 			{
 				diffusiveFlow += variable.getDiffusionFromNeighbor();
 			}*/
-			rateFromReactions = variable.getValueAt(PRODUCTIONRATE, current);
-			residual = (diffusiveFlow + rateFromReactions) /
-					shape.getCurrVoxelVolume();
-			variable.setValueAt(destinationType, current, residual);
+			rateFromReactions = prod;
+			residual = (diffusiveFlow + rateFromReactions) / vol;
+			destination[index] = residual;
 		}
 //		
 //		if ( ! this._allowNegatives )
@@ -10,6 +10,7 @@ import grid.SpatialGrid;
 import grid.WellMixedConstants;
 import processManager.ProcessDiffusion;
 import shape.Shape;
+import shape.Stencil;
 
 /**
  * \brief TODO
@@ -102,69 +103,54 @@ public abstract class PDEsolver extends Solver
 	 */
 	protected void applyDiffusion(SpatialGrid grid, SpatialGrid commonGrid)
 	{
-		Shape shape = grid.getShape();
-		/* Coordinates of the current position. */
-		int[] current, nhb;
+		/* Voxels and neighbours, independent of the shape's iterator. */
+		Stencil stencil = grid.getShape().getStencil(1);
 		/* Temporary storage. */
 		double totalFlow, nhbFlow;
 		/*
 		 * Iterate over all core voxels calculating the Laplace operator. 
 		 */
-		for ( current = shape.resetIterator(); shape.isIteratorValid();
-											  current = shape.iteratorNext())
+		for ( int v = 0; v < stencil.size(); v++ )
 		{
-			if ( WellMixedConstants.isWellMixed(commonGrid, current) )
+			if ( WellMixedConstants.isWellMixed(commonGrid, stencil.coord(v)) )
 				continue;
 			totalFlow = 0.0;
-			for ( nhb = shape.resetNbhIterator(); shape.isNbhIteratorValid();
-					nhb = shape.nbhIteratorNext() )
+			for ( int n = stencil.nhbFrom(v); n < stencil.nhbTo(v); n++ )
 			{
 				/*
 				 * If the neighbouring voxel is in a boundary, the boundary may
 				 * take a note of the flux (for connections with other
 				 * compartments).
 				 */
-				nhbFlow = grid.getDiffusionFromNeighbor();
+				nhbFlow = grid.getDiffusionFromNeighbor(stencil, v, n);
 				
 				/*
 				 * If this flux came from a well-mixed voxel, inform the grid.
 				 * Alternatively, if it came from a well-mixed boundary, inform
 				 * the grid.
 				 */
-				if ( shape.isNbhIteratorInside() )
+				if ( stencil.isNhbInside(n) )
 				{
-					if ( WellMixedConstants.isWellMixed(commonGrid, nhb) )
+					if ( WellMixedConstants.isWellMixed(commonGrid, 
+							stencil.nhbIndex(n)) )
 						this.increaseWellMixedFlow(grid.getName(), - nhbFlow);
 				}
-				else if ( shape.isNbhIteratorValid() )
+				else if ( stencil.nhbBoundary(n).needsToUpdateWellMixed() )
 				{
-					if ( shape.nbhIteratorOutside().needsToUpdateWellMixed() )
-						this.increaseWellMixedFlow(grid.getName(), - nhbFlow);
+					this.increaseWellMixedFlow(grid.getName(), - nhbFlow);
 				}
 				totalFlow += nhbFlow;
-				/* 
-				 * To get the value we must be inside, the flux can be obtained
-				 * from boundary.
-				 */
 			}
 			/*
 			 * Flow is in units of mass/mole per unit time. Divide by the voxel
 			 * volume to convert this to a rate of change in concentration.
 			 */
-			double volume = shape.getCurrVoxelVolume();
+			double volume = stencil.volume(v);
 			double changeRate = totalFlow / volume;
 			/*
 			 * Finally, apply this to the relevant array.
 			 */
-			/* Disabled DEBUG message
-			if ( Log.shouldWrite(Tier.DEBUG) )
-			{
-				Log.out(Tier.DEBUG, " Total flux = "+totalFlow);
-				Log.out(Tier.DEBUG, " Voxel volume = "+volume);
-				Log.out(Tier.DEBUG, " Total rate of change from flux = "+changeRate);
-			}
-			*/
-			grid.addValueAt(CHANGERATE, current, changeRate);
+			grid.addValueAt(CHANGERATE, stencil.index(v), changeRate);
 		}
 	}
 	
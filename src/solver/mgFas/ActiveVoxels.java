@@ -0,0 +1,107 @@
+package solver.mgFas;
+
+import java.util.Arrays;
+
+/**
+ * \brief Compressed lists of the voxels inside the boundary layer, for every
+ * multigrid order.
+ *
+ * <p>Only voxels with a boundary layer value of at least
+ * {@link MultigridSolute#BLTHRESH} are solved, in tall domains this is often
+ * a small fraction of the grid. Iterating over these lists rather than
+ * scanning the full (padded) grid and testing every voxel avoids visiting
+ * the bulk at all. Voxels are stored as consecutive (i, j, k) triplets of
+ * padded grid coordinates, in the same order as a full grid scan. Lists are
+ * also kept per red-black colour, matching {@link
+ * MultigridSolute#relax(int)}.</p>
+ *
+ * <p>The lists depend on the boundary layer only, all solutes of a solver
+ * share them. They must be rebuilt whenever the boundary layer grids are
+ * refreshed.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ActiveVoxels
+{
+	/**
+	 * Active voxels per order, in k, j, i scan order.
+	 */
+	private int[][] _all;
+
+	/**
+	 * Active voxels per order and colour (ksw - 1).
+	 */
+	private int[][][] _colour;
+
+	/**
+	 * \brief Collect the active voxels of all orders.
+	 *
+	 * @param bLayer Boundary layer grids, from coarsest [0] to finest.
+	 */
+	public ActiveVoxels(SoluteGrid[] bLayer)
+	{
+		this._all = new int[bLayer.length][];
+		this._colour = new int[bLayer.length][2][];
+		for ( int order = 0; order < bLayer.length; order++ )
+		{
+			double[][][] bl = bLayer[order].grid;
+			int nI = bLayer[order].getGridSizeI();
+			int nJ = bLayer[order].getGridSizeJ();
+			int nK = bLayer[order].getGridSizeK();
+			int[] all = new int[3 * nI * nJ * nK];
+			int[][] colour = new int[2][3 * ( nI * nJ * nK / 2 + 1 )];
+			int n = 0;
+			int[] nColour = new int[2];
+			for (int k = 1; k <= nK; k++)
+				for (int j = 1; j <= nJ; j++)
+					for (int i = 1; i <= nI; i++)
+						if ( bl[i][j][k] >= MultigridSolute.BLTHRESH )
+						{
+							n = add(all, n, i, j, k);
+							/* same colouring as the red-black relaxation: the
+							 * first i of colour ksw is 1 + (ksw+j+k+1) % 2 */
+							int c = ( i + j + k + 1 ) % 2;
+							nColour[c] = add(colour[c], nColour[c], i, j, k);
+						}
+			this._all[order] = Arrays.copyOf(all, n);
+			for ( int c = 0; c < 2; c++ )
+				this._colour[order][c] = Arrays.copyOf(colour[c], nColour[c]);
+		}
+	}
+
+	private static int add(int[] list, int n, int i, int j, int k)
+	{
+		list[n] = i;
+		list[n+1] = j;
+		list[n+2] = k;
+		return n + 3;
+	}
+
+	/**
+	 * @param order Multigrid order.
+	 * @return All active voxels of this order as (i, j, k) triplets.
+	 */
+	public int[] all(int order)
+	{
+		return this._all[order];
+	}
+
+	/**
+	 * @param order Multigrid order.
+	 * @param ksw Colour of the red-black relaxation pass (1 or 2).
+	 * @return Active voxels of this order and colour as (i, j, k) triplets.
+	 */
+	public int[] colour(int order, int ksw)
+	{
+		return this._colour[order][ksw - 1];
+	}
+
+	/**
+	 * @param order Multigrid order.
+	 * @return Number of active voxels of this order.
+	 */
+	public int size(int order)
+	{
+		return this._all[order].length / 3;
+	}
+}
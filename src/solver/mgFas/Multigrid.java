@@ -26,6 +26,11 @@ import processManager.library.PDEWrapper;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * 
@@ -134,6 +139,27 @@ public class Multigrid
 	 */
 	private boolean autoVcycleAdjust = false;
 
+	/**
+	 * Smoothing level the adaptive V-cycle controller starts the next step
+	 * with, carried over from the previous step.
+	 */
+	private int _smoothingScalar = 1;
+
+	/**
+	 * Upper limit of the smoothing level, relaxation sweeps grow linearly
+	 * with it on every grid.
+	 */
+	private static final int MAX_SMOOTHING_SCALAR = 13;
+
+	/**
+	 * V-cycles at the finest grid scheduled by the protocol (vCycles per
+	 * step) and V-cycles saved by stopping as soon as all solutes converged,
+	 * summed over all steps.
+	 */
+	private long _cyclesScheduled = 0;
+
+	private long _cyclesSaved = 0;
+
 	protected ProcessDiffusion _manager;
 
 	protected EnvironmentContainer _environment;
@@ -141,6 +167,12 @@ public class Multigrid
 	protected LinkedList<RecordKeeper> _recordKeepers;
 
 	private boolean initialGuess = false;
+
+	/**
+	 * Pool used to relax all solutes concurrently, null if solutes are 
+	 * relaxed one after another.
+	 */
+	private ForkJoinPool _pool;
 	/**
 	 * 
 	 */
@@ -206,6 +238,21 @@ public class Multigrid
 			this._relaxationMap.put(_solute[iSolute].soluteName, false);
 		}
 
+		/* Relax concurrently if multiple threads are requested: all solutes
+		 * at once if there are at least as many solutes as threads, otherwise
+		 * the planes of every solute grid are split over the threads. Record
+		 * keepers write files and require serial relaxation of solutes. */
+		if ( manager.threads > 1 )
+		{
+			ForkJoinPool pool = Idynomics.threadPool( manager.threads );
+			if ( _soluteIndex.size() >= manager.threads && 
+					this._recordKeepers.isEmpty() )
+				this._pool = pool;
+			else
+				for (int iSolute : _soluteIndex)
+					_solute[iSolute].setPool( pool );
+		}
+
 		/* From this moment, nSolute is the number of solutes SOLVED by THIS
 		 * solver.
 		 *
@@ -252,6 +299,12 @@ public class Multigrid
 		_bLayer.setFinest( myDomain.getBoundaryLayer() );
 		_bLayer.restrictToCoarsest();
 
+		/* only voxels inside the boundary layer are solved, collect these
+		 * once for all solutes and V-cycles of this step. */
+		ActiveVoxels active = new ActiveVoxels( _bLayer._conc );
+		for (int iSolute : _soluteIndex)
+			_solute[iSolute].setActiveVoxels( active );
+
 		// TODO this should be per solute in the future?
 		_diffusivity.setFinest(myDomain.getDiffusivity());
 		_diffusivity.restrictToCoarsest();
@@ -320,9 +373,14 @@ public class Multigrid
 		for (int iSolute : _soluteIndex)
 			_solute[iSolute].resetMultigridCopies();
 
-		int smoothingScalar = 1; // before 4
+		int smoothingScalar = ( this.autoVcycleAdjust ? 
+				this._smoothingScalar : 1 ); // before 4
 		boolean breakVCycle = false;
 		int vc =0;
+		/* V-cycles at the finest grid, and the V-cycle after which each 
+		 * solute first converged (0 if it has not). */
+		int cycles = 0;
+		int[] converged = new int[_solute.length];
 
 		/*
 		The outer loop is getting finer (starting from coarsest + 1
@@ -407,9 +465,19 @@ public class Multigrid
 				 * by local truncation error (see p. 884 of Numerical Recipes)
 				 */
 				breakVCycle = true;
+				if ( outer == maxOrder-1 )
+					cycles++;
 
 				for (int iSolute : _soluteIndex)
-					breakVCycle &= _solute[iSolute].breakVCycle(order);
+				{
+					if ( _solute[iSolute].breakVCycle(order) )
+					{
+						if ( converged[iSolute] == 0 )
+							converged[iSolute] = cycles;
+					}
+					else
+						breakVCycle = false;
+				}
 
 				/* don't cycle initial coarse cycles */
 				if (breakVCycle || outer < maxOrder-1)
@@ -419,7 +487,8 @@ public class Multigrid
 				}
 
 				/* if the solver struggles to reach stop conditions smooth more */
-				smoothingScalar += 3;
+				smoothingScalar = Math.min( MAX_SMOOTHING_SCALAR, 
+						smoothingScalar + 3 );
 			}
 			if( ! breakVCycle && Log.shouldWrite( Log.Tier.CRITICAL ) )
 				Log.out(Log.Tier.CRITICAL,
@@ -427,6 +496,23 @@ public class Multigrid
 		}
 		initialGuess = true;
 
+		for (int iSolute : _soluteIndex)
+			_solute[iSolute].recordCycles( converged[iSolute] > 0 ? 
+					converged[iSolute] : -1 );
+
+		/* Start the next step with the smoothing this step required, try 
+		 * less smoothing if a single V-cycle was sufficient. More smoothing
+		 * did not help if the step did not converge, start over then. */
+		if ( ! breakVCycle )
+			this._smoothingScalar = 1;
+		else if ( this.autoVcycleAdjust )
+			this._smoothingScalar = Math.min( MAX_SMOOTHING_SCALAR, 
+					( cycles > 1 ? smoothingScalar : 
+					Math.max( 1, smoothingScalar - 3 ) ) );
+
+		this._cyclesScheduled += _vCycles;
+		this._cyclesSaved += _vCycles - cycles;
+
 		for (int iSolute : _soluteIndex)
 		{
 			for (int i = 0; i < maxOrder; i++)
@@ -437,8 +523,36 @@ public class Multigrid
 			}
 		}
 		if( Log.shouldWrite( Log.Tier.EXPRESSIVE ) )
-			Log.out(Log.Tier.EXPRESSIVE, "Vcycles: " + vc );
+		{
+			Log.out(Log.Tier.EXPRESSIVE, "Vcycles: " + vc + ", saved " + 
+					( _vCycles - cycles ) + " of " + _vCycles + 
+					" scheduled, " + _cyclesSaved + " of " + _cyclesScheduled +
+					" in total" );
+			for (int iSolute : _soluteIndex)
+				Log.out(Log.Tier.EXPRESSIVE, _solute[iSolute].soluteName + 
+						" Vcycles to converge: " + 
+						_solute[iSolute].getCycleHistory() + ", ratio: " + 
+						_solute[iSolute].getResidualRatio() );
+		}
+
+	}
+
+	/**
+	 * @return V-cycles at the finest grid that were scheduled by the
+	 * protocol but not needed to converge, summed over all steps.
+	 */
+	public long getCyclesSaved()
+	{
+		return this._cyclesSaved;
+	}
 
+	/**
+	 * @return V-cycles at the finest grid scheduled by the protocol, summed
+	 * over all steps.
+	 */
+	public long getCyclesScheduled()
+	{
+		return this._cyclesScheduled;
 	}
 
 	/**
@@ -488,10 +602,15 @@ public class Multigrid
 	{
 		for (int j = 0; j < nIter; j++)
 		{
+			/* reaction rates couple the solutes, they are updated before
+			 * any of the solutes is relaxed. */
 			updateReacRateAndDiffRate(order);
-			for (int iSolute : _soluteIndex) {
-				_solute[iSolute].relax(order);
-			}
+			if ( this._pool == null )
+				for (int iSolute : _soluteIndex) {
+					_solute[iSolute].relax(order);
+				}
+			else
+				relaxConcurrent(order);
 //
 //			if (this._relaxationMap.values().contains(false))
 //			{
@@ -518,6 +637,36 @@ public class Multigrid
 		 }
 	}
 
+	/**
+	 * \brief Relax all solutes concurrently, solutes only share the (read 
+	 * only) boundary layer and diffusivity grids, returns when all solutes
+	 * are relaxed.
+	 * 
+	 * @param resOrder
+	 */
+	private void relaxConcurrent(int resOrder)
+	{
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for (int iSolute : _soluteIndex)
+		{
+			MultigridSolute solute = _solute[iSolute];
+			tasks.add( () -> solute.relax(resOrder) );
+		}
+		try
+		{
+			for ( Future<Object> f : this._pool.invokeAll(tasks) )
+				f.get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			if ( Log.shouldWrite(Log.Tier.CRITICAL) )
+				Log.out(Log.Tier.CRITICAL, "Failed concurrent relaxation of "
+						+ "solutes: " + e.getMessage());
+			Idynomics.simulator.interupt( "concurrent relaxation of solutes "
+					+ "failed" );
+		}
+	}
+
 	/**
 	 * Call all the agents and read their uptake-rate for the current
 	 * concentration.
@@ -11,12 +11,18 @@ package solver.mgFas;
 
 import dataIO.Log;
 import idynomics.Global;
+import idynomics.Idynomics;
 import processManager.library.PDEWrapper;
 import utility.ExtraMath;
 import linearAlgebra.Array;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 /**
@@ -119,43 +125,38 @@ public class MultigridSolute
 	private List<Double> _tempNums = new LinkedList<Double>();
 
 	/**
-	 * \brief 
-	 * 
-	 * Should be ok not to fill this with zeros at initialisation, as it should
-	 * be filled in fillDiff() before it's ever called.
+	 * Residual ratio of the last V-cycle, see {@link #breakVCycle(int)}.
 	 */
-	private static final double[][][] _diff = new double[3][3][3];
-	
-	/**
-	 * 
-	 */
-	private static double[][][] u;
-	
+	private double _ratio = Double.MAX_VALUE;
+
 	/**
-	 * 
+	 * Number of V-cycles required to converge in the most recent solver
+	 * steps, oldest first, -1 for steps that did not converge.
 	 */
-	private static double[][][] rd;
-	
+	private LinkedList<Integer> _cycleHistory = new LinkedList<Integer>();
+
 	/**
-	 * 
+	 * Number of solver steps kept in the convergence history.
 	 */
-	private static double[][][] bl;
-	
+	public static final int HISTORY_LENGTH = 10;
+
 	/**
-	 * 
+	 * Absolute residual of the last relaxation per order, returned by
+	 * {@link #relax(int)} (reused to avoid allocation).
 	 */
-	private static int _i;
-	
+	private double[][][][] _difference;
+
 	/**
-	 * 
+	 * Pool used to relax planes of the grid concurrently, null if the
+	 * relaxation is performed single-threaded.
 	 */
-	private static int _j;
-	
+	private ForkJoinPool _pool;
+
 	/**
-	 * 
+	 * Voxels inside the boundary layer, the only voxels that are solved.
 	 */
-	private static int _k;
-	
+	private ActiveVoxels _active;
+
 	/**
 	 * 
 	 */
@@ -164,22 +165,22 @@ public class MultigridSolute
 	/**
 	 * 
 	 */
-	private static int maxOrder;
+	private int maxOrder;
 	
 	/**
 	 * Size of original solute grid in I direction
 	 */
-	private static int _nI;
+	private int _nI;
 	
 	/**
 	 * Size of original solute grid in J direction
 	 */
-	private static int _nJ;
+	private int _nJ;
 	
 	/**
 	 * Size of original solute grid in K direction
 	 */
-	private static int _nK;
+	private int _nK;
 
 	private PDEWrapper manager;
 	
@@ -223,21 +224,23 @@ public class MultigridSolute
 
 		_res = new double[maxOrder];
 
+		_difference = new double[maxOrder][][][];
+
 		for (int iGrid = 0; iGrid<maxOrder; iGrid++)
 		{
-			_i = (_nI-1)/ExtraMath.exp2(iGrid)+1;
-			_j = (_nJ-1)/ExtraMath.exp2(iGrid)+1;
-			_k = (_nK-1)/ExtraMath.exp2(iGrid)+1;
-			double r = _referenceSystemSide/referenceIndex(_i,_j,_k);
+			int i = (_nI-1)/ExtraMath.exp2(iGrid)+1;
+			int j = (_nJ-1)/ExtraMath.exp2(iGrid)+1;
+			int k = (_nK-1)/ExtraMath.exp2(iGrid)+1;
+			double r = _referenceSystemSide/referenceIndex(i,j,k);
 
 			// Padding is automatically generated by the constructor
-			_conc[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute, sBulk);
-			_rhs[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
-			_reac[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
-			_diffReac[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
-			_itemp[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
-			_itau[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
-			_tempRes[maxOrder-iGrid-1] = new SoluteGrid(_i, _j, _k, r, aSolute);
+			_conc[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute, sBulk);
+			_rhs[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
+			_reac[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
+			_diffReac[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
+			_itemp[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
+			_itau[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
+			_tempRes[maxOrder-iGrid-1] = new SoluteGrid(i, j, k, r, aSolute);
 
 			_res[maxOrder-iGrid-1] = Double.MAX_VALUE;
 		}
@@ -294,18 +297,18 @@ public class MultigridSolute
 
 	public void downward(int order, int outer)
 	{
-		MultigridUtils.restrictBoundaryLayer(_conc[order], _conc[order-1], _bLayer[order-1].grid);
+		MultigridUtils.restrictBoundaryLayer(_conc[order], _conc[order-1], _active.all(order-1));
 		//
 		computeResidual(_itemp, order);
 		//
-		MultigridUtils.restrictBoundaryLayer(_itemp[order], _itemp[order-1], _bLayer[order-1].grid);
+		MultigridUtils.restrictBoundaryLayer(_itemp[order], _itemp[order-1], _active.all(order-1));
 		// reduce grid value _g temporarily
 		order--;
 		computeResidual(_itau, order);
 		MultigridUtils.subtractTo(_itau[order].grid, _itemp[order].grid);
 		
 		// sum tau to rhs of _g - 1
-		MultigridUtils.restrictBoundaryLayer(_rhs[order+1], _rhs[order], _bLayer[order].grid);
+		MultigridUtils.restrictBoundaryLayer(_rhs[order+1], _rhs[order], _active.all(order));
 		MultigridUtils.addTo(_rhs[order].grid, _itau[order].grid);
 		
 		// compute the truncation error for this V-cycle
@@ -321,11 +324,11 @@ public class MultigridSolute
 	 */
 	public void downward1(int order, int outer)
 	{
-		MultigridUtils.restrictBoundaryLayer(_conc[order], _conc[order-1], _bLayer[order-1].grid);
+		MultigridUtils.restrictBoundaryLayer(_conc[order], _conc[order-1], _active.all(order-1));
 		//
 		computeResidual(_itemp, order);
 		//
-		MultigridUtils.restrictBoundaryLayer(_itemp[order], _itemp[order-1], _bLayer[order-1].grid);
+		MultigridUtils.restrictBoundaryLayer(_itemp[order], _itemp[order-1], _active.all(order-1));
 	}
 	
 	/**
@@ -340,7 +343,7 @@ public class MultigridSolute
 		MultigridUtils.subtractTo(_itau[order].grid, _itemp[order].grid);
 
 		// sum tau to rhs of _g - 1
-		MultigridUtils.restrictBoundaryLayer(_rhs[order+1], _rhs[order], _bLayer[order].grid);
+		MultigridUtils.restrictBoundaryLayer(_rhs[order+1], _rhs[order], _active.all(order));
 
 		MultigridUtils.addTo(_rhs[order].grid, _itau[order].grid);
 
@@ -356,7 +359,7 @@ public class MultigridSolute
 	 */
 	public void upward(int order)
 	{
-		MultigridUtils.restrictBoundaryLayer(_conc[order], _itemp[order-1], _bLayer[order-1].grid);
+		MultigridUtils.restrictBoundaryLayer(_conc[order], _itemp[order-1], _active.all(order-1));
 		MultigridUtils.subtractTo(_conc[order-1].grid, _itemp[order-1].grid);
 		MultigridUtils.interpolateBoundaryLayer(_itau[order], _conc[order-1], _bLayer[order].grid);
 		MultigridUtils.addTo(_conc[order].grid, _itau[order].grid);
@@ -385,6 +388,7 @@ public class MultigridSolute
 		Array.restrictMinimum( ratio, NEGLIGIBLE / RELATIVE );
 		Array.elemRatioTo( ratio, _tempRes[order].grid, ratio);
 		double maxRatio = MultigridUtils.largestRealNonZero( ratio , NEGLIGIBLE);
+		this._ratio = maxRatio;
 		double locResidual = MultigridUtils.largestRealNonZero( _tempRes[order].grid ,
 				NEGLIGIBLE * NEGLIGIBLE );
 		double smallestConc = MultigridUtils.smallestNonZero( this._conc[order].grid ,
@@ -449,9 +453,37 @@ public class MultigridSolute
 	}
 
 	/**
+	 * \brief Set the pool used to relax the grid concurrently, null to relax
+	 * single-threaded.
+	 * 
+	 * @param pool
+	 */
+	public void setPool(ForkJoinPool pool)
+	{
+		this._pool = pool;
+	}
+
+	/**
+	 * \brief Set the voxels inside the boundary layer, to be called whenever
+	 * the boundary layer changes.
+	 * 
+	 * @param active
+	 */
+	public void setActiveVoxels(ActiveVoxels active)
+	{
+		this._active = active;
+	}
+
+	/**
+	 * \brief Red-black relaxation of the grid of the given order.
+	 * 
+	 * Cells of the same colour only depend on cells of the other colour, each
+	 * colour pass is therefore split in chunks of active voxels that are 
+	 * relaxed concurrently if a pool is set. The result does not depend on
+	 * the number of threads.
 	 * 
 	 * @param order
-	 * @return
+	 * @return absolute residual of every cell (reused between calls).
 	 */
 	public double[][][] relax(int order)
 	{
@@ -460,67 +492,20 @@ public class MultigridSolute
 		int nK = _conc[order].getGridSizeK();
 		
 		Double h = _referenceSystemSide/referenceIndex(nI, nJ, nK);
-		Double h2i = 0.5f/(h*h);
-		// red-black relaxation
-		// iterate through system
-		// isw, jsw and ksw alternate between values 1 and 2
+		double h2i = 0.5f/(h*h);
 		
-		double[][][] difference = new double[nI][nJ][nK];
-		u = _conc[order].grid;
-		bl = _bLayer[order].grid;
-		rd = _relDiff[order].grid;
-		
-		Double lop, dlop, res;
-		Double totalRes = 0.0;
+		if ( _difference[order] == null )
+			_difference[order] = new double[nI][nJ][nK];
+		double[][][] difference = _difference[order];
 		
 		// bvm 22.12.09: now allows red-black for 2d AND 3d
+		// ksw alternates between values 1 and 2
 		int ksw = 1;
-		int isw, jsw;
 		for (int pass = 1; pass <= 2; pass++, ksw = 3-ksw)
 		{
-			jsw = ksw;
-			for (_k = 1; _k <= nK; _k++, jsw = 3-jsw)
-			{
-				isw = jsw;
-				for (_j = 1; _j <= nJ; _j++, isw = 3-isw)
-				{
-					for (_i = isw; _i <= nI; _i += 2)
-					{
-						if (bl[_i][_j][_k] >= BLTHRESH)
-						{
-							// Case: Inside boundary layer
-							// Equations must be solved here
-							
-							// compute diffusivity values
-							// and that of surrounding neighbours
-							fillDiff();
-							
-							// compute L operator
-							lop = computeLop(order, h2i);
-							
-							// compute derivative of L operator
-							dlop = computeDiffLop(order, h2i);
-							
-							// compute residual
-							res = (lop-_rhs[order].grid[_i][_j][_k])/dlop;
-
-							double absRes = Math.abs(res);
-							totalRes += absRes;
-							difference[_i - 1][_j - 1][_k - 1] = absRes;
-							// update concentration (test for NaN)
-							//LogFile.writeLog("NaN generated in multigrid solver "+"while computing rate for "+soluteName);
-							//LogFile.writeLog("location: "+_i+", "+_j+", "+_k);
-							//LogFile.writeLog("dlop: "+dlop+"; lop: "+lop+"; grid: "+_rhs[order].grid[_i][_j][_k]);
-
-							_tempRes[order].grid[_i][_j][_k] = res;
-
-							u[_i][_j][_k] -= res;
-							// if negative concentrations, put 0 value
-							u[_i][_j][_k] = (u[_i][_j][_k]<0 ? 0 : u[_i][_j][_k]);
-						}
-					}
-				}
-			}
+			final int[] voxels = this._active.colour(order, ksw);
+			this.forVoxels(voxels, (from, to) -> 
+					relaxCells(order, voxels, h2i, from, to));
 			_conc[order].refreshBoundary();
 			// refresh the padding elements to enforce
 			// boundary conditions for all solutes
@@ -529,58 +514,93 @@ public class MultigridSolute
 
 		if (!_conc[order]._recordKeeper.isEmpty())
 			for (RecordKeeper r : _conc[order]._recordKeeper)
-				r.step(u, order, this.soluteName);
+				r.step(_conc[order].grid, order, this.soluteName);
 		
 		return difference;
 	}
 	
 	/**
+	 * \brief Relax the given range of voxels, these are all inside the
+	 * boundary layer and of the same colour.
 	 * 
+	 * @param order
+	 * @param voxels (i, j, k) triplets, see {@link ActiveVoxels}.
+	 * @param h2i
+	 * @param from first voxel (inclusive).
+	 * @param to last voxel (exclusive).
 	 */
-	private void fillDiff()
+	private void relaxCells(int order, int[] voxels, double h2i, int from, 
+			int to)
 	{
-		//TODO shouldn't this be a diffusivity grid?
-		_diff[0][1][1] = realGrid.diffusivity*rd[_i-1][_j][_k];
-		_diff[2][1][1] = realGrid.diffusivity*rd[_i+1][_j][_k];
-		_diff[1][0][1] = realGrid.diffusivity*rd[_i][_j-1][_k];
-		_diff[1][2][1] = realGrid.diffusivity*rd[_i][_j+1][_k];
-		_diff[1][1][0] = realGrid.diffusivity*rd[_i][_j][_k-1];
-		_diff[1][1][2] = realGrid.diffusivity*rd[_i][_j][_k+1];
-		_diff[1][1][1] = realGrid.diffusivity*rd[_i][_j][_k];
+		double[][][] u = _conc[order].grid;
+		double[][][] rd = _relDiff[order].grid;
+		double[][][] rhs = _rhs[order].grid;
+		double[][][] reac = _reac[order].grid;
+		double[][][] diffReac = _diffReac[order].grid;
+		double[][][] tempRes = _tempRes[order].grid;
+		double[][][] difference = _difference[order];
+		double lop, dlop, res;
+		int i, j, k;
+		
+		for (int v = 3 * from; v < 3 * to; v += 3)
+		{
+			i = voxels[v];
+			j = voxels[v+1];
+			k = voxels[v+2];
+			
+			// compute L operator
+			lop = computeLop(u, rd, reac, i, j, k, h2i);
+			
+			// compute derivative of L operator
+			dlop = computeDiffLop(rd, diffReac, i, j, k, h2i);
+			
+			// compute residual
+			res = (lop-rhs[i][j][k])/dlop;
+
+			difference[i - 1][j - 1][k - 1] = Math.abs(res);
+			tempRes[i][j][k] = res;
+
+			u[i][j][k] -= res;
+			// if negative concentrations, put 0 value
+			u[i][j][k] = (u[i][j][k]<0 ? 0 : u[i][j][k]);
+		}
 	}
 	
 	/**
 	 * \brief Compute the L-operator
 	 * 
-	 * @param order
-	 * @param h2i
 	 * @return
 	 */
-	private double computeLop(int order, Double h2i)
-	{	
-		return ( (_diff[2][1][1]+_diff[1][1][1])*(u[_i+1][_j][_k]-u[_i][_j][_k])
-		        +(_diff[0][1][1]+_diff[1][1][1])*(u[_i-1][_j][_k]-u[_i][_j][_k])
-		        +(_diff[1][2][1]+_diff[1][1][1])*(u[_i][_j+1][_k]-u[_i][_j][_k])
-		        +(_diff[1][0][1]+_diff[1][1][1])*(u[_i][_j-1][_k]-u[_i][_j][_k])
-		        +(_diff[1][1][2]+_diff[1][1][1])*(u[_i][_j][_k+1]-u[_i][_j][_k])
-		        +(_diff[1][1][0]+_diff[1][1][1])*(u[_i][_j][_k-1]-u[_i][_j][_k]))
-		        *h2i + _reac[order].grid[_i][_j][_k];
+	private double computeLop(double[][][] u, double[][][] rd, 
+			double[][][] reac, int i, int j, int k, double h2i)
+	{
+		//TODO shouldn't this be a diffusivity grid?
+		double d = realGrid.diffusivity;
+		double dC = d*rd[i][j][k];
+		return ( (d*rd[i+1][j][k]+dC)*(u[i+1][j][k]-u[i][j][k])
+		        +(d*rd[i-1][j][k]+dC)*(u[i-1][j][k]-u[i][j][k])
+		        +(d*rd[i][j+1][k]+dC)*(u[i][j+1][k]-u[i][j][k])
+		        +(d*rd[i][j-1][k]+dC)*(u[i][j-1][k]-u[i][j][k])
+		        +(d*rd[i][j][k+1]+dC)*(u[i][j][k+1]-u[i][j][k])
+		        +(d*rd[i][j][k-1]+dC)*(u[i][j][k-1]-u[i][j][k]))
+		        *h2i + reac[i][j][k];
 	}
 	
 	/**
+	 * \brief Compute the derivative of the L-operator
 	 * 
-	 * @param order
-	 * @param h2i
 	 * @return
 	 */
-	private Double computeDiffLop(int order, Double h2i)
+	private double computeDiffLop(double[][][] rd, double[][][] diffReac, 
+			int i, int j, int k, double h2i)
 	{
+		double d = realGrid.diffusivity;
 		return -h2i
-		        *(6.0f*_diff[1][1][1]
-		              +_diff[2][1][1]+_diff[0][1][1]
-		              +_diff[1][2][1]+_diff[1][0][1]
-		              +_diff[1][1][2]+_diff[1][1][0])
-		       +_diffReac[order].grid[_i][_j][_k];
+		        *(6.0f*(d*rd[i][j][k])
+		              +d*rd[i+1][j][k]+d*rd[i-1][j][k]
+		              +d*rd[i][j+1][k]+d*rd[i][j-1][k]
+		              +d*rd[i][j][k+1]+d*rd[i][j][k-1])
+		       +diffReac[i][j][k];
 	}
 	
 	/**
@@ -590,57 +610,97 @@ public class MultigridSolute
 	 */
 	private void computeResidual(SoluteGrid[] res, int order)
 	{
-		int nI = res[order].getGridSizeI();
 		int nJ = res[order].getGridSizeJ();
 		int nK = res[order].getGridSizeK();
 
 		// h = gridsize
-		Double h = _referenceSystemSide/referenceIndex(nI,nJ,nK);
-		Double h2i = 0.5f/(h*h);
-		Double lop; // temporary variable for L-operator
-		
-		u = _conc[order].grid;
-		bl = _bLayer[order].grid;
-		rd = _relDiff[order].grid;
+		Double h = _referenceSystemSide/referenceIndex(
+				res[order].getGridSizeI(),nJ,nK);
+		double h2i = 0.5f/(h*h);
 		
-		// iterate through system
-		for (_k = 1; _k <= nK; _k++)
-			for (_j = 1; _j <= nJ; _j++)
-				for (_i = 1; _i <= nI; _i++)
-					// compute lop only inside boundary layer
-					if (bl[_i][_j][_k] >= BLTHRESH)
-					{
-						// compute diffusivity values and that of surrounding
-						// neighbours
-						fillDiff();
-						
-						// compute L operator
-						lop = computeLop(order, h2i);
-						
-						// update concentration (test for NaN)
-						//LogFile.writeLog("MultigridSolute.computeResidual: NaN generated"+soluteName);
-						res[order].grid[_i][_j][_k] = lop;
-					}
+		final int[] voxels = this._active.all(order);
+		this.forVoxels(voxels, (from, to) -> 
+				residualCells(res[order].grid, order, voxels, h2i, from, to));
 		res[order].refreshBoundary();
 	}
 	
+	/**
+	 * \brief write the L operator of the given range of voxels, all inside
+	 * the boundary layer, to out.
+	 */
+	private void residualCells(double[][][] out, int order, int[] voxels,
+			double h2i, int from, int to)
+	{
+		double[][][] u = _conc[order].grid;
+		double[][][] rd = _relDiff[order].grid;
+		double[][][] reac = _reac[order].grid;
+		int i, j, k;
+		
+		for (int v = 3 * from; v < 3 * to; v += 3)
+		{
+			i = voxels[v];
+			j = voxels[v+1];
+			k = voxels[v+2];
+			out[i][j][k] = computeLop(u, rd, reac, i, j, k, h2i);
+		}
+	}
+	
+	/**
+	 * \brief Range of voxels, first inclusive, last exclusive.
+	 */
+	private interface VoxelRange
+	{
+		void apply(int from, int to);
+	}
+	
+	/**
+	 * \brief Apply the given range operation to all voxels of the list, split
+	 * in one chunk per thread if a pool is set.
+	 */
+	private void forVoxels(int[] voxels, VoxelRange range)
+	{
+		int threads = ( this._pool == null ? 1 : 
+				this._pool.getParallelism() );
+		int n = voxels.length / 3;
+		if ( threads == 1 || n < 64 * threads )
+		{
+			range.apply(0, n);
+			return;
+		}
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+		for ( int c = 0; c < threads; c++ )
+		{
+			int from = c * n / threads;
+			int to = ( c + 1 ) * n / threads;
+			tasks.add( () -> { range.apply(from, to); return null; } );
+		}
+		try
+		{
+			for ( Future<Object> f : this._pool.invokeAll(tasks) )
+				f.get();
+		}
+		catch (InterruptedException | ExecutionException e)
+		{
+			if ( Log.shouldWrite(Log.Tier.CRITICAL) )
+				Log.out(Log.Tier.CRITICAL, this.soluteName + " failed "
+						+ "concurrent relaxation: " + e.getMessage());
+			Idynomics.simulator.interupt( "concurrent relaxation failed for "
+					+ this.soluteName );
+		}
+	}
+	
 	/**
 	 *
 	 * @param order
 	 */
 	public void truncateConcToZero(int order)
 	{
-		int nI = _conc[order].getGridSizeI();
-		int nJ = _conc[order].getGridSizeJ();
-		int nK = _conc[order].getGridSizeK();
-		double[][][] bl = _bLayer[order].grid;
+		int[] voxels = this._active.all(order);
 		double[][][] u = _conc[order].grid;
 		
-		for (int _i = 1; _i <= nI; _i++)
-			for (int _j = 1; _j <= nJ; _j++)
-				for (int _k = 1; _k <= nK; _k++)
-					if (bl[_i][_j][_k] >= BLTHRESH)
-						u[_i][_j][_k] = Math.max(u[_i][_j][_k], 0.0);
+		for (int v = 0; v < voxels.length; v += 3)
+			u[voxels[v]][voxels[v+1]][voxels[v+2]] = 
+					Math.max(u[voxels[v]][voxels[v+1]][voxels[v+2]], 0.0);
 	}
 	
 	/* _________________________ TOOLBOX ____________________________ */
@@ -685,6 +745,36 @@ public class MultigridSolute
 		return this._stage;
 	}
 
+	/**
+	 * @return Residual ratio of the last V-cycle.
+	 */
+	public double getResidualRatio()
+	{
+		return this._ratio;
+	}
+
+	/**
+	 * \brief Add the result of a solver step to the convergence history.
+	 * 
+	 * @param cycles Number of V-cycles at the finest grid after which this
+	 * solute converged, -1 if it did not converge.
+	 */
+	public void recordCycles(int cycles)
+	{
+		this._cycleHistory.add(cycles);
+		if ( this._cycleHistory.size() > HISTORY_LENGTH )
+			this._cycleHistory.removeFirst();
+	}
+
+	/**
+	 * @return Number of V-cycles required to converge in the most recent
+	 * solver steps, oldest first, -1 for steps that did not converge.
+	 */
+	public List<Integer> getCycleHistory()
+	{
+		return this._cycleHistory;
+	}
+
 	/**
 	 * 
 	 * @param value
@@ -715,9 +805,9 @@ public class MultigridSolute
 		int maxJ = _conc[order].getGridSizeJ();
 		int maxK = _conc[order].getGridSizeK();
 		
-		for (_i = 1; _i <= maxI; _i++)
-			for (_j = 1; _j <= maxJ; _j++) 
-				for (_k = 1; _k <= maxK; _k++)
+		for (int _i = 1; _i <= maxI; _i++)
+			for (int _j = 1; _j <= maxJ; _j++) 
+				for (int _k = 1; _k <= maxK; _k++)
 				{
 					if (_bLayer[order].grid[_i][_j][_k] <= BLTHRESH)
 					{
@@ -738,9 +828,9 @@ public class MultigridSolute
 		int maxJ = _conc[order].getGridSizeJ();
 		int maxK = _conc[order].getGridSizeK();
 
-		for (_i = 1; _i <= maxI; _i++)
-			for (_j = 1; _j <= maxJ; _j++)
-				for (_k = 1; _k <= maxK; _k++) {
+		for (int _i = 1; _i <= maxI; _i++)
+			for (int _j = 1; _j <= maxJ; _j++)
+				for (int _k = 1; _k <= maxK; _k++) {
 					if (_bLayer[order].grid[_i][_j][_k] <= BLTHRESH) {
 						// outside the boundary layer (will not be solved)
 						_conc[order].grid[_i][_j][_k] = sBulk;
@@ -203,6 +203,45 @@ public abstract class MultigridUtils {
 		coarseGrid.refreshBoundary();
 	}
 	
+	/**
+	 * \brief Restriction as {@link #restrictBoundaryLayer(SoluteGrid,
+	 * SoluteGrid, double[][][])}, only visiting the given voxels of the
+	 * coarse grid.
+	 * 
+	 * @param active Voxels of the coarse grid inside the boundary layer, see
+	 * {@link ActiveVoxels}.
+	 */
+	public static void restrictBoundaryLayer(SoluteGrid fineGrid, SoluteGrid coarseGrid,
+	        int[] active)
+	{
+		double[][][] uc = coarseGrid.grid;
+		double[][][] u = fineGrid.grid;
+		
+		int nK = uc[0][0].length-2;
+		
+		int i, j, k; // indexes for fine grid
+		int ic, jc, kc; // indexes for coarse grid
+		
+		// implements 2D and 3D
+		float nfac = (nK==1 ? 1.0f/8.0f : 1.0f/12.0f); // pre-compute
+		
+		for (int v = 0; v < active.length; v += 3)
+		{
+			ic = active[v];
+			jc = active[v+1];
+			kc = active[v+2];
+			i = 2*ic - 1;
+			j = 2*jc - 1;
+			k = 2*kc - 1;
+			// special case for 2D (when lc = 1)
+			uc[ic][jc][kc] = u[i+1][j][k]+u[i-1][j][k]+u[i][j+1][k]+u[i][j-1][k];
+			uc[ic][jc][kc] += (nK==1 ? 0.0f : u[i][j][k+1]+u[i][j][k-1]);
+			uc[ic][jc][kc] *= nfac;
+			uc[ic][jc][kc] += 0.5f*u[i][j][k];
+		}
+		coarseGrid.refreshBoundary();
+	}
+	
 	/**
 	 * Interpolates the data in matrix uc to a grid one order finner for cubic
 	 * matrices. Interpolation excludes border points.
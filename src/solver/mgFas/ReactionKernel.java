@@ -0,0 +1,280 @@
+package solver.mgFas;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import agent.Agent;
+import agent.Body;
+import processManager.ProcessMethods;
+import reaction.Reaction;
+import reaction.RegularReaction;
+import reaction.RegularReaction.ReactionType;
+import referenceLibrary.AspectRef;
+import referenceLibrary.XmlRef;
+import shape.Shape;
+
+/**
+ * \brief The volume reactions of all agents, resolved for a single multigrid
+ * order.
+ *
+ * <p>Agents do not move, grow or change their reactions while the PDE solver
+ * runs, so filtering the reactions of every agent, collecting its mass,
+ * locating its voxel and looking up solute grids by name is done once when
+ * the kernel is compiled. Applying the kernel on a relaxation sweep only
+ * reads the local concentrations, evaluates the kinetics and adds the
+ * production rates to the reaction grids.</p>
+ *
+ * <p>In aggregation mode agents that share a voxel and a reaction (the same
+ * reaction object, as defined by their species) are merged into a single
+ * entry, their masses are summed and the kinetics are evaluated once for the
+ * group. The reaction cost then scales with the number of voxels and species
+ * rather than the number of agents. This is only exact for reaction rates
+ * that are proportional to the agent mass, such as the common mass times
+ * Monod term kinetics.</p>
+ *
+ * <p>Epithelial agents do not contribute volume reactions to the grid, their
+ * transfer reactions are handled separately, see {@link #transferAgents()}.
+ * </p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ReactionKernel
+{
+	private static final String EPITHELIAL = AspectRef.isEpithelial;
+
+	/**
+	 * Reaction, padded voxel coordinates and concentrations of every
+	 * (agent, reaction) pair. Concentrations are stored in the order of the
+	 * constituent names of the reaction, shared by all entries of the same
+	 * reaction, and are pre-filled with the values that do not depend on the
+	 * solute grids.
+	 */
+	private Reaction[] _reaction;
+
+	private int[][] _voxel;
+
+	private String[][] _names;
+
+	private double[][] _concns;
+
+	/**
+	 * Kinetic variables read from the solute grids: their position in the
+	 * concentrations array and the index of the solute in the multigrid
+	 * solute array.
+	 */
+	private int[][] _variable;
+
+	private int[][] _variableGrid;
+
+	/**
+	 * Products with the index of their solute in the multigrid solute array.
+	 */
+	private String[][] _product;
+
+	private int[][] _productGrid;
+
+	/**
+	 * Production rates of the current reaction.
+	 */
+	private double[] _rates;
+
+	/**
+	 * Agents with transfer reactions.
+	 */
+	private Agent[] _transfer;
+
+	/**
+	 * \brief Compile the reactions of the given agents.
+	 *
+	 * @param agents All agents in the compartment.
+	 * @param shape Shape of the compartment.
+	 * @param sols Multigrid solutes.
+	 * @param resolution Grid resolution of the multigrid order.
+	 * @param voxelVolume Voxel volume of the multigrid order.
+	 * @param aggregate Merge agents sharing a voxel and reaction.
+	 */
+	public ReactionKernel(Collection<Agent> agents, Shape shape,
+			MultigridSolute[] sols, double[] resolution, double voxelVolume,
+			boolean aggregate)
+	{
+		List<Reaction> reactions = new ArrayList<Reaction>();
+		List<int[]> voxels = new ArrayList<int[]>();
+		List<String[]> names = new ArrayList<String[]>();
+		List<double[]> concentrations = new ArrayList<double[]>();
+		List<int[]> variables = new ArrayList<int[]>();
+		List<int[]> variableGrids = new ArrayList<int[]>();
+		List<String[]> products = new ArrayList<String[]>();
+		List<int[]> productGrids = new ArrayList<int[]>();
+		List<Agent> transfer = new ArrayList<Agent>();
+		Map<List<Object>,Integer> groups = new HashMap<List<Object>,Integer>();
+		Map<Reaction,String[]> constituents = new HashMap<Reaction,String[]>();
+		int maxProducts = 0;
+		double perVolume = 1.0 / voxelVolume;
+
+		for ( Agent agent : agents )
+		{
+			@SuppressWarnings("unchecked")
+			List<Reaction> agentReactions =
+					(List<Reaction>) agent.getValue(XmlRef.reactions);
+			if ( agentReactions == null )
+				continue;
+			List<Reaction> volumeReactions = new ArrayList<Reaction>();
+			for ( Reaction r : agentReactions )
+			{
+				if ( ! ( r instanceof RegularReaction ) ||
+						((RegularReaction) r).getType() == ReactionType.VOLUME )
+					volumeReactions.add(r);
+				else if ( ((RegularReaction) r).getType() ==
+						ReactionType.TRANSFER && ! transfer.contains(agent) )
+					transfer.add(agent);
+			}
+			if ( volumeReactions.isEmpty() || ( agent.getBoolean(EPITHELIAL)
+					!= null && agent.getBoolean(EPITHELIAL) ) )
+				continue;
+
+			double[] center =
+					((Body) agent.get(AspectRef.agentBody)).getCenter(shape);
+			int[] coord = shape.getCoords(center, null, resolution);
+			int[] voxel = new int[] { coord[0]+1, coord[1]+1, coord[2]+1 };
+			Map<String,Double> biomass = ProcessMethods.getAgentMassMap(agent);
+
+			for ( Reaction r : volumeReactions )
+			{
+				String[] name = constituents.get(r);
+				if ( name == null )
+				{
+					name = r.getConstituentNames().toArray(new String[0]);
+					constituents.put(r, name);
+				}
+				double[] concns = new double[name.length];
+				List<Integer> variable = new ArrayList<Integer>();
+				List<Integer> variableGrid = new ArrayList<Integer>();
+				for ( int i = 0; i < name.length; i++ )
+				{
+					int grid = findGrid(sols, name[i]);
+					if ( grid >= 0 )
+					{
+						variable.add(i);
+						variableGrid.add(grid);
+					}
+					else if ( biomass.containsKey(name[i]) )
+						concns[i] = biomass.get(name[i]) * perVolume;
+					/* Check if the agent has other mass-like aspects
+					 * (e.g. EPS). */
+					else if ( agent.isAspect(name[i]) )
+						concns[i] = agent.getDouble(name[i]) * perVolume;
+				}
+				List<String> product = new ArrayList<String>();
+				List<Integer> productGrid = new ArrayList<Integer>();
+				for ( String productName : r.getReactantNames() )
+				{
+					int grid = findGrid(sols, productName);
+					if ( grid >= 0 )
+					{
+						product.add(productName);
+						productGrid.add(grid);
+					}
+				}
+				if ( product.isEmpty() )
+					continue;
+				if ( aggregate )
+				{
+					List<Object> key = Arrays.asList( r, voxel[0], voxel[1],
+							voxel[2] );
+					Integer group = groups.get(key);
+					if ( group != null )
+					{
+						/*
+						 * sum the agent masses, grid variables are zero
+						 * until they are read from the grids
+						 */
+						double[] sum = concentrations.get(group);
+						for ( int i = 0; i < sum.length; i++ )
+							sum[i] += concns[i];
+						continue;
+					}
+					groups.put(key, reactions.size());
+				}
+				reactions.add(r);
+				voxels.add(voxel);
+				names.add(name);
+				concentrations.add(concns);
+				variables.add( toArray(variable) );
+				variableGrids.add( toArray(variableGrid) );
+				products.add( product.toArray(new String[product.size()]) );
+				productGrids.add( toArray(productGrid) );
+				maxProducts = Math.max(maxProducts, product.size());
+			}
+		}
+		this._reaction = reactions.toArray(new Reaction[reactions.size()]);
+		this._voxel = voxels.toArray(new int[voxels.size()][]);
+		this._names = names.toArray(new String[names.size()][]);
+		this._concns = concentrations.toArray(new double[names.size()][]);
+		this._variable = variables.toArray(new int[variables.size()][]);
+		this._variableGrid = variableGrids.toArray(new int[variables.size()][]);
+		this._product = products.toArray(new String[products.size()][]);
+		this._productGrid = productGrids.toArray(new int[products.size()][]);
+		this._rates = new double[maxProducts];
+		this._transfer = transfer.toArray(new Agent[transfer.size()]);
+	}
+
+	/**
+	 * \brief Add the production rates of all reactions to the reaction grids
+	 * of the solutes.
+	 *
+	 * @param sols Multigrid solutes, as used for compilation.
+	 * @param resorder Multigrid order this kernel was compiled for.
+	 */
+	public void apply(MultigridSolute[] sols, int resorder)
+	{
+		int[] v, grids;
+		double[] concns;
+		for ( int e = 0; e < this._reaction.length; e++ )
+		{
+			v = this._voxel[e];
+			concns = this._concns[e];
+			grids = this._variableGrid[e];
+			for ( int c = 0; c < grids.length; c++ )
+				concns[this._variable[e][c]] =
+						sols[grids[c]]._conc[resorder].grid[v[0]][v[1]][v[2]];
+			this._reaction[e].getProductionRates( this._names[e], concns,
+					this._product[e], this._rates );
+			grids = this._productGrid[e];
+			for ( int p = 0; p < grids.length; p++ )
+				sols[grids[p]]._reac[resorder].grid[v[0]][v[1]][v[2]] +=
+						this._rates[p];
+		}
+	}
+
+	/**
+	 * @return All agents with transfer reactions.
+	 */
+	public Agent[] transferAgents()
+	{
+		return this._transfer;
+	}
+
+	/**
+	 * @return index of the solute with the given name, -1 if there is no
+	 * such solute.
+	 */
+	private static int findGrid(MultigridSolute[] sols, String name)
+	{
+		for ( int i = 0; i < sols.length; i++ )
+			if ( sols[i].soluteName.equals(name) )
+				return i;
+		return -1;
+	}
+
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] out = new int[list.size()];
+		for ( int i = 0; i < out.length; i++ )
+			out[i] = list.get(i);
+		return out;
+	}
+}
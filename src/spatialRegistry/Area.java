@@ -139,6 +139,41 @@ public class Area implements Predicate<Area> {
 		}
 	}
 
+	/**
+	 * \brief returns true if the areas given by their (unwrapped) lower and
+	 * higher corners are within the given distance of each other in every
+	 * dimension, periodic dimensions are also compared with the second area
+	 * shifted by the domain length.
+	 * 
+	 * @param aLow
+	 * @param aHigh
+	 * @param bLow
+	 * @param bHigh
+	 * @param distance
+	 * @param periodic
+	 * @param lengths domain length of every dimension.
+	 * @return
+	 */
+	public static boolean near(double[] aLow, double[] aHigh, double[] bLow,
+			double[] bHigh, double distance, boolean[] periodic, 
+			double[] lengths)
+	{
+		double gap;
+		for (int i = 0; i < aLow.length; i++)
+		{
+			gap = Math.max( bLow[i] - aHigh[i], aLow[i] - bHigh[i] );
+			if ( periodic[i] && gap > distance )
+				gap = Math.min( 
+						Math.max( bLow[i] + lengths[i] - aHigh[i], 
+								aLow[i] - bHigh[i] - lengths[i] ),
+						Math.max( bLow[i] - lengths[i] - aHigh[i], 
+								aLow[i] - bHigh[i] + lengths[i] ) );
+			if ( gap > distance )
+				return false;
+		}
+		return true;
+	}
+
 	public double[] getLow() {
 		return low;
 	}
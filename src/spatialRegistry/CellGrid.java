@@ -0,0 +1,504 @@
+package spatialRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import linearAlgebra.Vector;
+import surface.BoundingBox;
+
+/**
+ * \brief: uniform cell list {@link SpatialRegistry}, the domain is divided in
+ * equally sized cells and every entry is registered in each cell its
+ * bounding box overlaps with.
+ *
+ * <p>Intended for (near) monodisperse systems where the cell length is chosen
+ * close to the interaction range, insertion and search are then O(1). Cells
+ * hold the index of the registered entries in primitive buckets, the bounding
+ * boxes of all entries are stored in packed arrays.</p>
+ *
+ * <p>Bounding boxes are stored unwrapped, periodic dimensions are handled on
+ * search such that results match {@link
+ * spatialRegistry.splitTree.SplitTree#search(Area)}. Entries
+ * outside the domain in a non-periodic dimension are registered in the edge
+ * cells.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class CellGrid<T> implements SpatialRegistry<T>
+{
+	/**
+	 * Initial capacity of a single cell bucket.
+	 */
+	private static final int BUCKET = 4;
+
+	private final int _nDim;
+
+	private final double[] _low;
+
+	private final double[] _lengths;
+
+	private final boolean[] _periodic;
+
+	/**
+	 * Number of cells and cell length per dimension.
+	 */
+	private final int[] _cells;
+
+	private final double[] _cellLength;
+
+	/**
+	 * Entry indices per cell and the number of entries in each cell.
+	 */
+	private int[][] _buckets;
+
+	private int[] _counts;
+
+	/**
+	 * Registered objects and their (inflated, unwrapped) bounding boxes,
+	 * packed as entry index * nDim + dimension.
+	 */
+	private Object[] _entries = new Object[64];
+
+	private double[] _entryLow;
+
+	private double[] _entryHigh;
+
+	/**
+	 * Number of entry slots in use and the slots freed by removal.
+	 */
+	private int _size = 0;
+
+	private int[] _free = new int[16];
+
+	private int _nFree = 0;
+
+	/**
+	 * First slot of the object each slot belongs to, and per slot marks and
+	 * object indices used to report every pair once in
+	 * {@link #pairs(double, PairBuffer)}.
+	 */
+	private int[] _owner = new int[64];
+
+	private int[] _mark = new int[64];
+
+	private int[] _index = new int[64];
+
+	/**
+	 * Entry indices registered per object.
+	 */
+	private Map<T, int[]> _registered = new HashMap<T, int[]>();
+
+	/**
+	 * Margin by which entries are inflated upon insertion, allowing entries
+	 * to move within this margin without being re-inserted on update.
+	 */
+	private double _margin = 0.0;
+
+	/**
+	 * \brief Construct a cell grid covering the domain given by its lower and
+	 * higher corner, with cells of (approximately) the given length.
+	 *
+	 * @param low
+	 * @param high
+	 * @param periodic
+	 * @param cellLength
+	 */
+	public CellGrid(double[] low, double[] high, boolean[] periodic,
+			double cellLength)
+	{
+		this._nDim = low.length;
+		this._low = Vector.copy(low);
+		this._lengths = Vector.minus(high, low);
+		this._periodic = Vector.copy(periodic);
+		this._cells = new int[this._nDim];
+		this._cellLength = new double[this._nDim];
+		int total = 1;
+		for ( int i = 0; i < this._nDim; i++ )
+		{
+			this._cells[i] = Math.max( 1,
+					(int) Math.floor( this._lengths[i] / cellLength ) );
+			this._cellLength[i] = this._lengths[i] / this._cells[i];
+			total *= this._cells[i];
+		}
+		this._buckets = new int[total][];
+		this._counts = new int[total];
+		this._entryLow = new double[this._entries.length * this._nDim];
+		this._entryHigh = new double[this._entries.length * this._nDim];
+	}
+
+	/* *************************************************************************
+	 * SpatialRegistry implementation
+	 * ************************************************************************/
+
+	@Override
+	public List<T> search(double[] low, double[] high)
+	{
+		LinkedHashSet<T> out = new LinkedHashSet<T>();
+		this.find(out, low, high);
+		return new ArrayList<T>( out );
+	}
+
+	@Override
+	public List<T> search(Area area)
+	{
+		return this.search(area.getLow(), area.getHigh());
+	}
+
+	@Override
+	public List<T> search(List<BoundingBox> boundingBoxes)
+	{
+		LinkedHashSet<T> out = new LinkedHashSet<T>();
+		for ( BoundingBox b : boundingBoxes )
+			this.find(out, b.getLow(), b.getHigh());
+		return new ArrayList<T>( out );
+	}
+
+	@Override
+	public void insert(double[] low, double[] high, T entry)
+	{
+		int slot = this.slot();
+		int p = slot * this._nDim;
+		for ( int i = 0; i < this._nDim; i++ )
+		{
+			this._entryLow[p+i] = low[i] - this._margin;
+			this._entryHigh[p+i] = high[i] + this._margin;
+		}
+		this._entries[slot] = entry;
+
+		int[] from = new int[this._nDim];
+		int[] to = new int[this._nDim];
+		this.cellRange(this._entryLow, this._entryHigh, p, 0.0, from, to);
+		int[] c = Vector.copy(from);
+		do {
+			this.addToCell(this.cellIndex(c), slot);
+		} while ( this.next(c, from, to) );
+
+		int[] registered = this._registered.get(entry);
+		if ( registered == null )
+		{
+			registered = new int[] { slot };
+			this._owner[slot] = slot;
+		}
+		else
+		{
+			registered = Arrays.copyOf(registered, registered.length + 1);
+			registered[registered.length - 1] = slot;
+			this._owner[slot] = registered[0];
+		}
+		this._registered.put(entry, registered);
+	}
+
+	@Override
+	public void insert(BoundingBox boundingBox, T entry)
+	{
+		this.insert(boundingBox.getLow(), boundingBox.getHigh(), entry);
+	}
+
+	@Override
+	public boolean delete(T entry)
+	{
+		int[] registered = this._registered.remove(entry);
+		if ( registered == null )
+			return false;
+		for ( int slot : registered )
+			this.remove(slot);
+		return true;
+	}
+
+	@Override
+	public void clear()
+	{
+		Arrays.fill(this._counts, 0);
+		Arrays.fill(this._entries, 0, this._size, null);
+		this._size = 0;
+		this._nFree = 0;
+		this._registered.clear();
+	}
+
+	/**
+	 * \brief set the margin by which new entries are inflated.
+	 */
+	@Override
+	public void setMargin(double margin)
+	{
+		this._margin = margin;
+	}
+
+	/**
+	 * \brief Update the registered areas of a moved object, the object is
+	 * only removed and re-inserted if one of the new bounding boxes is no
+	 * longer enclosed by the (inflated) area it was registered with.
+	 */
+	@Override
+	public boolean update(List<BoundingBox> boundingBoxes, T entry)
+	{
+		int[] registered = this._registered.get(entry);
+		if ( registered == null || registered.length != boundingBoxes.size() )
+			return false;
+		int i = 0;
+		boolean moved = false;
+		for ( BoundingBox b : boundingBoxes )
+			if ( ! this.encloses(registered[i++], b.getLow(), b.getHigh()) )
+			{
+				moved = true;
+				break;
+			}
+		if ( moved )
+		{
+			this.delete(entry);
+			for ( BoundingBox b : boundingBoxes )
+				this.insert(b, entry);
+		}
+		return true;
+	}
+
+	/**
+	 * \brief Find all pairs of objects within the given distance. Objects are
+	 * processed in slot order, every object visits the cells covered by its
+	 * areas extended by the distance and reports all objects that have not
+	 * been processed yet. Slot marks prevent reporting an object twice when
+	 * it is registered in multiple visited cells or with multiple areas.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean pairs(double distance, PairBuffer<T> out)
+	{
+		out.clear();
+		final int done = -1;
+		Arrays.fill(this._mark, 0, this._size, 0);
+		for ( int s = 0; s < this._size; s++ )
+			if ( this._entries[s] != null && this._owner[s] == s )
+				this._index[s] = out.addObject( (T) this._entries[s] );
+		int[] from = new int[this._nDim];
+		int[] to = new int[this._nDim];
+		int[] c = new int[this._nDim];
+		int cell, other;
+		for ( int s = 0; s < this._size; s++ )
+		{
+			if ( this._entries[s] == null || this._owner[s] != s )
+				continue;
+			T entry = (T) this._entries[s];
+			/* owner slots are used as (positive) stamp of the current object */
+			int stamp = s + 1;
+			int[] registered = this._registered.get(entry);
+			for ( int slot : registered )
+			{
+				int p = slot * this._nDim;
+				this.cellRange(this._entryLow, this._entryHigh, p, distance,
+						from, to);
+				System.arraycopy(from, 0, c, 0, this._nDim);
+				do {
+					cell = this.cellIndex(c);
+					for ( int k = 0; k < this._counts[cell]; k++ )
+					{
+						other = this._buckets[cell][k];
+						int owner = this._owner[other];
+						if ( owner == s || this._mark[owner] == done || 
+								this._mark[owner] == stamp )
+							continue;
+						if ( this.overlaps(other, this._entryLow, 
+								this._entryHigh, p, distance) )
+						{
+							this._mark[owner] = stamp;
+							out.addPair(this._index[s], this._index[owner]);
+						}
+					}
+				} while ( this.next(c, from, to) );
+			}
+			this._mark[s] = done;
+		}
+		return true;
+	}
+
+	/* *************************************************************************
+	 * Helper methods
+	 * ************************************************************************/
+
+	/**
+	 * \brief add all entries overlapping with the given area to out.
+	 */
+	@SuppressWarnings("unchecked")
+	private void find(LinkedHashSet<T> out, double[] low, double[] high)
+	{
+		int[] from = new int[this._nDim];
+		int[] to = new int[this._nDim];
+		this.cellRange(low, high, 0, 0.0, from, to);
+		int[] c = Vector.copy(from);
+		int cell, slot;
+		do {
+			cell = this.cellIndex(c);
+			for ( int k = 0; k < this._counts[cell]; k++ )
+			{
+				slot = this._buckets[cell][k];
+				if ( this.overlaps(slot, low, high, 0, 0.0) )
+					out.add( (T) this._entries[slot] );
+			}
+		} while ( this.next(c, from, to) );
+	}
+
+	/**
+	 * \brief obtain the (unwrapped) range of cells covered by the area given
+	 * by the packed lower and higher corner at position p, extended by d.
+	 */
+	private void cellRange(double[] low, double[] high, int p, double d,
+			int[] from, int[] to)
+	{
+		for ( int i = 0; i < this._nDim; i++ )
+		{
+			from[i] = (int) Math.floor(
+					( low[p+i] - d - this._low[i] ) / this._cellLength[i] );
+			to[i] = (int) Math.floor(
+					( high[p+i] + d - this._low[i] ) / this._cellLength[i] );
+			if ( this._periodic[i] )
+			{
+				/* cover each cell at most once */
+				if ( to[i] - from[i] >= this._cells[i] )
+				{
+					from[i] = 0;
+					to[i] = this._cells[i] - 1;
+				}
+			}
+			else
+			{
+				from[i] = Math.min( Math.max( from[i], 0 ), this._cells[i] - 1 );
+				to[i] = Math.min( Math.max( to[i], 0 ), this._cells[i] - 1 );
+			}
+		}
+	}
+
+	/**
+	 * \brief step to the next cell in the range, returns false when done.
+	 */
+	private boolean next(int[] c, int[] from, int[] to)
+	{
+		for ( int i = 0; i < this._nDim; i++ )
+		{
+			if ( c[i] < to[i] )
+			{
+				c[i]++;
+				return true;
+			}
+			c[i] = from[i];
+		}
+		return false;
+	}
+
+	/**
+	 * \brief index of the (wrapped) cell.
+	 */
+	private int cellIndex(int[] c)
+	{
+		int out = 0;
+		int n;
+		for ( int i = this._nDim - 1; i >= 0; i-- )
+		{
+			n = c[i] % this._cells[i];
+			if ( n < 0 )
+				n += this._cells[i];
+			out = out * this._cells[i] + n;
+		}
+		return out;
+	}
+
+	/**
+	 * \brief true if the entry in the given slot overlaps with the area given
+	 * by the packed lower and higher corner at position q extended by d,
+	 * considering periodic dimensions.
+	 */
+	private boolean overlaps(int slot, double[] low, double[] high, int q,
+			double d)
+	{
+		int p = slot * this._nDim;
+		double l, h, lo, hi, shift;
+		for ( int i = 0; i < this._nDim; i++ )
+		{
+			l = this._entryLow[p+i];
+			h = this._entryHigh[p+i];
+			lo = low[q+i] - d;
+			hi = high[q+i] + d;
+			if ( l <= hi && h >= lo )
+				continue;
+			if ( ! this._periodic[i] )
+				return false;
+			shift = this._lengths[i] * Math.floor( ( lo - l ) / this._lengths[i] );
+			if ( ! ( ( l + shift <= hi && h + shift >= lo ) ||
+					( l + shift + this._lengths[i] <= hi &&
+					h + shift + this._lengths[i] >= lo ) ) )
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * \brief true if the registered area of the slot encloses the given area.
+	 */
+	private boolean encloses(int slot, double[] low, double[] high)
+	{
+		int p = slot * this._nDim;
+		for ( int i = 0; i < this._nDim; i++ )
+			if ( low[i] < this._entryLow[p+i] || high[i] > this._entryHigh[p+i] )
+				return false;
+		return true;
+	}
+
+	/**
+	 * \brief obtain a free entry slot, growing the entry arrays if required.
+	 */
+	private int slot()
+	{
+		if ( this._nFree > 0 )
+			return this._free[--this._nFree];
+		if ( this._size == this._entries.length )
+		{
+			int length = 2 * this._entries.length;
+			this._entries = Arrays.copyOf(this._entries, length);
+			this._owner = Arrays.copyOf(this._owner, length);
+			this._mark = Arrays.copyOf(this._mark, length);
+			this._index = Arrays.copyOf(this._index, length);
+			this._entryLow = Arrays.copyOf(this._entryLow, length * this._nDim);
+			this._entryHigh = Arrays.copyOf(this._entryHigh, length * this._nDim);
+		}
+		return this._size++;
+	}
+
+	/**
+	 * \brief remove the slot from all cells it is registered in and free it.
+	 */
+	private void remove(int slot)
+	{
+		int[] from = new int[this._nDim];
+		int[] to = new int[this._nDim];
+		this.cellRange(this._entryLow, this._entryHigh, slot * this._nDim,
+				0.0, from, to);
+		int[] c = Vector.copy(from);
+		int cell;
+		do {
+			cell = this.cellIndex(c);
+			for ( int k = 0; k < this._counts[cell]; k++ )
+				if ( this._buckets[cell][k] == slot )
+				{
+					this._buckets[cell][k] =
+							this._buckets[cell][--this._counts[cell]];
+					break;
+				}
+		} while ( this.next(c, from, to) );
+		this._entries[slot] = null;
+		if ( this._nFree == this._free.length )
+			this._free = Arrays.copyOf(this._free, 2 * this._nFree);
+		this._free[this._nFree++] = slot;
+	}
+
+	private void addToCell(int cell, int slot)
+	{
+		if ( this._buckets[cell] == null )
+			this._buckets[cell] = new int[BUCKET];
+		else if ( this._counts[cell] == this._buckets[cell].length )
+			this._buckets[cell] = Arrays.copyOf(this._buckets[cell],
+					2 * this._counts[cell]);
+		this._buckets[cell][this._counts[cell]++] = slot;
+	}
+}
@@ -16,11 +16,76 @@ public class Entry<T> extends Area
 	
 	private T entry;
 	
+	/**
+	 * Lower and higher corner of the registered area before periodic
+	 * wrapping, used to quickly test whether a moved object still fits.
+	 */
+	private double[] _outerLow;
+	
+	private double[] _outerHigh;
+	
+	/**
+	 * Index of the object in the buffer of the last self-join, see
+	 * {@link SplitTree#pairs(double, spatialRegistry.PairBuffer)}.
+	 */
+	private int _index;
+	
 	public Entry(double[] low, double[] high, boolean[] periodic, T entry)
 	{
 		super(low, high, Vector.copy(periodic));
 		this.setEntry(entry);
 	}
+	
+	public Entry(double[] low, double[] high, boolean[] periodic, T entry,
+			double[] outerLow, double[] outerHigh)
+	{
+		this(low, high, periodic, entry);
+		this._outerLow = outerLow;
+		this._outerHigh = outerHigh;
+	}
+	
+	/**
+	 * \brief returns true if the area defined by the given (unwrapped) lower
+	 * and higher corner falls entirely within the registered area of this
+	 * entry.
+	 * 
+	 * @param low
+	 * @param high
+	 * @return
+	 */
+	public boolean encloses(double[] low, double[] high)
+	{
+		if ( this._outerLow == null )
+			return false;
+		for (int i = 0; i < low.length; i++)
+			if ( low[i] < this._outerLow[i] || high[i] > this._outerHigh[i] )
+				return false;
+		return true;
+	}
+
+	/**
+	 * @return lower corner of the registered area before periodic wrapping
+	 * (null if unknown).
+	 */
+	public double[] getOuterLow() {
+		return this._outerLow;
+	}
+	
+	/**
+	 * @return higher corner of the registered area before periodic wrapping
+	 * (null if unknown).
+	 */
+	public double[] getOuterHigh() {
+		return this._outerHigh;
+	}
+
+	public int getIndex() {
+		return this._index;
+	}
+
+	public void setIndex(int index) {
+		this._index = index;
+	}
 
 	public T getEntry() {
 		return entry;
@@ -0,0 +1,150 @@
+package spatialRegistry;
+
+import java.util.Arrays;
+
+/**
+ * \brief Reusable buffer holding pairs of entries, used to collect the result
+ * of a {@link SpatialRegistry#pairs(double, PairBuffer)} self-join.
+ *
+ * <p>Every object taking part in the join is stored once and is identified by
+ * its index in this buffer, pairs are stored as two primitive arrays of
+ * object indices. Callers can thus keep per object data in plain arrays
+ * indexed the same way. All arrays are only grown (never shrunk) such that a
+ * buffer can be reused for every query without reallocation.</p>
+ *
+ * @param <T>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class PairBuffer<T>
+{
+	private Object[] _objects = new Object[64];
+
+	private int _nObjects = 0;
+
+	/**
+	 * Object indices of the first and second member of every pair.
+	 */
+	private int[] _first = new int[64];
+
+	private int[] _second = new int[64];
+
+	private int _size = 0;
+
+	/**
+	 * Packed pairs, used to remove duplicates.
+	 */
+	private long[] _keys = new long[0];
+
+	/**
+	 * \brief remove all objects and pairs from this buffer.
+	 */
+	public void clear()
+	{
+		Arrays.fill(this._objects, 0, this._nObjects, null);
+		this._nObjects = 0;
+		this._size = 0;
+	}
+
+	/**
+	 * \brief add an object to this buffer, every object should be added only
+	 * once.
+	 *
+	 * @param object
+	 * @return index of the object in this buffer.
+	 */
+	public int addObject(T object)
+	{
+		if ( this._nObjects == this._objects.length )
+			this._objects = Arrays.copyOf(this._objects, 2 * this._nObjects);
+		this._objects[this._nObjects] = object;
+		return this._nObjects++;
+	}
+
+	/**
+	 * \brief add a pair of objects to this buffer.
+	 *
+	 * @param first index of the first object.
+	 * @param second index of the second object.
+	 */
+	public void addPair(int first, int second)
+	{
+		if ( this._size == this._first.length )
+		{
+			this._first = Arrays.copyOf(this._first, 2 * this._size);
+			this._second = Arrays.copyOf(this._second, 2 * this._size);
+		}
+		this._first[this._size] = first;
+		this._second[this._size++] = second;
+	}
+
+	/**
+	 * \brief remove pairs that were added more than once (in any
+	 * orientation). The remaining pairs are ordered by their lowest object
+	 * index, with the lowest index first.
+	 */
+	public void removeDuplicates()
+	{
+		if ( this._keys.length < this._size )
+			this._keys = new long[this._first.length];
+		for ( int k = 0; k < this._size; k++ )
+		{
+			int a = Math.min(this._first[k], this._second[k]);
+			int b = Math.max(this._first[k], this._second[k]);
+			this._keys[k] = ( (long) a << 32 ) | b;
+		}
+		Arrays.sort(this._keys, 0, this._size);
+		int n = 0;
+		for ( int k = 0; k < this._size; k++ )
+			if ( k == 0 || this._keys[k] != this._keys[k-1] )
+			{
+				this._first[n] = (int) ( this._keys[k] >>> 32 );
+				this._second[n++] = (int) this._keys[k];
+			}
+		this._size = n;
+	}
+
+	/**
+	 * @return number of objects in this buffer.
+	 */
+	public int objects()
+	{
+		return this._nObjects;
+	}
+
+	/**
+	 * @param index
+	 * @return the object with the given index.
+	 */
+	@SuppressWarnings("unchecked")
+	public T object(int index)
+	{
+		return (T) this._objects[index];
+	}
+
+	/**
+	 * @return number of pairs in this buffer.
+	 */
+	public int size()
+	{
+		return this._size;
+	}
+
+	/**
+	 * @param pair
+	 * @return index of the first object of the given pair.
+	 */
+	public int first(int pair)
+	{
+		return this._first[pair];
+	}
+
+	/**
+	 * @param pair
+	 * @return index of the second object of the given pair.
+	 */
+	public int second(int pair)
+	{
+		return this._second[pair];
+	}
+}
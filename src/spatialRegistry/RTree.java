@@ -286,6 +286,128 @@ public class RTree<T> implements SpatialRegistry<T>
 		}
 	}
 
+	/**
+	 * \brief Find all pairs of objects within the given distance with a
+	 * dual-tree traversal of the tree with itself. Objects registered with
+	 * several rectangles may be found more than once, duplicates are removed
+	 * afterwards. Periodic dimensions are taken from the shape (if any).
+	 */
+	@Override
+	public boolean pairs(double distance, PairBuffer<T> out)
+	{
+		out.clear();
+		Map<T,Integer> index = new HashMap<T,Integer>();
+		this.index(root, index, out);
+		boolean[] periodic = ( this._shape == null ? new boolean[numDims] :
+				this._shape.getIsCyclicNaturalOrder() );
+		double[] lengths = ( this._shape == null ? new double[numDims] :
+				this._shape.getDimensionLengths() );
+		this.pairs(root, root, distance, periodic, lengths, out);
+		out.removeDuplicates();
+		return true;
+	}
+
+	/**
+	 * \brief add the objects of all entries below node n to the buffer, once
+	 * per object, and store their index with the entries.
+	 */
+	private void index(Node n, Map<T,Integer> index, PairBuffer<T> out)
+	{
+		for (Node c : n.children)
+		{
+			if (n.leaf)
+			{
+				Entry e = (Entry) c;
+				Integer i = index.get(e.entry);
+				if (i == null)
+				{
+					i = out.addObject(e.entry);
+					index.put(e.entry, i);
+				}
+				e.index = i;
+			}
+			else
+			{
+				index(c, index, out);
+			}
+		}
+	}
+
+	/**
+	 * \brief add all pairs of entries below nodes a and b (which may be the
+	 * same node) that are within the given distance of each other, pairs of
+	 * nodes that are further apart are not visited.
+	 */
+	private void pairs(Node a, Node b, double distance, boolean[] periodic,
+			double[] lengths, PairBuffer<T> out)
+	{
+		if (a != b && !isNear(a, b, distance, periodic, lengths))
+			return;
+		if (a.leaf && b.leaf)
+		{
+			int i = 0;
+			for (Node x : a.children)
+			{
+				int j = 0;
+				for (Node y : b.children)
+				{
+					if ((a != b || j > i) && 
+							((Entry) x).index != ((Entry) y).index &&
+							isNear(x, y, distance, periodic, lengths))
+						out.addPair(((Entry) x).index, ((Entry) y).index);
+					j++;
+				}
+				i++;
+			}
+		}
+		else if (a == b)
+		{
+			int i = 0;
+			for (Node x : a.children)
+			{
+				ListIterator<Node> it = a.children.listIterator(i++);
+				while (it.hasNext())
+					pairs(x, it.next(), distance, periodic, lengths, out);
+			}
+		}
+		else if (!a.leaf)
+		{
+			for (Node x : a.children)
+				pairs(x, b, distance, periodic, lengths, out);
+		}
+		else
+		{
+			for (Node y : b.children)
+				pairs(a, y, distance, periodic, lengths, out);
+		}
+	}
+
+	/**
+	 * \brief returns true if the rectangles of nodes a and b are within the
+	 * given distance of each other, in periodic dimensions b is also compared
+	 * shifted by the domain length.
+	 */
+	private boolean isNear(Node a, Node b, double distance, 
+			boolean[] periodic, double[] lengths)
+	{
+		double gap, aHigh, bHigh;
+		for (int i = 0; i < numDims; i++)
+		{
+			aHigh = a.coords[i] + a.dimensions[i];
+			bHigh = b.coords[i] + b.dimensions[i];
+			gap = Math.max(b.coords[i] - aHigh, a.coords[i] - bHigh);
+			if (periodic[i] && gap > distance)
+				gap = Math.min(
+						Math.max(b.coords[i] + lengths[i] - aHigh,
+								a.coords[i] - bHigh - lengths[i]),
+						Math.max(b.coords[i] - lengths[i] - aHigh,
+								a.coords[i] - bHigh + lengths[i]));
+			if (gap > distance)
+				return false;
+		}
+		return true;
+	}
+
 	/**
 	 * added for idynomics 1.0 compatability
 	 * @return returns random entry from tree
@@ -916,6 +1038,11 @@ public class RTree<T> implements SpatialRegistry<T>
 	{
 		final T entry;
 
+		/**
+		 * Index of the object in the buffer of the last self-join.
+		 */
+		int index;
+
 		public Entry(double[] coords, double[] dimensions, T entry)
 		{
 			// an entry isn't actually a leaf (its parent is a leaf)
@@ -60,4 +60,50 @@ public interface SpatialRegistry<T>
 	public abstract boolean delete(T entry);
 	
 	public abstract void clear();
+	
+	/**
+	 * \brief Set the margin by which registered bounding boxes are inflated
+	 * upon insertion, entries that move less than this margin do not have to
+	 * be re-registered on {@link #update(List, Object)}.
+	 * 
+	 * @param margin
+	 */
+	public default void setMargin(double margin)
+	{
+		/* registries without incremental update support ignore the margin */
+	}
+	
+	/**
+	 * \brief Update the registered area of an entry that has been moved or
+	 * resized, only entries that are no longer enclosed by their registered
+	 * (inflated) bounding boxes are removed and re-inserted.
+	 * 
+	 * @param boundingBoxes The current bounding boxes of the entry.
+	 * @param entry
+	 * @return false if this registry does not support incremental updates or
+	 * does not know the entry, the caller should rebuild the registry instead.
+	 */
+	public default boolean update(List<BoundingBox> boundingBoxes, T entry)
+	{
+		return false;
+	}
+	
+	/**
+	 * \brief Find all pairs of registered objects whose registered areas are
+	 * within the given distance of each other (self-join). Every pair is
+	 * written to the buffer exactly once, in arbitrary orientation. Like 
+	 * {@link #search(Area)} the result may contain false positives but no
+	 * false negatives.
+	 * 
+	 * @param distance Additional distance between the registered areas.
+	 * @param out Buffer that receives the objects and pairs (cleared first).
+	 * @return false if this registry does not support self-joins, the buffer
+	 * is then left empty and the caller should search for the neighbours of
+	 * every object instead.
+	 */
+	public default boolean pairs(double distance, PairBuffer<T> out)
+	{
+		out.clear();
+		return false;
+	}
 }
@@ -4,6 +4,8 @@ public enum TreeType {
 
 	RTREE,
 	
-	SPLITTREE;
+	SPLITTREE,
+	
+	CELLGRID;
 	
 }
@@ -3,10 +3,12 @@ package spatialRegistry.splitTree;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import idynomics.Global;
 import spatialRegistry.Area;
 import spatialRegistry.Entry;
+import spatialRegistry.PairBuffer;
 
 /**
  * \brief: The {@link Node} object is the structural element that forms the
@@ -25,6 +27,13 @@ public class Node<T> extends Area
 	private final ArrayList<Node<T>> _nodes;
 	private final boolean _atomic;
 	private final SplitTree<T> _tree;
+	
+	/**
+	 * Entries anchored in this leaf node and the number of entries anchored
+	 * in this node and its child nodes, only set during a self-join.
+	 */
+	private List<Entry<T>> _anchored;
+	private int _anchors = 0;
 
 	/**
 	 * Constructor
@@ -41,12 +50,13 @@ public class Node<T> extends Area
 	}
 	
 	/**
-	 * find all T that hit Area
+	 * find all T that hit Area, entries that span multiple leaf nodes are 
+	 * only added once since out is a set.
 	 * @param out
 	 * @param test
 	 * @return
 	 */
-	public List<T> find(List<T> out, Area test) 
+	public Set<T> find(Set<T> out, Area test) 
 	{
 		if ( ! this.test(test) )
 		{
@@ -57,6 +67,120 @@ public class Node<T> extends Area
 		return out;
 	}
 
+	/**
+	 * \brief: Register an entry as anchored in the leaf node holding the
+	 * given point (normally the entry's lower corner), used by 
+	 * {@link #pairs(Node, double, double, PairBuffer)}.
+	 * @param entry
+	 * @param point should lie within this node.
+	 */
+	void anchor(Entry<T> entry, double[] point)
+	{
+		this._anchors++;
+		if ( this._nodes.isEmpty() )
+		{
+			if ( this._anchored == null )
+				this._anchored = new ArrayList<Entry<T>>();
+			this._anchored.add(entry);
+			return;
+		}
+		for ( Node<T> a : this._nodes )
+			if ( a.holds(point, this) )
+			{
+				a.anchor(entry, point);
+				return;
+			}
+	}
+
+	/**
+	 * \brief: Remove all anchored entries, only branches holding anchored
+	 * entries are visited.
+	 */
+	void clearAnchors()
+	{
+		if ( this._anchors == 0 )
+			return;
+		this._anchors = 0;
+		if ( this._anchored != null )
+			this._anchored.clear();
+		for ( Node<T> a : this._nodes )
+			a.clearAnchors();
+	}
+
+	/**
+	 * \brief: returns true if the point lies in this child node of the given
+	 * parent node, child nodes include their higher bound only where it
+	 * coincides with the bound of the parent.
+	 */
+	private boolean holds(double[] point, Node<T> parent)
+	{
+		for ( int i = 0; i < point.length; i++ )
+			if ( point[i] < this.getLow()[i] || ( point[i] >= 
+					this.getHigh()[i] && this.getHigh()[i] < 
+					parent.getHigh()[i] ) )
+				return false;
+		return true;
+	}
+
+	/**
+	 * \brief: Dual-tree traversal, add all pairs of anchored entries from
+	 * this node and the given node (which may be this node itself) whose 
+	 * registered areas are within the given distance of each other.
+	 * 
+	 * <p>Every entry is anchored exactly once, in the leaf holding its lower
+	 * corner, such that an entry spanning many leaf nodes is not compared
+	 * once for every leaf. Anchors of entries within the distance are at most
+	 * the largest entry extent plus the distance apart (reach), node pairs
+	 * further apart and nodes without anchored entries are not visited.</p>
+	 * @param other
+	 * @param reach
+	 * @param distance
+	 * @param out
+	 */
+	void pairs(Node<T> other, double reach, double distance, 
+			PairBuffer<T> out)
+	{
+		if ( this._anchors == 0 || other._anchors == 0 )
+			return;
+		if ( this != other && ! this._tree.near(this.getLow(), this.getHigh(),
+				other.getLow(), other.getHigh(), reach) )
+			return;
+		if ( this._nodes.isEmpty() && other._nodes.isEmpty() )
+		{
+			Entry<T> a, b;
+			for ( int i = 0; i < this._anchored.size(); i++ )
+			{
+				a = this._anchored.get(i);
+				for ( int j = ( this == other ? i + 1 : 0 ); 
+						j < other._anchored.size(); j++ )
+				{
+					b = other._anchored.get(j);
+					if ( a.getIndex() != b.getIndex() && this._tree.near(
+							a.getOuterLow(), a.getOuterHigh(), 
+							b.getOuterLow(), b.getOuterHigh(), distance) )
+						out.addPair(a.getIndex(), b.getIndex());
+				}
+			}
+		}
+		else if ( this == other )
+		{
+			for ( int i = 0; i < this._nodes.size(); i++ )
+				for ( int j = i; j < this._nodes.size(); j++ )
+					this._nodes.get(i).pairs(this._nodes.get(j), reach, 
+							distance, out);
+		}
+		else if ( ! this._nodes.isEmpty() )
+		{
+			for ( Node<T> a : this._nodes )
+				a.pairs(other, reach, distance, out);
+		}
+		else
+		{
+			for ( Node<T> b : other._nodes )
+				this.pairs(b, reach, distance, out);
+		}
+	}
+
 	/**
 	 * \brief: add a new entry
 	 * @param entry
@@ -126,6 +250,25 @@ public class Node<T> extends Area
 		return out;	
 	}
 	
+	/**
+	 * \brief: Remove a specific entry from this node and all child nodes it
+	 * overlaps with, only the branches hit by the entry are visited.
+	 * @param entry
+	 * @return true if the entry was found and removed at least once.
+	 */
+	public boolean discard(Entry<T> entry)
+	{
+		boolean out = false;
+		if ( ! this.test(entry) )
+		{
+			if ( this._nodes.isEmpty() )
+				return this.remove(entry);
+			for ( Node<T> a : this._nodes )
+				out = a.discard(entry) || out;
+		}
+		return out;
+	}
+	
 	/**
 	 * \brief: amount of locally stored entries (excluding child nodes)
 	 * @return
@@ -137,26 +280,16 @@ public class Node<T> extends Area
 	
 	/**
 	 * \brief: Test locally stored entries against input area and adds them to
-	 * input list on hit.
+	 * input set on hit.
 	 * @param out
 	 * @param test
 	 * @return
 	 */
-	private List<T> collectLocal(List<T> out, Area test)
+	private Set<T> collectLocal(Set<T> out, Area test)
 	{
-		if (out.isEmpty())
-		{
-			for (Entry<T> a : this.getEntries())
-				if ( ! a.test(test) )
-					out.add( a.getEntry() );
-		}
-		else
-		{
-			for (Entry<T> a : this.getEntries())
-				if ( ! out.contains(a.getEntry()) )
-					if ( ! a.test(test) )
-						out.add( a.getEntry() );
-		}
+		for (Entry<T> a : this.getEntries())
+			if ( ! a.test(test) )
+				out.add( a.getEntry() );
 		return out;
 	}
 
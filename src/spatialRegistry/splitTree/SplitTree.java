@@ -1,12 +1,16 @@
 package spatialRegistry.splitTree;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import linearAlgebra.Vector;
 import spatialRegistry.Area;
 import spatialRegistry.Entry;
+import spatialRegistry.PairBuffer;
 import spatialRegistry.SpatialRegistry;
 import surface.BoundingBox;
 
@@ -33,6 +37,25 @@ public class SplitTree<T> implements SpatialRegistry<T>
 	private boolean[] _periodic; 
 	
 	private double[] _lengths;
+	
+	/**
+	 * Margin by which entries are inflated upon insertion, allowing entries
+	 * to move within this margin without being re-inserted on update.
+	 */
+	private double _margin = 0.0;
+	
+	/**
+	 * All tree entries registered per object (in order of registration),
+	 * required for incremental updates and self-joins.
+	 */
+	private Map<T, List<Entry<T>>> _registered = 
+			new LinkedHashMap<T, List<Entry<T>>>();
+	
+	/**
+	 * Set when entries are added directly, see {@link #add(Entry)}, these are
+	 * not registered per object and prevent self-joins.
+	 */
+	private boolean _unregistered = false;
 
 	
 	public SplitTree(int max, 
@@ -55,6 +78,7 @@ public class SplitTree<T> implements SpatialRegistry<T>
 	 */
 	public void add(Entry<T> entry) 
 	{
+		this._unregistered = true;
 		this.node.add(entry);
 	}
 	
@@ -153,8 +177,8 @@ public class SplitTree<T> implements SpatialRegistry<T>
 				}
 			}
 		}
-		LinkedList<T> out = new LinkedList<T>();
-		return node.find(out,new Area(low, high, periodic));
+		LinkedHashSet<T> out = new LinkedHashSet<T>();
+		return new ArrayList<T>( node.find(out,new Area(low, high, periodic)) );
 	}
 
 	/**
@@ -199,8 +223,8 @@ public class SplitTree<T> implements SpatialRegistry<T>
 		}
 		area.setperiodic(periodic);
 
-		LinkedList<T> out = new LinkedList<T>();
-		return node.find(out,area);
+		LinkedHashSet<T> out = new LinkedHashSet<T>();
+		return new ArrayList<T>( node.find(out,area) );
 	}
 	
 	/**
@@ -223,6 +247,13 @@ public class SplitTree<T> implements SpatialRegistry<T>
 	@Override
 	public void insert(double[] low, double[] high, T entry) 
 	{
+		if ( this._margin > 0.0 )
+		{
+			Vector.addEquals(low, - this._margin);
+			Vector.addEquals(high, this._margin);
+		}
+		double[] outerLow = Vector.copy(low);
+		double[] outerHigh = Vector.copy(high);
 		boolean[] periodic = new boolean[low.length];
 		for (int i = 0; i < high.length; i++ )
 		{
@@ -240,7 +271,16 @@ public class SplitTree<T> implements SpatialRegistry<T>
 				}
 			}
 		}
-		this.add(new Entry<T>(low, high, periodic, entry));
+		Entry<T> out = new Entry<T>(low, high, periodic, entry, 
+				outerLow, outerHigh);
+		this.node.add(out);
+		List<Entry<T>> registered = this._registered.get(entry);
+		if ( registered == null )
+		{
+			registered = new ArrayList<Entry<T>>(1);
+			this._registered.put(entry, registered);
+		}
+		registered.add(out);
 	}
 
 	/**
@@ -263,9 +303,108 @@ public class SplitTree<T> implements SpatialRegistry<T>
 	@Override
 	public boolean delete(T entry)
 	{
+		this._registered.remove(entry);
 		return this.node.delete(entry);
 	}
 	
+	/**
+	 * \brief set the margin by which new entries are inflated.
+	 */
+	@Override
+	public void setMargin(double margin)
+	{
+		this._margin = margin;
+	}
+	
+	/**
+	 * \brief Update the tree entries of a moved object, the entries are only
+	 * removed and re-inserted if one of the new bounding boxes is no longer
+	 * enclosed by the (inflated) area it was registered with. Only the
+	 * branches that hold the old entries are visited.
+	 */
+	@Override
+	public boolean update(List<BoundingBox> boundingBoxes, T entry)
+	{
+		List<Entry<T>> registered = this._registered.get(entry);
+		if ( registered == null || registered.size() != boundingBoxes.size() )
+			return false;
+		int i = 0;
+		boolean moved = false;
+		for ( BoundingBox b : boundingBoxes )
+			if ( ! registered.get(i++).encloses(b.getLow(), b.getHigh()) )
+			{
+				moved = true;
+				break;
+			}
+		if ( moved )
+		{
+			for ( Entry<T> e : registered )
+				this.node.discard(e);
+			this._registered.remove(entry);
+			for ( BoundingBox b : boundingBoxes )
+				this.insert(b, entry);
+		}
+		return true;
+	}
+	
+	/**
+	 * \brief Find all pairs of objects within the given distance with a
+	 * dual-tree traversal of the tree with itself, see 
+	 * {@link Node#pairs(Node, double, double, PairBuffer)}. Objects 
+	 * registered with several areas may be found more than once, duplicates
+	 * are removed afterwards.
+	 */
+	@Override
+	public boolean pairs(double distance, PairBuffer<T> out)
+	{
+		out.clear();
+		if ( this._unregistered )
+			return false;
+		double[] low = this.node.getLow();
+		double[] high = this.node.getHigh();
+		double[] point = new double[low.length];
+		double extent = 0.0;
+		for ( Map.Entry<T, List<Entry<T>>> e : this._registered.entrySet() )
+		{
+			int index = out.addObject( e.getKey() );
+			for ( Entry<T> r : e.getValue() )
+			{
+				r.setIndex( index );
+				/* anchor at the lower corner, wrapped or clamped to the 
+				 * domain */
+				for ( int i = 0; i < low.length; i++ )
+				{
+					extent = Math.max( extent, 
+							r.getOuterHigh()[i] - r.getOuterLow()[i] );
+					if ( this._periodic[i] )
+						point[i] = low[i] + ( ( ( r.getOuterLow()[i] - low[i] )
+								% this._lengths[i] ) + this._lengths[i] ) 
+								% this._lengths[i];
+					else
+						point[i] = Math.min( Math.max( 
+								r.getOuterLow()[i], low[i] ), high[i] );
+				}
+				this.node.anchor( r, point );
+			}
+		}
+		this.node.pairs( this.node, extent + distance, distance, out );
+		this.node.clearAnchors();
+		out.removeDuplicates();
+		return true;
+	}
+	
+	/**
+	 * \brief returns true if the given areas (unwrapped lower and higher
+	 * corners) are within the given distance of each other, taking periodic
+	 * dimensions into account.
+	 */
+	boolean near(double[] aLow, double[] aHigh, double[] bLow, double[] bHigh,
+			double distance)
+	{
+		return Area.near( aLow, aHigh, bLow, bHigh, distance, 
+				this._periodic, this._lengths );
+	}
+	
 	/**
 	 * brief: removes all entries from the tree
 	 */
@@ -274,5 +413,7 @@ public class SplitTree<T> implements SpatialRegistry<T>
 		/* Some testing showed that it is faster to let the garbage collector
 		 * handle this and rebuilding than it wiping the tree. */
 		this.node = new Node<T>(node.getLow(), node.getHigh(), this);
+		this._registered.clear();
+		this._unregistered = false;
 	}
 }
@@ -134,12 +134,11 @@ public class BoundingBox extends Area
 	 * STATIC HELPER METHODS
 	 ************************************************************************/
 	
-	/* static calculation vectors, reduce garbage for calculations */
-	protected static double[] sOut = null;
-	protected static double[] sPoint = null;
-	
 	/**
 	 * returns the lower corner of the bounding box
+	 * 
+	 * NOTE local variables rather than static scratch vectors are used here
+	 * since bounding boxes may be constructed from multiple threads.
 	 * @param radius
 	 * @return coordinates of lower corner of bounding box
 	 */
@@ -148,18 +147,19 @@ public class BoundingBox extends Area
 		/*
 		 * First find the lowest position in each dimension.
 		 */
-		sOut = points[0].clone();
+		double[] out = points[0].clone();
+		double[] point;
 		for ( int pointIndex = 1; pointIndex < points.length; pointIndex++ )
 		{
-			sPoint = points[pointIndex];
-			for ( int dim = 0; dim < sOut.length; dim++ )
-				sOut[dim] = Math.min(sOut[dim], sPoint[dim]);
+			point = points[pointIndex];
+			for ( int dim = 0; dim < out.length; dim++ )
+				out[dim] = Math.min(out[dim], point[dim]);
 		}
 		/*
 		 * Subtract the radius from this in each dimension.
 		 */
-		Vector.addEquals(sOut, - radius);
-		return sOut;
+		Vector.addEquals(out, - radius);
+		return out;
 	}
 	
 	/**
@@ -172,18 +172,19 @@ public class BoundingBox extends Area
 		/*
 		 * First find the greatest position in each dimension.
 		 */
-		sOut = points[0].clone();
+		double[] out = points[0].clone();
+		double[] point;
 		for ( int pointIndex = 1; pointIndex < points.length; pointIndex++ )
 		{
-			sPoint = points[pointIndex];
-			for ( int dim = 0; dim < sOut.length; dim++ )
-				sOut[dim] = Math.max(sOut[dim], sPoint[dim]);
+			point = points[pointIndex];
+			for ( int dim = 0; dim < out.length; dim++ )
+				out[dim] = Math.max(out[dim], point[dim]);
 		}
 		/*
 		 * Add the radius to this in each dimension.
 		 */
-		Vector.addEquals(sOut, radius);
-		return sOut;
+		Vector.addEquals(out, radius);
+		return out;
 	}
 	
 	/**
@@ -34,6 +34,12 @@ public class Point implements Copyable, Settable
 	 */
 	private double[] _f;
 
+	/**
+	 * Position of this point in a packed collection of points (for example a
+	 * {@link surface.collision.ForceBuffer}), -1 if not packed.
+	 */
+	private int _index = -1;
+
 	/**
 	 * Used by higher-order ODE solvers.
 	 */
@@ -97,6 +103,20 @@ public class Point implements Copyable, Settable
 		return this._uid;
 	}
 
+	/**
+	 * @return position of this point in a packed collection of points, -1 if
+	 * not set.
+	 */
+	public int index()
+	{
+		return this._index;
+	}
+	
+	public void setIndex(int index)
+	{
+		this._index = index;
+	}
+
 	public int nDim()
 	{
 		return this._p.length;
@@ -107,6 +127,24 @@ public class Point implements Copyable, Settable
 		return Vector.copy(this._p);
 	}
 	
+	/**
+	 * \brief Squared distance from the given position to the position of
+	 * this point, without copying the position.
+	 * 
+	 * @param position Position with the dimensions of this point.
+	 * @return Squared (non-cyclic) distance.
+	 */
+	public double distanceSquare(double[] position)
+	{
+		double d, out = 0.0;
+		for ( int i = 0; i < this._p.length; i++ )
+		{
+			d = this._p[i] - position[i];
+			out += d * d;
+		}
+		return out;
+	}
+	
 	public double[] getPolarPosition()
 	{
 		return Vector.spherify(this._p);
@@ -183,10 +221,20 @@ public class Point implements Copyable, Settable
 		// particle is equal to a diameter of a spherical particle that exhibits 
 		// identical properties (in this case hydrodynamic).
 		// see pdf forces in microbial systems.
-		double[] diff = this.dxdt( radius );
-		diff = this.dxdt( radius );
-		Vector.timesEquals( diff, dt );
-		this.setPosition( Vector.add( this._p, diff ));
+		this.euStepMobility( dt, mobility( radius ) );
+	}
+	
+	/**
+	 * \brief Euler step with a precomputed mobility, see 
+	 * {@link #euStep(double, double)}. The position is updated in place.
+	 * 
+	 * @param dt Current timestep of the mechanical relaxation.
+	 * @param mobility Inverse drag coefficient, see {@link #mobility(double)}.
+	 */
+	public void euStepMobility(double dt, double mobility)
+	{
+		for ( int i = 0; i < this._p.length; i++ )
+			this._p[i] += ( this._f[i] * mobility ) * dt;
 		this.resetForce();
 	}
 
@@ -198,14 +246,25 @@ public class Point implements Copyable, Settable
 	 */
 	public void heun1(double dt, double radius)
 	{
-		double[] diff = this.dxdt( radius );
-		/* Store the old position and velocity. */
-		// TODO consider using copyTo for setting c[0] and c[1]
-		this._c[0] = Vector.copy( this._p );
-		this._c[1] = Vector.copy( diff );
-		/* Move the location and reset the force. */
-		Vector.timesEquals( diff, dt );
-		this.setPosition( Vector.add( this._p, diff ));
+		this.heun1Mobility( dt, mobility( radius ) );
+	}
+	
+	/**
+	 * \brief First stage of Heun's method with a precomputed mobility.
+	 * 
+	 * @param dt Time step to use (in units of second).
+	 * @param mobility Inverse drag coefficient, see {@link #mobility(double)}.
+	 */
+	public void heun1Mobility(double dt, double mobility)
+	{
+		/* Store the old position and velocity, move the location and reset
+		 * the force. */
+		for ( int i = 0; i < this._p.length; i++ )
+		{
+			this._c[0][i] = this._p[i];
+			this._c[1][i] = this._f[i] * mobility;
+			this._p[i] += this._c[1][i] * dt;
+		}
 		this.resetForce();
 	}
 
@@ -216,15 +275,27 @@ public class Point implements Copyable, Settable
 	 * @param radius Radius of a sphere (in units of micrometer).
 	 */
 	public void heun2(double dt, double radius)
+	{
+		this.heun2Mobility( dt, mobility( radius ) );
+	}
+	
+	/**
+	 * \brief Second stage of Heun's method with a precomputed mobility.
+	 * 
+	 * @param dt Time step to use (in units of second).
+	 * @param mobility Inverse drag coefficient, see {@link #mobility(double)}.
+	 */
+	public void heun2Mobility(double dt, double mobility)
 	{
 		/*
 		 * p = c0 + ((dxdt + c1) * dt / 2)
 		 * -> c0 is the old position
 		 * -> c1 is the old velocity
 		 */
-		Vector.addTo( this._p, this.dxdt( radius ), this._c[1] );
-		Vector.timesEquals( this._p, dt * 0.5 );
-		Vector.addEquals( this._p, this._c[0] );
+		double h = dt * 0.5;
+		for ( int i = 0; i < this._p.length; i++ )
+			this._p[i] = ( this._f[i] * mobility + this._c[1][i] ) * h + 
+					this._c[0][i];
 		this.resetForce();
 	}
 
@@ -244,8 +315,36 @@ public class Point implements Copyable, Settable
 	// rather than creating a new vector every time.
 	public double[] dxdt( double radius )
 	{
-		return Vector.times( this.getForce(), 
-				1.0 / Drag.dragOnSphere( radius, VISCOSITY ));
+		return Vector.times( this.getForce(), mobility( radius ) );
+	}
+	
+	/**
+	 * @param mobility Inverse drag coefficient, see {@link #mobility(double)}.
+	 * @return The squared velocity of this point.
+	 */
+	public double speedSquare( double mobility )
+	{
+		double out = 0.0;
+		double v;
+		for ( int i = 0; i < this._f.length; i++ )
+		{
+			v = this._f[i] * mobility;
+			out += v * v;
+		}
+		return out;
+	}
+	
+	/**
+	 * \brief The mobility (inverse drag coefficient) of a point, velocity is
+	 * given by force * mobility.
+	 * 
+	 * @param radius The radius of the sphere-swept volume this point belongs
+	 * to (in units of micrometer).
+	 * @return mobility of the point.
+	 */
+	public static double mobility( double radius )
+	{
+		return 1.0 / Drag.dragOnSphere( radius, VISCOSITY );
 	}
 
 	/**
@@ -0,0 +1,152 @@
+package surface.collision;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import agent.Agent;
+import compartment.AgentContainer;
+import referenceLibrary.AspectRef;
+
+/**
+ * \brief Tracks which agents are active (awake) in mechanical relaxation.
+ *
+ * <p>Agents whose net force stays below the threshold for a number of
+ * consecutive mechanical sub-steps are put to sleep: their mass
+ * points are frozen and they are no longer evaluated as focal agent. Awake
+ * agents still interact with sleeping agents, a sleeping agent is woken as
+ * soon as the force exerted on it exceeds the threshold. Agents that are new
+ * or changed their radius since the previous relaxation step (growth,
+ * division) are woken together with their neighbours.</p>
+ *
+ * <p>Sleeping state is retained between relaxation steps, such that the cost
+ * of relaxation scales with the active part of the system.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class AgentActivity
+{
+	private final String RADIUS = AspectRef.bodyRadius;
+
+	private final String SEARCH_DIST = AspectRef.collisionSearchDistance;
+
+	/**
+	 * Number of consecutive quiet sub-steps before an agent is put to sleep.
+	 */
+	private final int _steps;
+
+	/**
+	 * Squared force threshold, the velocity of a mass point is proportional
+	 * to the net force so this also bounds the velocity of quiet agents.
+	 */
+	private final double _thresholdSquare;
+
+	/**
+	 * Sleeping agents, and the radius of all agents at the previous
+	 * relaxation step.
+	 */
+	private Set<Agent> _asleep = new HashSet<Agent>();
+
+	private Map<Agent, Double> _radius = new HashMap<Agent, Double>();
+
+	/**
+	 * Consecutive quiet sub-steps per agent in the mechanics buffer.
+	 */
+	private int[] _quiet = new int[0];
+
+	public AgentActivity(int steps, double threshold)
+	{
+		this._steps = steps;
+		this._thresholdSquare = threshold * threshold;
+	}
+
+	/**
+	 * \brief Start a new relaxation step, the mechanics buffer should hold
+	 * all agents and the spatial registry of the container should be up to
+	 * date.
+	 *
+	 * @param mechanics
+	 * @param container
+	 */
+	public void start(MechanicsBuffer mechanics, AgentContainer container)
+	{
+		Agent[] agents = mechanics.agents();
+		Map<Agent, Double> radius = new HashMap<Agent, Double>(
+				2 * agents.length );
+		Set<Agent> asleep = new HashSet<Agent>();
+		for ( Agent agent : agents )
+		{
+			radius.put( agent, agent.getDouble(RADIUS) );
+			if ( this._asleep.contains(agent) )
+				asleep.add(agent);
+		}
+		/* Wake agents that are new or changed, and their neighbours */
+		for ( Agent agent : agents )
+		{
+			Double previous = this._radius.get(agent);
+			if ( previous == null || ! previous.equals( radius.get(agent) ) )
+			{
+				asleep.remove(agent);
+				double searchDist = ( agent.isAspect(SEARCH_DIST) ?
+						agent.getDouble(SEARCH_DIST) : 0.0 );
+				asleep.removeAll( container.agentSearch(agent, searchDist) );
+			}
+		}
+		this._asleep = asleep;
+		this._radius = radius;
+		this._quiet = new int[agents.length];
+		for ( int i = 0; i < agents.length; i++ )
+			mechanics.setFrozen( i, asleep.contains( agents[i] ) );
+	}
+
+	/**
+	 * @param agent
+	 * @return true if the agent is currently asleep.
+	 */
+	public boolean isAsleep(Agent agent)
+	{
+		return this._asleep.contains(agent);
+	}
+
+	/**
+	 * @return number of sleeping agents.
+	 */
+	public int asleep()
+	{
+		return this._asleep.size();
+	}
+
+	/**
+	 * \brief Evaluate activity after the forces of a sub-step have been
+	 * calculated: sleeping agents that are pushed are woken and awake agents
+	 * that remained quiet long enough are put to sleep.
+	 *
+	 * @param mechanics
+	 */
+	public void evaluate(MechanicsBuffer mechanics)
+	{
+		Agent[] agents = mechanics.agents();
+		for ( int i = 0; i < agents.length; i++ )
+		{
+			boolean quiet = 
+					mechanics.maxForceSquare(i) < this._thresholdSquare;
+			if ( this._asleep.contains( agents[i] ) )
+			{
+				if ( ! quiet )
+				{
+					this._asleep.remove( agents[i] );
+					this._quiet[i] = 0;
+					mechanics.setFrozen( i, false );
+				}
+			}
+			else if ( ! quiet )
+				this._quiet[i] = 0;
+			else if ( ++this._quiet[i] >= this._steps )
+			{
+				this._asleep.add( agents[i] );
+				mechanics.setFrozen( i, true );
+			}
+		}
+	}
+}
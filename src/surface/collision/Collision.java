@@ -1,5 +1,7 @@
 package surface.collision;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 
 import aspect.AspectInterface;
 import aspect.AspectReg;
@@ -67,6 +69,26 @@ public class Collision
 	 */
 	private final boolean extend = Global.additional_collision_variables;
 	
+	/**
+	 * Optional buffer that receives all forces instead of the mass points,
+	 * used when multiple collision iterators work concurrently.
+	 */
+	private ForceBuffer _buffer = null;
+	/**
+	 * Synchronise aspect events on the involved agents, required when 
+	 * multiple collision iterators work concurrently.
+	 */
+	private boolean _synchronised = false;
+	
+	/**
+	 * Pull force of interaction partners that do not define a pull force
+	 * calculation event, such pull forces do not depend on the partner and
+	 * are only looked up once until {@link #resetPullForces()} is called.
+	 * Partners that do define the event are stored as NaN. Null if pull 
+	 * forces are not cached.
+	 */
+	private Map<AspectInterface, Double> _pullForces = null;
+	
 	/**
 	 * Small value to counteract arithmetic errors.
 	 */
@@ -172,6 +194,41 @@ public class Collision
 		}
 	}
 
+	/**
+	 * \brief direct all forces to the given buffer rather than the mass
+	 * points, set null to apply forces directly.
+	 * 
+	 * @param buffer
+	 */
+	public void setForceBuffer(ForceBuffer buffer)
+	{
+		this._buffer = buffer;
+	}
+	
+	/**
+	 * \brief synchronise pull force events on the agents involved, set when
+	 * this collision iterator is used concurrently with others.
+	 * 
+	 * @param synchronised
+	 */
+	public void setSynchronised(boolean synchronised)
+	{
+		this._synchronised = synchronised;
+	}
+
+	/**
+	 * \brief enable or clear the pull force cache, should be called whenever
+	 * the aspects of the interacting agents may have changed (typically once
+	 * per mechanical relaxation step).
+	 */
+	public void resetPullForces()
+	{
+		if ( this._pullForces == null )
+			this._pullForces = new HashMap<AspectInterface, Double>();
+		else
+			this._pullForces.clear();
+	}
+
 	public void resetOverlap() 	{
 		this._variables.resetOverlap();
 	}
@@ -272,24 +329,8 @@ public class Collision
 		
 		if (!(Helper.isNullOrEmpty(agent) | Helper.isNullOrEmpty(neighbour)))
 		{
-			AspectReg agentReg = agent.reg();
-			AspectReg neighbourReg = neighbour.reg();
-			
-
-			agentReg.doEvent(agent, neighbour, 0.0,
-					AspectRef.collisionPullForceCalculation);
-			neighbourReg.doEvent(neighbour, agent, 0.0,
-					AspectRef.collisionPullForceCalculation);
-			
-			double agentPull = (agent.isAspect(AspectRef.collisionCurrentPullForce) 
-					? agent.getDouble(AspectRef.collisionCurrentPullForce) : 0.0);
-			double neighbourPull = (neighbour.isAspect(AspectRef.
-					collisionCurrentPullForce) ? 
-					neighbour.getDouble(AspectRef.collisionCurrentPullForce) : 0.0);
-			
-			double pullForce = agentPull + neighbourPull;
-			
-			_variables.setPullForce(pullForce);
+			_variables.setPullForce( this.pullForce(agent, neighbour) + 
+					this.pullForce(neighbour, agent) );
 		}
 		
 		//Delete this section? ^^
@@ -304,6 +345,65 @@ public class Collision
 	}
 
 	
+	/**
+	 * \brief Obtain the pull force of the initiator towards the given
+	 * partner, the pull force calculation event is skipped for initiators
+	 * that do not define one if pull forces are cached.
+	 * 
+	 * @param initiator
+	 * @param partner
+	 * @return current pull force of the initiator (0.0 if none).
+	 */
+	private double pullForce(AspectInterface initiator, 
+			AspectInterface partner)
+	{
+		if ( this._pullForces != null )
+		{
+			Double out = this._pullForces.get(initiator);
+			if ( out == null )
+			{
+				out = ( initiator.isAspect(
+						AspectRef.collisionPullForceCalculation) ? Double.NaN :
+						this.currentPullForce(initiator) );
+				this._pullForces.put(initiator, out);
+			}
+			if ( ! out.isNaN() )
+				return out;
+		}
+		if ( this._synchronised )
+		{
+			/* events only write to the initiator, lock one at a time */
+			synchronized (initiator)
+			{
+				return this.pullEvent(initiator, partner);
+			}
+		}
+		return this.pullEvent(initiator, partner);
+	}
+	
+	/**
+	 * \brief Evaluate the pull force calculation event of the initiator with
+	 * the given partner and return the resulting pull force.
+	 * 
+	 * @param initiator
+	 * @param partner
+	 * @return current pull force of the initiator (0.0 if none).
+	 */
+	private double pullEvent(AspectInterface initiator, 
+			AspectInterface partner)
+	{
+		AspectReg reg = initiator.reg();
+		reg.doEvent(initiator, partner, 0.0,
+				AspectRef.collisionPullForceCalculation);
+		return this.currentPullForce(initiator);
+	}
+	
+	private double currentPullForce(AspectInterface initiator)
+	{
+		return (initiator.isAspect(AspectRef.collisionCurrentPullForce) ? 
+				initiator.getDouble(AspectRef.collisionCurrentPullForce) : 0.0);
+	}
+	
 	/**
 	 * \brief Check surface A against all surfaces from collection B.
 	 * 
@@ -337,12 +437,12 @@ public class Collision
 		switch ( surf.type() )
 		{
 		case SPHERE:
-			((Ball) surf)._point.addToForce( force );
+			this.addToForce( ((Ball) surf)._point, force );
 			break;
 		case ROD:
-			((Rod) surf)._points[0].addToForce(
+			this.addToForce( ((Rod) surf)._points[0],
 					Vector.times( force , 1.0 - intersect ) );
-			((Rod) surf)._points[1].addToForce(
+			this.addToForce( ((Rod) surf)._points[1],
 					Vector.times( force , intersect ) );
 			break;
 		case PLANE:
@@ -352,6 +452,20 @@ public class Collision
 		}
 	}
 	
+	/**
+	 * \brief Add force to a mass point, or to the force buffer if set.
+	 * 
+	 * @param point
+	 * @param force
+	 */
+	private void addToForce(Point point, double[] force)
+	{
+		if ( this._buffer == null )
+			point.addToForce( force );
+		else
+			this._buffer.add( point, force );
+	}
+	
 	/* ***********************************************************************
 	 * Assess distance of between two surfaces.
 	 * **********************************************************************/
@@ -0,0 +1,85 @@
+package surface.collision;
+
+import java.util.Arrays;
+
+import surface.Point;
+
+/**
+ * \brief Buffer that accumulates forces on mass points without writing to the
+ * points directly, allowing multiple threads to evaluate collisions for
+ * overlapping sets of points.
+ *
+ * <p>Points are identified by their {@link Point#index()}, forces on points
+ * that are not part of the buffer are applied directly (synchronised on the
+ * point). Buffered forces are added to the points with {@link #apply()},
+ * which should only be called once all threads are done.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ForceBuffer
+{
+	private Point[] _points = new Point[0];
+
+	private int _nDim;
+
+	/**
+	 * Packed force vectors: point index * nDim + dimension.
+	 */
+	private double[] _forces = new double[0];
+
+	/**
+	 * \brief (re)set the points covered by this buffer and clear all forces,
+	 * the index of every point should equal its position in points.
+	 *
+	 * @param points
+	 * @param nDim
+	 */
+	public void set(Point[] points, int nDim)
+	{
+		this._points = points;
+		this._nDim = nDim;
+		int length = points.length * nDim;
+		if ( this._forces.length < length )
+			this._forces = new double[length];
+		else
+			Arrays.fill(this._forces, 0, length, 0.0);
+	}
+
+	/**
+	 * \brief add force to the buffered force of the given point.
+	 *
+	 * @param point
+	 * @param force
+	 */
+	public void add(Point point, double[] force)
+	{
+		int i = point.index();
+		if ( i < 0 || i >= this._points.length || this._points[i] != point )
+		{
+			synchronized (point)
+			{
+				point.addToForce(force);
+			}
+			return;
+		}
+		i *= this._nDim;
+		for ( int j = 0; j < this._nDim; j++ )
+			this._forces[i+j] += force[j];
+	}
+
+	/**
+	 * \brief add all buffered forces to their points.
+	 */
+	public void apply()
+	{
+		double[] f;
+		int i;
+		for ( int p = 0; p < this._points.length; p++ )
+		{
+			f = this._points[p].getForce();
+			i = p * this._nDim;
+			for ( int j = 0; j < this._nDim; j++ )
+				f[j] += this._forces[i+j];
+		}
+	}
+}
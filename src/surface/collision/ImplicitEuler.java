@@ -0,0 +1,213 @@
+package surface.collision;
+
+import surface.Point;
+
+/**
+ * \brief Backward Euler step for the overdamped equations of motion of all
+ * mass points, dx/dt = M F(x) with M the (diagonal) mobility.
+ *
+ * <p>The implicit step x1 = x0 + dt M F(x1) is linearised around the current
+ * positions, resulting in the symmetric system ( M^-1 - dt J ) dx = dt F(x0)
+ * with J the Jacobian of the net forces. This system is solved matrix-free
+ * with the preconditioned conjugate gradient method: products with J are
+ * approximated by a finite difference of the net forces, evaluated over the
+ * current contact graph, such that any collision or pull function can be
+ * used. The mobility is used as (Jacobi) preconditioner, the first iteration
+ * therefore equals an explicit Euler step.</p>
+ *
+ * <p>Every conjugate gradient iteration requires one additional force
+ * evaluation, in return the step size is no longer limited by the stiffness
+ * of the contacts.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ImplicitEuler
+{
+	/**
+	 * Relative perturbation used for the finite difference Jacobian products.
+	 */
+	private static final double EPSILON = 1.0e-8;
+
+	/**
+	 * Maximum number of conjugate gradient iterations per step.
+	 */
+	private final int _maxIter;
+
+	/**
+	 * Relative (preconditioned) residual at which the solver stops.
+	 */
+	private final double _tolerance;
+
+	/**
+	 * Total number of conjugate gradient iterations, for reporting.
+	 */
+	private int _iterations = 0;
+
+	/**
+	 * Packed positions, net forces and mobilities at the start of the step
+	 * (point index * nDim + dimension), frozen points have zero mobility.
+	 */
+	private double[] _x0 = new double[0];
+
+	private double[] _f0 = new double[0];
+
+	private double[] _m = new double[0];
+
+	/**
+	 * Conjugate gradient work vectors.
+	 */
+	private double[] _dx, _r, _z, _p, _ap;
+
+	public ImplicitEuler(int maxIter, double tolerance)
+	{
+		this._maxIter = maxIter;
+		this._tolerance = tolerance;
+	}
+
+	/**
+	 * \brief Perform a single backward Euler step, the net forces on all mass
+	 * points should be evaluated at the current positions. Forces are reset
+	 * after the step.
+	 *
+	 * @param mechanics Packed mechanical state of all mass points.
+	 * @param dt Time step.
+	 * @param forces Evaluates the net forces on all mass points at their
+	 * current positions (adding to the current net force).
+	 */
+	public void step(MechanicsBuffer mechanics, double dt, Runnable forces)
+	{
+		Point[] points = mechanics.points();
+		if ( points.length == 0 )
+			return;
+		int nDim = points[0].nDim();
+		this.allocate( points.length * nDim );
+
+		double[] x, f;
+		int k;
+		for ( int i = 0; i < points.length; i++ )
+		{
+			x = points[i].getPosition();
+			f = points[i].getForce();
+			for ( int d = 0; d < nDim; d++ )
+			{
+				k = i * nDim + d;
+				this._x0[k] = x[d];
+				this._m[k] = ( mechanics.isFrozen(i) ? 0.0 :
+						mechanics.mobility(i) );
+				this._f0[k] = ( mechanics.isFrozen(i) ? 0.0 : f[d] );
+			}
+		}
+		/* Initial guess dx = 0, residual r = dt F(x0) */
+		for ( k = 0; k < this._x0.length; k++ )
+		{
+			this._dx[k] = 0.0;
+			this._r[k] = dt * this._f0[k];
+			this._z[k] = this._m[k] * this._r[k];
+			this._p[k] = this._z[k];
+		}
+		double rz = dot( this._r, this._z );
+		double stop = this._tolerance * this._tolerance * rz;
+		double alpha, pAp, rzNew;
+		for ( int iter = 0; iter < this._maxIter && rz > stop; iter++ )
+		{
+			this.multiply( points, nDim, dt, mechanics, forces );
+			pAp = dot( this._p, this._ap );
+			/* the linearised system is not positive definite (for instance
+			 * due to attractive contacts), keep the current solution. */
+			if ( pAp <= 0.0 )
+				break;
+			alpha = rz / pAp;
+			for ( k = 0; k < this._x0.length; k++ )
+			{
+				this._dx[k] += alpha * this._p[k];
+				this._r[k] -= alpha * this._ap[k];
+				this._z[k] = this._m[k] * this._r[k];
+			}
+			rzNew = dot( this._r, this._z );
+			for ( k = 0; k < this._x0.length; k++ )
+				this._p[k] = this._z[k] + ( rzNew / rz ) * this._p[k];
+			rz = rzNew;
+			this._iterations++;
+		}
+		this.setPositions( points, nDim, this._dx, 1.0 );
+		mechanics.resetForces();
+	}
+
+	/**
+	 * @return total number of conjugate gradient iterations since
+	 * construction.
+	 */
+	public int iterations()
+	{
+		return this._iterations;
+	}
+
+	/**
+	 * \brief Matrix-free product ap = ( M^-1 - dt J ) p, with J p approximated
+	 * by a forward difference of the net forces.
+	 */
+	private void multiply(Point[] points, int nDim, double dt,
+			MechanicsBuffer mechanics, Runnable forces)
+	{
+		double pMax = 0.0;
+		double xMax = 0.0;
+		for ( int k = 0; k < this._x0.length; k++ )
+		{
+			pMax = Math.max( pMax, Math.abs( this._p[k] ) );
+			xMax = Math.max( xMax, Math.abs( this._x0[k] ) );
+		}
+		double eps = EPSILON * ( 1.0 + xMax ) / pMax;
+		this.setPositions( points, nDim, this._p, eps );
+		mechanics.resetForces();
+		forces.run();
+		double[] f;
+		int k;
+		for ( int i = 0; i < points.length; i++ )
+		{
+			f = points[i].getForce();
+			for ( int d = 0; d < nDim; d++ )
+			{
+				k = i * nDim + d;
+				this._ap[k] = ( this._m[k] == 0.0 ? 0.0 : this._p[k] /
+						this._m[k] - dt * ( f[d] - this._f0[k] ) / eps );
+			}
+		}
+	}
+
+	/**
+	 * \brief set all positions to x0 + scale * dx.
+	 */
+	private void setPositions(Point[] points, int nDim, double[] dx,
+			double scale)
+	{
+		for ( int i = 0; i < points.length; i++ )
+		{
+			double[] x = new double[nDim];
+			for ( int d = 0; d < nDim; d++ )
+				x[d] = this._x0[i * nDim + d] + scale * dx[i * nDim + d];
+			points[i].setPosition( x );
+		}
+	}
+
+	private void allocate(int length)
+	{
+		if ( this._x0.length == length )
+			return;
+		this._x0 = new double[length];
+		this._f0 = new double[length];
+		this._m = new double[length];
+		this._dx = new double[length];
+		this._r = new double[length];
+		this._z = new double[length];
+		this._p = new double[length];
+		this._ap = new double[length];
+	}
+
+	private static double dot(double[] a, double[] b)
+	{
+		double out = 0.0;
+		for ( int i = 0; i < a.length; i++ )
+			out += a[i] * b[i];
+		return out;
+	}
+}
@@ -0,0 +1,258 @@
+package surface.collision;
+
+import java.util.Collection;
+
+import agent.Agent;
+import agent.Body;
+import linearAlgebra.Vector;
+import referenceLibrary.AspectRef;
+import shape.Shape;
+import surface.Point;
+
+/**
+ * \brief Packed mechanical state of all mass points used in mechanical
+ * relaxation.
+ *
+ * <p>The mass points of all agents are gathered once per relaxation step
+ * together with their radius and mobility (inverse drag), such that the
+ * mechanical sub-steps (integration, velocity scan and boundary handling) can
+ * iterate over flat arrays without aspect look-ups or recalculating the
+ * drag. The buffer should be rebuild whenever agents are added or removed or
+ * change their radius or body.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class MechanicsBuffer
+{
+	private final String BODY = AspectRef.agentBody;
+
+	private final String RADIUS = AspectRef.bodyRadius;
+
+	private Point[] _points = new Point[0];
+
+	/**
+	 * Agents in this buffer and the index of their first mass point.
+	 */
+	private Agent[] _agents = new Agent[0];
+
+	private int[] _first = new int[1];
+
+	/**
+	 * Frozen mass points are not moved, their forces are discarded.
+	 */
+	private boolean[] _frozen = new boolean[0];
+
+	/**
+	 * Radius and mobility of the agent every point belongs to.
+	 */
+	private double[] _radius = new double[0];
+
+	private double[] _mobility = new double[0];
+
+	/**
+	 * \brief gather the mass points, radii and mobilities of the given agents.
+	 *
+	 * @param agents
+	 */
+	public void set(Collection<Agent> agents)
+	{
+		this._agents = agents.toArray( new Agent[agents.size()] );
+		this._first = new int[this._agents.length + 1];
+		for ( int a = 0; a < this._agents.length; a++ )
+			this._first[a+1] = this._first[a] + 
+					((Body) this._agents[a].get(BODY)).getPoints().size();
+		int n = this._first[this._agents.length];
+		this._points = new Point[n];
+		this._frozen = new boolean[n];
+		this._radius = new double[n];
+		this._mobility = new double[n];
+		for ( int a = 0, i = 0; a < this._agents.length; a++ )
+		{
+			double radius = this._agents[a].getDouble(RADIUS);
+			double mobility = Point.mobility( radius );
+			for ( Point point : ((Body) this._agents[a].get(BODY)).getPoints() )
+			{
+				this._points[i] = point;
+				this._radius[i] = radius;
+				this._mobility[i++] = mobility;
+			}
+		}
+	}
+
+	/**
+	 * @return all mass points in this buffer.
+	 */
+	public Point[] points()
+	{
+		return this._points;
+	}
+
+	/**
+	 * @return all agents in this buffer, in the order their points are
+	 * stored.
+	 */
+	public Agent[] agents()
+	{
+		return this._agents;
+	}
+
+	/**
+	 * \brief freeze or release all mass points of the agent with the given
+	 * index, frozen points are not moved by any of the integration methods.
+	 *
+	 * @param agent index of the agent in {@link #agents()}.
+	 * @param frozen
+	 */
+	public void setFrozen(int agent, boolean frozen)
+	{
+		for ( int i = this._first[agent]; i < this._first[agent+1]; i++ )
+			this._frozen[i] = frozen;
+	}
+
+	/**
+	 * @param agent index of the agent in {@link #agents()}.
+	 * @return highest squared net force on any of the agent's mass points.
+	 */
+	public double maxForceSquare(int agent)
+	{
+		double out = 0.0;
+		for ( int i = this._first[agent]; i < this._first[agent+1]; i++ )
+			out = Math.max( out, Vector.normSquare( 
+					this._points[i].getForce() ) );
+		return out;
+	}
+
+	/**
+	 * @param point index of the mass point in {@link #points()}.
+	 * @return mobility (inverse drag) of the mass point.
+	 */
+	public double mobility(int point)
+	{
+		return this._mobility[point];
+	}
+
+	/**
+	 * @param point index of the mass point in {@link #points()}.
+	 * @return true if the mass point is frozen.
+	 */
+	public boolean isFrozen(int point)
+	{
+		return this._frozen[point];
+	}
+
+	/**
+	 * \brief reset the net force of all mass points.
+	 */
+	public void resetForces()
+	{
+		for ( Point point : this._points )
+			point.resetForce();
+	}
+
+	/**
+	 * \brief allocate storage for higher order ODE solvers.
+	 *
+	 * @param size
+	 */
+	public void initialiseC(int size)
+	{
+		for ( Point point : this._points )
+			point.initialiseC(size);
+	}
+
+	/**
+	 * @return highest squared velocity of any of the (not frozen) mass
+	 * points.
+	 */
+	public double maxSpeedSquare()
+	{
+		double out = 0.0;
+		double ts;
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( ! this._frozen[i] && ( ts = 
+					this._points[i].speedSquare( this._mobility[i] ) ) > out )
+				out = ts;
+		return out;
+	}
+
+	/**
+	 * \brief Euler step for all mass points.
+	 *
+	 * @param dt
+	 */
+	public void euler(double dt)
+	{
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( this._frozen[i] )
+				this._points[i].resetForce();
+			else
+				this._points[i].euStepMobility( dt, this._mobility[i] );
+	}
+
+	/**
+	 * \brief First stage of Heun's method for all mass points.
+	 *
+	 * @param dt
+	 */
+	public void heun1(double dt)
+	{
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( this._frozen[i] )
+				this._points[i].resetForce();
+			else
+				this._points[i].heun1Mobility( dt, this._mobility[i] );
+	}
+
+	/**
+	 * \brief Second stage of Heun's method for all mass points.
+	 *
+	 * @param dt
+	 */
+	public void heun2(double dt)
+	{
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( this._frozen[i] )
+				this._points[i].resetForce();
+			else
+				this._points[i].heun2Mobility( dt, this._mobility[i] );
+	}
+
+	/**
+	 * \brief Shove all mass points, see
+	 * {@link Point#shove(double, double, double)}.
+	 *
+	 * @param shovingLimit
+	 * @param shoveFactor
+	 */
+	public void shove(double shovingLimit, double shoveFactor)
+	{
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( this._frozen[i] )
+				this._points[i].resetForce();
+			else
+				this._points[i].shove( shovingLimit, shoveFactor,
+						this._radius[i] );
+	}
+
+	/**
+	 * \brief apply the boundaries of the shape to all mass points.
+	 *
+	 * @param shape
+	 */
+	public void applyBoundaries(Shape shape)
+	{
+		for ( Point point : this._points )
+			point.setPosition( shape.applyBoundaries( point.getPosition() ) );
+	}
+
+	/**
+	 * @return true if any of the mass points has a NaN position.
+	 */
+	public boolean hasNaN()
+	{
+		for ( Point point : this._points )
+			if ( Double.isNaN( point.getPosition()[0] ) )
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,245 @@
+package surface.collision;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import agent.Agent;
+import agent.Body;
+import compartment.AgentContainer;
+import referenceLibrary.AspectRef;
+import spatialRegistry.PairBuffer;
+import surface.Point;
+
+/**
+ * \brief Verlet neighbour list for mechanical relaxation.
+ *
+ * <p>Candidate neighbours are found with a search distance extended by a
+ * skin distance, the resulting list remains valid as long as no mass point
+ * has moved more than half the skin distance since the list was built. This
+ * allows to skip the neighbourhood search for most mechanical steps.</p>
+ *
+ * <p>Each neighbour pair is stored only once, with the agent of the higher
+ * identity as focal agent, unless the list is symmetric in which case every
+ * agent holds all of its candidate neighbours.</p>
+ *
+ * <p>If the spatial registry supports self-joins all candidate pairs are
+ * obtained in a single pass using the largest search distance of all agents,
+ * otherwise the neighbours of every agent are searched individually.</p>
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class VerletList
+{
+	private final String SEARCH_DIST = AspectRef.collisionSearchDistance;
+
+	private final String BODY = AspectRef.agentBody;
+
+	/**
+	 * Empty neighbourhood, returned for agents that are unknown to the list.
+	 */
+	private static final Agent[] NONE = new Agent[0];
+
+	/**
+	 * Additional search distance.
+	 */
+	private final double _skin;
+
+	/**
+	 * Squared maximum displacement (half the skin) before the list expires.
+	 */
+	private final double _maxDisplacementSquare;
+
+	/**
+	 * Store every pair for both agents.
+	 */
+	private final boolean _symmetric;
+
+	/**
+	 * Candidate neighbours (lower identity only unless symmetric) per focal
+	 * agent.
+	 */
+	private Map<Agent, Agent[]> _neighbours = new HashMap<Agent, Agent[]>();
+
+	/**
+	 * Reusable buffer for the candidate pairs.
+	 */
+	private PairBuffer<Agent> _pairs = new PairBuffer<Agent>();
+
+	/**
+	 * All mass points and their position at the time the list was built.
+	 */
+	private Point[] _points = new Point[0];
+
+	private double[][] _reference = new double[0][];
+
+	/**
+	 * Set when the list must be rebuild regardless of displacement.
+	 */
+	private boolean _expired = true;
+
+	/**
+	 * Number of times the list was (re)build, for reporting.
+	 */
+	private int _builds = 0;
+
+	public VerletList(double skin)
+	{
+		this(skin, false);
+	}
+
+	public VerletList(double skin, boolean symmetric)
+	{
+		this._skin = skin;
+		this._maxDisplacementSquare = 0.25 * skin * skin;
+		this._symmetric = symmetric;
+	}
+
+	/**
+	 * \brief force a rebuild on the next {@link #expired()} call,
+	 * for example because agents have been added, removed or changed.
+	 */
+	public void invalidate()
+	{
+		this._expired = true;
+	}
+
+	/**
+	 * @return true if any mass point has moved more than half the skin
+	 * distance since the list was built or if the list was invalidated.
+	 */
+	public boolean expired()
+	{
+		if ( this._expired )
+			return true;
+		for ( int i = 0; i < this._points.length; i++ )
+			if ( this._points[i].distanceSquare( this._reference[i] ) >
+					this._maxDisplacementSquare )
+				return true;
+		return false;
+	}
+
+	/**
+	 * \brief Build the neighbour list for the given agents, the spatial
+	 * registry of the agent container should be up to date.
+	 *
+	 * @param agents
+	 * @param container
+	 */
+	public void build(Collection<Agent> agents, AgentContainer container)
+	{
+		this._neighbours = new HashMap<Agent, Agent[]>( 2 * agents.size() );
+		List<Point> points = new ArrayList<Point>( agents.size() );
+		double maxSearchDist = 0.0;
+		for ( Agent agent : agents )
+		{
+			maxSearchDist = Math.max( maxSearchDist, this.searchDist(agent) );
+			points.addAll( ((Body) agent.get(BODY)).getPoints() );
+		}
+		if ( ! this.buildFromPairs(container, maxSearchDist) )
+			this.buildFromSearch(agents, container);
+		this._points = points.toArray(new Point[points.size()]);
+		this._reference = new double[this._points.length][];
+		for ( int i = 0; i < this._points.length; i++ )
+			this._reference[i] = this._points[i].getPosition();
+		this._expired = false;
+		this._builds++;
+	}
+
+	/**
+	 * \brief Obtain the neighbours of all agents from a single self-join of
+	 * the spatial registry, returns false if not supported.
+	 */
+	private boolean buildFromPairs(AgentContainer container, 
+			double searchDist)
+	{
+		if ( ! container.agentPairs(searchDist + this._skin, this._pairs) )
+			return false;
+		/* count the neighbours of every agent (by buffer index) first, such 
+		 * that all neighbourhoods can be filled directly. */
+		int n = this._pairs.objects();
+		int[] count = new int[n];
+		boolean[] focal = new boolean[this._pairs.size()];
+		int a, b;
+		for ( int i = 0; i < this._pairs.size(); i++ )
+		{
+			a = this._pairs.first(i);
+			b = this._pairs.second(i);
+			focal[i] = this._pairs.object(a).identity() > 
+					this._pairs.object(b).identity();
+			if ( this._symmetric || focal[i] )
+				count[a]++;
+			if ( this._symmetric || ! focal[i] )
+				count[b]++;
+		}
+		Agent[][] out = new Agent[n][];
+		for ( int i = 0; i < n; i++ )
+			out[i] = ( count[i] == 0 ? NONE : new Agent[count[i]] );
+		Arrays.fill( count, 0 );
+		for ( int i = 0; i < this._pairs.size(); i++ )
+		{
+			a = this._pairs.first(i);
+			b = this._pairs.second(i);
+			if ( this._symmetric || focal[i] )
+				out[a][count[a]++] = this._pairs.object(b);
+			if ( this._symmetric || ! focal[i] )
+				out[b][count[b]++] = this._pairs.object(a);
+		}
+		for ( int i = 0; i < n; i++ )
+			this._neighbours.put( this._pairs.object(i), out[i] );
+		this._pairs.clear();
+		return true;
+	}
+
+	/**
+	 * \brief Search the neighbours of every agent individually.
+	 */
+	private void buildFromSearch(Collection<Agent> agents,
+			AgentContainer container)
+	{
+		List<Agent> out = new ArrayList<Agent>();
+		for ( Agent agent : agents )
+		{
+			out.clear();
+			for ( Agent neighbour : container.agentSearch(agent, 
+					this.searchDist(agent) + this._skin) )
+				if ( this._symmetric ||
+						agent.identity() > neighbour.identity() )
+					out.add(neighbour);
+			this._neighbours.put(agent, out.toArray(new Agent[out.size()]));
+		}
+	}
+
+	private double searchDist(Agent agent)
+	{
+		return ( agent.isAspect(SEARCH_DIST) ?
+				agent.getDouble(SEARCH_DIST) : 0.0 );
+	}
+
+	/**
+	 * @param agent
+	 * @return candidate neighbours of the given agent (with a lower identity
+	 * unless the list is symmetric).
+	 */
+	public Agent[] getNeighbours(Agent agent)
+	{
+		Agent[] out = this._neighbours.get(agent);
+		return ( out == null ? NONE : out );
+	}
+
+	/**
+	 * @return number of times the list was built since construction.
+	 */
+	public int builds()
+	{
+		return this._builds;
+	}
+
+	public double getSkin()
+	{
+		return this._skin;
+	}
+}
@@ -24,7 +24,9 @@ import test.junit.oldTests.AgentEventTest;
 import test.junit.oldTests.BoundaryTest;
 import test.junit.oldTests.ChemostatsTest;
 import test.junit.oldTests.CoordinateMapTest;
+import test.junit.oldTests.DistributionMapTest;
 import test.junit.oldTests.ExtraMathTest;
+import test.junit.oldTests.ImplicitEulerTest;
 import test.junit.oldTests.IteratorForCyclicLineTests;
 import test.junit.oldTests.IteratorForCyclicSquaresTests;
 import test.junit.oldTests.LinearAlgebraTest;
@@ -32,6 +34,7 @@ import test.junit.oldTests.MultigridLayerForLineTests;
 import test.junit.oldTests.MultigridLayerForRectangleTests;
 import test.junit.oldTests.MultigridLayerForSquareTests;
 import test.junit.oldTests.MultigridResolutionTests;
+import test.junit.oldTests.PDEkrylovTests;
 import test.junit.oldTests.PDEmultigridTestsForLine;
 import test.junit.oldTests.PDEmultigridTestsForSquare;
 import test.junit.oldTests.PdeTransientTest;
@@ -44,7 +47,9 @@ import test.junit.oldTests.XMLableTest;
 				BoundaryTest.class,
 				ChemostatsTest.class,
 				CoordinateMapTest.class,
+				DistributionMapTest.class,
 				ExtraMathTest.class,
+				ImplicitEulerTest.class,
 				IteratorForCyclicLineTests.class,
 				IteratorForCyclicSquaresTests.class,
 				LinearAlgebraTest.class,
@@ -52,6 +57,7 @@ import test.junit.oldTests.XMLableTest;
 				MultigridLayerForRectangleTests.class,
 				MultigridLayerForSquareTests.class,
 				MultigridResolutionTests.class,
+				PDEkrylovTests.class,
 				PDEmultigridTestsForLine.class,
 				PDEmultigridTestsForSquare.class,
 				PdeTransientTest.class,
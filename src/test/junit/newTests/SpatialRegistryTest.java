@@ -0,0 +1,189 @@
+package test.junit.newTests;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import spatialRegistry.CellGrid;
+import shape.Dimension.DimName;
+import shape.Shape;
+import shape.ShapeLibrary.Rectangle;
+import spatialRegistry.PairBuffer;
+import spatialRegistry.RTree;
+import spatialRegistry.SpatialRegistry;
+import spatialRegistry.splitTree.SplitTree;
+import surface.BoundingBox;
+import utility.ExtraMath;
+
+/**
+ * \brief: Unit tests for spatial registries.
+ *
+ * Randomly distributed and moved boxes are registered in the registry, the
+ * search results are compared against a brute force evaluation, the registry
+ * may return false positives but no false negatives or duplicates.
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class SpatialRegistryTest
+{
+	private final double _length = 10.0;
+
+	private final double _radius = 0.2;
+
+	private final int _entries = 200;
+
+	@Test
+	public void incrementalSplitTree()
+	{
+		SpatialRegistry<Integer> tree = new SplitTree<Integer>( 9,
+				new double[] { 0.0, 0.0 }, new double[] { _length, _length },
+				new boolean[] { true, false } );
+		tree.setMargin( 0.5 );
+		double[][] p = this.populate( tree );
+		for ( int step = 0; step < 50; step++ )
+		{
+			this.move( p );
+			for ( int i = 0; i < this._entries; i++ )
+				assertTrue( tree.update( Collections.singletonList(
+						new BoundingBox().get( p[i], _radius ) ), i ) );
+		}
+		this.evaluate( tree, p );
+	}
+
+	@Test
+	public void cellGrid()
+	{
+		SpatialRegistry<Integer> grid = new CellGrid<Integer>(
+				new double[] { 0.0, 0.0 }, new double[] { _length, _length },
+				new boolean[] { true, false }, 0.7 );
+		double[][] p = this.populate( grid );
+		this.evaluate( grid, p );
+	}
+
+	@Test
+	public void incrementalCellGrid()
+	{
+		SpatialRegistry<Integer> grid = new CellGrid<Integer>(
+				new double[] { 0.0, 0.0 }, new double[] { _length, _length },
+				new boolean[] { true, false }, 0.7 );
+		grid.setMargin( 0.5 );
+		double[][] p = this.populate( grid );
+		for ( int step = 0; step < 50; step++ )
+		{
+			this.move( p );
+			for ( int i = 0; i < this._entries; i++ )
+				assertTrue( grid.update( Collections.singletonList(
+						new BoundingBox().get( p[i], _radius ) ), i ) );
+		}
+		this.evaluate( grid, p );
+	}
+
+	@Test
+	public void pairs()
+	{
+		SpatialRegistry<Integer> tree = new SplitTree<Integer>( 9,
+				new double[] { 0.0, 0.0 }, new double[] { _length, _length },
+				new boolean[] { true, false } );
+		this.evaluatePairs( tree, this.populate( tree ) );
+		SpatialRegistry<Integer> grid = new CellGrid<Integer>(
+				new double[] { 0.0, 0.0 }, new double[] { _length, _length },
+				new boolean[] { true, false }, 0.7 );
+		grid.setMargin( 0.1 );
+		this.evaluatePairs( grid, this.populate( grid ) );
+		Shape shape = new Rectangle();
+		shape.getDimension( DimName.X ).setLength( _length );
+		shape.getDimension( DimName.Y ).setLength( _length );
+		shape.makeCyclic( DimName.X );
+		SpatialRegistry<Integer> rTree = new RTree<Integer>( 8, 2, shape );
+		this.evaluatePairs( rTree, this.populate( rTree ) );
+	}
+
+	/**
+	 * \brief insert randomly located entries.
+	 */
+	protected double[][] populate(SpatialRegistry<Integer> registry)
+	{
+		ExtraMath.initialiseRandomNumberGenerator();
+		double[][] p = new double[this._entries][];
+		for ( int i = 0; i < this._entries; i++ )
+		{
+			p[i] = new double[] { ExtraMath.getUniRandDbl() * _length,
+					ExtraMath.getUniRandDbl() * _length };
+			registry.insert( new BoundingBox().get( p[i], _radius ), i );
+		}
+		return p;
+	}
+
+	/**
+	 * \brief small random displacement, periodic in the first dimension.
+	 */
+	protected void move(double[][] p)
+	{
+		for ( int i = 0; i < this._entries; i++ )
+		{
+			p[i][0] = ( p[i][0] + ExtraMath.getUniRandDbl() * 0.3 + _length )
+					% _length;
+			p[i][1] = Math.min( _length - 0.1, Math.max( 0.1,
+					p[i][1] + ExtraMath.getUniRandDbl() * 0.2 - 0.1 ) );
+		}
+	}
+
+	/**
+	 * \brief compare registry search against brute force evaluation.
+	 */
+	protected void evaluate(SpatialRegistry<Integer> registry, double[][] p)
+	{
+		for ( int i = 0; i < this._entries; i++ )
+		{
+			List<Integer> found = registry.search(
+					new BoundingBox().get( p[i], _radius ) );
+			assertTrue( "duplicate entries",
+					new HashSet<Integer>( found ).size() == found.size() );
+			for ( int j = 0; j < this._entries; j++ )
+			{
+				double dx = Math.abs( p[i][0] - p[j][0] );
+				dx = Math.min( dx, _length - dx );
+				double dy = Math.abs( p[i][1] - p[j][1] );
+				if ( dx < 2.0 * _radius && dy < 2.0 * _radius )
+					assertTrue( "missed " + i + " " + j, found.contains( j ) );
+			}
+		}
+	}
+
+	/**
+	 * \brief compare registry self-join against brute force evaluation, every
+	 * pair should be reported exactly once.
+	 */
+	protected void evaluatePairs(SpatialRegistry<Integer> registry,
+			double[][] p)
+	{
+		double distance = 0.3;
+		PairBuffer<Integer> pairs = new PairBuffer<Integer>();
+		assertTrue( registry.pairs( distance, pairs ) );
+		HashSet<Integer> found = new HashSet<Integer>();
+		for ( int k = 0; k < pairs.size(); k++ )
+		{
+			int a = Math.min( pairs.object( pairs.first(k) ), 
+					pairs.object( pairs.second(k) ) );
+			int b = Math.max( pairs.object( pairs.first(k) ), 
+					pairs.object( pairs.second(k) ) );
+			assertTrue( "self pair", a != b );
+			assertTrue( "duplicate pair", found.add( a * this._entries + b ) );
+		}
+		for ( int i = 0; i < this._entries; i++ )
+			for ( int j = i + 1; j < this._entries; j++ )
+			{
+				double dx = Math.abs( p[i][0] - p[j][0] );
+				dx = Math.min( dx, _length - dx );
+				double dy = Math.abs( p[i][1] - p[j][1] );
+				if ( dx < 2.0 * _radius + distance &&
+						dy < 2.0 * _radius + distance )
+					assertTrue( "missed " + i + " " + j,
+							found.contains( i * this._entries + j ) );
+			}
+	}
+}
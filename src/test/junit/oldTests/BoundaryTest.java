@@ -15,12 +15,19 @@ import boundary.spatialLibrary.SolidBoundary;
 import compartment.Compartment;
 import dataIO.Log;
 import dataIO.Log.Tier;
+import grid.ArrayType;
+import grid.SpatialGrid;
+import grid.WellMixedConstants;
+import idynomics.Global;
 import idynomics.Idynomics;
+import linearAlgebra.Array;
+import processManager.library.AgentRelaxation;
 import referenceLibrary.AspectRef;
 import referenceLibrary.XmlRef;
 import shape.Dimension;
 import shape.Dimension.DimName;
 import shape.Shape;
+import shape.resolution.UniformResolution;
 import test.OldTests;
 import utility.ExtraMath;
 
@@ -110,4 +117,90 @@ public class BoundaryTest
 		double expected = compartmentLength - boundaryLayerThickness + 3*agentRadius;
 		assertTrue(ExtraMath.areEqual(found, expected, 0.1*boundaryLayerThickness));
 	}
+	
+	@Test
+	public void relaxationRegistryMarginLeavesBoundaryLayerUnchanged()
+	{
+		double margin = Global.spatial_registry_margin;
+		double[][][] withMargin = wellMixedAfterRelaxation(0.1);
+		double[][][] withoutMargin = wellMixedAfterRelaxation(0.0);
+		Global.spatial_registry_margin = margin;
+		assertTrue(Array.areSame(withMargin, withoutMargin));
+	}
+	
+	/**
+	 * \brief Relax a few agents that lie just within voxel edges, then
+	 * update the well-mixed array of a biofilm boundary layer.
+	 * 
+	 * @param margin Spatial registry margin used during relaxation.
+	 * @return Copy of the well-mixed array.
+	 */
+	private static double[][][] wellMixedAfterRelaxation(double margin)
+	{
+		Global.spatial_registry_margin = margin;
+		OldTests.setupSimulatorForTest(1.0, 1.0, "relaxationRegistryMargin");
+		Compartment comp = Idynomics.simulator.addCompartment("biofilm");
+		Shape shape = OldTests.GetShape("Rectangle");
+		for ( DimName dimName : new DimName[]{DimName.X, DimName.Y} )
+		{
+			Dimension dim = shape.getDimension(dimName);
+			dim.setLength(8.0);
+			UniformResolution resCalc = new UniformResolution(dim);
+			resCalc.setResolution(1.0);
+			shape.setDimensionResolution(dimName, resCalc);
+		}
+		/* The agent tree is sized to the shape when it is set. */
+		comp.setShape(shape);
+		comp.environment.addSolute(
+				new SpatialGrid("solute", 0.0, comp.environment));
+		/*
+		 * Solid boundaries, except for the boundary layer on top. Without a
+		 * layer thickness, only voxels that overlap with agents are not mixed.
+		 */
+		for ( int extreme = 0; extreme < 2; extreme++ )
+		{
+			SolidBoundary solid = new SolidBoundary();
+			solid.setParent(shape.getDimension(DimName.X));
+			solid.setExtreme(extreme);
+			comp.addBoundary(solid);
+		}
+		SolidBoundary bottom = new SolidBoundary();
+		bottom.setParent(shape.getDimension(DimName.Y));
+		bottom.setExtreme(0);
+		comp.addBoundary(bottom);
+		BiofilmBoundaryLayer bL = new BiofilmBoundaryLayer();
+		bL.setParent(shape.getDimension(DimName.Y));
+		bL.setExtreme(1);
+		comp.addBoundary(bL);
+		comp.getShape().setSurfaces();
+		/*
+		 * Agents that do not touch each other, with a 0.05 gap to the edges
+		 * of the voxels they lie in.
+		 */
+		for ( double[] position : new double[][] { 
+				{2.5, 1.5}, {5.5, 1.5}, {3.5, 4.5} } )
+		{
+			Agent agent = new Agent();
+			agent.setCompartment(comp);
+			agent.set(AspectRef.agentBody, new Body(position, 0.45));
+			agent.set(AspectRef.bodyRadius, 0.45);
+			agent.set(AspectRef.isLocated, new Boolean(true));
+			comp.addAgent(agent);
+		}
+		AgentRelaxation relax = new AgentRelaxation();
+		relax.setName("relaxation");
+		relax.init(null, comp.environment, comp.agents, comp.getName());
+		relax.setTimeForNextStep(0.0);
+		relax.setTimeStepSize(1.0);
+		relax.step();
+		/*
+		 * Update the well-mixed array as the environment does.
+		 */
+		SpatialGrid common = comp.environment.getCommonGrid();
+		common.newArray(ArrayType.WELLMIXED);
+		common.setAllTo(ArrayType.WELLMIXED, 
+				WellMixedConstants.COMPLETELY_MIXED);
+		bL.updateWellMixedArray();
+		return Array.copy(common.getArray(ArrayType.WELLMIXED));
+	}
 }
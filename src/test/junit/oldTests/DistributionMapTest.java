@@ -0,0 +1,67 @@
+package test.junit.oldTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static test.OldTests.TOLERANCE;
+
+import org.junit.Test;
+
+import shape.subvoxel.DistributionMap;
+import utility.ExtraMath;
+
+/**
+ * \brief Unit test checking that Distribution Maps behave like Coordinate
+ * Maps, while keeping their entries in insertion order.
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class DistributionMapTest
+{
+	@Test
+	public void mapShouldBehaveItself()
+	{
+		DistributionMap map = new DistributionMap(1);
+		/*
+		 * Make coordA and coordB identical, but coordC different. CoordD is
+		 * coordC without the insignificant third dimension.
+		 */
+		int[] coordA = {1, 2, 3};
+		int[] coordB = {1, 2, 3};
+		int[] coordC = {0, 0, 0};
+		int[] coordD = {0, 0};
+		map.put(coordA, 1.0);
+		map.put(coordB, 1.5);
+		map.put(coordC, 2.0);
+		assertEquals(2, map.size());
+		assertTrue(ExtraMath.areEqual(map.get(coordA), 1.5, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(map.get(coordD), 2.0, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(map.getTotal(), 3.5, TOLERANCE));
+		/*
+		 * Check the increase method works, and that entries keep their order.
+		 */
+		map.increase(coordA, 6.0);
+		map.increase(coordD, 0.5);
+		map.increase(new int[]{4, 5, 6}, 1.0);
+		assertEquals(3, map.size());
+		assertEquals(4, map.getCoord(2)[0]);
+		assertTrue(ExtraMath.areEqual(map.getValue(0), 7.5, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(map.getValue(1), 2.5, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(map.getTotal(), 11.0, TOLERANCE));
+		/*
+		 * Check the scaling methods, and that copies are independent.
+		 */
+		DistributionMap copy = (DistributionMap) map.copy();
+		map.scale();
+		assertTrue(ExtraMath.areEqual(map.getTotal(), 1.0, TOLERANCE));
+		map.scale(5.8);
+		assertTrue(ExtraMath.areEqual(map.getTotal(), 5.8, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(copy.getTotal(), 11.0, TOLERANCE));
+		/*
+		 * Finally, check that the map clears correctly.
+		 */
+		map.clear();
+		assertTrue(ExtraMath.areEqual(map.getTotal(), 0.0, TOLERANCE));
+		assertTrue(map.isEmpty());
+		assertTrue(! map.containsKey(coordA));
+	}
+}
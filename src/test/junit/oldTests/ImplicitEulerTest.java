@@ -0,0 +1,122 @@
+package test.junit.oldTests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import agent.Agent;
+import agent.Body;
+import referenceLibrary.AspectRef;
+import shape.Dimension.DimName;
+import shape.Shape;
+import surface.Surface;
+import surface.collision.Collision;
+import surface.collision.CollisionVariables;
+import surface.collision.ImplicitEuler;
+import surface.collision.MechanicsBuffer;
+import test.OldTests;
+
+/**
+ * \brief Test checking that the implicit (backward Euler) mechanical
+ * relaxation follows the explicit Euler relaxation.
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class ImplicitEulerTest
+{
+	/**
+	 * Radius and initial overlap of the two coccoids.
+	 */
+	private final static double RADIUS = 0.5;
+
+	private final static double OVERLAP = 0.05;
+
+	/**
+	 * \brief Two slightly overlapping coccoids pushed apart by the default
+	 * collision function.
+	 *
+	 * <p>The simulated time is such that the agents would resolve half of
+	 * their overlap at their initial speed. Explicit Euler with a step far
+	 * below the contact time scale serves as reference, ten implicit steps
+	 * should result in the same displacement up to the first order error of
+	 * backward Euler.</p>
+	 */
+	@Test
+	public void implicitDisplacementMatchesExplicit()
+	{
+		OldTests.setupSimulatorForTest(1.0, 1.0,
+				"implicitDisplacementMatchesExplicit");
+		MechanicsBuffer explicit = new MechanicsBuffer();
+		Runnable explicitForces = this.twoCoccoids(explicit);
+		explicitForces.run();
+		double speed = Math.sqrt( explicit.maxSpeedSquare() );
+		explicit.resetForces();
+		double tMax = 0.25 * OVERLAP / speed;
+		int nExplicit = 1000;
+		for ( int i = 0; i < nExplicit; i++ )
+		{
+			explicitForces.run();
+			explicit.euler(tMax / nExplicit);
+		}
+
+		MechanicsBuffer implicit = new MechanicsBuffer();
+		Runnable implicitForces = this.twoCoccoids(implicit);
+		ImplicitEuler solver = new ImplicitEuler(10, 1.0e-6);
+		int nImplicit = 10;
+		for ( int i = 0; i < nImplicit; i++ )
+		{
+			implicitForces.run();
+			solver.step(implicit, tMax / nImplicit, implicitForces);
+		}
+
+		double reference = displacement(explicit);
+		/* the agents should have resolved a considerable part of the overlap */
+		assertTrue(reference > 0.1 * OVERLAP);
+		assertEquals(reference, displacement(implicit), 0.05 * reference);
+	}
+
+	/**
+	 * \brief Fill the given buffer with two coccoids that overlap along the
+	 * x-axis.
+	 *
+	 * @return Evaluates the collision forces between the two coccoids.
+	 */
+	private Runnable twoCoccoids(MechanicsBuffer mechanics)
+	{
+		Shape shape = OldTests.GetShape("Rectangle");
+		shape.getDimension(DimName.X).setLength(10.0);
+		shape.getDimension(DimName.Y).setLength(10.0);
+		List<Agent> agents = new ArrayList<Agent>();
+		for ( double x : new double[] {
+				5.0 - RADIUS + 0.5 * OVERLAP, 5.0 + RADIUS - 0.5 * OVERLAP } )
+		{
+			Agent agent = new Agent();
+			agent.set(AspectRef.agentBody,
+					new Body(new double[] { x, 5.0 }, RADIUS));
+			agent.set(AspectRef.bodyRadius, RADIUS);
+			agents.add(agent);
+		}
+		mechanics.set(agents);
+		Collision collision = new Collision(shape);
+		CollisionVariables var = new CollisionVariables(2, 0.0);
+		Surface a = ((Body) agents.get(0).get(AspectRef.agentBody))
+				.getSurfaces().get(0);
+		Surface b = ((Body) agents.get(1).get(AspectRef.agentBody))
+				.getSurfaces().get(0);
+		return () -> collision.collision(a, agents.get(0), b, agents.get(1),
+				var);
+	}
+
+	/**
+	 * @return distance moved by the right-hand coccoid.
+	 */
+	private static double displacement(MechanicsBuffer mechanics)
+	{
+		return mechanics.points()[1].getPosition()[0] -
+				( 5.0 + RADIUS - 0.5 * OVERLAP );
+	}
+}
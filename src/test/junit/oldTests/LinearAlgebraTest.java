@@ -12,6 +12,7 @@ import static test.OldTests.TOLERANCE;
 import org.junit.Test;
 
 import linearAlgebra.Array;
+import linearAlgebra.ArrowheadMatrix;
 import linearAlgebra.CholeskyDecomposition;
 import linearAlgebra.EigenvalueDecomposition;
 import linearAlgebra.LUDecomposition;
@@ -455,6 +456,86 @@ public class LinearAlgebraTest
 		double[] x = luD.solve(b);
 		double[] bCopy = Matrix.times(mOrig, x);
 		assertTrue(Vector.areSame(b, bCopy, TOLERANCE));
+		/*
+		 * Solve with the transposed matrix, and estimate the condition.
+		 */
+		luD.solveTransposeTo(x, b);
+		bCopy = Matrix.times(Matrix.transpose(mOrig), x);
+		assertTrue(Vector.areSame(b, bCopy, TOLERANCE));
+		assertTrue(ExtraMath.areEqual(luD.conditionEstimate(),
+				condition1(mOrig), TOLERANCE));
+	}
+	
+	/**
+	 * @return Condition number of the matrix in the 1-norm.
+	 */
+	private static double condition1(double[][] matrix)
+	{
+		double out = 1.0;
+		for ( double[][] m : new double[][][] {matrix, Matrix.invert(matrix)} )
+		{
+			double max = 0.0;
+			for ( int j = 0; j < m.length; j++ )
+			{
+				double sum = 0.0;
+				for ( int i = 0; i < m.length; i++ )
+					sum += Math.abs(m[i][j]);
+				max = Math.max(max, sum);
+			}
+			out *= max;
+		}
+		return out;
+	}
+	
+	@Test
+	public void arrowheadMatrixSolvesLikeDense()
+	{
+		/*
+		 * Border of two, then blocks of three, none and two.
+		 */
+		ArrowheadMatrix a = new ArrowheadMatrix(new int[] {2, 5, 5, 7});
+		for ( int i = 0; i < a.size(); i++ )
+			for ( int j = 0; j < a.size(); j++ )
+			{
+				boolean inStructure = i < 2 || j < 2 || 
+						( i < 5 && j < 5 ) || ( i >= 5 && j >= 5 );
+				if ( inStructure && i != j )
+					a.set(i, j, Math.sin(7.0 * i + 3.0 * j));
+			}
+		for ( int i = 1; i < a.size(); i++ )
+			a.set(i, i, 4.0);
+		try
+		{
+			a.set(2, 6, 1.0);
+			fail("Entries outside the structure should not be set");
+		}
+		catch ( IllegalArgumentException e ) {}
+		/*
+		 * The zero in the top left corner needs pivoting.
+		 */
+		double[][] dense = a.toDense();
+		double[] b = new double[] {1.0, 2.3, 3.0, -1.0, 0.5, 2.0, -0.7};
+		double[] x = Vector.copy(b);
+		a.solveEquals(x);
+		assertTrue(Vector.areSame(Matrix.solve(dense, b), x, TOLERANCE));
+		assertTrue(Vector.areSame(b, Matrix.times(dense, x), TOLERANCE));
+		/*
+		 * I - 0.5 * a, decomposed again after the change.
+		 */
+		ArrowheadMatrix w = new ArrowheadMatrix(a.getOffsets());
+		w.identityMinusTo(a, 0.5);
+		dense = Matrix.minus(Matrix.identityDbl(a.size()), 
+				Matrix.times(dense, 0.5));
+		assertTrue(Matrix.areSame(dense, w.toDense(), TOLERANCE));
+		x = Vector.copy(b);
+		w.solveEquals(x);
+		assertTrue(Vector.areSame(b, Matrix.times(dense, x), TOLERANCE));
+		x = Vector.copy(b);
+		w.solveTransposeEquals(x);
+		assertTrue(Vector.areSame(b, 
+				Matrix.times(Matrix.transpose(dense), x), TOLERANCE));
+		assertTrue(ExtraMath.areEqual(w.conditionEstimate(),
+				condition1(dense), TOLERANCE));
 	}
 	
 	@Test
@@ -0,0 +1,96 @@
+package test.junit.oldTests;
+
+import static grid.ArrayType.CONCN;
+import static grid.ArrayType.DIFFUSIVITY;
+import static grid.ArrayType.PRODUCTIONRATE;
+import static grid.ArrayType.WELLMIXED;
+import static org.junit.Assert.assertEquals;
+import static test.OldTests.TOLERANCE;
+
+import java.util.Collection;
+
+import org.junit.Test;
+
+import boundary.spatialLibrary.FixedBoundary;
+import boundary.spatialLibrary.SolidBoundary;
+import grid.SpatialGrid;
+import processManager.ProcessDiffusion;
+import shape.Dimension;
+import shape.Dimension.DimName;
+import shape.Shape;
+import shape.resolution.UniformResolution;
+import solver.PDEkrylov;
+import test.OldTests;
+
+/**
+ * \brief Tests for the PDEkrylov steady-state solver.
+ *
+ * @author Bastiaan Cockx @BastiaanCockx (baco@env.dtu.dk), DTU, Denmark.
+ */
+public class PDEkrylovTests
+{
+	/**
+	 * \brief Linear diffusion with first-order decay on a line, with a solid
+	 * boundary at one end and a fixed concentration at the other.
+	 *
+	 * <p>With unit voxels, diffusivity <i>D</i> and decay rate <i>k</i> the
+	 * discrete steady state is <i>c<sub>i</sub> = C cosh(&theta; (i + 1/2))
+	 * / cosh(&theta; (n + 1/2))</i>, with <i>cosh &theta; = 1 + k / 2D</i>:
+	 * the solid boundary mirrors the first voxel and the fixed concentration
+	 * <i>C</i> is one voxel beyond the last.</p>
+	 */
+	@Test
+	public void krylovSolvesDiffusionDecayOnLine()
+	{
+		int nVoxel = 8;
+		double diffusivity = 1.0;
+		final double decay = 0.1;
+		double fixed = 2.0;
+		String soluteName = "solute";
+		OldTests.setupSimulatorForTest(1.0, 1.0,
+				"krylovSolvesDiffusionDecayOnLine");
+		Shape shape = OldTests.GetShape("Line");
+		Dimension x = shape.getDimension(DimName.X);
+		x.setLength(nVoxel);
+		UniformResolution resCalc = new UniformResolution(x);
+		resCalc.setResolution(1.0);
+		shape.setDimensionResolution(DimName.X, resCalc);
+		shape.setBoundary(DimName.X, 0, new SolidBoundary());
+		FixedBoundary top = new FixedBoundary();
+		top.setConcentration(soluteName, fixed);
+		shape.setBoundary(DimName.X, 1, top);
+		/* Start far from the solution. */
+		SpatialGrid solute = new SpatialGrid(shape, soluteName, null);
+		solute.newArray(CONCN, 10.0);
+		solute.newArray(DIFFUSIVITY, diffusivity);
+		solute.newArray(PRODUCTIONRATE);
+		SpatialGrid common = new SpatialGrid(shape, "common", null);
+		common.newArray(WELLMIXED, 0.0);
+		PDEkrylov solver = new PDEkrylov();
+		solver.init(new String[] { soluteName }, false);
+		solver.setAbsoluteTolerance(1.0E-12);
+		solver.setRelativeTolerance(1.0E-12);
+		solver.setUpdater(new ProcessDiffusion()
+		{
+			@Override
+			public void prestep(Collection<SpatialGrid> variables, double dt)
+			{
+				for ( SpatialGrid var : variables )
+				{
+					double[] concn = var.getFlatArray(CONCN);
+					double[] prod = var.getFlatArray(PRODUCTIONRATE);
+					for ( int i = 0; i < concn.length; i++ )
+						prod[i] = - decay * concn[i];
+				}
+			}
+		});
+		solver.solve(OldTests.gridsAsCollection(solute), common, 1.0);
+		double coshTheta = 1.0 + decay / ( 2.0 * diffusivity );
+		double theta = Math.log(coshTheta + 
+				Math.sqrt(coshTheta * coshTheta - 1.0));
+		double scale = fixed / Math.cosh(theta * ( nVoxel + 0.5 ));
+		for ( int i = 0; i < nVoxel; i++ )
+			assertEquals(scale * Math.cosh(theta * ( i + 0.5 )),
+					solute.getValueAt(CONCN, new int[] {i, 0, 0}), TOLERANCE);
+	}
+}
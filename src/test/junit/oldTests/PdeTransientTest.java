@@ -7,6 +7,8 @@ import java.util.Arrays;
 
 import org.junit.Test;
 
+import agent.Agent;
+import agent.Body;
 import boundary.spatialLibrary.FixedBoundary;
 import boundary.spatialLibrary.SolidBoundary;
 import compartment.Compartment;
@@ -17,6 +19,9 @@ import grid.SpatialGrid;
 import idynomics.Idynomics;
 import linearAlgebra.Vector;
 import processManager.library.SolveDiffusionTransient;
+import reaction.RegularReaction;
+import reaction.RegularReaction.ReactionType;
+import referenceLibrary.AspectRef;
 import shape.Dimension;
 import shape.Dimension.DimName;
 import shape.Shape;
@@ -441,4 +446,100 @@ public class PdeTransientTest
 					0, TOLERANCE));
 		}
 	}
+	
+	/**
+	 * \brief The ADI and implicit solvers, stepping with their default
+	 * accuracy, should agree with the explicit solver taking small steps.
+	 */
+	@Test
+	public void adiAndImplicitAgreeWithExplicit()
+	{
+		double[] explicit = concentrationsAfterSolving("explicit");
+		for ( String solver : new String[]{"adi", "implicit"} )
+		{
+			double[] implicit = concentrationsAfterSolving(solver);
+			double maxDiff = 0.0;
+			for ( int i = 0; i < explicit.length; i++ )
+				maxDiff = Math.max(maxDiff, 
+						Math.abs(implicit[i] - explicit[i]));
+			Log.out(Tier.NORMAL, solver + " differs at most " + maxDiff + 
+					" from explicit");
+			assertTrue(maxDiff < 0.03);
+		}
+	}
+	
+	/**
+	 * \brief Solve diffusion with first-order decay on a small cuboid,
+	 * cyclic in X and Z, with a solid boundary at the bottom and a fixed
+	 * concentration at the top.
+	 * 
+	 * <p>A few agents at the bottom, with a boundary layer thicker than the
+	 * cuboid, keep the well-mixed region empty.</p>
+	 * 
+	 * @param solver Name of the transient solver, the explicit solver is
+	 * stepped in small steps to serve as the reference.
+	 * @return Concentrations after solving.
+	 */
+	private static double[] concentrationsAfterSolving(String solver)
+	{
+		double tStep = ( solver.equals("explicit") ? 0.01 : 0.5 );
+		int nStep = (int) Math.round(2.0 / tStep);
+		String soluteName = "solute";
+		OldTests.setupSimulatorForTest(tStep, nStep * tStep, 
+				"adiAndImplicitAgreeWithExplicit");
+		Compartment comp = Idynomics.simulator.addCompartment("cuboid");
+		Shape shape = OldTests.GetShape("Cuboid");
+		Dimension x = shape.getDimension(DimName.X);
+		Dimension y = shape.getDimension(DimName.Y);
+		Dimension z = shape.getDimension(DimName.Z);
+		x.setCyclic();
+		z.setCyclic();
+		for ( Dimension dim : new Dimension[]{x, y, z} )
+		{
+			dim.setLength(dim == y ? 4.0 : 6.0);
+			UniformResolution resCalc = new UniformResolution(dim);
+			resCalc.setResolution(1.0);
+			shape.setDimensionResolution(dim.getName(), resCalc);
+		}
+		comp.setShape(shape);
+		SolidBoundary bottom = new SolidBoundary();
+		bottom.setParent(y);
+		bottom.setExtreme(0);
+		comp.addBoundary(bottom);
+		FixedBoundary top = new FixedBoundary();
+		top.setParent(y);
+		top.setExtreme(1);
+		top.setConcentration(soluteName, 2.0);
+		top.setLayerThickness(10.0);
+		comp.addBoundary(top);
+		for ( double[] position : new double[][] { 
+				{0.5, 0.5, 0.5}, {3.5, 0.5, 3.5} } )
+		{
+			Agent agent = new Agent();
+			agent.setCompartment(comp);
+			agent.set(AspectRef.agentBody, new Body(position, 0.4));
+			agent.set(AspectRef.bodyRadius, 0.4);
+			agent.set(AspectRef.isLocated, new Boolean(true));
+			comp.addAgent(agent);
+		}
+		comp.environment.addSolute(
+				new SpatialGrid(soluteName, 0.0, comp.environment));
+		comp.environment.addReaction(new RegularReaction(soluteName, -1.0, 
+				"0.5*" + soluteName, "decay", ReactionType.VOLUME));
+		/* A gradient along the cyclic dimension. */
+		SpatialGrid sG = comp.getSolute(soluteName);
+		for ( int[] c = shape.resetIterator(); 
+				shape.isIteratorValid(); 
+				c = shape.iteratorNext() )
+			sG.setValueAt(ArrayType.CONCN, c, 0.5 * c[0]);
+		SolveDiffusionTransient pm = new SolveDiffusionTransient();
+		pm.setName("DR solver");
+		pm.set(AspectRef.solver, solver);
+		pm.init(null, comp.environment, comp.agents, comp.getName());
+		pm.setTimeForNextStep(0.0);
+		pm.setTimeStepSize(tStep);
+		for ( int i = 0; i < nStep; i++ )
+			pm.step();
+		return sG.getFlatArray(ArrayType.CONCN).clone();
+	}
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ import linearAlgebra.Vector;
 import shape.Dimension;
 import shape.Dimension.DimName;
 import shape.Shape;
+import shape.Stencil;
 import shape.resolution.UniformResolution;
 import test.OldTests;
 import utility.ExtraMath;
@@ -505,6 +506,57 @@ public class ShapesTest
 		Log.out(DEBUG, "");	
 	}
 	
+	@Test
+	public void stencilShouldMatchIterator()
+	{
+		OldTests.setupSimulatorForTest(1.0, 1.0, "stencilShouldMatchIterator");
+		Shape shape = OldTests.GetShape("Circle");
+		Dimension radial = shape.getDimension(DimName.R);
+		radial.setLength(3.0);
+		UniformResolution resCalc = new UniformResolution(radial);
+		resCalc.setResolution(1.0);
+		shape.setDimensionResolution(DimName.R, resCalc);
+		Dimension theta = shape.getDimension(DimName.THETA);
+		theta.setLength(2 * Math.PI / 3);
+		resCalc = new UniformResolution(theta);
+		resCalc.setResolution(1.0);
+		shape.setDimensionResolution(DimName.THETA, resCalc);
+		for ( int extreme = 0; extreme < 2; extreme++ )
+		{
+			SolidBoundary bndry = new SolidBoundary();
+			Element e = OldTests.getSpatialBoundaryElement(extreme);
+			bndry.instantiate(e, radial);
+			shape.setBoundary(DimName.R, extreme, bndry);
+		}
+		shape.makeCyclic(DimName.THETA);
+		for ( int stride = 1; stride <= 2; stride++ )
+		{
+			Stencil stencil = shape.getStencil(stride);
+			shape.setNewIterator(stride);
+			int v = 0, n;
+			for ( int[] coord = shape.resetIterator(); shape.isIteratorValid();
+					coord = shape.iteratorNext(), v++ )
+			{
+				assertTrue(Vector.areSame(coord, stencil.coord(v)));
+				assertEquals(shape.getCurrVoxelVolume(), stencil.volume(v),
+						TOLERANCE);
+				n = stencil.nhbFrom(v);
+				for ( shape.resetNbhIterator(); shape.isNbhIteratorValid();
+						shape.nbhIteratorNext(), n++ )
+				{
+					assertEquals(shape.isNbhIteratorInside(),
+							stencil.isNhbInside(n));
+					assertEquals(shape.nhbCurrDistance(),
+							stencil.nhbDistance(n), TOLERANCE);
+					assertEquals(shape.nhbCurrSharedArea(),
+							stencil.nhbSharedArea(n), TOLERANCE);
+				}
+				assertEquals(n, stencil.nhbTo(v));
+			}
+			assertEquals(v, stencil.size());
+		}
+	}
+	
 	private void checkRedBlackIteration(Shape shape)
 	{
 		/* Reset the iterator. */